@@ -0,0 +1,90 @@
+#!/bin/sh
+# Benchmark de arranque: tiempo hasta el primer GET /api/pedidos con 200 y memoria residente (RSS)
+# en ese momento, para cada variante disponible:
+#   jvm     jar normal, perfil por defecto (JPA, H2, springdoc)
+#   ligero  jar normal, perfil "ligero" (solo almacén en memoria)
+#   aot     jar con el contexto AOT del perfil "ligero" (-Dspring.aot.enabled=true)
+#   nativo  imagen nativa de GraalVM, perfil "ligero"
+#
+# Preparación (el jar de -Paot sirve para las tres primeras variantes):
+#   mvn -Paot -DskipTests package
+#   mvn -Pnative -DskipTests native:compile    # opcional, requiere GraalVM
+#
+# Uso: scripts/benchmark-arranque.sh [repeticiones] [puerto]
+# El resultado (mediana por variante) se escribe también en target/arranque.csv.
+
+set -eu
+
+REPETICIONES=${1:-5}
+PUERTO=${2:-18081}
+JAR=target/ddd-ejemplo-0.0.1-SNAPSHOT.jar
+NATIVO=target/ddd-ejemplo
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+CSV=target/arranque.csv
+TMP=$(mktemp -d)
+trap 'rm -rf "$TMP"' EXIT
+
+cd "$(dirname "$0")/.."
+
+if [ ! -f "$JAR" ]; then
+    echo "No existe $JAR; ejecuta antes: mvn -Paot -DskipTests package" >&2
+    exit 1
+fi
+
+ahora_ms() {
+    date +%s%3N
+}
+
+# Arranca el comando, espera al primer 200 y escribe "milisegundos rss_kb"
+medir() {
+    inicio=$(ahora_ms)
+    "$@" --server.port="$PUERTO" --pedidos.auditoria.directorio="$TMP/auditoria" >"$TMP/salida.log" 2>&1 &
+    pid=$!
+    limite=$((inicio + 120000))
+    while :; do
+        codigo=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PUERTO/api/pedidos" || true)
+        [ "$codigo" = "200" ] && break
+        if ! kill -0 "$pid" 2>/dev/null || [ "$(ahora_ms)" -gt "$limite" ]; then
+            echo "La variante no arrancó; ver salida:" >&2
+            tail -20 "$TMP/salida.log" >&2
+            kill "$pid" 2>/dev/null || true
+            return 1
+        fi
+        sleep 0.01
+    done
+    fin=$(ahora_ms)
+    rss=$(awk '/^VmRSS:/ {print $2}' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$((fin - inicio)) $rss"
+}
+
+mediana() {
+    sort -n | awk '{v[NR] = $1} END {print v[int((NR + 1) / 2)]}'
+}
+
+variante() {
+    nombre=$1
+    shift
+    : >"$TMP/$nombre"
+    i=1
+    while [ "$i" -le "$REPETICIONES" ]; do
+        medir "$@" >>"$TMP/$nombre" || return 0
+        i=$((i + 1))
+    done
+    ms=$(cut -d' ' -f1 "$TMP/$nombre" | mediana)
+    rss=$(cut -d' ' -f2 "$TMP/$nombre" | mediana)
+    printf '%-8s %10s %10s\n' "$nombre" "$ms" "$((rss / 1024))"
+    echo "$nombre,$ms,$rss" >>"$CSV"
+}
+
+echo "variante,primer_get_ms,rss_kb" >"$CSV"
+printf '%-8s %10s %10s\n' variante "ms" "RSS MB"
+variante jvm "$JAVA" -jar "$JAR"
+variante ligero "$JAVA" -Dspring.profiles.active=ligero -jar "$JAR"
+variante aot "$JAVA" -Dspring.aot.enabled=true -Dspring.profiles.active=ligero -jar "$JAR"
+if [ -x "$NATIVO" ]; then
+    variante nativo env SPRING_PROFILES_ACTIVE=ligero "$NATIVO"
+else
+    echo "nativo   (no disponible: mvn -Pnative -DskipTests native:compile)"
+fi
@@ -0,0 +1,59 @@
+#!/bin/sh
+# Arranca un cluster de prueba en localhost: N nodos (a, b, c, ...) en los puertos 8081, 8082, ...
+# Cada nodo escribe su log en target/cluster/<nodo>.log y su auditoría en target/cluster/<nodo>/.
+#
+# Preparación:
+#   mvn -DskipTests package
+#
+# Uso: scripts/cluster-local.sh [nodos]
+# El secreto del cluster se toma de PEDIDOS_CLUSTER_SECRETO o se genera uno al azar para esta ejecución.
+# Ctrl+C detiene todos los nodos.
+
+set -eu
+
+NODOS=${1:-3}
+JAR=target/ddd-ejemplo-0.0.1-SNAPSHOT.jar
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+IDS=abcdefghij
+SECRETO=${PEDIDOS_CLUSTER_SECRETO:-$(od -An -N16 -tx1 /dev/urandom | tr -d ' \n')}
+
+cd "$(dirname "$0")/.."
+
+if [ ! -f "$JAR" ]; then
+    echo "No existe $JAR; ejecuta antes: mvn -DskipTests package" >&2
+    exit 1
+fi
+if [ "$NODOS" -lt 1 ] || [ "$NODOS" -gt ${#IDS} ]; then
+    echo "El número de nodos debe estar entre 1 y ${#IDS}" >&2
+    exit 1
+fi
+
+id_nodo() {
+    echo "$IDS" | cut -c"$1"
+}
+
+MIEMBROS=""
+for i in $(seq 1 "$NODOS"); do
+    MIEMBROS="${MIEMBROS:+$MIEMBROS,}$(id_nodo "$i")=http://localhost:$((8080 + i))"
+done
+
+mkdir -p target/cluster
+PIDS=""
+trap 'kill $PIDS 2>/dev/null' EXIT INT TERM
+
+for i in $(seq 1 "$NODOS"); do
+    NODO=$(id_nodo "$i")
+    LOG_PATH=target/cluster/$NODO "$JAVA" -jar "$JAR" \
+        --server.port=$((8080 + i)) \
+        --pedidos.cluster.habilitado=true \
+        --pedidos.cluster.nodo="$NODO" \
+        --pedidos.cluster.miembros="$MIEMBROS" \
+        --pedidos.cluster.secreto="$SECRETO" \
+        --pedidos.inventario.habilitado=false \
+        > "target/cluster/$NODO.log" 2>&1 &
+    PIDS="$PIDS $!"
+    echo "Nodo $NODO en http://localhost:$((8080 + i)) (log en target/cluster/$NODO.log)"
+done
+
+echo "Miembros: $MIEMBROS"
+wait
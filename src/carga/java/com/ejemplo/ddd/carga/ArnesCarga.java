@@ -0,0 +1,260 @@
+package com.ejemplo.ddd.carga;
+
+import com.ejemplo.ddd.DddEjemploApplication;
+import com.ejemplo.ddd.carga.ConfiguracionCarga.Operacion;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Arnés de carga HTTP contra {@code PedidoController} con informe de latencias HdrHistogram.
+ * <p>
+ * Usa un modelo abierto: las peticiones se programan a una tasa fija y la latencia se mide desde el
+ * instante en que <em>debería</em> haberse enviado cada petición, no desde que se envió. Así, si el
+ * servidor se atasca, las peticiones que se acumulan detrás cuentan su espera y los percentiles no
+ * quedan falseados por la omisión coordinada.
+ * <p>
+ * Todo se ejecuta contra localhost: por defecto arranca la aplicación en el mismo proceso en un
+ * puerto libre, con el control de admisión desactivado para medir el servicio y no la cuota.
+ */
+public class ArnesCarga {
+
+    private static final Pattern ID_PEDIDO = Pattern.compile("\"idPedido\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+    private static final long LATENCIA_MAXIMA_MICROS = TimeUnit.MINUTES.toMicros(1);
+    // Del catálogo de ejemplo y sin existencias controladas, para que las confirmaciones no las agoten
+    private static final String PRODUCTO = "00000000-0000-0000-0000-000000000003";
+
+    private final ConfiguracionCarga configuracion;
+    private final HttpClient cliente;
+    private final String base;
+    private final List<String> pedidos = Collections.synchronizedList(new ArrayList<>());
+    private final ConcurrentLinkedQueue<String> pedidosPendientes = new ConcurrentLinkedQueue<>();
+    private final Map<Operacion, Recorder> registros = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, AtomicLong> errores = new EnumMap<>(Operacion.class);
+    private final Operacion[] tablaMezcla;
+
+    ArnesCarga(ConfiguracionCarga configuracion, String base, ExecutorService executor) {
+        this.configuracion = configuracion;
+        this.base = base;
+        this.cliente = HttpClient.newBuilder()
+            .executor(executor)
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        for (Operacion operacion : Operacion.values()) {
+            registros.put(operacion, new Recorder(LATENCIA_MAXIMA_MICROS, 3));
+            errores.put(operacion, new AtomicLong());
+        }
+        this.tablaMezcla = construirTablaMezcla(configuracion.mezcla());
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfiguracionCarga configuracion = ConfiguracionCarga.desdePropiedades();
+        ConfigurableApplicationContext contexto = null;
+        String base = configuracion.url();
+        if (base == null) {
+            contexto = SpringApplication.run(DddEjemploApplication.class,
+                "--server.port=0", "--pedidos.admision.habilitada=false", "--logging.level.com.ejemplo.ddd=WARN", "--logging.level.org.springframework.web=WARN");
+            base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+        }
+
+        boolean superado;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            superado = new ArnesCarga(configuracion, base, executor).ejecutar(System.out);
+        } finally {
+            executor.shutdownNow();
+            if (contexto != null) {
+                contexto.close();
+            }
+        }
+        System.exit(superado ? 0 : 1);
+    }
+
+    /**
+     * Ejecuta el calentamiento y la medición e imprime el informe.
+     * @return {@code true} si el p99 global y el porcentaje de errores están dentro de sus umbrales.
+     */
+    boolean ejecutar(PrintStream salida) throws IOException, InterruptedException {
+        salida.printf("Sembrando %d pedidos en %s%n", configuracion.pedidosIniciales(), base);
+        for (int i = 0; i < configuracion.pedidosIniciales(); i++) {
+            registrarPedido(cliente.send(peticionCrear(), HttpResponse.BodyHandlers.ofString()).body());
+        }
+
+        salida.printf("Calentamiento de %s a %.0f pet/s%n", configuracion.calentamiento(), configuracion.tasa());
+        lanzar(configuracion.calentamiento());
+        registros.values().forEach(Recorder::reset);
+        errores.values().forEach(e -> e.set(0));
+
+        salida.printf("Medición de %s a %.0f pet/s%n", configuracion.duracion(), configuracion.tasa());
+        long retraso = lanzar(configuracion.duracion());
+
+        return informar(salida, retraso);
+    }
+
+    /**
+     * Programa peticiones a tasa fija durante la duración indicada y espera a que terminen.
+     * @return El mayor retraso (ns) del planificador respecto al instante previsto.
+     */
+    private long lanzar(Duration duracion) {
+        long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / configuracion.tasa());
+        long inicio = System.nanoTime();
+        long fin = inicio + duracion.toNanos();
+        long peorRetraso = 0;
+        AtomicLong enVuelo = new AtomicLong();
+
+        for (long previsto = inicio; previsto < fin; previsto += intervalo) {
+            long espera = previsto - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            } else {
+                peorRetraso = Math.max(peorRetraso, -espera);
+            }
+            Operacion operacion = tablaMezcla[ThreadLocalRandom.current().nextInt(tablaMezcla.length)];
+            enVuelo.incrementAndGet();
+            enviar(operacion, previsto).whenComplete((r, e) -> enVuelo.decrementAndGet());
+        }
+        while (enVuelo.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        return peorRetraso;
+    }
+
+    private CompletableFuture<?> enviar(Operacion operacion, long previsto) {
+        // Las líneas solo se añaden a pedidos pendientes: el pedido sale de la cola mientras dura la petición,
+        // para que una transición no lo confirme a la vez. Si no queda ninguno, se crea uno
+        String pendiente = operacion == Operacion.LINEA ? pedidosPendientes.poll() : null;
+        boolean crea = operacion == Operacion.CREAR || operacion == Operacion.LINEA && pendiente == null;
+        HttpRequest peticion = switch (operacion) {
+            case OBTENER -> HttpRequest.newBuilder(URI.create(base + "/api/pedidos/" + pedidoAleatorio())).GET().build();
+            case CREAR -> peticionCrear();
+            case LINEA -> pendiente == null ? peticionCrear() : peticionJson("/api/pedidos/" + pendiente + "/lineas",
+                "{\"idProducto\":\"" + PRODUCTO + "\",\"cantidad\":1}");
+            case TRANSICION -> peticionTransicion();
+        };
+        return cliente.sendAsync(peticion, HttpResponse.BodyHandlers.ofString())
+            .whenComplete((respuesta, error) -> {
+                long latenciaMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - previsto);
+                registros.get(operacion).recordValue(Math.min(latenciaMicros, LATENCIA_MAXIMA_MICROS));
+                if (error != null || respuesta.statusCode() >= 400) {
+                    errores.get(operacion).incrementAndGet();
+                } else if (crea) {
+                    registrarPedido(respuesta.body());
+                }
+                if (pendiente != null) {
+                    pedidosPendientes.add(pendiente);
+                }
+            });
+    }
+
+    private HttpRequest peticionTransicion() {
+        // Se confirman pedidos pendientes; si no quedan, se cancela uno cualquiera
+        String pendiente = pedidosPendientes.poll();
+        if (pendiente != null) {
+            return peticionJson("/api/pedidos/" + pendiente + "/confirmar", "");
+        }
+        return peticionJson("/api/pedidos/" + pedidoAleatorio() + "/cancelar", "{\"motivo\":\"Prueba de carga\"}");
+    }
+
+    private HttpRequest peticionCrear() {
+        return peticionJson("/api/pedidos", """
+            {"idCliente":"cliente-carga","direccionEnvio":{"calle":"Calle Falsa 123","ciudad":"Springfield",
+             "codigoPostal":"12345","pais":"ES"},
+             "lineas":[{"idProducto":"%s","cantidad":2}],"moneda":"EUR"}
+            """.formatted(PRODUCTO));
+    }
+
+    private HttpRequest peticionJson(String ruta, String cuerpo) {
+        return HttpRequest.newBuilder(URI.create(base + ruta))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+            .build();
+    }
+
+    private void registrarPedido(String cuerpo) {
+        Matcher matcher = ID_PEDIDO.matcher(cuerpo);
+        if (matcher.find()) {
+            pedidos.add(matcher.group(1));
+            pedidosPendientes.add(matcher.group(1));
+        }
+    }
+
+    private String pedidoAleatorio() {
+        return pedidos.get(ThreadLocalRandom.current().nextInt(pedidos.size()));
+    }
+
+    private boolean informar(PrintStream salida, long retrasoPlanificador) throws IOException {
+        Histogram global = new Histogram(LATENCIA_MAXIMA_MICROS, 3);
+        salida.println();
+        salida.printf("%-11s %10s %8s %10s %10s %10s %10s %10s%n",
+            "operación", "peticiones", "errores", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms");
+        for (Operacion operacion : Operacion.values()) {
+            Histogram histograma = registros.get(operacion).getIntervalHistogram();
+            global.add(histograma);
+            imprimirFila(salida, operacion.name().toLowerCase(), histograma, errores.get(operacion).get());
+        }
+        long erroresTotales = errores.values().stream().mapToLong(AtomicLong::get).sum();
+        imprimirFila(salida, "total", global, erroresTotales);
+        salida.printf("%nMayor retraso del planificador: %.2f ms%n", retrasoPlanificador / 1e6);
+
+        Path informe = Path.of(configuracion.informe());
+        Files.createDirectories(informe.toAbsolutePath().getParent());
+        try (PrintStream fichero = new PrintStream(Files.newOutputStream(informe))) {
+            global.outputPercentileDistribution(fichero, 1000.0);
+        }
+        salida.printf("Distribución completa de percentiles (ms) en %s%n", informe);
+
+        // Una petición fallida suele ser rápida: sin mirar los errores, un servidor que rechaza todo pasaría
+        double p99 = global.getValueAtPercentile(99) / 1000.0;
+        double pctErrores = global.getTotalCount() == 0 ? 100.0 : 100.0 * erroresTotales / global.getTotalCount();
+        boolean superado = p99 <= configuracion.p99MaximoMs() && pctErrores <= configuracion.erroresMaximosPct();
+        salida.printf("%s: p99 %.2f ms (umbral %.2f ms), errores %d = %.2f%% (umbral %.2f%%)%n",
+            superado ? "SUPERADO" : "NO SUPERADO", p99, configuracion.p99MaximoMs(),
+            erroresTotales, pctErrores, configuracion.erroresMaximosPct());
+        return superado;
+    }
+
+    private static void imprimirFila(PrintStream salida, String nombre, Histogram h, long errores) {
+        salida.printf("%-11s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", nombre, h.getTotalCount(), errores,
+            h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+            h.getValueAtPercentile(99) / 1000.0, h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0);
+    }
+
+    private static Operacion[] construirTablaMezcla(Map<Operacion, Integer> mezcla) {
+        int total = mezcla.values().stream().mapToInt(Integer::intValue).sum();
+        Operacion[] tabla = new Operacion[total];
+        int i = 0;
+        for (Map.Entry<Operacion, Integer> entrada : mezcla.entrySet()) {
+            for (int j = 0; j < entrada.getValue(); j++) {
+                tabla[i++] = entrada.getKey();
+            }
+        }
+        return tabla;
+    }
+}
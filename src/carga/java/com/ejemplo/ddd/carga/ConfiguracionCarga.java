@@ -0,0 +1,68 @@
+package com.ejemplo.ddd.carga;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuración del arnés de carga, leída de propiedades de sistema:
+ * <ul>
+ *   <li>{@code carga.url}: URL base de una instancia ya arrancada. Si no se indica, se arranca la aplicación en proceso.</li>
+ *   <li>{@code carga.tasa}: peticiones por segundo programadas (modelo abierto). Por defecto 200.</li>
+ *   <li>{@code carga.duracion}: duración de la medición (ISO-8601). Por defecto PT30S.</li>
+ *   <li>{@code carga.calentamiento}: duración del calentamiento previo, no medido. Por defecto PT10S.</li>
+ *   <li>{@code carga.mezcla}: pesos de cada operación. Por defecto {@code obtener:80,crear:10,linea:5,transicion:5}.</li>
+ *   <li>{@code carga.pedidos-iniciales}: pedidos creados antes de empezar. Por defecto 1000.</li>
+ *   <li>{@code carga.p99-maximo-ms}: umbral de p99 global; si se supera el arnés termina con código 1. Por defecto 50.</li>
+ *   <li>{@code carga.errores-maximos-pct}: porcentaje máximo de peticiones con error (fallo de red o estado 4xx/5xx);
+ *       si se supera el arnés también termina con código 1. Por defecto 0.1.</li>
+ *   <li>{@code carga.informe}: fichero donde se guarda el histograma completo (.hgrm). Por defecto target/carga/latencias.hgrm.</li>
+ * </ul>
+ */
+record ConfiguracionCarga(
+    String url,
+    double tasa,
+    Duration duracion,
+    Duration calentamiento,
+    Map<Operacion, Integer> mezcla,
+    int pedidosIniciales,
+    double p99MaximoMs,
+    double erroresMaximosPct,
+    String informe
+) {
+
+    enum Operacion { OBTENER, CREAR, LINEA, TRANSICION }
+
+    static ConfiguracionCarga desdePropiedades() {
+        return new ConfiguracionCarga(
+            System.getProperty("carga.url"),
+            Double.parseDouble(System.getProperty("carga.tasa", "200")),
+            Duration.parse(System.getProperty("carga.duracion", "PT30S")),
+            Duration.parse(System.getProperty("carga.calentamiento", "PT10S")),
+            leerMezcla(System.getProperty("carga.mezcla", "obtener:80,crear:10,linea:5,transicion:5")),
+            Integer.parseInt(System.getProperty("carga.pedidos-iniciales", "1000")),
+            Double.parseDouble(System.getProperty("carga.p99-maximo-ms", "50")),
+            Double.parseDouble(System.getProperty("carga.errores-maximos-pct", "0.1")),
+            System.getProperty("carga.informe", "target/carga/latencias.hgrm")
+        );
+    }
+
+    private static Map<Operacion, Integer> leerMezcla(String texto) {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (String parte : texto.split(",")) {
+            String[] claveValor = parte.trim().split(":");
+            if (claveValor.length != 2) {
+                throw new IllegalArgumentException("Formato de mezcla no válido (operacion:peso): " + parte);
+            }
+            int peso = Integer.parseInt(claveValor[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("El peso de la operación no puede ser negativo: " + parte);
+            }
+            mezcla.put(Operacion.valueOf(claveValor[0].trim().toUpperCase()), peso);
+        }
+        if (mezcla.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("La mezcla debe tener al menos una operación con peso positivo");
+        }
+        return mezcla;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ejemplo.ddd.aplicacion.servicio;
+
+import com.ejemplo.ddd.aplicacion.dto.PedidoDTO;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark de la conversión de Pedido a PedidoDTO para distintos números de líneas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionPedidoDTOBenchmark {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @Param({"1", "10", "100", "1000"})
+    private int lineas;
+
+    private Pedido pedido;
+
+    @Setup
+    public void preparar() {
+        pedido = Pedido.crearNuevoPedido("cliente-benchmark",
+            new Direccion("Calle Falsa 123", "Springfield", "12345", "España"), EUR);
+        for (int i = 0; i < lineas; i++) {
+            pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), i + 1, new Dinero(new BigDecimal("10.50"), EUR));
+        }
+    }
+
+    @Benchmark
+    public PedidoDTO convertirAPedidoDTO() {
+        return PedidoAplicacionService.convertirAPedidoDTO(pedido);
+    }
+}
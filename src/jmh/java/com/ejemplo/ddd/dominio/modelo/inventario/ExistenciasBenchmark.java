@@ -0,0 +1,115 @@
+package com.ejemplo.ddd.dominio.modelo.inventario;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.servicio.ServicioReservaExistencias;
+import com.ejemplo.ddd.infraestructura.inventario.InventarioEnMemoria;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contención sobre las existencias de un único producto (venta flash): todos los hilos reservan y
+ * devuelven unidades del mismo contador. Se mide el rendimiento agregado de todos los hilos.
+ * <ul>
+ *   <li>{@code compareAndSet}: reserva y liberación sobre {@link Existencias}.</li>
+ *   <li>{@code sincronizado}: el mismo contador protegido con un monitor, como referencia.</li>
+ *   <li>{@code pedido}: reserva todo o nada de un pedido con una línea del producto disputado y otra de un
+ *       producto propio del hilo, y su liberación, a través de {@link ServicioReservaExistencias}.</li>
+ * </ul>
+ * Con otro número de hilos: {@code -Djmh.args="ExistenciasBenchmark -t 64"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(2000)
+@Fork(1)
+public class ExistenciasBenchmark {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+    private static final Dinero PRECIO = new Dinero(new BigDecimal("10.50"), EUR);
+    // Sobran unidades para que todos los hilos tengan su reserva a la vez: se mide la contención, no el agotamiento
+    private static final long EXISTENCIAS_INICIALES = 1_000_000;
+
+    private final IdentificadorProducto productoDisputado = IdentificadorProducto.nuevo();
+    private InventarioEnMemoria inventario;
+    private Existencias existencias;
+    private ContadorSincronizado contadorSincronizado;
+    private ServicioReservaExistencias servicio;
+
+    @Setup
+    public void preparar() {
+        inventario = new InventarioEnMemoria();
+        existencias = new Existencias(productoDisputado, EXISTENCIAS_INICIALES);
+        inventario.guardar(existencias);
+        contadorSincronizado = new ContadorSincronizado(EXISTENCIAS_INICIALES);
+        servicio = new ServicioReservaExistencias(inventario);
+    }
+
+    @State(Scope.Thread)
+    public static class PedidoDelHilo {
+
+        private Pedido pedido;
+
+        @Setup
+        public void preparar(ExistenciasBenchmark benchmark) {
+            IdentificadorProducto productoPropio = IdentificadorProducto.nuevo();
+            benchmark.inventario.guardar(new Existencias(productoPropio, EXISTENCIAS_INICIALES));
+            pedido = Pedido.crearNuevoPedido("cliente-benchmark", DIRECCION, EUR);
+            pedido.agregarLineaPedido(benchmark.productoDisputado, 1, PRECIO);
+            pedido.agregarLineaPedido(productoPropio, 1, PRECIO);
+        }
+    }
+
+    @Benchmark
+    public boolean compareAndSet() {
+        boolean reservada = existencias.reservar(1);
+        if (reservada) {
+            existencias.liberar(1);
+        }
+        return reservada;
+    }
+
+    @Benchmark
+    public boolean sincronizado() {
+        boolean reservada = contadorSincronizado.reservar(1);
+        if (reservada) {
+            contadorSincronizado.liberar(1);
+        }
+        return reservada;
+    }
+
+    @Benchmark
+    public void pedido(PedidoDelHilo delHilo) {
+        servicio.reservar(delHilo.pedido);
+        servicio.liberar(delHilo.pedido.getId());
+    }
+
+    private static final class ContadorSincronizado {
+
+        private long disponibles;
+
+        private ContadorSincronizado(long disponibles) {
+            this.disponibles = disponibles;
+        }
+
+        private synchronized boolean reservar(long cantidad) {
+            if (disponibles < cantidad) {
+                return false;
+            }
+            disponibles -= cantidad;
+            return true;
+        }
+
+        private synchronized void liberar(long cantidad) {
+            disponibles += cantidad;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ejemplo.ddd.dominio.modelo.pedido;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks de la aritmética del Objeto de Valor Dinero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DineroBenchmark {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private Dinero a;
+    private Dinero b;
+    private BigDecimal factor;
+
+    @Setup
+    public void preparar() {
+        a = new Dinero(new BigDecimal("1234.56"), EUR);
+        b = new Dinero(new BigDecimal("78.90"), EUR);
+        factor = BigDecimal.valueOf(7);
+    }
+
+    @Benchmark
+    public Dinero sumar() {
+        return a.sumar(b);
+    }
+
+    @Benchmark
+    public Dinero multiplicar() {
+        return a.multiplicar(factor);
+    }
+}
@@ -0,0 +1,73 @@
+package com.ejemplo.ddd.dominio.modelo.pedido;
+
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks del Agregado Pedido para distintos números de líneas.
+ * <ul>
+ *   <li>{@code construirPedido}: crea un pedido y le añade N líneas (cada alta recalcula el total).</li>
+ *   <li>{@code agregarLineaExistente}: suma cantidad a una línea de un pedido con N líneas.</li>
+ *   <li>{@code recalcularTotal}: actualiza la cantidad de la última línea, lo que obliga a
+ *       buscar la línea y a recalcular el total sobre todas ellas.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PedidoBenchmark {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+    private static final Dinero PRECIO = new Dinero(new BigDecimal("10.50"), EUR);
+
+    @Param({"1", "10", "100", "1000"})
+    private int lineas;
+
+    private IdentificadorProducto[] productos;
+    private Pedido pedido;
+    private int cantidad;
+
+    @Setup
+    public void preparar() {
+        productos = new IdentificadorProducto[lineas];
+        for (int i = 0; i < lineas; i++) {
+            productos[i] = IdentificadorProducto.nuevo();
+        }
+        pedido = Pedido.crearNuevoPedido("cliente-benchmark", DIRECCION, EUR);
+        for (IdentificadorProducto producto : productos) {
+            pedido.agregarLineaPedido(producto, 1, PRECIO);
+        }
+    }
+
+    @Benchmark
+    public Pedido construirPedido() {
+        Pedido nuevo = Pedido.crearNuevoPedido("cliente-benchmark", DIRECCION, EUR);
+        for (IdentificadorProducto producto : productos) {
+            nuevo.agregarLineaPedido(producto, 1, PRECIO);
+        }
+        return nuevo;
+    }
+
+    @Benchmark
+    public Dinero agregarLineaExistente() {
+        // Se resta después para que el pedido no crezca sin límite entre invocaciones
+        pedido.agregarLineaPedido(productos[lineas - 1], 1, PRECIO);
+        pedido.actualizarCantidadLineaPedido(productos[lineas - 1], 1);
+        return pedido.getTotalPedido();
+    }
+
+    @Benchmark
+    public Dinero recalcularTotal() {
+        cantidad = cantidad % 10 + 1;
+        pedido.actualizarCantidadLineaPedido(productos[lineas - 1], cantidad);
+        return pedido.getTotalPedido();
+    }
+}
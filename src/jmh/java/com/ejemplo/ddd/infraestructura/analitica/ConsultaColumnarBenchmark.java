@@ -0,0 +1,103 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.LineaPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingresos por producto y mes de un trimestre: consulta sobre la instantánea columnar frente al
+ * mismo cálculo recorriendo los objetos {@link Pedido}, como se haría sobre el almacén activo.
+ * Cada pedido tiene {@link #LINEAS_POR_PEDIDO} líneas y los pedidos cubren un año en orden de fecha.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ConsultaColumnarBenchmark {
+
+    private static final int LINEAS_POR_PEDIDO = 5;
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+    private static final EstadoPedido[] ESTADOS = {EstadoPedido.PENDIENTE, EstadoPedido.ENTREGADO, EstadoPedido.CANCELADO};
+
+    @Param({"100000", "500000"})
+    private int numeroPedidos;
+
+    private List<Pedido> pedidos;
+    private Path fichero;
+    private TablaColumnar lineas;
+
+    @Setup
+    public void preparar() throws IOException {
+        Random aleatorio = new Random(42);
+        List<IdentificadorProducto> productos = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            productos.add(IdentificadorProducto.nuevo());
+        }
+        LocalDateTime inicio = LocalDateTime.of(2026, 1, 1, 0, 0);
+        pedidos = new ArrayList<>(numeroPedidos);
+        for (int i = 0; i < numeroPedidos; i++) {
+            LocalDateTime fecha = inicio.plusSeconds(i * (365L * 24 * 3600 / numeroPedidos));
+            List<LineaPedido> lineasPedido = new ArrayList<>(LINEAS_POR_PEDIDO);
+            for (int j = 0; j < LINEAS_POR_PEDIDO; j++) {
+                lineasPedido.add(new LineaPedido(productos.get(aleatorio.nextInt(productos.size())),
+                    1 + aleatorio.nextInt(5), new Dinero(BigDecimal.valueOf(100 + aleatorio.nextInt(10_000), 2), EUR)));
+            }
+            pedidos.add(new Pedido(IdentificadorPedido.nuevo(), "cliente-" + aleatorio.nextInt(10_000), DIRECCION,
+                lineasPedido, new Dinero(BigDecimal.TEN, EUR), ESTADOS[aleatorio.nextInt(ESTADOS.length)], fecha, fecha));
+        }
+        fichero = Files.createTempFile("pedidos", ".col");
+        ExportadorColumnar.escribir(fichero, pedidos::forEach, 65536);
+        lineas = FicheroColumnar.abrir(fichero).tabla(ExportadorColumnar.TABLA_LINEAS);
+    }
+
+    @TearDown
+    public void cerrar() throws IOException {
+        Files.deleteIfExists(fichero);
+    }
+
+    @Benchmark
+    public ConsultaColumnar.Resultado ingresosColumnar() {
+        return ConsultaColumnar.sobre(lineas)
+            .dondeIgual("estado", "ENTREGADO")
+            .dondeEntre("mes", 202604, 202606)
+            .agruparPor("producto", "mes")
+            .sumar("importe")
+            .ejecutar();
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> ingresosObjetos() {
+        Map<String, BigDecimal> ingresos = new HashMap<>();
+        for (Pedido pedido : pedidos) {
+            long mes = ExportadorColumnar.mes(pedido.getFechaCreacion());
+            if (pedido.getEstado() == EstadoPedido.ENTREGADO && mes >= 202604 && mes <= 202606) {
+                for (LineaPedido linea : pedido.getLineasPedido()) {
+                    ingresos.merge(linea.getIdProducto().valor() + "/" + mes, linea.calcularSubtotal().cantidad(),
+                        BigDecimal::add);
+                }
+            }
+        }
+        return ingresos;
+    }
+}
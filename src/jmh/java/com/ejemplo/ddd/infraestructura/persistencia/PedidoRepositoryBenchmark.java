@@ -0,0 +1,107 @@
+package com.ejemplo.ddd.infraestructura.persistencia;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks del repositorio en memoria para varios tamaños de almacén.
+ * Cada pedido del almacén tiene {@link #LINEAS_POR_PEDIDO} líneas.
+ * {@code buscarTodos} se mide en microsegundos porque recorre el almacén completo; con un solo
+ * fragmento el recorrido es secuencial y con varios se reparte entre todos los núcleos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PedidoRepositoryBenchmark {
+
+    private static final int LINEAS_POR_PEDIDO = 5;
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    @Param({"1000", "10000", "100000"})
+    private int tamanoAlmacen;
+
+    @Param({"1", "16"})
+    private int fragmentos;
+
+    private PedidoRepositoryImpl repositorio;
+    private IdentificadorPedido[] ids;
+    private Pedido muestra;
+
+    @Setup
+    public void preparar() {
+        repositorio = new PedidoRepositoryImpl(List.of(), new SimpleMeterRegistry(), fragmentos, 0, 4096);
+        ids = new IdentificadorPedido[tamanoAlmacen];
+        for (int i = 0; i < tamanoAlmacen; i++) {
+            Pedido pedido = nuevoPedido();
+            ids[i] = pedido.getId();
+            repositorio.guardar(pedido);
+        }
+        muestra = nuevoPedido();
+    }
+
+    @TearDown
+    public void cerrar() {
+        repositorio.cerrar();
+    }
+
+    @Benchmark
+    public Pedido clonarPedido() {
+        return repositorio.clonarPedido(muestra);
+    }
+
+    /**
+     * Pedido existente que {@link #guardar} sobrescribe, para que el tamaño del almacén no cambie.
+     * Se lee antes de cada invocación, fuera de la medida, para que solo cuente el guardado.
+     */
+    @State(Scope.Thread)
+    public static class PedidoAGuardar {
+
+        private Pedido pedido;
+
+        @Setup(Level.Invocation)
+        public void preparar(PedidoRepositoryBenchmark benchmark) {
+            IdentificadorPedido id = benchmark.ids[ThreadLocalRandom.current().nextInt(benchmark.tamanoAlmacen)];
+            pedido = benchmark.repositorio.buscarPorId(id).orElseThrow();
+        }
+    }
+
+    @Benchmark
+    public void guardar(PedidoAGuardar aGuardar) {
+        repositorio.guardar(aGuardar.pedido);
+    }
+
+    @Benchmark
+    public Optional<Pedido> buscarPorId() {
+        return repositorio.buscarPorId(ids[ThreadLocalRandom.current().nextInt(tamanoAlmacen)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Pedido> buscarTodos() {
+        return repositorio.buscarTodos();
+    }
+
+    private static Pedido nuevoPedido() {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-benchmark", DIRECCION, EUR);
+        for (int i = 0; i < LINEAS_POR_PEDIDO; i++) {
+            pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), i + 1, new Dinero(new BigDecimal("10.50"), EUR));
+        }
+        return pedido;
+    }
+}
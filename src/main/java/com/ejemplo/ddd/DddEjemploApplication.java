@@ -21,19 +21,17 @@ public class DddEjemploApplication {
             },
             "lineas": [
                 {
-                    "idProducto": "a0eebc99-9c0b-4ef8-bb6d-6bb9bd380a11",
-                    "cantidad": 2,
-                    "precioUnitario": 10.50
+                    "idProducto": "00000000-0000-0000-0000-000000000001",
+                    "cantidad": 2
                 },
                 {
-                    "idProducto": "a0eebc99-9c0b-4ef8-bb6d-6bb9bd380a12",
-                    "cantidad": 1,
-                    "precioUnitario": 25.00
+                    "idProducto": "00000000-0000-0000-0000-000000000003",
+                    "cantidad": 1
                 }
             ],
             "moneda": "EUR"
         }
         """);
-         System.out.println("Un ID de producto de ejemplo para usar en las líneas: " + com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto.nuevo().valor());
+         System.out.println("Los productos de las líneas deben estar en el catálogo (pedidos.catalogo.fichero.ruta).");
     }
 }
@@ -11,8 +11,7 @@ import java.util.UUID;
 public record AgregarLineaRequest(
     @NotNull(message = "El ID del producto es obligatorio") UUID idProducto,
     @Positive(message = "La cantidad debe ser positiva") int cantidad,
-    @NotNull(message = "El precio unitario es obligatorio") 
     @Positive(message = "El precio unitario debe ser positivo")
-    BigDecimal precioUnitario
+    BigDecimal precioUnitario // Opcional: el precio lo fija el catálogo si conoce el producto
     // La moneda se tomará del pedido existente.
 ) {}
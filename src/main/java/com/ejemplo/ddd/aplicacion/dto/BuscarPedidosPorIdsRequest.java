@@ -0,0 +1,16 @@
+package com.ejemplo.ddd.aplicacion.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO para la consulta de varios pedidos por id en una sola llamada.
+ */
+public record BuscarPedidosPorIdsRequest(
+    @NotEmpty(message = "Debe indicarse al menos un ID de pedido")
+    @Size(max = 100, message = "No se pueden consultar más de 100 pedidos por llamada")
+    List<@NotNull(message = "Los IDs de pedido no pueden ser nulos") UUID> ids
+) {}
@@ -0,0 +1,21 @@
+package com.ejemplo.ddd.aplicacion.dto;
+
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido.TipoCambio;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO con los cambios de pedidos posteriores a un cursor. {@code siguiente} es el cursor de la
+ * próxima petición; {@code pendientes} indica que hay más cambios que no cabían en el límite.
+ */
+public record CambiosPedidosDTO(
+    long desde,
+    long siguiente,
+    boolean pendientes,
+    List<CambioPedidoDTO> cambios
+) {
+    /**
+     * @param pedido El pedido tras el cambio; en un borrado, su último estado.
+     */
+    public record CambioPedidoDTO(long secuencia, TipoCambio tipo, UUID idPedido, PedidoDTO pedido) {}
+}
@@ -40,9 +40,8 @@ public record CrearPedidoRequest(
     public record LineaPedidoData(
         @NotNull(message = "El ID del producto es obligatorio") UUID idProducto,
         @Positive(message = "La cantidad debe ser positiva") int cantidad,
-        @NotNull(message = "El precio unitario es obligatorio") 
         @Positive(message = "El precio unitario debe ser positivo")
-        BigDecimal precioUnitario
+        BigDecimal precioUnitario // Opcional: el precio lo fija el catálogo si conoce el producto
         // La moneda de la línea se asume que es la misma que la del pedido
     ) {}
 }
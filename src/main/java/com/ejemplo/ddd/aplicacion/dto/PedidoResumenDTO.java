@@ -0,0 +1,20 @@
+package com.ejemplo.ddd.aplicacion.dto;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * DTO con la vista resumida (solo cabecera) de un Pedido para listados.
+ */
+public record PedidoResumenDTO(
+    UUID idPedido,
+    String idCliente,
+    EstadoPedido estado,
+    BigDecimal totalPedido,
+    String moneda,
+    int numeroLineas,
+    LocalDateTime fechaCreacion,
+    LocalDateTime fechaUltimaModificacion
+) {}
@@ -0,0 +1,13 @@
+package com.ejemplo.ddd.aplicacion.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO de respuesta de la consulta múltiple: pedidos encontrados (en el orden solicitado)
+ * e ids que no existen.
+ */
+public record PedidosPorIdsDTO(
+    List<PedidoDTO> pedidos,
+    List<UUID> noEncontrados
+) {}
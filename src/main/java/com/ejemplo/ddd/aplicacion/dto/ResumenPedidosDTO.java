@@ -0,0 +1,18 @@
+package com.ejemplo.ddd.aplicacion.dto;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO con el resumen operativo de los pedidos: recuentos por estado e ingresos por moneda y día.
+ */
+public record ResumenPedidosDTO(
+    Map<EstadoPedido, Long> pedidosPorEstado,
+    Map<String, BigDecimal> ingresosPorMoneda,
+    List<ResumenDiaDTO> dias
+) {
+    public record ResumenDiaDTO(LocalDate fecha, long pedidos, Map<String, BigDecimal> ingresosPorMoneda) {}
+}
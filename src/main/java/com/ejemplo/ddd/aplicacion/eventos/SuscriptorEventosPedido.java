@@ -0,0 +1,30 @@
+package com.ejemplo.ddd.aplicacion.eventos;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EventoPedido;
+
+import java.util.List;
+
+/**
+ * Receptor de los eventos de dominio de los pedidos, ya persistidos. Cada suscriptor tiene su propio
+ * hilo y su propia posición en el flujo de eventos, así que uno lento no retrasa a los demás hasta
+ * que el búfer de despacho se llena.
+ * <p>
+ * Los eventos llegan por lotes, en el orden en que se anotaron. Si {@link #recibir} lanza una excepción
+ * el mismo lote se vuelve a entregar tras una pausa (entrega al menos una vez): con la secuencia se
+ * pueden descartar repetidos.
+ */
+public interface SuscriptorEventosPedido {
+
+    /**
+     * Nombre del suscriptor en las métricas y en el nombre de su hilo.
+     */
+    default String nombre() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @param primeraSecuencia Secuencia del primer evento del lote; las de los siguientes son consecutivas.
+     * @param eventos          Lote de eventos. La lista solo es válida durante la llamada.
+     */
+    void recibir(long primeraSecuencia, List<EventoPedido> eventos) throws Exception;
+}
@@ -0,0 +1,20 @@
+package com.ejemplo.ddd.aplicacion.proyeccion;
+
+/**
+ * El cursor de un consumidor del {@link RegistroCambiosPedido} ya no sirve para seguir leyendo
+ * cambios: el registro los ha descartado o el cursor es de antes de un reinicio.
+ */
+public class CursorCambiosCaducadoException extends RuntimeException {
+
+    private final long ultimaSecuencia;
+
+    public CursorCambiosCaducadoException(long cursor, long ultimaSecuencia) {
+        super("El cursor " + cursor + " ya no está en el registro de cambios (última secuencia "
+            + ultimaSecuencia + "); resincronice con el listado completo");
+        this.ultimaSecuencia = ultimaSecuencia;
+    }
+
+    public long getUltimaSecuencia() {
+        return ultimaSecuencia;
+    }
+}
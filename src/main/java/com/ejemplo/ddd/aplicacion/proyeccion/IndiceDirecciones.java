@@ -0,0 +1,181 @@
+package com.ejemplo.ddd.aplicacion.proyeccion;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice ordenado de los pedidos activos por código postal y por ciudad de la dirección de envío,
+ * para buscar por prefijo sin recorrer el almacén.
+ * <p>
+ * Por cada campo y estado hay un {@link ConcurrentSkipListMap} cuya clave es el valor normalizado
+ * (mayúsculas, sin tildes ni espacios sobrantes; el código postal además sin espacios ni guiones)
+ * seguido del id del pedido, y cuyo valor es el {@link ResumenPedido}. Una búsqueda por prefijo es
+ * un recorrido de un rango de la lista, así que cuesta lo mismo sea cual sea el tamaño del almacén:
+ * O(log n) más los resultados devueltos, que se limitan.
+ * <p>
+ * Se alimenta de las escrituras del repositorio. De cada pedido se recuerda con qué claves está
+ * indexado y se sustituyen de una vez al guardarlo, de modo que no quedan entradas huérfanas aunque
+ * las notificaciones de un mismo pedido lleguen desordenadas. Los pedidos archivados salen del índice.
+ */
+@Component
+public class IndiceDirecciones implements ObservadorCambiosPedido {
+
+    public enum Campo { CODIGO_POSTAL, CIUDAD }
+
+    // Separa el valor del id en la clave; es menor que cualquier carácter de un valor normalizado
+    private static final char SEPARADOR = '\u0000';
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+    private static final Pattern SEPARADORES_CODIGO_POSTAL = Pattern.compile("[\\s-]+");
+
+    private final Map<Campo, Map<EstadoPedido, ConcurrentSkipListMap<String, ResumenPedido>>> indices =
+        new EnumMap<>(Campo.class);
+    private final ConcurrentMap<IdentificadorPedido, Indexado> indexados = new ConcurrentHashMap<>();
+
+    public IndiceDirecciones() {
+        for (Campo campo : Campo.values()) {
+            Map<EstadoPedido, ConcurrentSkipListMap<String, ResumenPedido>> porEstado = new EnumMap<>(EstadoPedido.class);
+            for (EstadoPedido estado : EstadoPedido.values()) {
+                porEstado.put(estado, new ConcurrentSkipListMap<>());
+            }
+            indices.put(campo, porEstado);
+        }
+    }
+
+    @Override
+    public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+        Direccion direccion = nuevo.getDireccionEnvio();
+        String sufijo = SEPARADOR + nuevo.getId().valor().toString();
+        Indexado indexado = new Indexado(nuevo.getEstado(),
+            normalizar(Campo.CODIGO_POSTAL, direccion.codigoPostal()) + sufijo,
+            normalizar(Campo.CIUDAD, direccion.ciudad()) + sufijo);
+        ResumenPedido resumen = ResumenPedido.de(nuevo);
+        indexados.compute(nuevo.getId(), (id, actual) -> {
+            if (actual != null && !actual.mismasClaves(indexado)) {
+                quitar(actual);
+            }
+            indice(Campo.CODIGO_POSTAL, indexado.estado).put(indexado.codigoPostal, resumen);
+            indice(Campo.CIUDAD, indexado.estado).put(indexado.ciudad, resumen);
+            return indexado;
+        });
+    }
+
+    @Override
+    public void pedidoEliminado(Pedido eliminado) {
+        desindexar(eliminado.getId());
+    }
+
+    @Override
+    public void pedidoArchivado(Pedido archivado) {
+        desindexar(archivado.getId());
+    }
+
+    @Override
+    public void pedidoTrasladado(Pedido trasladado) {
+        desindexar(trasladado.getId());
+    }
+
+    /**
+     * Pedidos cuyo campo, normalizado, empieza por {@code prefijo}, ordenados por el valor del campo.
+     *
+     * @param estado Solo los pedidos en este estado, o todos si es {@code null}.
+     * @param limite Número máximo de pedidos devueltos.
+     * @throws IllegalArgumentException Si el prefijo queda vacío al normalizarlo.
+     */
+    public List<ResumenPedido> buscar(Campo campo, String prefijo, EstadoPedido estado, int limite) {
+        String desde = normalizar(campo, prefijo);
+        if (desde.isEmpty()) {
+            throw new IllegalArgumentException("El prefijo de búsqueda no puede estar vacío");
+        }
+        String hasta = desde + Character.MAX_VALUE;
+        List<ResumenPedido> resultado = new ArrayList<>(Math.min(limite, 64));
+        if (estado != null) {
+            Iterator<ResumenPedido> resumenes = indice(campo, estado).subMap(desde, hasta).values().iterator();
+            while (resultado.size() < limite && resumenes.hasNext()) {
+                resultado.add(resumenes.next());
+            }
+            return resultado;
+        }
+        // Sin estado se mezclan los rangos de todos los estados manteniendo el orden por clave
+        List<Iterator<Map.Entry<String, ResumenPedido>>> rangos = new ArrayList<>();
+        List<Map.Entry<String, ResumenPedido>> cabezas = new ArrayList<>();
+        for (ConcurrentSkipListMap<String, ResumenPedido> porEstado : indices.get(campo).values()) {
+            Iterator<Map.Entry<String, ResumenPedido>> rango = porEstado.subMap(desde, hasta).entrySet().iterator();
+            if (rango.hasNext()) {
+                rangos.add(rango);
+                cabezas.add(rango.next());
+            }
+        }
+        while (resultado.size() < limite && !rangos.isEmpty()) {
+            int menor = 0;
+            for (int i = 1; i < cabezas.size(); i++) {
+                if (cabezas.get(i).getKey().compareTo(cabezas.get(menor).getKey()) < 0) {
+                    menor = i;
+                }
+            }
+            resultado.add(cabezas.get(menor).getValue());
+            if (rangos.get(menor).hasNext()) {
+                cabezas.set(menor, rangos.get(menor).next());
+            } else {
+                rangos.remove(menor);
+                cabezas.remove(menor);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Pedidos indexados.
+     */
+    public int tamano() {
+        return indexados.size();
+    }
+
+    static String normalizar(Campo campo, String valor) {
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(valor, Normalizer.Form.NFD)).replaceAll("");
+        String mayusculas = sinTildes.toUpperCase(Locale.ROOT).strip();
+        return campo == Campo.CODIGO_POSTAL
+            ? SEPARADORES_CODIGO_POSTAL.matcher(mayusculas).replaceAll("")
+            : ESPACIOS.matcher(mayusculas).replaceAll(" ");
+    }
+
+    private void desindexar(IdentificadorPedido id) {
+        indexados.computeIfPresent(id, (clave, actual) -> {
+            quitar(actual);
+            return null;
+        });
+    }
+
+    private void quitar(Indexado indexado) {
+        indice(Campo.CODIGO_POSTAL, indexado.estado).remove(indexado.codigoPostal);
+        indice(Campo.CIUDAD, indexado.estado).remove(indexado.ciudad);
+    }
+
+    private NavigableMap<String, ResumenPedido> indice(Campo campo, EstadoPedido estado) {
+        return indices.get(campo).get(estado);
+    }
+
+    private record Indexado(EstadoPedido estado, String codigoPostal, String ciudad) {
+        boolean mismasClaves(Indexado otro) {
+            return estado == otro.estado && codigoPostal.equals(otro.codigoPostal) && ciudad.equals(otro.ciudad);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.ejemplo.ddd.aplicacion.proyeccion;
+
+import com.ejemplo.ddd.aplicacion.dto.ResumenPedidosDTO;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modelo de lectura (CQRS) con el resumen operativo de los pedidos.
+ * <p>
+ * Se alimenta de las escrituras del repositorio: cada guardado resta la contribución del estado
+ * anterior y suma la del nuevo, así que consultar el resumen cuesta lo mismo sea cual sea el
+ * tamaño del almacén. Los contadores son {@link LongAdder} para no convertir las escrituras
+ * concurrentes en un punto de contención. Los ingresos se acumulan en unidades mínimas de la
+ * moneda (céntimos) y excluyen los pedidos cancelados.
+ * <p>
+ * Solo cuenta los pedidos del almacén activo: un pedido deja de contar al archivarse, igual que al
+ * trasladarse a otro nodo. Así el resumen en marcha coincide con el que se reconstruye al arrancar,
+ * que solo ve los pedidos activos restaurados de la captura.
+ */
+@Component
+public class ProyeccionResumenPedidos implements ObservadorCambiosPedido {
+
+    private final Map<EstadoPedido, LongAdder> pedidosPorEstado = new EnumMap<>(EstadoPedido.class);
+    private final ConcurrentMap<Currency, LongAdder> ingresosPorMoneda = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDate, ResumenDia> dias = new ConcurrentSkipListMap<>();
+    private final int diasRetenidos;
+    private final MeterRegistry meterRegistry;
+
+    public ProyeccionResumenPedidos(MeterRegistry meterRegistry,
+                                    @Value("${pedidos.proyeccion.dias-retenidos:90}") int diasRetenidos) {
+        this.meterRegistry = meterRegistry;
+        this.diasRetenidos = diasRetenidos;
+        for (EstadoPedido estado : EstadoPedido.values()) {
+            LongAdder contador = new LongAdder();
+            pedidosPorEstado.put(estado, contador);
+            Gauge.builder("pedidos.proyeccion.estado", contador, LongAdder::sum)
+                .description("Pedidos en cada estado según la proyección de lectura")
+                .tag("estado", estado.name())
+                .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+        if (anterior != null) {
+            aplicar(anterior, -1);
+        }
+        aplicar(nuevo, +1);
+    }
+
+    @Override
+    public void pedidoEliminado(Pedido eliminado) {
+        aplicar(eliminado, -1);
+    }
+
+    @Override
+    public void pedidoArchivado(Pedido archivado) {
+        aplicar(archivado, -1);
+    }
+
+    @Override
+    public void pedidoArchivadoEliminado(Pedido eliminado) {
+        // Se descontó al archivarlo
+    }
+
+    @Override
+    public void pedidoTrasladado(Pedido trasladado) {
+        // El resumen es de los pedidos de este nodo: su contribución pasa al nuevo propietario
+        aplicar(trasladado, -1);
+    }
+
+    /**
+     * Devuelve una foto del resumen. Cada contador es exacto, aunque la foto en conjunto
+     * no es atómica frente a escrituras concurrentes.
+     */
+    public ResumenPedidosDTO obtenerResumen() {
+        Map<EstadoPedido, Long> porEstado = new EnumMap<>(EstadoPedido.class);
+        pedidosPorEstado.forEach((estado, contador) -> porEstado.put(estado, contador.sum()));
+
+        List<ResumenPedidosDTO.ResumenDiaDTO> resumenDias = new ArrayList<>();
+        dias.forEach((fecha, dia) -> resumenDias.add(
+            new ResumenPedidosDTO.ResumenDiaDTO(fecha, dia.pedidos.sum(), aImportes(dia.ingresos))));
+
+        return new ResumenPedidosDTO(porEstado, aImportes(ingresosPorMoneda), resumenDias);
+    }
+
+    private void aplicar(Pedido pedido, int signo) {
+        pedidosPorEstado.get(pedido.getEstado()).add(signo);
+        boolean generaIngresos = pedido.getEstado() != EstadoPedido.CANCELADO;
+        Dinero total = pedido.getTotalPedido();
+        long unidadesMinimas = generaIngresos ? aUnidadesMinimas(total) * signo : 0;
+        if (generaIngresos) {
+            contadorIngresos(total.moneda()).add(unidadesMinimas);
+        }
+
+        ResumenDia dia = diaDe(pedido.getFechaCreacion().toLocalDate());
+        if (dia != null) {
+            dia.pedidos.add(signo);
+            if (generaIngresos) {
+                dia.ingresos.computeIfAbsent(total.moneda(), m -> new LongAdder()).add(unidadesMinimas);
+            }
+        }
+    }
+
+    /**
+     * Devuelve el cubo del día, o {@code null} si el día ya quedó fuera de la retención.
+     */
+    private ResumenDia diaDe(LocalDate fecha) {
+        ResumenDia dia = dias.get(fecha);
+        if (dia != null) {
+            return dia;
+        }
+        LocalDate limite = LocalDate.now().minusDays(diasRetenidos);
+        if (fecha.isBefore(limite)) {
+            return null;
+        }
+        dias.headMap(limite).clear();
+        return dias.computeIfAbsent(fecha, f -> new ResumenDia());
+    }
+
+    private LongAdder contadorIngresos(Currency moneda) {
+        LongAdder contador = ingresosPorMoneda.get(moneda);
+        if (contador != null) {
+            return contador;
+        }
+        return ingresosPorMoneda.computeIfAbsent(moneda, m -> {
+            LongAdder nuevo = new LongAdder();
+            Gauge.builder("pedidos.proyeccion.ingresos", nuevo, c -> aImporte(c.sum(), m).doubleValue())
+                .description("Ingresos de pedidos no cancelados según la proyección de lectura")
+                .tag("moneda", m.getCurrencyCode())
+                .register(meterRegistry);
+            return nuevo;
+        });
+    }
+
+    private static Map<String, BigDecimal> aImportes(Map<Currency, LongAdder> contadores) {
+        Map<String, BigDecimal> importes = new TreeMap<>();
+        contadores.forEach((moneda, contador) -> importes.put(moneda.getCurrencyCode(), aImporte(contador.sum(), moneda)));
+        return importes;
+    }
+
+    private static long aUnidadesMinimas(Dinero dinero) {
+        return dinero.cantidad()
+            .setScale(decimales(dinero.moneda()), RoundingMode.HALF_UP)
+            .unscaledValue()
+            .longValueExact();
+    }
+
+    private static BigDecimal aImporte(long unidadesMinimas, Currency moneda) {
+        return BigDecimal.valueOf(unidadesMinimas, decimales(moneda));
+    }
+
+    private static int decimales(Currency moneda) {
+        // Algunas monedas (ej. XXX) no definen decimales
+        return Math.max(0, moneda.getDefaultFractionDigits());
+    }
+
+    private static final class ResumenDia {
+        private final LongAdder pedidos = new LongAdder();
+        private final ConcurrentMap<Currency, LongAdder> ingresos = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,145 @@
+package com.ejemplo.ddd.aplicacion.proyeccion;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Registro acotado en memoria de los cambios de pedidos, para que los consumidores se sincronicen de
+ * forma incremental en lugar de releer todos los pedidos.
+ * <p>
+ * Cada guardado y cada borrado del repositorio recibe un número de secuencia creciente y se anota en
+ * un anillo de {@code pedidos.cambios.capacidad} entradas. El repositorio notifica bajo el cerrojo del
+ * pedido, así que los cambios de un mismo pedido reciben las secuencias en el orden de sus escrituras,
+ * también los de guardados condicionales y borrados, que no pasan por el guardado agrupado.
+ * Un consumidor pide los cambios posteriores a la última secuencia que procesó: leer cuesta lo
+ * proporcional a los cambios devueltos y no toma cerrojos. Si el cursor es tan antiguo que el anillo ya ha dado la vuelta, la lectura falla con
+ * {@link CursorCambiosCaducadoException} y el consumidor debe resincronizarse con un listado completo.
+ * <p>
+ * La secuencia empieza en los milisegundos de la época por mil, así que sigue creciendo tras un
+ * reinicio y los cursores de antes del reinicio se detectan como caducados. El cursor
+ * {@value #DESDE_EL_PRINCIPIO} es el de un consumidor que empieza: lee desde el primer cambio de este
+ * registro mientras el anillo no haya dado la vuelta.
+ * <p>
+ * Los pedidos anotados son las copias inmutables del repositorio, que se comparten sin clonar. Los
+ * pedidos archivados o restaurados de una captura al arrancar no son un cambio.
+ */
+@Component
+public class RegistroCambiosPedido implements ObservadorCambiosPedido {
+
+    public enum TipoCambio { GUARDADO, ELIMINADO }
+
+    public static final long DESDE_EL_PRINCIPIO = 0;
+
+    /**
+     * @param pedido El pedido guardado o el último estado del eliminado.
+     */
+    public record Cambio(long secuencia, TipoCambio tipo, Pedido pedido) {}
+
+    /**
+     * @param cambios   Cambios posteriores al cursor, en orden de secuencia.
+     * @param siguiente Cursor para la próxima lectura: la secuencia del último cambio devuelto, o el
+     *                  cursor pedido si no hay cambios.
+     * @param pendientes Si quedan cambios posteriores a {@code siguiente} que no cabían en el límite.
+     */
+    public record Lectura(List<Cambio> cambios, long siguiente, boolean pendientes) {}
+
+    private final Cambio[] anillo;
+    private final int mascara;
+    private final long primeraSecuencia;
+    // Se publica después de escribir la entrada: lo que hay hasta aquí se puede leer sin cerrojo
+    private volatile long ultima;
+    private volatile CompletableFuture<Void> siguienteCambio = new CompletableFuture<>();
+
+    public RegistroCambiosPedido(MeterRegistry meterRegistry,
+                                 @Value("${pedidos.cambios.capacidad:100000}") int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del registro de cambios debe ser positiva");
+        }
+        int potencia = capacidad == 1 ? 1 : Integer.highestOneBit(capacidad - 1) << 1;
+        this.anillo = new Cambio[potencia];
+        this.mascara = potencia - 1;
+        this.primeraSecuencia = System.currentTimeMillis() * 1000;
+        this.ultima = primeraSecuencia;
+        Gauge.builder("pedidos.cambios.secuencia", this, RegistroCambiosPedido::ultimaSecuencia)
+            .description("Última secuencia asignada en el registro de cambios de pedidos")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+        anotar(TipoCambio.GUARDADO, nuevo);
+    }
+
+    @Override
+    public void pedidoEliminado(Pedido eliminado) {
+        anotar(TipoCambio.ELIMINADO, eliminado);
+    }
+
+    @Override
+    public void pedidoRestaurado(Pedido restaurado) {
+        // No es un cambio, y los cursores de antes del reinicio ya han caducado
+    }
+
+    public long ultimaSecuencia() {
+        return ultima;
+    }
+
+    /**
+     * @return Como mucho {@code limite} cambios con secuencia mayor que {@code desde}.
+     * @throws CursorCambiosCaducadoException Si algún cambio posterior a {@code desde} ya no está en el
+     * registro, o si {@code desde} es de un registro anterior.
+     */
+    public Lectura leer(long desde, int limite) {
+        desde = normalizar(desde);
+        long hasta = ultima;
+        if (desde > hasta || desde < primeraSecuencia || hasta - desde > anillo.length) {
+            throw new CursorCambiosCaducadoException(desde, hasta);
+        }
+        long fin = Math.min(hasta, desde + limite);
+        List<Cambio> cambios = new ArrayList<>((int) (fin - desde));
+        for (long secuencia = desde + 1; secuencia <= fin; secuencia++) {
+            Cambio cambio = anillo[(int) (secuencia & mascara)];
+            if (cambio.secuencia() != secuencia) {
+                // Un escritor ha sobrescrito la entrada mientras se leía
+                throw new CursorCambiosCaducadoException(desde, ultima);
+            }
+            cambios.add(cambio);
+        }
+        return new Lectura(cambios, fin, fin < hasta);
+    }
+
+    /**
+     * @return Un futuro que se completa en cuanto haya algún cambio posterior a {@code desde}; ya
+     * completado si lo hay. No se debe completar ni cancelar: se comparte entre todos los que esperan.
+     */
+    public CompletableFuture<Void> esperar(long desde) {
+        // Primero el futuro y después la secuencia: si un cambio llega entre ambas lecturas, se ve en la secuencia
+        CompletableFuture<Void> senal = siguienteCambio;
+        return ultima > normalizar(desde) ? CompletableFuture.completedFuture(null) : senal;
+    }
+
+    private long normalizar(long desde) {
+        // Si el anillo ya ha dado la vuelta, leer falla igual que con un cursor caducado
+        return desde == DESDE_EL_PRINCIPIO ? primeraSecuencia : desde;
+    }
+
+    private void anotar(TipoCambio tipo, Pedido pedido) {
+        CompletableFuture<Void> senal;
+        synchronized (this) {
+            long secuencia = ultima + 1;
+            anillo[(int) (secuencia & mascara)] = new Cambio(secuencia, tipo, pedido);
+            ultima = secuencia;
+            senal = siguienteCambio;
+            siguienteCambio = new CompletableFuture<>();
+        }
+        senal.complete(null);
+    }
+}
@@ -0,0 +1,58 @@
+package com.ejemplo.ddd.aplicacion.servicio;
+
+import com.ejemplo.ddd.aplicacion.dto.PedidoDTO;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de JDK Flight Recorder emitido por cada caso de uso de {@link PedidoAplicacionService}.
+ * <p>
+ * Solo se graba si la duración supera el umbral (20 ms por defecto, ajustable en la configuración
+ * de la grabación). Los campos se rellenan después de {@link #shouldCommit()}, de modo que con JFR
+ * desactivado o por debajo del umbral no se convierte ningún identificador a texto.
+ */
+@Name("com.ejemplo.ddd.ComandoPedido")
+@Label("Comando de pedido")
+@Description("Caso de uso de pedidos que ha superado el umbral de duración")
+@Category({"Pedidos", "Aplicación"})
+@Threshold("20 ms")
+@StackTrace(false)
+class EventoComandoPedido extends Event {
+
+    @Label("Comando")
+    String comando;
+
+    @Label("Id de pedido")
+    String idPedido;
+
+    @Label("Líneas")
+    int lineas;
+
+    @Label("Resultado")
+    String resultado;
+
+    /**
+     * Cierra el evento y lo graba si procede. El id y las líneas se toman del resultado cuando
+     * es un {@link PedidoDTO} (p. ej. al crear, cuando el id aún no se conocía).
+     */
+    void finalizar(MetricasPedidos.CasoUso caso, IdentificadorPedido id, Object respuesta, String resultado) {
+        end();
+        if (shouldCommit()) {
+            this.comando = caso.etiqueta();
+            this.resultado = resultado;
+            if (respuesta instanceof PedidoDTO dto) {
+                this.idPedido = dto.idPedido().toString();
+                this.lineas = dto.lineasPedido().size();
+            } else if (id != null) {
+                this.idPedido = id.valor().toString();
+            }
+            commit();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ejemplo.ddd.aplicacion.servicio;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.GuardadoParcialException;
+import com.ejemplo.ddd.dominio.repositorio.PedidoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Capa de escritura agrupada (group commit) entre el servicio de aplicación y el repositorio.
+ * <p>
+ * Los guardados de comandos concurrentes se acumulan en un lote abierto. El primer hilo que
+ * llega a un lote vacío actúa como líder: espera la ventana configurada (o a que el lote se llene),
+ * cierra el lote y lo persiste con {@link PedidoRepository#guardarTodos}. Varios guardados del mismo
+ * pedido dentro de un lote se pasan todos, en orden: el repositorio guarda el estado más reciente y
+ * anota los eventos de cada uno. Cada llamante queda bloqueado
+ * hasta que su lote es duradero, de modo que la semántica para el llamante no cambia: solo recibe
+ * una excepción si su propio pedido no se ha guardado ({@link GuardadoParcialException}), o si no se
+ * ha guardado nada del lote.
+ * <p>
+ * Los lotes se vuelcan en orden estricto: mientras un lote se está persistiendo, el siguiente sigue
+ * acumulando guardados, así que el tamaño del lote crece con la latencia del almacenamiento hasta
+ * {@code tamanoMaximoLote}; al llegar a ese tamaño el lote se cierra y los guardados siguientes abren
+ * otro, que espera su turno.
+ * <p>
+ * Los guardados condicionales ({@link PedidoRepository#guardarSiEstado}), como la confirmación o la
+ * caducidad, no pasan por aquí: necesitan saber si su transición ha ganado, y el lote no la comprueba.
+ */
+@Component
+public class GuardadoAgrupadoPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuardadoAgrupadoPedidos.class);
+
+    private final PedidoRepository pedidoRepository;
+    private final long ventanaNanos;
+    private final int tamanoMaximoLote;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition loteLleno = cerrojo.newCondition();
+    // Los lotes se vuelcan por número de creación para que dos lotes nunca se apliquen fuera de orden
+    private final Condition turnoVolcado = cerrojo.newCondition();
+    private Lote loteAbierto; // protegido por 'cerrojo'
+    private long lotesCreados; // protegido por 'cerrojo'
+    private long lotesVolcados; // protegido por 'cerrojo'
+
+    public GuardadoAgrupadoPedidos(PedidoRepository pedidoRepository,
+                                   @Value("${pedidos.escritura.ventana-micros:0}") long ventanaMicros,
+                                   @Value("${pedidos.escritura.tamano-maximo-lote:256}") int tamanoMaximoLote) {
+        if (ventanaMicros < 0) {
+            throw new IllegalArgumentException("La ventana de agrupación no puede ser negativa");
+        }
+        if (tamanoMaximoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de lote debe ser positivo");
+        }
+        this.pedidoRepository = pedidoRepository;
+        this.ventanaNanos = TimeUnit.MICROSECONDS.toNanos(ventanaMicros);
+        this.tamanoMaximoLote = tamanoMaximoLote;
+    }
+
+    /**
+     * Encola el pedido en el lote abierto y espera a que ese lote quede persistido.
+     * @param pedido El pedido a guardar.
+     * @throws RuntimeException la excepción con la que falló este pedido, o la que lanzó el repositorio si
+     *         no se guardó nada del lote.
+     */
+    public void guardar(Pedido pedido) {
+        Lote lote;
+        boolean esLider;
+        cerrojo.lock();
+        try {
+            esLider = loteAbierto == null;
+            if (esLider) {
+                loteAbierto = new Lote(lotesCreados++);
+            }
+            lote = loteAbierto;
+            lote.pendientes.add(pedido);
+            if (lote.pendientes.size() >= tamanoMaximoLote) {
+                // Lleno: los siguientes guardados abren otro lote aunque este aún espere su turno
+                loteAbierto = null;
+                loteLleno.signalAll();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+
+        if (esLider) {
+            volcar(lote);
+        }
+        esperar(lote, pedido);
+    }
+
+    private void volcar(Lote lote) {
+        esperarVentana(lote);
+        cerrojo.lock();
+        try {
+            while (lotesVolcados != lote.numero) {
+                turnoVolcado.awaitUninterruptibly();
+            }
+            if (loteAbierto == lote) {
+                // A partir de aquí los nuevos guardados abren el siguiente lote
+                loteAbierto = null;
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        try {
+            pedidoRepository.guardarTodos(lote.pendientes);
+            logger.debug("Lote de {} pedidos persistido", lote.pendientes.size());
+            lote.resultado.complete(Map.of());
+        } catch (GuardadoParcialException e) {
+            logger.error("{} de {} pedidos del lote no se han persistido", e.getFallos().size(), lote.pendientes.size(), e);
+            lote.resultado.complete(e.getFallos());
+        } catch (RuntimeException e) {
+            logger.error("Error al persistir un lote de {} pedidos: {}", lote.pendientes.size(), e.getMessage(), e);
+            lote.resultado.completeExceptionally(e);
+        } finally {
+            cerrojo.lock();
+            try {
+                lotesVolcados++;
+                turnoVolcado.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+
+    private void esperarVentana(Lote lote) {
+        if (ventanaNanos == 0) {
+            return;
+        }
+        cerrojo.lock();
+        try {
+            long restante = ventanaNanos;
+            while (restante > 0 && lote.pendientes.size() < tamanoMaximoLote) {
+                restante = loteLleno.awaitNanos(restante);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Se vuelca de inmediato
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private static void esperar(Lote lote, Pedido pedido) {
+        Map<IdentificadorPedido, RuntimeException> fallos;
+        try {
+            fallos = lote.resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+        RuntimeException fallo = fallos.get(pedido.getId());
+        if (fallo != null) {
+            throw fallo;
+        }
+    }
+
+    private static final class Lote {
+        private final long numero;
+        private final List<Pedido> pendientes = new ArrayList<>();
+        // Los pedidos del lote que no se han guardado, con su error; vacío si se han guardado todos
+        private final CompletableFuture<Map<IdentificadorPedido, RuntimeException>> resultado = new CompletableFuture<>();
+
+        private Lote(long numero) {
+            this.numero = numero;
+        }
+    }
+}
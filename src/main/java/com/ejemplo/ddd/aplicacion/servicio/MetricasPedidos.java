@@ -0,0 +1,180 @@
+package com.ejemplo.ddd.aplicacion.servicio;
+
+import com.ejemplo.ddd.aplicacion.traza.Tramo;
+import com.ejemplo.ddd.aplicacion.traza.Trazador;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de los casos de uso de pedidos.
+ * <p>
+ * Todos los medidores se registran al arrancar y se guardan en tablas indexadas por enumerado, de
+ * modo que en el camino caliente no hay búsquedas en el registro ni etiquetas que construir: solo dos
+ * lecturas de {@link System#nanoTime()} y el incremento del histograma. Cada llamada sí crea objetos
+ * de vida corta, el {@link EventoComandoPedido} y la lambda que captura los argumentos del caso de uso.
+ * <p>
+ * Además observa el repositorio para contar las transiciones de estado y mantener la media de
+ * líneas por pedido. El número de pedidos por estado ya lo publica la proyección de lectura
+ * ({@code pedidos.proyeccion.estado}).
+ */
+@Component
+public class MetricasPedidos implements ObservadorCambiosPedido {
+
+    public enum CasoUso {
+        CREAR, OBTENER, OBTENER_POR_IDS, LISTAR, LISTAR_POR_ESTADO, LISTAR_RESUMENES, RESUMEN, BUSCAR_POR_DIRECCION, CAMBIOS,
+        ACTUALIZAR_DIRECCION, AGREGAR_LINEA, ELIMINAR_LINEA, ACTUALIZAR_CANTIDAD,
+        CONFIRMAR, ENVIAR, ENTREGAR, CANCELAR, CADUCAR, ELIMINAR;
+
+        private final String tramo = "caso." + etiqueta();
+
+        String etiqueta() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Motivo por el que un caso de uso no se completa, según el tipo de excepción.
+     */
+    public enum MotivoRechazo {
+        NO_ENCONTRADO, ESTADO_NO_VALIDO, DATOS_NO_VALIDOS, ERROR_INTERNO;
+
+        static MotivoRechazo de(RuntimeException e) {
+            if (e instanceof PedidoNoEncontradoException) {
+                return NO_ENCONTRADO;
+            }
+            if (e instanceof IllegalStateException) {
+                return ESTADO_NO_VALIDO;
+            }
+            if (e instanceof IllegalArgumentException) {
+                return DATOS_NO_VALIDOS;
+            }
+            return ERROR_INTERNO;
+        }
+    }
+
+    private final Map<CasoUso, Timer> exitos = new EnumMap<>(CasoUso.class);
+    private final Map<CasoUso, Timer> errores = new EnumMap<>(CasoUso.class);
+    private final Map<CasoUso, Counter[]> rechazos = new EnumMap<>(CasoUso.class);
+    // transiciones[desde][hacia], indexado por ordinal de EstadoPedido
+    private final Counter[][] transiciones;
+    private final LongAdder pedidos = new LongAdder();
+    private final LongAdder lineas = new LongAdder();
+
+    public MetricasPedidos(MeterRegistry meterRegistry) {
+        for (CasoUso caso : CasoUso.values()) {
+            exitos.put(caso, temporizador(meterRegistry, caso, "exito"));
+            errores.put(caso, temporizador(meterRegistry, caso, "error"));
+            Counter[] porMotivo = new Counter[MotivoRechazo.values().length];
+            for (MotivoRechazo motivo : MotivoRechazo.values()) {
+                porMotivo[motivo.ordinal()] = Counter.builder("pedidos.rechazos")
+                    .description("Casos de uso de pedidos rechazados")
+                    .tag("caso", caso.etiqueta())
+                    .tag("motivo", motivo.name().toLowerCase())
+                    .register(meterRegistry);
+            }
+            rechazos.put(caso, porMotivo);
+        }
+
+        EstadoPedido[] estados = EstadoPedido.values();
+        transiciones = new Counter[estados.length][estados.length];
+        for (EstadoPedido desde : estados) {
+            for (EstadoPedido hacia : estados) {
+                if (desde != hacia) {
+                    transiciones[desde.ordinal()][hacia.ordinal()] = Counter.builder("pedidos.transiciones")
+                        .description("Cambios de estado de pedidos")
+                        .tag("desde", desde.name())
+                        .tag("hacia", hacia.name())
+                        .register(meterRegistry);
+                }
+            }
+        }
+
+        Gauge.builder("pedidos.lineas.media", this, MetricasPedidos::mediaLineasPorPedido)
+            .description("Media de líneas por pedido almacenado")
+            .register(meterRegistry);
+    }
+
+    private static Timer temporizador(MeterRegistry meterRegistry, CasoUso caso, String resultado) {
+        return Timer.builder("pedidos.casos.uso")
+            .description("Duración de los casos de uso de pedidos")
+            .tag("caso", caso.etiqueta())
+            .tag("resultado", resultado)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta el caso de uso midiendo su duración. Si lanza una excepción se cuenta como
+     * rechazo con el motivo correspondiente y se propaga sin cambios. Si la petición se está
+     * trazando, el caso de uso es un tramo {@code caso.<caso>} de la traza.
+     */
+    public <T> T medir(CasoUso caso, Supplier<T> accion) {
+        return medir(caso, null, accion);
+    }
+
+    /**
+     * Como {@link #medir(CasoUso, Supplier)}, indicando el pedido afectado para el evento JFR
+     * {@link EventoComandoPedido} que se emite si el caso de uso supera el umbral.
+     */
+    public <T> T medir(CasoUso caso, IdentificadorPedido idPedido, Supplier<T> accion) {
+        EventoComandoPedido evento = new EventoComandoPedido();
+        evento.begin();
+        long inicio = System.nanoTime();
+        try (Tramo tramo = Trazador.abrir(caso.tramo)) {
+            T resultado = accion.get();
+            exitos.get(caso).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            evento.finalizar(caso, idPedido, resultado, "exito");
+            return resultado;
+        } catch (RuntimeException e) {
+            errores.get(caso).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            MotivoRechazo motivo = MotivoRechazo.de(e);
+            rechazos.get(caso)[motivo.ordinal()].increment();
+            evento.finalizar(caso, idPedido, null, motivo.name().toLowerCase());
+            throw e;
+        }
+    }
+
+    @Override
+    public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+        lineas.add(nuevo.getLineasPedido().size());
+        if (anterior == null) {
+            pedidos.increment();
+            return;
+        }
+        lineas.add(-anterior.getLineasPedido().size());
+        if (anterior.getEstado() != nuevo.getEstado()) {
+            transiciones[anterior.getEstado().ordinal()][nuevo.getEstado().ordinal()].increment();
+        }
+    }
+
+    @Override
+    public void pedidoEliminado(Pedido eliminado) {
+        pedidos.decrement();
+        lineas.add(-eliminado.getLineasPedido().size());
+    }
+
+    @Override
+    public void pedidoTrasladado(Pedido trasladado) {
+        // Deja de estar en este nodo, aunque no sea un borrado
+        pedidos.decrement();
+        lineas.add(-trasladado.getLineasPedido().size());
+    }
+
+    double mediaLineasPorPedido() {
+        long total = pedidos.sum();
+        return total == 0 ? 0.0 : (double) lineas.sum() / total;
+    }
+}
@@ -1,16 +1,31 @@
 package com.ejemplo.ddd.aplicacion.servicio;
 
 import com.ejemplo.ddd.aplicacion.dto.*;
+import com.ejemplo.ddd.aplicacion.proyeccion.IndiceDirecciones;
+import com.ejemplo.ddd.aplicacion.proyeccion.ProyeccionResumenPedidos;
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido;
+import com.ejemplo.ddd.aplicacion.servicio.MetricasPedidos.CasoUso;
+import com.ejemplo.ddd.aplicacion.traza.Tramo;
+import com.ejemplo.ddd.aplicacion.traza.Trazador;
 import com.ejemplo.ddd.dominio.modelo.pedido.*;
 import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
 import com.ejemplo.ddd.dominio.repositorio.PedidoRepository;
 import com.ejemplo.ddd.dominio.servicio.ServicioRealizacionPedido;
+import com.ejemplo.ddd.dominio.servicio.ServicioReservaExistencias;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -25,166 +40,388 @@ public class PedidoAplicacionService {
 
     private static final Logger logger = LoggerFactory.getLogger(PedidoAplicacionService.class);
 
+    /**
+     * Motivo de las cancelaciones automáticas de pedidos que no se confirman a tiempo.
+     */
+    public static final String MOTIVO_CADUCADO = "Caducado: no se confirmó en el plazo";
+
     private final PedidoRepository pedidoRepository;
     private final ServicioRealizacionPedido servicioRealizacionPedido;
+    private final ServicioReservaExistencias servicioReservaExistencias;
+    // Las mutaciones se persisten por lotes; las lecturas van directas al repositorio
+    private final GuardadoAgrupadoPedidos guardadoAgrupado;
+    private final ProyeccionResumenPedidos proyeccionResumen;
+    private final IndiceDirecciones indiceDirecciones;
+    private final RegistroCambiosPedido registroCambios;
+    private final MetricasPedidos metricas;
 
-    public PedidoAplicacionService(PedidoRepository pedidoRepository, ServicioRealizacionPedido servicioRealizacionPedido) {
+    public PedidoAplicacionService(PedidoRepository pedidoRepository, ServicioRealizacionPedido servicioRealizacionPedido,
+                                   ServicioReservaExistencias servicioReservaExistencias, GuardadoAgrupadoPedidos guardadoAgrupado, ProyeccionResumenPedidos proyeccionResumen,
+                                   IndiceDirecciones indiceDirecciones, RegistroCambiosPedido registroCambios,
+                                   MetricasPedidos metricas) {
         this.pedidoRepository = pedidoRepository;
         this.servicioRealizacionPedido = servicioRealizacionPedido;
+        this.servicioReservaExistencias = servicioReservaExistencias;
+        this.guardadoAgrupado = guardadoAgrupado;
+        this.proyeccionResumen = proyeccionResumen;
+        this.indiceDirecciones = indiceDirecciones;
+        this.registroCambios = registroCambios;
+        this.metricas = metricas;
     }
 
     // --- CREATE ---
     @Transactional
     public PedidoDTO gestionarCreacionPedido(CrearPedidoRequest request) {
-        logger.info("Iniciando gestión de creación de pedido para cliente {}", request.idCliente());
-        Direccion direccionDominio = new Direccion(
-            request.direccionEnvio().calle(),
-            request.direccionEnvio().ciudad(),
-            request.direccionEnvio().codigoPostal(),
-            request.direccionEnvio().pais()
-        );
+        return metricas.medir(CasoUso.CREAR, () -> {
+            logger.debug("Iniciando gestión de creación de pedido para cliente {}", request.idCliente());
+            Direccion direccionDominio = new Direccion(
+                request.direccionEnvio().calle(),
+                request.direccionEnvio().ciudad(),
+                request.direccionEnvio().codigoPostal(),
+                request.direccionEnvio().pais()
+            );
 
-        List<ServicioRealizacionPedido.InfoLineaPedido> lineasInfo = request.lineas().stream()
-            .map(l -> new ServicioRealizacionPedido.InfoLineaPedido(
-                new IdentificadorProducto(l.idProducto()),
-                l.cantidad(),
-                l.precioUnitario()
-            ))
-            .collect(Collectors.toList());
+            List<ServicioRealizacionPedido.InfoLineaPedido> lineasInfo = request.lineas().stream()
+                .map(l -> new ServicioRealizacionPedido.InfoLineaPedido(
+                    new IdentificadorProducto(l.idProducto()),
+                    l.cantidad(),
+                    l.precioUnitario()
+                ))
+                .collect(Collectors.toList());
         
-        Currency moneda;
-        try {
-            moneda = Currency.getInstance(request.moneda().toUpperCase());
-        } catch (IllegalArgumentException e) {
-            logger.error("Código de moneda no válido: {}", request.moneda());
-            throw new IllegalArgumentException("Código de moneda no válido: " + request.moneda());
-        }
+            Currency moneda;
+            try {
+                moneda = Currency.getInstance(request.moneda().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.error("Código de moneda no válido: {}", request.moneda());
+                throw new IllegalArgumentException("Código de moneda no válido: " + request.moneda());
+            }
 
 
-        Pedido nuevoPedido = servicioRealizacionPedido.realizarPedido(
-            request.idCliente(),
-            direccionDominio,
-            lineasInfo,
-            moneda
-        );
-        PedidoDTO dto = convertirAPedidoDTO(nuevoPedido);
-        logger.info("Pedido creado con id {} para cliente {}", dto.idPedido(), dto.idCliente());
-        return dto;
+            Pedido nuevoPedido;
+            try (Tramo tramo = Trazador.abrir("dominio.realizarPedido")) {
+                nuevoPedido = servicioRealizacionPedido.realizarPedido(
+                    request.idCliente(),
+                    direccionDominio,
+                    lineasInfo,
+                    moneda
+                );
+            }
+            PedidoDTO dto = guardarYConvertir(nuevoPedido);
+            logger.debug("Pedido creado con id {} para cliente {}", dto.idPedido(), dto.idCliente());
+            return dto;
+        });
     }
 
     // --- READ ---
     @Transactional(readOnly = true)
     public Optional<PedidoDTO> obtenerPedidoPorId(IdentificadorPedido idPedido) {
-        logger.debug("Obtener pedido por id {}", idPedido.valor());
-        return pedidoRepository.buscarPorId(idPedido)
-                               .map(this::convertirAPedidoDTO);
+        return metricas.medir(CasoUso.OBTENER, idPedido, () -> {
+            logger.debug("Obtener pedido por id {}", idPedido.valor());
+            return pedidoRepository.buscarPorId(idPedido)
+                                   .map(PedidoAplicacionService::convertirAPedidoDTO);
+        });
+    }
+
+    /**
+     * Resuelve varios pedidos en una sola pasada por el repositorio.
+     * Los ids repetidos se devuelven una sola vez y los inexistentes se informan aparte.
+     */
+    @Transactional(readOnly = true)
+    public PedidosPorIdsDTO obtenerPedidosPorIds(List<UUID> ids) {
+        return metricas.medir(CasoUso.OBTENER_POR_IDS, () -> {
+            logger.debug("Obtener {} pedidos por id", ids.size());
+            Set<IdentificadorPedido> identificadores = new LinkedHashSet<>();
+            for (UUID id : ids) {
+                identificadores.add(new IdentificadorPedido(id));
+            }
+            Map<IdentificadorPedido, Pedido> encontrados = pedidoRepository.buscarPorIds(identificadores);
+
+            List<PedidoDTO> pedidos = new ArrayList<>(encontrados.size());
+            List<UUID> noEncontrados = new ArrayList<>();
+            for (IdentificadorPedido id : identificadores) {
+                Pedido pedido = encontrados.get(id);
+                if (pedido != null) {
+                    pedidos.add(convertirAPedidoDTO(pedido));
+                } else {
+                    noEncontrados.add(id.valor());
+                }
+            }
+            return new PedidosPorIdsDTO(pedidos, noEncontrados);
+        });
     }
 
     @Transactional(readOnly = true)
     public List<PedidoDTO> obtenerTodosLosPedidos() {
-        logger.debug("Obtener todos los pedidos");
-        return pedidoRepository.buscarTodos().stream()
-                               .map(this::convertirAPedidoDTO)
-                               .collect(Collectors.toList());
+        return metricas.medir(CasoUso.LISTAR, () -> {
+            logger.debug("Obtener todos los pedidos");
+            return pedidoRepository.buscarTodos().stream()
+                                   .map(PedidoAplicacionService::convertirAPedidoDTO)
+                                   .collect(Collectors.toList());
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoDTO> obtenerPedidosPorEstado(EstadoPedido estado) {
+        return metricas.medir(CasoUso.LISTAR_POR_ESTADO, () -> {
+            logger.debug("Obtener pedidos en estado {}", estado);
+            return pedidoRepository.buscarPorEstado(estado).stream()
+                                   .map(PedidoAplicacionService::convertirAPedidoDTO)
+                                   .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Listado con la vista resumida de cada pedido. No materializa líneas ni calcula subtotales.
+     */
+    @Transactional(readOnly = true)
+    public List<PedidoResumenDTO> obtenerResumenesDePedidos() {
+        return metricas.medir(CasoUso.LISTAR_RESUMENES, () -> {
+            logger.debug("Obtener resumen de todos los pedidos");
+            return pedidoRepository.buscarResumenes().stream()
+                                   .map(this::convertirAPedidoResumenDTO)
+                                   .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Resumen operativo servido desde la proyección de lectura, sin recorrer el almacén.
+     */
+    public ResumenPedidosDTO obtenerResumen() {
+        return metricas.medir(CasoUso.RESUMEN, () -> {
+            logger.debug("Obtener resumen de pedidos");
+            return proyeccionResumen.obtenerResumen();
+        });
+    }
+
+    /**
+     * Pedidos activos cuya dirección de envío tiene un código postal o una ciudad que empieza por
+     * {@code prefijo}, servidos desde el índice de direcciones.
+     *
+     * @param estado Solo los pedidos en este estado, o todos si es {@code null}.
+     */
+    public List<PedidoResumenDTO> buscarPorDireccion(IndiceDirecciones.Campo campo, String prefijo,
+                                                     EstadoPedido estado, int limite) {
+        return metricas.medir(CasoUso.BUSCAR_POR_DIRECCION, () -> {
+            logger.debug("Buscar pedidos por {} con prefijo {}", campo, prefijo);
+            return indiceDirecciones.buscar(campo, prefijo, estado, limite).stream()
+                                    .map(this::convertirAPedidoResumenDTO)
+                                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Cambios de pedidos posteriores al cursor {@code desde}, servidos desde el registro de cambios.
+     * Sin cursor devuelve solo el cursor actual, desde el que empezar a seguir los cambios.
+     *
+     * @throws com.ejemplo.ddd.aplicacion.proyeccion.CursorCambiosCaducadoException Si el registro ya
+     * no tiene todos los cambios posteriores al cursor.
+     */
+    public CambiosPedidosDTO obtenerCambios(Long desde, int limite) {
+        return metricas.medir(CasoUso.CAMBIOS, () -> {
+            if (desde == null) {
+                long actual = registroCambios.ultimaSecuencia();
+                return new CambiosPedidosDTO(actual, actual, false, List.of());
+            }
+            RegistroCambiosPedido.Lectura lectura = registroCambios.leer(desde, limite);
+            List<CambiosPedidosDTO.CambioPedidoDTO> cambios = new ArrayList<>(lectura.cambios().size());
+            for (RegistroCambiosPedido.Cambio cambio : lectura.cambios()) {
+                cambios.add(new CambiosPedidosDTO.CambioPedidoDTO(cambio.secuencia(), cambio.tipo(),
+                    cambio.pedido().getId().valor(), convertirAPedidoDTO(cambio.pedido())));
+            }
+            return new CambiosPedidosDTO(desde, lectura.siguiente(), lectura.pendientes(), cambios);
+        });
+    }
+
+    /**
+     * Como {@link #obtenerCambios}, pero si no hay cambios espera hasta {@code espera} a que llegue
+     * alguno (long polling) sin ocupar ningún hilo. Si no llega ninguno, devuelve la lista vacía.
+     */
+    public CompletableFuture<CambiosPedidosDTO> esperarCambios(long desde, int limite, Duration espera) {
+        CambiosPedidosDTO inmediatos = obtenerCambios(desde, limite);
+        if (!inmediatos.cambios().isEmpty() || espera.isZero()) {
+            return CompletableFuture.completedFuture(inmediatos);
+        }
+        // La señal se comparte entre todos los que esperan: se copia para poder completarla por tiempo
+        return registroCambios.esperar(desde).copy()
+            .completeOnTimeout(null, espera.toMillis(), TimeUnit.MILLISECONDS)
+            .thenApplyAsync(sinUso -> obtenerCambios(desde, limite));
     }
 
     // --- UPDATE ---
     @Transactional
     public PedidoDTO actualizarDireccionEnvio(IdentificadorPedido idPedido, ActualizarDireccionRequest request) {
-        logger.info("Actualizar dirección pedido {}", idPedido.valor());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        Direccion nuevaDireccion = new Direccion(
-            request.nuevaDireccion().calle(),
-            request.nuevaDireccion().ciudad(),
-            request.nuevaDireccion().codigoPostal(),
-            request.nuevaDireccion().pais()
-        );
-        pedido.actualizarDireccionEnvio(nuevaDireccion);
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.ACTUALIZAR_DIRECCION, idPedido, () -> {
+            logger.debug("Actualizar dirección pedido {}", idPedido.valor());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            Direccion nuevaDireccion = new Direccion(
+                request.nuevaDireccion().calle(),
+                request.nuevaDireccion().ciudad(),
+                request.nuevaDireccion().codigoPostal(),
+                request.nuevaDireccion().pais()
+            );
+            try (Tramo tramo = Trazador.abrir("dominio.actualizarDireccionEnvio")) {
+                pedido.actualizarDireccionEnvio(nuevaDireccion);
+            }
+            return guardarYConvertir(pedido);
+        });
     }
     
     @Transactional
     public PedidoDTO agregarLineaAPedido(IdentificadorPedido idPedido, AgregarLineaRequest request) {
-        logger.info("Agregar línea al pedido {}: producto {} cantidad {}", idPedido.valor(), request.idProducto(), request.cantidad());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        // La moneda de la nueva línea debe ser la misma que la del pedido.
-        // El precio se proporciona en el request.
-        Dinero precioNuevaLinea = new Dinero(request.precioUnitario(), pedido.getTotalPedido().moneda());
-        
-        pedido.agregarLineaPedido(
-            new IdentificadorProducto(request.idProducto()),
-            request.cantidad(),
-            precioNuevaLinea
-        );
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.AGREGAR_LINEA, idPedido, () -> {
+            logger.debug("Agregar línea al pedido {}: producto {} cantidad {}", idPedido.valor(), request.idProducto(), request.cantidad());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            // La moneda de la nueva línea debe ser la misma que la del pedido.
+            // El precio lo fija el catálogo; el del request solo vale para productos que no conoce.
+            Dinero precioNuevaLinea;
+            try (Tramo tramo = Trazador.abrir("catalogo")) {
+                precioNuevaLinea = servicioRealizacionPedido.precioUnitario(new IdentificadorProducto(request.idProducto()),
+                    request.precioUnitario(), pedido.getTotalPedido().moneda());
+            }
+
+            try (Tramo tramo = Trazador.abrir("dominio.agregarLineaPedido")) {
+                pedido.agregarLineaPedido(
+                    new IdentificadorProducto(request.idProducto()),
+                    request.cantidad(),
+                    precioNuevaLinea
+                );
+            }
+            return guardarYConvertir(pedido);
+        });
     }
 
     @Transactional
     public PedidoDTO eliminarLineaDePedido(IdentificadorPedido idPedido, IdentificadorProducto idProducto) {
-        logger.info("Eliminar línea {} del pedido {}", idProducto.valor(), idPedido.valor());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        pedido.eliminarLineaPedido(idProducto);
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.ELIMINAR_LINEA, idPedido, () -> {
+            logger.debug("Eliminar línea {} del pedido {}", idProducto.valor(), idPedido.valor());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            try (Tramo tramo = Trazador.abrir("dominio.eliminarLineaPedido")) {
+                pedido.eliminarLineaPedido(idProducto);
+            }
+            return guardarYConvertir(pedido);
+        });
     }
     
     @Transactional
     public PedidoDTO actualizarCantidadLinea(IdentificadorPedido idPedido, IdentificadorProducto idProducto, ActualizarCantidadLineaRequest request) {
-        logger.info("Actualizar cantidad linea {} en pedido {} a {}", idProducto.valor(), idPedido.valor(), request.nuevaCantidad());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        pedido.actualizarCantidadLineaPedido(idProducto, request.nuevaCantidad());
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.ACTUALIZAR_CANTIDAD, idPedido, () -> {
+            logger.debug("Actualizar cantidad linea {} en pedido {} a {}", idProducto.valor(), idPedido.valor(), request.nuevaCantidad());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            try (Tramo tramo = Trazador.abrir("dominio.actualizarCantidadLineaPedido")) {
+                pedido.actualizarCantidadLineaPedido(idProducto, request.nuevaCantidad());
+            }
+            return guardarYConvertir(pedido);
+        });
     }
 
     @Transactional
     public PedidoDTO confirmarPedido(IdentificadorPedido idPedido) {
-        logger.info("Confirmar pedido {}", idPedido.valor());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        pedido.confirmarPedido();
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.CONFIRMAR, idPedido, () -> {
+            logger.debug("Confirmar pedido {}", idPedido.valor());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            try (Tramo tramo = Trazador.abrir("dominio.confirmarPedido")) {
+                pedido.confirmarPedido();
+            }
+            try (Tramo tramo = Trazador.abrir("reserva")) {
+                if (!servicioReservaExistencias.reservar(pedido)) {
+                    // Otra confirmación concurrente tiene la reserva: solo ella puede guardar, para que la
+                    // reserva y la confirmación guardada sean siempre de la misma llamada
+                    throw new IllegalStateException("El pedido ya se está confirmando.");
+                }
+            }
+            boolean guardado;
+            try (Tramo tramo = Trazador.abrir("guardado")) {
+                // Condicional, para no pisar una cancelación (p. ej. por caducidad) llegada mientras tanto
+                guardado = pedidoRepository.guardarSiEstado(pedido, EstadoPedido.PENDIENTE);
+            } catch (RuntimeException e) {
+                // El pedido sigue pendiente: las unidades vuelven al inventario
+                servicioReservaExistencias.liberar(idPedido);
+                throw e;
+            }
+            if (!guardado) {
+                servicioReservaExistencias.liberar(idPedido);
+                throw new IllegalStateException("El pedido ha cambiado de estado mientras se confirmaba.");
+            }
+            try (Tramo tramo = Trazador.abrir("dto")) {
+                return convertirAPedidoDTO(pedido);
+            }
+        });
     }
 
     @Transactional
     public PedidoDTO marcarPedidoComoEnviado(IdentificadorPedido idPedido) {
-        logger.info("Marcar pedido {} como enviado", idPedido.valor());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        pedido.marcarComoEnviado();
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.ENVIAR, idPedido, () -> {
+            logger.debug("Marcar pedido {} como enviado", idPedido.valor());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            try (Tramo tramo = Trazador.abrir("dominio.marcarComoEnviado")) {
+                pedido.marcarComoEnviado();
+            }
+            return guardarYConvertir(pedido);
+        });
     }
 
     @Transactional
     public PedidoDTO marcarPedidoComoEntregado(IdentificadorPedido idPedido) {
-        logger.info("Marcar pedido {} como entregado", idPedido.valor());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        pedido.marcarComoEntregado();
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.ENTREGAR, idPedido, () -> {
+            logger.debug("Marcar pedido {} como entregado", idPedido.valor());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            try (Tramo tramo = Trazador.abrir("dominio.marcarComoEntregado")) {
+                pedido.marcarComoEntregado();
+            }
+            return guardarYConvertir(pedido);
+        });
     }
 
     @Transactional
     public PedidoDTO cancelarPedido(IdentificadorPedido idPedido, CancelarPedidoRequest request) {
-        logger.info("Cancelar pedido {} motivo {}", idPedido.valor(), request.motivo());
-        Pedido pedido = buscarPedidoOExcepcion(idPedido);
-        pedido.cancelarPedido(request.motivo());
-        pedidoRepository.guardar(pedido);
-        return convertirAPedidoDTO(pedido);
+        return metricas.medir(CasoUso.CANCELAR, idPedido, () -> {
+            logger.debug("Cancelar pedido {} motivo {}", idPedido.valor(), request.motivo());
+            Pedido pedido = buscarPedidoOExcepcion(idPedido);
+            try (Tramo tramo = Trazador.abrir("dominio.cancelarPedido")) {
+                pedido.cancelarPedido(request.motivo());
+            }
+            return guardarYConvertir(pedido);
+        });
+    }
+
+    /**
+     * Cancela un pedido que ha agotado el plazo para confirmarse, si sigue pendiente.
+     * @return {@code false} si el pedido ya no existe o ya no está pendiente.
+     */
+    @Transactional
+    public boolean cancelarPedidoCaducado(IdentificadorPedido idPedido) {
+        return metricas.medir(CasoUso.CADUCAR, idPedido, () -> {
+            Optional<Pedido> encontrado = pedidoRepository.buscarPorId(idPedido);
+            if (encontrado.isEmpty() || encontrado.get().getEstado() != EstadoPedido.PENDIENTE) {
+                return false;
+            }
+            logger.debug("Cancelar pedido caducado {}", idPedido.valor());
+            Pedido pedido = encontrado.get();
+            try (Tramo tramo = Trazador.abrir("dominio.cancelarPedido")) {
+                pedido.cancelarPedido(MOTIVO_CADUCADO);
+            }
+            try (Tramo tramo = Trazador.abrir("guardado")) {
+                // Si una confirmación ha llegado antes, el pedido ya no se cancela y su reserva se mantiene;
+                // si no, el observador de existencias libera lo que se hubiera reservado
+                return pedidoRepository.guardarSiEstado(pedido, EstadoPedido.PENDIENTE);
+            }
+        });
     }
 
     // --- DELETE ---
     @Transactional
     public void eliminarPedido(IdentificadorPedido idPedido) {
-        logger.info("Eliminar pedido {}", idPedido.valor());
-        if (pedidoRepository.buscarPorId(idPedido).isEmpty()) {
-            // Podríamos lanzar una excepción personalizada o simplemente no hacer nada si no existe.
-            // Para un DELETE, si no existe, a menudo se considera una operación exitosa (idempotencia).
-            return; 
-        }
-        pedidoRepository.eliminarPorId(idPedido);
+        metricas.medir(CasoUso.ELIMINAR, idPedido, () -> {
+            logger.debug("Eliminar pedido {}", idPedido.valor());
+            if (pedidoRepository.buscarPorId(idPedido).isEmpty()) {
+                // Podríamos lanzar una excepción personalizada o simplemente no hacer nada si no existe.
+                // Para un DELETE, si no existe, a menudo se considera una operación exitosa (idempotencia).
+                return null;
+            }
+            pedidoRepository.eliminarPorId(idPedido);
+            return null;
+        });
     }
 
     // --- Métodos de Ayuda ---
@@ -193,7 +430,30 @@ public class PedidoAplicacionService {
             .orElseThrow(() -> new PedidoNoEncontradoException("Pedido no encontrado con ID: " + idPedido.valor()));
     }
 
-    private PedidoDTO convertirAPedidoDTO(Pedido pedido) {
+    private PedidoDTO guardarYConvertir(Pedido pedido) {
+        try (Tramo tramo = Trazador.abrir("guardado")) {
+            guardadoAgrupado.guardar(pedido);
+        }
+        try (Tramo tramo = Trazador.abrir("dto")) {
+            return convertirAPedidoDTO(pedido);
+        }
+    }
+
+    private PedidoResumenDTO convertirAPedidoResumenDTO(ResumenPedido resumen) {
+        return new PedidoResumenDTO(
+            resumen.id().valor(),
+            resumen.idCliente(),
+            resumen.estado(),
+            resumen.totalPedido().cantidad(),
+            resumen.totalPedido().moneda().getCurrencyCode(),
+            resumen.numeroLineas(),
+            resumen.fechaCreacion(),
+            resumen.fechaUltimaModificacion()
+        );
+    }
+
+    // Visible en el paquete para poder medirlo con los benchmarks JMH
+    static PedidoDTO convertirAPedidoDTO(Pedido pedido) {
         PedidoDTO.DireccionDTO direccionDTO = new PedidoDTO.DireccionDTO(
             pedido.getDireccionEnvio().calle(),
             pedido.getDireccionEnvio().ciudad(),
@@ -0,0 +1,20 @@
+package com.ejemplo.ddd.aplicacion.traza;
+
+/**
+ * Tramo abierto de una traza. Se cierra con try-with-resources:
+ * <pre>
+ * try (Tramo tramo = Trazador.abrir("repositorio.buscarPorId")) {
+ *     ...
+ * }
+ * </pre>
+ */
+public interface Tramo extends AutoCloseable {
+
+    /**
+     * Tramo que no mide nada; es el que se devuelve cuando la petición no está muestreada.
+     */
+    Tramo NINGUNO = () -> { };
+
+    @Override
+    void close();
+}
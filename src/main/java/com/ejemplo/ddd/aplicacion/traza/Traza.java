@@ -0,0 +1,124 @@
+package com.ejemplo.ddd.aplicacion.traza;
+
+/**
+ * Traza de una petición: los tramos abiertos en el hilo que la atiende, en orden de apertura y
+ * con su profundidad de anidamiento.
+ * <p>
+ * Los tramos se guardan en arrays de tamaño fijo para que medir no asigne memoria; si se superan
+ * {@value #MAXIMO_TRAMOS} tramos, los siguientes se ignoran y se cuentan en {@link #getTramosDescartados()}.
+ * Mientras está abierta solo la usa su hilo; una vez finalizada no se modifica.
+ */
+public final class Traza implements Tramo {
+
+    static final int MAXIMO_TRAMOS = 64;
+
+    private final long inicioEpochMillis;
+    private final long inicioNanos;
+    private long finNanos;
+    private String nombre;
+
+    private final String[] nombres = new String[MAXIMO_TRAMOS];
+    private final long[] inicios = new long[MAXIMO_TRAMOS];
+    private final long[] fines = new long[MAXIMO_TRAMOS];
+    private final int[] profundidades = new int[MAXIMO_TRAMOS];
+    private final boolean[] fases = new boolean[MAXIMO_TRAMOS];
+    private int numeroTramos;
+    private int tramosDescartados;
+
+    // Índices de los tramos abiertos, del más externo al más interno
+    private final int[] abiertos = new int[MAXIMO_TRAMOS];
+    private int numeroAbiertos;
+
+    Traza(long inicioNanos, long inicioEpochMillis) {
+        this.inicioNanos = inicioNanos;
+        this.inicioEpochMillis = inicioEpochMillis;
+    }
+
+    /**
+     * @param fase Si es {@code true}, el tramo se cierra solo al abrirse el siguiente tramo a su
+     *             mismo nivel (o al terminar la traza), para medir fases sin un punto de cierre claro.
+     */
+    Tramo abrir(String nombreTramo, boolean fase, long ahora) {
+        if (numeroAbiertos > 0 && fases[abiertos[numeroAbiertos - 1]]) {
+            cerrarUltimo(ahora);
+        }
+        if (numeroTramos == MAXIMO_TRAMOS) {
+            tramosDescartados++;
+            return NINGUNO;
+        }
+        int indice = numeroTramos++;
+        nombres[indice] = nombreTramo;
+        inicios[indice] = ahora;
+        profundidades[indice] = numeroAbiertos;
+        fases[indice] = fase;
+        abiertos[numeroAbiertos++] = indice;
+        return this;
+    }
+
+    /**
+     * Cierra el tramo abierto más interno.
+     */
+    @Override
+    public void close() {
+        cerrarUltimo(System.nanoTime());
+    }
+
+    void terminar(long ahora) {
+        while (numeroAbiertos > 0) {
+            cerrarUltimo(ahora);
+        }
+        finNanos = ahora;
+    }
+
+    private void cerrarUltimo(long ahora) {
+        if (numeroAbiertos > 0) {
+            fines[abiertos[--numeroAbiertos]] = ahora;
+        }
+    }
+
+    /**
+     * Nombre con el que se agrupa la traza (p. ej. el endpoint). Puede fijarse en cualquier momento.
+     */
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getInicioEpochMillis() {
+        return inicioEpochMillis;
+    }
+
+    public long getDuracionNanos() {
+        return finNanos - inicioNanos;
+    }
+
+    public int getNumeroTramos() {
+        return numeroTramos;
+    }
+
+    public int getTramosDescartados() {
+        return tramosDescartados;
+    }
+
+    public String getNombreTramo(int indice) {
+        return nombres[indice];
+    }
+
+    public int getProfundidadTramo(int indice) {
+        return profundidades[indice];
+    }
+
+    /**
+     * @return Nanosegundos desde el inicio de la traza hasta el inicio del tramo.
+     */
+    public long getInicioTramoNanos(int indice) {
+        return inicios[indice] - inicioNanos;
+    }
+
+    public long getDuracionTramoNanos(int indice) {
+        return fines[indice] - inicios[indice];
+    }
+}
@@ -0,0 +1,69 @@
+package com.ejemplo.ddd.aplicacion.traza;
+
+/**
+ * Trazado ligero por hilo de las fases de una petición (controlador, servicio de aplicación,
+ * dominio, repositorio, conversión a DTO).
+ * <p>
+ * La traza se inicia en la entrada HTTP solo para las peticiones muestreadas. En el resto,
+ * {@link #abrir(String)} devuelve {@link Tramo#NINGUNO} tras una lectura del {@link ThreadLocal},
+ * así que las capas pueden instrumentarse sin coste apreciable. No depende de colectores externos:
+ * las trazas terminadas se entregan a quien inició la traza.
+ */
+public final class Trazador {
+
+    private static final ThreadLocal<Traza> ACTUAL = new ThreadLocal<>();
+
+    private Trazador() {
+    }
+
+    /**
+     * Inicia una traza en el hilo actual, sustituyendo a cualquier traza anterior sin terminar.
+     */
+    public static Traza iniciar() {
+        Traza traza = new Traza(System.nanoTime(), System.currentTimeMillis());
+        ACTUAL.set(traza);
+        return traza;
+    }
+
+    /**
+     * Termina la traza del hilo actual, cerrando los tramos que sigan abiertos.
+     * @return La traza terminada, o {@code null} si el hilo no tenía traza.
+     */
+    public static Traza terminar() {
+        Traza traza = ACTUAL.get();
+        if (traza != null) {
+            ACTUAL.remove();
+            traza.terminar(System.nanoTime());
+        }
+        return traza;
+    }
+
+    /**
+     * Abre un tramo anidado en el tramo abierto actual.
+     */
+    public static Tramo abrir(String nombre) {
+        Traza traza = ACTUAL.get();
+        return traza == null ? Tramo.NINGUNO : traza.abrir(nombre, false, System.nanoTime());
+    }
+
+    /**
+     * Abre un tramo que dura hasta que se abra el siguiente tramo a su nivel o termine la traza.
+     * Útil para fases del framework sin un punto de cierre propio (p. ej. deserialización y validación).
+     */
+    public static void abrirFase(String nombre) {
+        Traza traza = ACTUAL.get();
+        if (traza != null) {
+            traza.abrir(nombre, true, System.nanoTime());
+        }
+    }
+
+    /**
+     * Da nombre a la traza actual, si la hay.
+     */
+    public static void nombrar(String nombre) {
+        Traza traza = ACTUAL.get();
+        if (traza != null) {
+            traza.setNombre(nombre);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ejemplo.ddd.config;
+
+import com.ejemplo.ddd.infraestructura.web.traza.FasesWebTrazas;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class TrazasConfig implements WebMvcConfigurer {
+
+    private final FasesWebTrazas fasesWebTrazas;
+
+    public TrazasConfig(FasesWebTrazas fasesWebTrazas) {
+        this.fasesWebTrazas = fasesWebTrazas;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(fasesWebTrazas).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,65 @@
+package com.ejemplo.ddd.dominio.modelo.inventario;
+
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agregado con las existencias disponibles de un producto.
+ * <p>
+ * Las unidades disponibles son un único contador que se modifica con compare-and-set, sin cerrojos:
+ * una reserva solo tiene éxito si en ese instante quedan unidades suficientes, así que nunca se vende
+ * más de lo que hay aunque miles de pedidos compitan por el mismo producto. Una instancia es la
+ * fuente de verdad de su producto y se comparte entre hilos.
+ */
+public class Existencias {
+
+    private final IdentificadorProducto idProducto;
+    private final AtomicLong disponibles;
+
+    public Existencias(IdentificadorProducto idProducto, long disponibles) {
+        this.idProducto = Objects.requireNonNull(idProducto, "El ID del producto no puede ser nulo");
+        if (disponibles < 0) {
+            throw new IllegalArgumentException("Las existencias no pueden ser negativas");
+        }
+        this.disponibles = new AtomicLong(disponibles);
+    }
+
+    /**
+     * Aparta {@code cantidad} unidades si quedan suficientes.
+     * @return {@code false} si no había bastantes; en ese caso no se aparta nada.
+     */
+    public boolean reservar(long cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad a reservar debe ser positiva");
+        }
+        long actuales;
+        do {
+            actuales = disponibles.get();
+            if (actuales < cantidad) {
+                return false;
+            }
+            // Si falla es que otra reserva o liberación ha cambiado el contador: se reintenta con el valor nuevo
+        } while (!disponibles.compareAndSet(actuales, actuales - cantidad));
+        return true;
+    }
+
+    /**
+     * Devuelve unidades reservadas antes (pedido cancelado) o repone existencias.
+     */
+    public void liberar(long cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad a liberar debe ser positiva");
+        }
+        disponibles.addAndGet(cantidad);
+    }
+
+    public IdentificadorProducto getIdProducto() {
+        return idProducto;
+    }
+
+    public long getDisponibles() {
+        return disponibles.get();
+    }
+}
@@ -0,0 +1,22 @@
+package com.ejemplo.ddd.dominio.modelo.inventario;
+
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+
+/**
+ * No quedan existencias suficientes de un producto para confirmar un pedido. Es un estado no válido
+ * para la operación, como confirmar un pedido que no está pendiente.
+ */
+public class ExistenciasInsuficientesException extends IllegalStateException {
+
+    private final IdentificadorProducto idProducto;
+
+    public ExistenciasInsuficientesException(IdentificadorProducto idProducto, int solicitadas, long disponibles) {
+        super("No hay existencias suficientes del producto " + idProducto.valor() + ": se piden " + solicitadas
+            + " y quedan " + disponibles);
+        this.idProducto = idProducto;
+    }
+
+    public IdentificadorProducto getIdProducto() {
+        return idProducto;
+    }
+}
@@ -0,0 +1,33 @@
+package com.ejemplo.ddd.dominio.modelo.pedido;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de Dominio emitido por el agregado {@link Pedido} en cada transición de estado.
+ * <p>
+ * El pedido acumula sus eventos hasta que el repositorio los recoge al guardarlo
+ * ({@link Pedido#extraerEventos()}): un evento solo sale del agregado si su transición se ha persistido.
+ * Son inmutables.
+ */
+public sealed interface EventoPedido {
+
+    IdentificadorPedido idPedido();
+
+    String idCliente();
+
+    /**
+     * Momento de la transición: la fecha de última modificación del pedido tras ella.
+     */
+    LocalDateTime instante();
+
+    record PedidoConfirmado(IdentificadorPedido idPedido, String idCliente, Dinero total, int numeroLineas,
+                            LocalDateTime instante) implements EventoPedido {}
+
+    record PedidoEnviado(IdentificadorPedido idPedido, String idCliente, Direccion direccionEnvio,
+                         LocalDateTime instante) implements EventoPedido {}
+
+    record PedidoEntregado(IdentificadorPedido idPedido, String idCliente, LocalDateTime instante) implements EventoPedido {}
+
+    record PedidoCancelado(IdentificadorPedido idPedido, String idCliente, EstadoPedido estadoAnterior, String motivo,
+                           LocalDateTime instante) implements EventoPedido {}
+}
@@ -25,6 +25,8 @@ public class Pedido {
     private EstadoPedido estado;
     private final LocalDateTime fechaCreacion;
     private LocalDateTime fechaUltimaModificacion;
+    // Eventos de dominio pendientes de recoger; no forman parte del estado persistido
+    private final List<EventoPedido> eventos = new ArrayList<>();
 
     // Constructor privado para forzar la creación a través de métodos factoría o servicios de dominio
     private Pedido(IdentificadorPedido id, String idCliente, Direccion direccionEnvio, Currency monedaPorDefecto) {
@@ -61,7 +63,8 @@ public class Pedido {
         Objects.requireNonNull(idProducto, "El ID del producto no puede ser nulo para la nueva línea");
         Objects.requireNonNull(precioUnitario, "El precio unitario no puede ser nulo para la nueva línea");
 
-        if (this.estado != EstadoPedido.PENDIENTE && this.estado != EstadoPedido.PROCESANDO) { // Permitir agregar si está procesando también
+        // Las líneas quedan fijas al confirmar: las existencias se reservan con las líneas de ese momento
+        if (this.estado != EstadoPedido.PENDIENTE) {
             throw new IllegalStateException("No se pueden agregar líneas a un pedido en estado: " + this.estado);
         }
         if (!this.totalPedido.moneda().equals(precioUnitario.moneda())) {
@@ -84,7 +87,7 @@ public class Pedido {
 
     public void eliminarLineaPedido(IdentificadorProducto idProducto) {
         Objects.requireNonNull(idProducto, "El ID del producto a eliminar no puede ser nulo");
-        if (this.estado != EstadoPedido.PENDIENTE && this.estado != EstadoPedido.PROCESANDO) {
+        if (this.estado != EstadoPedido.PENDIENTE) {
             throw new IllegalStateException("No se pueden eliminar líneas de un pedido en estado: " + this.estado);
         }
         boolean removed = this.lineasPedido.removeIf(lp -> lp.getIdProducto().equals(idProducto));
@@ -98,7 +101,7 @@ public class Pedido {
 
     public void actualizarCantidadLineaPedido(IdentificadorProducto idProducto, int nuevaCantidad) {
         Objects.requireNonNull(idProducto, "El ID del producto para actualizar cantidad no puede ser nulo");
-        if (this.estado != EstadoPedido.PENDIENTE && this.estado != EstadoPedido.PROCESANDO) {
+        if (this.estado != EstadoPedido.PENDIENTE) {
             throw new IllegalStateException("No se puede actualizar la cantidad de líneas en un pedido en estado: " + this.estado);
         }
         LineaPedido linea = encontrarLineaPorProducto(idProducto)
@@ -127,7 +130,7 @@ public class Pedido {
         }
         this.estado = EstadoPedido.PROCESANDO;
         marcarModificado();
-        // Aquí se podría publicar un Evento de Dominio: PedidoConfirmadoEvent
+        eventos.add(new EventoPedido.PedidoConfirmado(id, idCliente, totalPedido, lineasPedido.size(), fechaUltimaModificacion));
     }
 
     public void marcarComoEnviado() {
@@ -136,7 +139,7 @@ public class Pedido {
         }
         this.estado = EstadoPedido.ENVIADO;
         marcarModificado();
-        // Evento: PedidoEnviadoEvent
+        eventos.add(new EventoPedido.PedidoEnviado(id, idCliente, direccionEnvio, fechaUltimaModificacion));
     }
 
     public void marcarComoEntregado() {
@@ -145,7 +148,7 @@ public class Pedido {
         }
         this.estado = EstadoPedido.ENTREGADO;
         marcarModificado();
-        // Evento: PedidoEntregadoEvent
+        eventos.add(new EventoPedido.PedidoEntregado(id, idCliente, fechaUltimaModificacion));
     }
 
     public void cancelarPedido(String motivo) { // Motivo podría ser un VO
@@ -159,9 +162,24 @@ public class Pedido {
             // Ya está cancelado, no hacer nada o lanzar advertencia
             return;
         }
+        EstadoPedido estadoAnterior = this.estado;
         this.estado = EstadoPedido.CANCELADO;
         marcarModificado();
-        // Aquí se podría publicar un Evento de Dominio: PedidoCanceladoEvent(motivo)
+        eventos.add(new EventoPedido.PedidoCancelado(id, idCliente, estadoAnterior, motivo, fechaUltimaModificacion));
+    }
+
+    /**
+     * Devuelve los eventos de dominio emitidos desde la última llamada, en orden, y los olvida.
+     * La usa el repositorio al guardar el pedido para anotarlos junto con el guardado.
+     * @return Los eventos pendientes; vacía si no hay ninguno.
+     */
+    public List<EventoPedido> extraerEventos() {
+        if (eventos.isEmpty()) {
+            return List.of();
+        }
+        List<EventoPedido> extraidos = List.copyOf(eventos);
+        eventos.clear();
+        return extraidos;
     }
 
     // --- Métodos de Ayuda Internos ---
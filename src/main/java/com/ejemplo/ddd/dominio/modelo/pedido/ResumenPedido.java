@@ -0,0 +1,29 @@
+package com.ejemplo.ddd.dominio.modelo.pedido;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de solo lectura con los datos de cabecera de un Pedido.
+ * Es inmutable y no materializa las líneas, por lo que su coste no depende del tamaño del pedido.
+ */
+public record ResumenPedido(
+    IdentificadorPedido id,
+    String idCliente,
+    EstadoPedido estado,
+    Dinero totalPedido,
+    int numeroLineas,
+    LocalDateTime fechaCreacion,
+    LocalDateTime fechaUltimaModificacion
+) {
+    public static ResumenPedido de(Pedido pedido) {
+        return new ResumenPedido(
+            pedido.getId(),
+            pedido.getIdCliente(),
+            pedido.getEstado(),
+            pedido.getTotalPedido(),
+            pedido.getLineasPedido().size(),
+            pedido.getFechaCreacion(),
+            pedido.getFechaUltimaModificacion()
+        );
+    }
+}
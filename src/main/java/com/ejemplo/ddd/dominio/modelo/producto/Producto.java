@@ -0,0 +1,17 @@
+package com.ejemplo.ddd.dominio.modelo.producto;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+
+import java.util.Objects;
+
+/**
+ * Vista de un producto del catálogo desde el contexto de pedidos: solo lo necesario para
+ * fijar el precio de una línea. Es inmutable.
+ */
+public record Producto(IdentificadorProducto id, String nombre, Dinero precio) {
+    public Producto {
+        Objects.requireNonNull(id, "El ID del producto no puede ser nulo");
+        Objects.requireNonNull(nombre, "El nombre del producto no puede ser nulo");
+        Objects.requireNonNull(precio, "El precio del producto no puede ser nulo");
+    }
+}
@@ -0,0 +1,21 @@
+package com.ejemplo.ddd.dominio.repositorio;
+
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.modelo.producto.Producto;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Puerto hacia el catálogo de productos, la fuente autorizada de los precios.
+ * Las consultas son por lotes para que un pedido con muchas líneas cueste una sola llamada.
+ */
+@FunctionalInterface
+public interface CatalogoProductos {
+
+    /**
+     * @param ids Productos a buscar; puede tener repetidos.
+     * @return Los productos encontrados por id. Los que el catálogo no conoce no aparecen.
+     */
+    Map<IdentificadorProducto, Producto> buscarPorIds(Collection<IdentificadorProducto> ids);
+}
@@ -0,0 +1,26 @@
+package com.ejemplo.ddd.dominio.repositorio;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+
+import java.util.Map;
+
+/**
+ * Un guardado en lote ({@link PedidoRepository#guardarTodos}) en el que algunos pedidos no se han podido
+ * guardar. El resto del lote sí se ha guardado; cada fallo se informa con el id de su pedido.
+ */
+public class GuardadoParcialException extends RuntimeException {
+
+    private final Map<IdentificadorPedido, RuntimeException> fallos;
+
+    public GuardadoParcialException(Map<IdentificadorPedido, RuntimeException> fallos) {
+        super(fallos.size() + " pedidos del lote no se han guardado", fallos.values().stream().findFirst().orElse(null));
+        this.fallos = Map.copyOf(fallos);
+    }
+
+    /**
+     * @return La excepción de cada pedido que no se ha guardado, indexada por su id.
+     */
+    public Map<IdentificadorPedido, RuntimeException> getFallos() {
+        return fallos;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ejemplo.ddd.dominio.repositorio;
+
+import com.ejemplo.ddd.dominio.modelo.inventario.Existencias;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+
+import java.util.Optional;
+
+/**
+ * Interfaz del Repositorio para el Agregado Existencias.
+ * Devuelve la instancia viva de cada producto: las reservas se hacen directamente sobre ella.
+ */
+public interface InventarioRepository {
+
+    /**
+     * @return Las existencias del producto, o vacío si no se controlan sus existencias.
+     */
+    Optional<Existencias> buscarPorProducto(IdentificadorProducto idProducto);
+
+    /**
+     * Da de alta o sustituye las existencias de un producto.
+     */
+    void guardar(Existencias existencias);
+}
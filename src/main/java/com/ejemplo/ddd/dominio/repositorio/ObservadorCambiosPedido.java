@@ -0,0 +1,67 @@
+package com.ejemplo.ddd.dominio.repositorio;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+
+/**
+ * Punto de extensión para reaccionar a las escrituras del {@link PedidoRepository}.
+ * Las implementaciones reciben el estado persistido antes y después de cada escritura,
+ * lo que permite mantener modelos de lectura de forma incremental.
+ * <p>
+ * Se invoca de forma síncrona dentro de la escritura, mientras el repositorio retiene el pedido, de
+ * modo que las escrituras de un mismo pedido llegan en el orden en que se aplicaron: las
+ * implementaciones deben ser rápidas, seguras ante concurrencia, no deben modificar los pedidos
+ * recibidos ni escribir en el repositorio.
+ */
+public interface ObservadorCambiosPedido {
+
+    /**
+     * @param anterior El estado persistido previamente, o {@code null} si el pedido es nuevo.
+     * @param nuevo El estado que acaba de persistirse.
+     */
+    void pedidoGuardado(Pedido anterior, Pedido nuevo);
+
+    /**
+     * @param eliminado El último estado persistido del pedido eliminado.
+     */
+    void pedidoEliminado(Pedido eliminado);
+
+    /**
+     * El pedido sale del almacén activo hacia el archivo de pedidos terminados. Sigue existiendo
+     * (se puede buscar por id), así que por defecto no se hace nada.
+     *
+     * @param archivado El último estado persistido del pedido.
+     */
+    default void pedidoArchivado(Pedido archivado) {
+    }
+
+    /**
+     * Se ha eliminado un pedido que ya solo estaba en el archivo. Por defecto es un borrado como
+     * cualquier otro; los modelos de lectura que dejan de contar un pedido al archivarlo no deben
+     * descontarlo otra vez.
+     *
+     * @param eliminado El estado archivado del pedido.
+     */
+    default void pedidoArchivadoEliminado(Pedido eliminado) {
+        pedidoEliminado(eliminado);
+    }
+
+    /**
+     * El pedido sale del almacén activo porque ahora es de otro nodo del cluster, que lo recibe como
+     * un pedido nuevo. No es un borrado: el pedido sigue existiendo y no ha cambiado, así que por
+     * defecto no se hace nada. Los modelos de lectura del almacén local deben dejar de contarlo.
+     *
+     * @param trasladado El último estado persistido del pedido en este nodo.
+     */
+    default void pedidoTrasladado(Pedido trasladado) {
+    }
+
+    /**
+     * El pedido vuelve al almacén activo al cargar una captura guardada antes de reiniciar. Para los
+     * modelos de lectura es como un pedido nuevo, así que por defecto se trata como tal.
+     *
+     * @param restaurado El estado capturado del pedido.
+     */
+    default void pedidoRestaurado(Pedido restaurado) {
+        pedidoGuardado(null, restaurado);
+    }
+}
@@ -1,9 +1,14 @@
 package com.ejemplo.ddd.dominio.repositorio;
 
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
 import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
 import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -11,11 +16,83 @@ import java.util.Optional;
  * Define las operaciones de persistencia necesarias desde la perspectiva del dominio.
  */
 public interface PedidoRepository {
+    /**
+     * Persiste el estado del pedido y, en la misma operación, recoge sus eventos de dominio pendientes
+     * ({@link Pedido#extraerEventos()}) para publicarlos.
+     */
     void guardar(Pedido pedido);
+
+    /**
+     * Guarda un lote de pedidos en una sola operación de persistencia.
+     * Las implementaciones con un backend duradero deberían hacerlo en un único viaje de ida y vuelta.
+     * Si un pedido aparece varias veces se guarda la última instancia, pero se conservan, en orden, los
+     * eventos de dominio de todas.
+     * <p>
+     * Un pedido que no se puede guardar no impide guardar los demás: si fallan algunos se lanza
+     * {@link GuardadoParcialException} con el error de cada uno. Cualquier otra excepción significa que
+     * no se ha guardado ninguno.
+     */
+    default void guardarTodos(Collection<Pedido> pedidos) {
+        Map<IdentificadorPedido, RuntimeException> fallos = new LinkedHashMap<>();
+        for (Pedido pedido : pedidos) {
+            try {
+                guardar(pedido);
+            } catch (RuntimeException e) {
+                fallos.put(pedido.getId(), e);
+            }
+        }
+        if (!fallos.isEmpty()) {
+            throw new GuardadoParcialException(fallos);
+        }
+    }
+
+    /**
+     * Guarda el pedido solo si la copia almacenada sigue en {@code estadoEsperado}, para que una transición
+     * no pise a otra que haya llegado antes (p. ej. la caducidad a una confirmación).
+     * La implementación por defecto compara y guarda por separado; los backends deberían hacerlo de forma
+     * atómica respecto a otros guardados del mismo pedido.
+     * @return Si se ha guardado.
+     */
+    default boolean guardarSiEstado(Pedido pedido, EstadoPedido estadoEsperado) {
+        Optional<Pedido> actual = buscarPorId(pedido.getId());
+        if (actual.isEmpty() || actual.get().getEstado() != estadoEsperado) {
+            return false;
+        }
+        guardar(pedido);
+        return true;
+    }
+
     Optional<Pedido> buscarPorId(IdentificadorPedido id);
     List<Pedido> buscarTodos();
+
+    /**
+     * Busca varios pedidos en una sola operación.
+     * @return Los pedidos encontrados indexados por id; los ids inexistentes no aparecen en el mapa.
+     */
+    default Map<IdentificadorPedido, Pedido> buscarPorIds(Collection<IdentificadorPedido> ids) {
+        Map<IdentificadorPedido, Pedido> encontrados = new LinkedHashMap<>();
+        for (IdentificadorPedido id : ids) {
+            buscarPorId(id).ifPresent(p -> encontrados.put(id, p));
+        }
+        return encontrados;
+    }
+
+    /**
+     * Devuelve la cabecera de todos los pedidos sin reconstruir sus líneas.
+     * La implementación por defecto sí las reconstruye; los backends deberían leer solo la cabecera.
+     */
+    default List<ResumenPedido> buscarResumenes() {
+        return buscarTodos().stream().map(ResumenPedido::de).toList();
+    }
+
+    /**
+     * Busca los pedidos en un estado. Los backends deberían resolverlo con un índice.
+     */
+    default List<Pedido> buscarPorEstado(EstadoPedido estado) {
+        return buscarTodos().stream().filter(p -> p.getEstado() == estado).toList();
+    }
+
     void eliminarPorId(IdentificadorPedido id);
     // Podrían existir otros métodos de búsqueda específicos, ej:
     // List<Pedido> buscarPorIdCliente(String idCliente);
-    // List<Pedido> buscarPorEstado(EstadoPedido estado);
 }
@@ -3,13 +3,17 @@ package com.ejemplo.ddd.dominio.servicio;
 import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
 import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
 import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.modelo.producto.Producto;
 import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
-import com.ejemplo.ddd.dominio.repositorio.PedidoRepository;
+import com.ejemplo.ddd.dominio.repositorio.CatalogoProductos;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Para asegurar atomicidad si se usa BD
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Currency; // Importar Currency
 
@@ -20,20 +24,28 @@ import org.slf4j.LoggerFactory;
  * Servicio de Dominio para orquestar la creación de un Pedido.
  * Puede contener lógica que no pertenece naturalmente al Agregado Pedido,
  * como la coordinación con otros Agregados (ej. Productos para verificar stock).
+ * <p>
+ * Los precios de las líneas salen del {@link CatalogoProductos}, y por defecto los productos que no
+ * conoce se rechazan. Solo si se desactiva {@code pedidos.catalogo.exigir-producto} se aceptan, al
+ * precio que indique el cliente.
  */
 @Service
 public class ServicioRealizacionPedido {
 
     private static final Logger logger = LoggerFactory.getLogger(ServicioRealizacionPedido.class);
 
-    private final PedidoRepository pedidoRepository;
+    private final CatalogoProductos catalogoProductos;
+    private final boolean exigirProducto;
 
-    public ServicioRealizacionPedido(PedidoRepository pedidoRepository) {
-        this.pedidoRepository = pedidoRepository;
+    public ServicioRealizacionPedido(CatalogoProductos catalogoProductos,
+                                     @Value("${pedidos.catalogo.exigir-producto:true}") boolean exigirProducto) {
+        this.catalogoProductos = catalogoProductos;
+        this.exigirProducto = exigirProducto;
     }
 
     /**
-     * Crea y persiste un nuevo pedido.
+     * Crea un nuevo pedido. No lo persiste: lo guarda quien lo llama, con el resto de mutaciones, para
+     * que las altas también pasen por la escritura agrupada.
      * @param idCliente Identificador del cliente.
      * @param direccionEnvio Dirección de envío.
      * @param lineas Información de las líneas de pedido (idProducto, cantidad, precio).
@@ -51,7 +63,7 @@ public class ServicioRealizacionPedido {
             throw new IllegalArgumentException("Un pedido debe tener al menos una línea");
         }
 
-        logger.info("Iniciando creación de pedido para cliente '{}' con {} líneas y moneda {}", idCliente, lineas.size(), moneda);
+        logger.debug("Iniciando creación de pedido para cliente '{}' con {} líneas y moneda {}", idCliente, lineas.size(), moneda);
 
         try {
             // 1. Crear el objeto Pedido (Raíz del Agregado)
@@ -64,19 +76,18 @@ public class ServicioRealizacionPedido {
 
             // 3. Agregar las líneas al pedido. Las validaciones y el recálculo del total
             // están encapsulados dentro del Agregado Pedido.
+            // Los productos de todas las líneas se consultan al catálogo en una sola llamada.
+            Map<IdentificadorProducto, Producto> productos =
+                catalogoProductos.buscarPorIds(lineas.stream().map(InfoLineaPedido::idProducto).toList());
             for (InfoLineaPedido infoLinea : lineas) {
-                // Asumimos que el precio viene dado y es en la moneda del pedido.
-                // En un sistema real, el precio podría obtenerse del catálogo de productos.
-                Dinero precio = new Dinero(infoLinea.precioUnitario(), moneda);
-                logger.debug("Añadiendo línea: producto={}, cantidad={}, precio={}", infoLinea.idProducto(), infoLinea.cantidad(), infoLinea.precioUnitario());
+                Dinero precio = precioDeLinea(productos.get(infoLinea.idProducto()), infoLinea.idProducto(),
+                    infoLinea.precioUnitario(), moneda);
+                logger.debug("Añadiendo línea: producto={}, cantidad={}, precio={}", infoLinea.idProducto(), infoLinea.cantidad(), precio.cantidad());
                 nuevoPedido.agregarLineaPedido(infoLinea.idProducto(), infoLinea.cantidad(), precio);
             }
             // El total se recalcula dentro de agregarLineaPedido.
 
-            // 4. Guardar el Agregado a través del Repositorio
-            pedidoRepository.guardar(nuevoPedido);
-
-            logger.info("Pedido creado y guardado: id={} total={}", nuevoPedido.getId().valor(), nuevoPedido.getTotalPedido().cantidad());
+            logger.debug("Pedido creado: id={} total={}", nuevoPedido.getId().valor(), nuevoPedido.getTotalPedido().cantidad());
 
             return nuevoPedido;
         } catch (RuntimeException e) {
@@ -85,11 +96,40 @@ public class ServicioRealizacionPedido {
         }
     }
 
+    /**
+     * Precio unitario de un producto para una línea nueva de un pedido en {@code moneda}.
+     * @param precioIndicado El precio que indica el cliente; puede ser nulo.
+     * @throws IllegalArgumentException si no se puede fijar el precio.
+     */
+    public Dinero precioUnitario(IdentificadorProducto idProducto, BigDecimal precioIndicado, Currency moneda) {
+        Producto producto = catalogoProductos.buscarPorIds(List.of(idProducto)).get(idProducto);
+        return precioDeLinea(producto, idProducto, precioIndicado, moneda);
+    }
+
+    private Dinero precioDeLinea(Producto producto, IdentificadorProducto idProducto, BigDecimal precioIndicado,
+                                 Currency moneda) {
+        if (producto != null) {
+            if (!producto.precio().moneda().equals(moneda)) {
+                throw new IllegalArgumentException("El producto " + idProducto.valor() + " no tiene precio en "
+                    + moneda.getCurrencyCode());
+            }
+            return producto.precio();
+        }
+        if (exigirProducto) {
+            throw new IllegalArgumentException("El producto " + idProducto.valor() + " no está en el catálogo");
+        }
+        if (precioIndicado == null) {
+            throw new IllegalArgumentException("El producto " + idProducto.valor()
+                + " no está en el catálogo y no se ha indicado su precio");
+        }
+        return new Dinero(precioIndicado, moneda);
+    }
+
     /**
      * DTO inmutable que transmite la información necesaria para añadir una línea al pedido.
      * Está intencionadamente vacío de comportamiento (solo datos), por eso no contiene métodos.
      */
     public record InfoLineaPedido(IdentificadorProducto idProducto, int cantidad, java.math.BigDecimal precioUnitario) {
-        // Record usado como DTO inmutable; sin lógica adicional.
+        // Record usado como DTO inmutable; sin lógica adicional. El precio es opcional si el producto está en el catálogo.
     }
 }
@@ -0,0 +1,144 @@
+package com.ejemplo.ddd.dominio.servicio;
+
+import com.ejemplo.ddd.dominio.modelo.inventario.Existencias;
+import com.ejemplo.ddd.dominio.modelo.inventario.ExistenciasInsuficientesException;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.LineaPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.InventarioRepository;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Servicio de Dominio que coordina los Agregados Pedido y Existencias: aparta las unidades de todas las
+ * líneas de un pedido al confirmarlo y las devuelve si se cancela.
+ * <p>
+ * La reserva es todo o nada: las líneas se reservan una a una sobre el contador de cada producto y, si
+ * alguna no tiene existencias suficientes, se devuelven las ya apartadas antes de rechazar el pedido.
+ * Un producto sin existencias registradas no se controla y siempre se puede reservar.
+ * <p>
+ * Las reservas vivas se anotan por pedido, de modo que reservar dos veces el mismo pedido no aparta el
+ * doble y liberar devuelve exactamente lo que se reservó. Como la segunda reserva no aparta nada,
+ * {@link #reservar} dice si la llamada creó la reserva: solo quien la creó puede guardar la confirmación,
+ * y deshacerla si no llega a guardarse.
+ * <p>
+ * La reserva se hace antes de guardar la confirmación, para poder rechazarla; el resto lo deciden las
+ * escrituras del repositorio, sea cual sea el caso de uso que las provoque: un pedido que se guarda
+ * cancelado o se elimina devuelve su reserva, uno que se guarda enviado la consume, y uno que vuelve
+ * {@code PROCESANDO} de una captura tras un reinicio la recupera.
+ */
+@Service
+public class ServicioReservaExistencias implements ObservadorCambiosPedido {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServicioReservaExistencias.class);
+
+    private final InventarioRepository inventarioRepository;
+    private final Map<IdentificadorPedido, List<Reserva>> reservas = new ConcurrentHashMap<>();
+
+    public ServicioReservaExistencias(InventarioRepository inventarioRepository) {
+        this.inventarioRepository = Objects.requireNonNull(inventarioRepository);
+    }
+
+    /**
+     * Reserva las unidades de todas las líneas del pedido, o ninguna.
+     * @return {@code true} si esta llamada ha creado la reserva; {@code false} si el pedido ya tenía una,
+     *         que pertenece a otra confirmación y esta no debe guardar ni liberar.
+     * @throws ExistenciasInsuficientesException Si alguna línea no tiene existencias suficientes.
+     */
+    public boolean reservar(Pedido pedido) {
+        if (reservas.containsKey(pedido.getId())) {
+            return false;
+        }
+        List<Reserva> apartadas = new ArrayList<>(pedido.getLineasPedido().size());
+        for (LineaPedido linea : pedido.getLineasPedido()) {
+            Optional<Existencias> existencias = inventarioRepository.buscarPorProducto(linea.getIdProducto());
+            if (existencias.isEmpty()) {
+                continue;
+            }
+            if (!existencias.get().reservar(linea.getCantidad())) {
+                devolver(apartadas);
+                throw new ExistenciasInsuficientesException(linea.getIdProducto(), linea.getCantidad(),
+                    existencias.get().getDisponibles());
+            }
+            apartadas.add(new Reserva(existencias.get(), linea.getCantidad()));
+        }
+        if (reservas.putIfAbsent(pedido.getId(), apartadas) != null) {
+            // Otra confirmación concurrente del mismo pedido reservó antes: la nuestra sobra
+            devolver(apartadas);
+            return false;
+        }
+        logger.debug("Reservadas existencias de {} líneas del pedido {}", apartadas.size(), pedido.getId().valor());
+        return true;
+    }
+
+    /**
+     * Devuelve al inventario lo reservado para el pedido. No hace nada si no tenía reserva.
+     */
+    public void liberar(IdentificadorPedido idPedido) {
+        List<Reserva> apartadas = reservas.remove(idPedido);
+        if (apartadas != null) {
+            devolver(apartadas);
+            logger.debug("Liberadas existencias de {} líneas del pedido {}", apartadas.size(), idPedido.valor());
+        }
+    }
+
+    /**
+     * Da por consumida la reserva del pedido: las unidades ya han salido del almacén y no vuelven
+     * aunque el pedido se cancele después.
+     */
+    public void consumir(IdentificadorPedido idPedido) {
+        reservas.remove(idPedido);
+    }
+
+    @Override
+    public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+        switch (nuevo.getEstado()) {
+            case CANCELADO -> liberar(nuevo.getId());
+            case ENVIADO, ENTREGADO -> consumir(nuevo.getId());
+            default -> { }
+        }
+    }
+
+    @Override
+    public void pedidoEliminado(Pedido eliminado) {
+        liberar(eliminado.getId());
+    }
+
+    /**
+     * Las reservas no se guardan con la captura: las de los pedidos confirmados y aún no enviados se
+     * vuelven a apartar de las existencias cargadas al arrancar.
+     */
+    @Override
+    public void pedidoRestaurado(Pedido restaurado) {
+        if (restaurado.getEstado() != EstadoPedido.PROCESANDO) {
+            return;
+        }
+        try {
+            reservar(restaurado);
+        } catch (ExistenciasInsuficientesException e) {
+            // No se puede deshacer una confirmación ya aceptada: se avisa y el pedido sigue sin reserva
+            logger.warn("El pedido restaurado {} no cabe en las existencias actuales: {}",
+                restaurado.getId().valor(), e.getMessage());
+        }
+    }
+
+    private static void devolver(List<Reserva> apartadas) {
+        for (Reserva reserva : apartadas) {
+            reserva.existencias().liberar(reserva.cantidad());
+        }
+    }
+
+    private record Reserva(Existencias existencias, int cantidad) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Endpoint de Actuator ({@code /actuator/analitica}) sobre la instantánea columnar de pedidos.
+ * <p>
+ * {@code POST} exporta una instantánea nueva. {@code GET} da los ingresos por producto, mes y moneda
+ * de la última instantánea, filtrados por estado (por defecto {@code ENTREGADO}) y por rango de meses
+ * {@code desde}/{@code hasta} en formato {@code aaaamm}; si aún no hay instantánea responde 404.
+ */
+@Component
+@Endpoint(id = "analitica")
+public class AnaliticaEndpoint {
+
+    private final ExportadorColumnar exportador;
+
+    public AnaliticaEndpoint(ExportadorColumnar exportador) {
+        this.exportador = exportador;
+    }
+
+    @WriteOperation
+    public ExportadorColumnar.ResultadoExportacion exportar() {
+        return exportador.exportar();
+    }
+
+    @ReadOperation
+    public IngresosDTO ingresos(@Nullable Integer desde, @Nullable Integer hasta, @Nullable EstadoPedido estado) {
+        FicheroColumnar instantanea = exportador.ultimaInstantanea();
+        if (instantanea == null) {
+            return null;
+        }
+        ConsultaColumnar consulta = ConsultaColumnar.sobre(instantanea.tabla(ExportadorColumnar.TABLA_LINEAS))
+            .dondeIgual("estado", (estado != null ? estado : EstadoPedido.ENTREGADO).name());
+        if (desde != null || hasta != null) {
+            consulta.dondeEntre("mes", desde != null ? desde : 0, hasta != null ? hasta : Integer.MAX_VALUE);
+        }
+        ConsultaColumnar.Resultado resultado = consulta
+            .agruparPor("producto", "mes", "moneda")
+            .sumar("cantidad")
+            .sumar("importe")
+            .ejecutar();
+        List<IngresoDTO> ingresos = resultado.filas().stream()
+            .map(fila -> new IngresoDTO((String) fila.claves().get(0), (Long) fila.claves().get(1),
+                (String) fila.claves().get(2), fila.filas(), (Long) fila.sumas().get(0),
+                (BigDecimal) fila.sumas().get(1)))
+            .toList();
+        return new IngresosDTO(ingresos, resultado.gruposLeidos(), resultado.gruposDescartados(),
+            resultado.filasLeidas(), resultado.duracionNanos() / 1_000_000.0);
+    }
+
+    public record IngresoDTO(String producto, long mes, String moneda, long lineas, long unidades, BigDecimal importe) {}
+
+    public record IngresosDTO(List<IngresoDTO> ingresos, int gruposLeidos, int gruposDescartados, long filasLeidas,
+                              double duracionMs) {}
+}
@@ -0,0 +1,394 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Consulta de agregación sobre una {@link TablaColumnar}: filtros por rango o igualdad, agrupación
+ * por hasta {@value #MAXIMO_AGRUPACION} columnas, recuento y sumas.
+ * <pre>
+ * ConsultaColumnar.sobre(lineas)
+ *     .dondeIgual("estado", "ENTREGADO")
+ *     .dondeEntre("mes", 202601, 202612)
+ *     .agruparPor("producto", "mes")
+ *     .sumar("importe")
+ *     .ejecutar();
+ * </pre>
+ * Los filtros se empujan hasta los grupos de filas: un grupo cuyo mínimo y máximo excluyen el filtro
+ * no se lee, y uno que lo cumple entero no se evalúa fila a fila. Del resto solo se decodifican las
+ * columnas que usa la consulta. Los grupos se recorren en paralelo y se agregan sin objetos por fila:
+ * en un array indexado por la clave si las columnas de agrupación tienen pocos valores, o si no en
+ * tablas hash de {@code long}.
+ */
+public final class ConsultaColumnar {
+
+    public static final int MAXIMO_AGRUPACION = 3;
+
+    // Combinaciones de claves hasta las que se agrega en un array indexado por la clave, sin hash
+    private static final int MAXIMO_CLAVES_DENSAS = 1 << 14;
+
+    private final TablaColumnar tabla;
+    private final List<Predicado> predicados = new ArrayList<>();
+    private int[] agrupacion = new int[0];
+    private int[] sumas = new int[0];
+    // Mínimo y número de valores de cada columna de agrupación si se agrega en array; null si con hash
+    private long[] bases;
+    private long[] rangos;
+
+    // Cada grupo de filas se recorre entero en un hilo sin esperar a otras tareas, así que los buferes
+    // de un hilo se pueden reutilizar entre grupos y entre consultas
+    private static final ThreadLocal<Buferes> BUFERES = ThreadLocal.withInitial(Buferes::new);
+
+    private ConsultaColumnar(TablaColumnar tabla) {
+        this.tabla = tabla;
+    }
+
+    public static ConsultaColumnar sobre(TablaColumnar tabla) {
+        return new ConsultaColumnar(tabla);
+    }
+
+    /**
+     * Filas con la columna entre {@code desde} y {@code hasta}, ambos incluidos. No admite columnas de
+     * texto, cuyos códigos no siguen el orden del texto.
+     */
+    public ConsultaColumnar dondeEntre(String columna, Object desde, Object hasta) {
+        int indice = tabla.indiceColumna(columna);
+        if (tabla.tipo(indice) == TipoColumna.TEXTO) {
+            throw new IllegalArgumentException("La columna de texto " + columna + " solo admite igualdad");
+        }
+        predicados.add(new Predicado(indice, tabla.codificar(indice, desde), tabla.codificar(indice, hasta)));
+        return this;
+    }
+
+    public ConsultaColumnar dondeIgual(String columna, Object valor) {
+        int indice = tabla.indiceColumna(columna);
+        long codigo = tabla.codificar(indice, valor);
+        // Un texto que no está en el diccionario no lo cumple ninguna fila: rango vacío
+        predicados.add(codigo < 0 && tabla.tipo(indice) == TipoColumna.TEXTO
+            ? new Predicado(indice, 1, 0)
+            : new Predicado(indice, codigo, codigo));
+        return this;
+    }
+
+    public ConsultaColumnar agruparPor(String... columnas) {
+        if (columnas.length > MAXIMO_AGRUPACION) {
+            throw new IllegalArgumentException("Como mucho se agrupa por " + MAXIMO_AGRUPACION + " columnas");
+        }
+        agrupacion = Arrays.stream(columnas).mapToInt(tabla::indiceColumna).toArray();
+        return this;
+    }
+
+    public ConsultaColumnar sumar(String columna) {
+        int indice = tabla.indiceColumna(columna);
+        TipoColumna tipo = tabla.tipo(indice);
+        if (tipo != TipoColumna.ENTERO && tipo != TipoColumna.DECIMAL) {
+            throw new IllegalArgumentException("Solo se suman columnas numéricas: " + columna);
+        }
+        sumas = Arrays.copyOf(sumas, sumas.length + 1);
+        sumas[sumas.length - 1] = indice;
+        return this;
+    }
+
+    public Resultado ejecutar() {
+        long inicio = System.nanoTime();
+        prepararAgregacionDensa();
+        Parcial total = IntStream.range(0, tabla.numeroGrupos()).parallel()
+            .mapToObj(this::recorrerGrupo)
+            .reduce(Parcial::combinar)
+            .orElseGet(() -> new Parcial(nuevaAgregacion(), 0, 0, 0));
+
+        List<Fila> filas = new ArrayList<>(total.agregacion.tamano);
+        Agregacion agregacion = total.agregacion;
+        for (int ranura = 0; ranura < agregacion.capacidad; ranura++) {
+            if (!agregacion.ocupada[ranura]) {
+                continue;
+            }
+            List<Object> claves = new ArrayList<>(agrupacion.length);
+            for (int k = 0; k < agrupacion.length; k++) {
+                claves.add(tabla.decodificar(agrupacion[k], agregacion.claves[ranura * MAXIMO_AGRUPACION + k]));
+            }
+            int base = ranura * (1 + sumas.length);
+            List<Object> totales = new ArrayList<>(sumas.length);
+            for (int s = 0; s < sumas.length; s++) {
+                totales.add(tabla.decodificar(sumas[s], agregacion.acumulados[base + 1 + s]));
+            }
+            filas.add(new Fila(claves, agregacion.acumulados[base], totales));
+        }
+        filas.sort(ORDEN_FILAS);
+        return new Resultado(filas, total.gruposLeidos, total.gruposDescartados, total.filasLeidas,
+            System.nanoTime() - inicio);
+    }
+
+    /**
+     * Las claves de agrupación suelen ser códigos de diccionario, meses o cantidades, con pocos valores
+     * distintos. Si entre el mínimo y el máximo de cada columna en toda la tabla caben pocas
+     * combinaciones, cada combinación tiene su posición fija en un array.
+     */
+    private void prepararAgregacionDensa() {
+        long[] minimos = new long[MAXIMO_AGRUPACION];
+        long[] numeros = {1, 1, 1};
+        long combinaciones = 1;
+        for (int k = 0; k < agrupacion.length; k++) {
+            long minimo = Long.MAX_VALUE;
+            long maximo = Long.MIN_VALUE;
+            for (int g = 0; g < tabla.numeroGrupos(); g++) {
+                minimo = Math.min(minimo, tabla.minimo(g, agrupacion[k]));
+                maximo = Math.max(maximo, tabla.maximo(g, agrupacion[k]));
+            }
+            if (minimo > maximo || maximo - minimo >= MAXIMO_CLAVES_DENSAS) {
+                return;
+            }
+            minimos[k] = minimo;
+            numeros[k] = maximo - minimo + 1;
+            combinaciones *= numeros[k];
+            if (combinaciones > MAXIMO_CLAVES_DENSAS) {
+                return;
+            }
+        }
+        bases = minimos;
+        rangos = numeros;
+    }
+
+    private Agregacion nuevaAgregacion() {
+        return new Agregacion(sumas.length, bases, rangos);
+    }
+
+    private Parcial recorrerGrupo(int grupo) {
+        Agregacion agregacion = nuevaAgregacion();
+        for (Predicado predicado : predicados) {
+            if (predicado.desde > predicado.hasta
+                    || tabla.maximo(grupo, predicado.columna) < predicado.desde
+                    || tabla.minimo(grupo, predicado.columna) > predicado.hasta) {
+                return new Parcial(agregacion, 0, 1, 0);
+            }
+        }
+        int filas = tabla.filasGrupo(grupo);
+        Buferes bufer = BUFERES.get();
+        bufer.preparar(filas, tabla.getColumnas().size());
+        int[] seleccion = bufer.seleccion;
+        int seleccionadas = -1; // -1: todas las filas
+        for (Predicado predicado : predicados) {
+            if (tabla.minimo(grupo, predicado.columna) >= predicado.desde
+                    && tabla.maximo(grupo, predicado.columna) <= predicado.hasta) {
+                continue; // El grupo entero cumple el filtro
+            }
+            long[] valores = bufer.columna(tabla, grupo, predicado.columna);
+            int quedan = 0;
+            if (seleccionadas < 0) {
+                for (int i = 0; i < filas; i++) {
+                    long valor = valores[i];
+                    seleccion[quedan] = i;
+                    quedan += (valor >= predicado.desde && valor <= predicado.hasta) ? 1 : 0;
+                }
+            } else {
+                for (int k = 0; k < seleccionadas; k++) {
+                    int i = seleccion[k];
+                    long valor = valores[i];
+                    seleccion[quedan] = i;
+                    quedan += (valor >= predicado.desde && valor <= predicado.hasta) ? 1 : 0;
+                }
+            }
+            seleccionadas = quedan;
+            if (seleccionadas == 0) {
+                return new Parcial(agregacion, 1, 0, filas);
+            }
+        }
+
+        long[] clave0 = agrupacion.length > 0 ? bufer.columna(tabla, grupo, agrupacion[0]) : null;
+        long[] clave1 = agrupacion.length > 1 ? bufer.columna(tabla, grupo, agrupacion[1]) : null;
+        long[] clave2 = agrupacion.length > 2 ? bufer.columna(tabla, grupo, agrupacion[2]) : null;
+        long[][] sumandos = new long[sumas.length][];
+        for (int s = 0; s < sumas.length; s++) {
+            sumandos[s] = bufer.columna(tabla, grupo, sumas[s]);
+        }
+        int numero = seleccionadas < 0 ? filas : seleccionadas;
+        for (int k = 0; k < numero; k++) {
+            int i = seleccionadas < 0 ? k : seleccion[k];
+            int base = agregacion.ranura(
+                clave0 != null ? clave0[i] : 0, clave1 != null ? clave1[i] : 0, clave2 != null ? clave2[i] : 0);
+            long[] acumulados = agregacion.acumulados;
+            acumulados[base]++;
+            for (int s = 0; s < sumandos.length; s++) {
+                acumulados[base + 1 + s] += sumandos[s][i];
+            }
+        }
+        return new Parcial(agregacion, 1, 0, filas);
+    }
+
+    /**
+     * @param claves Valores de las columnas de agrupación, ya convertidos al dominio.
+     * @param filas  Filas del grupo que cumplen los filtros.
+     * @param sumas  Una suma por cada {@link #sumar}, en el mismo orden.
+     */
+    public record Fila(List<Object> claves, long filas, List<Object> sumas) {}
+
+    /**
+     * @param gruposLeidos      Grupos de filas que se han leído.
+     * @param gruposDescartados Grupos de filas descartados por sus estadísticas, sin leerlos.
+     */
+    public record Resultado(List<Fila> filas, int gruposLeidos, int gruposDescartados, long filasLeidas,
+                            long duracionNanos) {}
+
+    private record Predicado(int columna, long desde, long hasta) {}
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Fila> ORDEN_FILAS = (a, b) -> {
+        for (int k = 0; k < a.claves().size(); k++) {
+            int comparacion = ((Comparable) a.claves().get(k)).compareTo(b.claves().get(k));
+            if (comparacion != 0) {
+                return comparacion;
+            }
+        }
+        return 0;
+    };
+
+    private record Parcial(Agregacion agregacion, int gruposLeidos, int gruposDescartados, long filasLeidas) {
+        Parcial combinar(Parcial otro) {
+            Agregacion mayor = agregacion.tamano >= otro.agregacion.tamano ? agregacion : otro.agregacion;
+            Agregacion menor = mayor == agregacion ? otro.agregacion : agregacion;
+            mayor.anadir(menor);
+            return new Parcial(mayor, gruposLeidos + otro.gruposLeidos, gruposDescartados + otro.gruposDescartados,
+                filasLeidas + otro.filasLeidas);
+        }
+    }
+
+    /**
+     * Buferes de un hilo para decodificar las columnas de un grupo de filas.
+     */
+    private static final class Buferes {
+        private long[][] columnas = new long[0][];
+        private boolean[] leidas = new boolean[0];
+        int[] seleccion = new int[0];
+
+        void preparar(int filas, int numeroColumnas) {
+            if (seleccion.length < filas) {
+                seleccion = new int[filas];
+            }
+            if (columnas.length < numeroColumnas) {
+                columnas = Arrays.copyOf(columnas, numeroColumnas);
+                leidas = new boolean[numeroColumnas];
+            }
+            Arrays.fill(leidas, false);
+        }
+
+        /**
+         * @return Los valores de la columna en el grupo, decodificados solo la primera vez que se piden.
+         */
+        long[] columna(TablaColumnar tabla, int grupo, int columna) {
+            int filas = tabla.filasGrupo(grupo);
+            if (columnas[columna] == null || columnas[columna].length < filas) {
+                columnas[columna] = new long[filas];
+            }
+            if (!leidas[columna]) {
+                tabla.leer(grupo, columna, columnas[columna]);
+                leidas[columna] = true;
+            }
+            return columnas[columna];
+        }
+    }
+
+    /**
+     * Tabla de claves de hasta tres {@code long} a un recuento y unas sumas: un array indexado por la
+     * clave si se le dan {@code bases} y {@code rangos}, o si no una tabla hash abierta.
+     */
+    private static final class Agregacion {
+        private final int numeroSumas;
+        private final long[] bases;
+        private final long[] rangos;
+        int capacidad;
+        int tamano;
+        boolean[] ocupada;
+        long[] claves;
+        long[] acumulados;
+
+        Agregacion(int numeroSumas, long[] bases, long[] rangos) {
+            this.numeroSumas = numeroSumas;
+            this.bases = bases;
+            this.rangos = rangos;
+            this.capacidad = rangos != null ? (int) (rangos[0] * rangos[1] * rangos[2]) : 64;
+            this.ocupada = new boolean[capacidad];
+            this.claves = new long[capacidad * MAXIMO_AGRUPACION];
+            this.acumulados = new long[capacidad * (1 + numeroSumas)];
+        }
+
+        /**
+         * @return Posición en {@link #acumulados} del recuento de la clave, creándola si no existe.
+         */
+        int ranura(long a, long b, long c) {
+            if (rangos != null) {
+                int ranura = (int) (((a - bases[0]) * rangos[1] + (b - bases[1])) * rangos[2] + (c - bases[2]));
+                if (!ocupada[ranura]) {
+                    ocupar(ranura, a, b, c);
+                }
+                return ranura * (1 + numeroSumas);
+            }
+            int mascara = capacidad - 1;
+            int ranura = hash(a, b, c) & mascara;
+            while (ocupada[ranura]) {
+                int base = ranura * MAXIMO_AGRUPACION;
+                if (claves[base] == a && claves[base + 1] == b && claves[base + 2] == c) {
+                    return ranura * (1 + numeroSumas);
+                }
+                ranura = (ranura + 1) & mascara;
+            }
+            if ((tamano + 1) * 2 > capacidad) {
+                crecer();
+                return ranura(a, b, c);
+            }
+            ocupar(ranura, a, b, c);
+            return ranura * (1 + numeroSumas);
+        }
+
+        private void ocupar(int ranura, long a, long b, long c) {
+            ocupada[ranura] = true;
+            claves[ranura * MAXIMO_AGRUPACION] = a;
+            claves[ranura * MAXIMO_AGRUPACION + 1] = b;
+            claves[ranura * MAXIMO_AGRUPACION + 2] = c;
+            tamano++;
+        }
+
+        void anadir(Agregacion otra) {
+            int ancho = 1 + numeroSumas;
+            for (int r = 0; r < otra.capacidad; r++) {
+                if (otra.ocupada[r]) {
+                    int base = ranura(otra.claves[r * MAXIMO_AGRUPACION], otra.claves[r * MAXIMO_AGRUPACION + 1],
+                        otra.claves[r * MAXIMO_AGRUPACION + 2]);
+                    for (int s = 0; s < ancho; s++) {
+                        acumulados[base + s] += otra.acumulados[r * ancho + s];
+                    }
+                }
+            }
+        }
+
+        private void crecer() {
+            boolean[] ocupadaAnterior = ocupada;
+            long[] clavesAnteriores = claves;
+            long[] acumuladosAnteriores = acumulados;
+            int capacidadAnterior = capacidad;
+            int ancho = 1 + numeroSumas;
+            capacidad *= 2;
+            tamano = 0;
+            ocupada = new boolean[capacidad];
+            claves = new long[capacidad * MAXIMO_AGRUPACION];
+            acumulados = new long[capacidad * ancho];
+            for (int r = 0; r < capacidadAnterior; r++) {
+                if (ocupadaAnterior[r]) {
+                    int base = ranura(clavesAnteriores[r * MAXIMO_AGRUPACION], clavesAnteriores[r * MAXIMO_AGRUPACION + 1],
+                        clavesAnteriores[r * MAXIMO_AGRUPACION + 2]);
+                    System.arraycopy(acumuladosAnteriores, r * ancho, acumulados, base, ancho);
+                }
+            }
+        }
+
+        private static int hash(long a, long b, long c) {
+            long h = a * 0x9E3779B97F4A7C15L + b;
+            h = h * 0x9E3779B97F4A7C15L + c;
+            h ^= h >>> 32;
+            h *= 0xff51afd7ed558ccdL;
+            return (int) (h ^ (h >>> 29));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escribe un {@link FicheroColumnar} fila a fila sin tener el fichero entero en memoria: cada tabla
+ * acumula un grupo de filas por columnas y lo vuelca codificado al llenarse. Los bloques de las
+ * distintas tablas quedan intercalados en el fichero; los metadatos del final dicen dónde está cada uno.
+ * <p>
+ * No es seguro para varios hilos.
+ */
+final class EscritorColumnar implements AutoCloseable {
+
+    private final FileOutputStream fichero;
+    private final DataOutputStream salida;
+    private final int filasPorGrupo;
+    private final List<Tabla> tablas = new ArrayList<>();
+    private long posicion;
+
+    EscritorColumnar(Path destino, int filasPorGrupo) throws IOException {
+        this.fichero = new FileOutputStream(destino.toFile());
+        this.salida = new DataOutputStream(new BufferedOutputStream(fichero, 256 * 1024));
+        this.filasPorGrupo = filasPorGrupo;
+        salida.writeInt(FicheroColumnar.MAGIA);
+        salida.writeByte(FicheroColumnar.VERSION);
+        posicion = 5;
+    }
+
+    Tabla tabla(String nombre, List<String> columnas, List<TipoColumna> tipos) {
+        Tabla tabla = new Tabla(nombre, columnas, tipos);
+        tablas.add(tabla);
+        return tabla;
+    }
+
+    /**
+     * Vuelca los grupos pendientes y los metadatos, y sincroniza el fichero con el disco.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Tabla tabla : tablas) {
+                tabla.volcar();
+            }
+            long posicionMetadatos = posicion;
+            salida.writeInt(tablas.size());
+            for (Tabla tabla : tablas) {
+                tabla.escribirMetadatos();
+            }
+            salida.writeLong(posicionMetadatos);
+            salida.writeInt(FicheroColumnar.MAGIA);
+            salida.flush();
+            fichero.getChannel().force(true);
+        } finally {
+            salida.close();
+        }
+    }
+
+    final class Tabla {
+        private final String nombre;
+        private final List<String> columnas;
+        private final List<TipoColumna> tipos;
+        private final long[][] pendientes;
+        private final List<Map<String, Integer>> diccionarios = new ArrayList<>();
+        private final List<GrupoEscrito> grupos = new ArrayList<>();
+        private int filasPendientes;
+        private long filas;
+
+        private Tabla(String nombre, List<String> columnas, List<TipoColumna> tipos) {
+            this.nombre = nombre;
+            this.columnas = List.copyOf(columnas);
+            this.tipos = List.copyOf(tipos);
+            this.pendientes = new long[columnas.size()][filasPorGrupo];
+            for (TipoColumna tipo : tipos) {
+                diccionarios.add(tipo == TipoColumna.TEXTO ? new HashMap<>() : null);
+            }
+        }
+
+        void valor(int columna, long valor) {
+            pendientes[columna][filasPendientes] = valor;
+        }
+
+        void texto(int columna, String texto) {
+            Map<String, Integer> diccionario = diccionarios.get(columna);
+            Integer codigo = diccionario.get(texto);
+            if (codigo == null) {
+                codigo = diccionario.size();
+                diccionario.put(texto, codigo);
+            }
+            pendientes[columna][filasPendientes] = codigo;
+        }
+
+        /**
+         * Cierra la fila actual, cuyos valores se han dado con {@link #valor} y {@link #texto}.
+         */
+        void finFila() throws IOException {
+            filasPendientes++;
+            filas++;
+            if (filasPendientes == filasPorGrupo) {
+                volcar();
+            }
+        }
+
+        long filas() {
+            return filas;
+        }
+
+        private void volcar() throws IOException {
+            if (filasPendientes == 0) {
+                return;
+            }
+            int numeroColumnas = columnas.size();
+            GrupoEscrito grupo = new GrupoEscrito(filasPendientes, new long[numeroColumnas], new int[numeroColumnas],
+                new long[numeroColumnas], new long[numeroColumnas]);
+            for (int c = 0; c < numeroColumnas; c++) {
+                long[] valores = pendientes[c];
+                long minimo = Long.MAX_VALUE;
+                long maximo = Long.MIN_VALUE;
+                for (int i = 0; i < filasPendientes; i++) {
+                    minimo = Math.min(minimo, valores[i]);
+                    maximo = Math.max(maximo, valores[i]);
+                }
+                byte[] bloque = CodificacionBloque.codificar(valores, filasPendientes);
+                grupo.posiciones[c] = posicion;
+                grupo.longitudes[c] = bloque.length;
+                grupo.minimos[c] = minimo;
+                grupo.maximos[c] = maximo;
+                salida.write(bloque);
+                posicion += bloque.length;
+            }
+            grupos.add(grupo);
+            filasPendientes = 0;
+        }
+
+        private void escribirMetadatos() throws IOException {
+            salida.writeUTF(nombre);
+            salida.writeLong(filas);
+            salida.writeInt(columnas.size());
+            for (int c = 0; c < columnas.size(); c++) {
+                salida.writeUTF(columnas.get(c));
+                salida.writeByte(tipos.get(c).ordinal());
+                Map<String, Integer> diccionario = diccionarios.get(c);
+                if (diccionario != null) {
+                    String[] valores = new String[diccionario.size()];
+                    diccionario.forEach((texto, codigo) -> valores[codigo] = texto);
+                    salida.writeInt(valores.length);
+                    for (String valor : valores) {
+                        salida.writeUTF(valor);
+                    }
+                }
+            }
+            salida.writeInt(grupos.size());
+            for (GrupoEscrito grupo : grupos) {
+                salida.writeInt(grupo.filas);
+                for (int c = 0; c < columnas.size(); c++) {
+                    salida.writeLong(grupo.posiciones[c]);
+                    salida.writeInt(grupo.longitudes[c]);
+                    salida.writeLong(grupo.minimos[c]);
+                    salida.writeLong(grupo.maximos[c]);
+                }
+            }
+        }
+    }
+
+    private record GrupoEscrito(int filas, long[] posiciones, int[] longitudes, long[] minimos, long[] maximos) {}
+}
@@ -0,0 +1,192 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.LineaPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exporta todos los pedidos, activos y archivados, a una instantánea columnar
+ * ({@code pedidos.analitica.directorio}/{@value #NOMBRE_FICHERO}) para consultas analíticas con
+ * {@link ConsultaColumnar} que no tocan el almacén activo.
+ * <p>
+ * El fichero tiene dos tablas:
+ * <ul>
+ *     <li>{@value #TABLA_PEDIDOS}: una fila por pedido con su cabecera, total y dirección.</li>
+ *     <li>{@value #TABLA_LINEAS}: una fila por línea, con las columnas del pedido por las que más se
+ *     filtra (estado, cliente, moneda, mes) repetidas para no tener que cruzar tablas. La columna
+ *     {@code pedido} es el número de fila del pedido en la otra tabla.</li>
+ * </ul>
+ * El id del pedido no se exporta: su diccionario sería tan grande como la tabla. Para ver un pedido
+ * concreto está la API.
+ * <p>
+ * Se escribe en un fichero temporal que se renombra al terminar, así que la instantánea anterior sigue
+ * siendo consultable durante la exportación. En modo cluster cada nodo exporta solo sus pedidos.
+ */
+@Component
+public class ExportadorColumnar {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportadorColumnar.class);
+
+    public static final String NOMBRE_FICHERO = "pedidos.col";
+    public static final String TABLA_PEDIDOS = "pedidos";
+    public static final String TABLA_LINEAS = "lineas";
+
+    private static final List<String> COLUMNAS_PEDIDOS = List.of("cliente", "estado", "moneda", "total",
+        "numeroLineas", "fechaCreacion", "fechaUltimaModificacion", "mes", "ciudad", "codigoPostal", "pais");
+    private static final List<TipoColumna> TIPOS_PEDIDOS = List.of(TipoColumna.TEXTO, TipoColumna.TEXTO,
+        TipoColumna.TEXTO, TipoColumna.DECIMAL, TipoColumna.ENTERO, TipoColumna.FECHA, TipoColumna.FECHA,
+        TipoColumna.ENTERO, TipoColumna.TEXTO, TipoColumna.TEXTO, TipoColumna.TEXTO);
+    private static final List<String> COLUMNAS_LINEAS = List.of("pedido", "producto", "cantidad",
+        "precioUnitario", "importe", "moneda", "estado", "cliente", "mes", "fechaCreacion");
+    private static final List<TipoColumna> TIPOS_LINEAS = List.of(TipoColumna.ENTERO, TipoColumna.TEXTO,
+        TipoColumna.ENTERO, TipoColumna.DECIMAL, TipoColumna.DECIMAL, TipoColumna.TEXTO, TipoColumna.TEXTO,
+        TipoColumna.TEXTO, TipoColumna.ENTERO, TipoColumna.FECHA);
+
+    private final PedidoRepositoryImpl repositorio;
+    private final Path directorio;
+    private final int filasPorGrupo;
+    private final Timer tiempoExportar;
+    private volatile FicheroColumnar ultimo;
+
+    public ExportadorColumnar(PedidoRepositoryImpl repositorio, MeterRegistry meterRegistry,
+                              @Value("${pedidos.analitica.directorio:${LOG_PATH:logs}/analitica}") Path directorio,
+                              @Value("${pedidos.analitica.filas-por-grupo:65536}") int filasPorGrupo) {
+        this.repositorio = repositorio;
+        this.directorio = directorio;
+        this.filasPorGrupo = filasPorGrupo;
+        this.tiempoExportar = Timer.builder("pedidos.analitica.exportar")
+            .description("Duración de las exportaciones de la instantánea columnar")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Exporta la instantánea, sustituyendo a la anterior. Las exportaciones simultáneas se serializan.
+     */
+    public synchronized ResultadoExportacion exportar() {
+        long inicio = System.nanoTime();
+        Path destino = directorio.resolve(NOMBRE_FICHERO);
+        Path temporal = directorio.resolve(NOMBRE_FICHERO + ".tmp");
+        try {
+            Files.createDirectories(directorio);
+            long[] filas = escribir(temporal, repositorio::recorrerIncluidoArchivo, filasPorGrupo);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ultimo = FicheroColumnar.abrir(destino);
+            long duracion = System.nanoTime() - inicio;
+            tiempoExportar.record(Duration.ofNanos(duracion));
+            ResultadoExportacion resultado = new ResultadoExportacion(destino.toString(), filas[0], filas[1],
+                Files.size(destino), Duration.ofNanos(duracion).toMillis());
+            logger.info("Instantánea analítica exportada: {} pedidos, {} líneas, {} bytes en {} ms",
+                resultado.pedidos(), resultado.lineas(), resultado.bytes(), resultado.duracionMs());
+            return resultado;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo exportar la instantánea analítica a " + destino, e);
+        }
+    }
+
+    /**
+     * @return La última instantánea exportada o, si no se ha exportado ninguna desde el arranque, la
+     * que haya en el directorio; {@code null} si no hay ninguna.
+     */
+    public FicheroColumnar ultimaInstantanea() {
+        FicheroColumnar actual = ultimo;
+        if (actual == null) {
+            synchronized (this) {
+                Path destino = directorio.resolve(NOMBRE_FICHERO);
+                if (ultimo == null && Files.exists(destino)) {
+                    try {
+                        ultimo = FicheroColumnar.abrir(destino);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("No se pudo abrir la instantánea analítica " + destino, e);
+                    }
+                }
+                actual = ultimo;
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Escribe en {@code destino} las tablas de pedidos y líneas con los pedidos que entrega {@code origen}.
+     * @return Número de pedidos y de líneas escritos.
+     */
+    static long[] escribir(Path destino, Consumer<Consumer<Pedido>> origen, int filasPorGrupo) throws IOException {
+        try (EscritorColumnar escritor = new EscritorColumnar(destino, filasPorGrupo)) {
+            EscritorColumnar.Tabla pedidos = escritor.tabla(TABLA_PEDIDOS, COLUMNAS_PEDIDOS, TIPOS_PEDIDOS);
+            EscritorColumnar.Tabla lineas = escritor.tabla(TABLA_LINEAS, COLUMNAS_LINEAS, TIPOS_LINEAS);
+            origen.accept(pedido -> {
+                try {
+                    escribirPedido(pedidos, lineas, pedido);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return new long[]{pedidos.filas(), lineas.filas()};
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void escribirPedido(EscritorColumnar.Tabla pedidos, EscritorColumnar.Tabla lineas, Pedido pedido)
+            throws IOException {
+        long fila = pedidos.filas();
+        String moneda = pedido.getTotalPedido().moneda().getCurrencyCode();
+        String estado = pedido.getEstado().name();
+        long mes = mes(pedido.getFechaCreacion());
+        long fechaCreacion = TipoColumna.deFecha(pedido.getFechaCreacion());
+        Direccion direccion = pedido.getDireccionEnvio();
+
+        pedidos.texto(0, pedido.getIdCliente());
+        pedidos.texto(1, estado);
+        pedidos.texto(2, moneda);
+        pedidos.valor(3, TipoColumna.deDecimal(pedido.getTotalPedido().cantidad()));
+        pedidos.valor(4, pedido.getLineasPedido().size());
+        pedidos.valor(5, fechaCreacion);
+        pedidos.valor(6, TipoColumna.deFecha(pedido.getFechaUltimaModificacion()));
+        pedidos.valor(7, mes);
+        pedidos.texto(8, direccion.ciudad());
+        pedidos.texto(9, direccion.codigoPostal());
+        pedidos.texto(10, direccion.pais());
+        pedidos.finFila();
+
+        for (LineaPedido linea : pedido.getLineasPedido()) {
+            lineas.valor(0, fila);
+            lineas.texto(1, linea.getIdProducto().valor().toString());
+            lineas.valor(2, linea.getCantidad());
+            lineas.valor(3, TipoColumna.deDecimal(linea.getPrecioUnitario().cantidad()));
+            lineas.valor(4, TipoColumna.deDecimal(linea.calcularSubtotal().cantidad()));
+            lineas.texto(5, moneda);
+            lineas.texto(6, estado);
+            lineas.texto(7, pedido.getIdCliente());
+            lineas.valor(8, mes);
+            lineas.valor(9, fechaCreacion);
+            lineas.finFila();
+        }
+    }
+
+    /**
+     * @return El mes de la fecha como {@code aaaamm}, p. ej. 202603.
+     */
+    static long mes(LocalDateTime fecha) {
+        return fecha.getYear() * 100L + fecha.getMonthValue();
+    }
+
+    public record ResultadoExportacion(String fichero, long pedidos, long lineas, long bytes, long duracionMs) {}
+}
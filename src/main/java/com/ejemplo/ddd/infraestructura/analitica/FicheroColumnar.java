@@ -0,0 +1,161 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fichero columnar de solo lectura con una o varias tablas.
+ * <pre>
+ * cabecera   int MAGIA, byte VERSION
+ * bloques    por tabla, grupo de filas y columna, un bloque de {@link CodificacionBloque}
+ * metadatos  por tabla: nombre, filas, columnas (nombre, tipo, diccionario) y, por grupo de filas,
+ *            la posición, longitud, mínimo y máximo del bloque de cada columna
+ * pie        long posición de los metadatos, int MAGIA
+ * </pre>
+ * El fichero se proyecta en memoria: las consultas decodifican directamente de la caché de páginas
+ * del sistema, sin copias intermedias ni objetos por fila.
+ */
+public final class FicheroColumnar {
+
+    static final int MAGIA = 0x50444143; // "PDAC"
+    static final byte VERSION = 1;
+
+    // Los MappedByteBuffer se indexan con int: el fichero se proyecta por regiones solapadas,
+    // de modo que cada bloque cae entero dentro de la región en la que empieza
+    private static final long TAMANO_REGION = 1L << 30;
+
+    private final Path ruta;
+    private final ByteBuffer[] regiones;
+    private final Map<String, TablaColumnar> tablas;
+
+    private FicheroColumnar(Path ruta, ByteBuffer[] regiones, Map<String, TablaColumnar> tablas) {
+        this.ruta = ruta;
+        this.regiones = regiones;
+        this.tablas = tablas;
+    }
+
+    public static FicheroColumnar abrir(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            ByteBuffer pie = ByteBuffer.allocate(12);
+            canal.read(pie, tamano - 12);
+            pie.flip();
+            long posicionMetadatos = pie.getLong();
+            if (pie.getInt() != MAGIA) {
+                throw new IOException("No es un fichero columnar de pedidos: " + ruta);
+            }
+            ByteBuffer cabecera = ByteBuffer.allocate(5);
+            canal.read(cabecera, 0);
+            cabecera.flip();
+            if (cabecera.getInt() != MAGIA || cabecera.get() != VERSION) {
+                throw new IOException("Versión de fichero columnar no soportada: " + ruta);
+            }
+
+            List<Metadatos> metadatos = new ArrayList<>();
+            int bloqueMaximo = 0;
+            InputStream entradaMetadatos = Channels.newInputStream(canal.position(posicionMetadatos));
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(entradaMetadatos));
+            int numeroTablas = entrada.readInt();
+            for (int t = 0; t < numeroTablas; t++) {
+                Metadatos tabla = Metadatos.leer(entrada);
+                metadatos.add(tabla);
+                for (int longitud : tabla.longitudes) {
+                    bloqueMaximo = Math.max(bloqueMaximo, longitud);
+                }
+            }
+
+            int numeroRegiones = (int) Math.max(1, (posicionMetadatos + TAMANO_REGION - 1) / TAMANO_REGION);
+            ByteBuffer[] regiones = new ByteBuffer[numeroRegiones];
+            for (int r = 0; r < numeroRegiones; r++) {
+                long inicio = r * TAMANO_REGION;
+                long fin = Math.min(posicionMetadatos, inicio + TAMANO_REGION + bloqueMaximo);
+                MappedByteBuffer region = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+                regiones[r] = region;
+            }
+            FicheroColumnar fichero = new FicheroColumnar(ruta, regiones, new LinkedHashMap<>());
+            for (Metadatos tabla : metadatos) {
+                fichero.tablas.put(tabla.nombre, new TablaColumnar(fichero, tabla.nombre, tabla.filas, tabla.columnas,
+                    tabla.tipos, tabla.diccionarios, tabla.filasPorGrupo, tabla.posiciones, tabla.minimos, tabla.maximos));
+            }
+            return fichero;
+        }
+    }
+
+    public Path getRuta() {
+        return ruta;
+    }
+
+    /**
+     * @throws IllegalArgumentException Si el fichero no tiene esa tabla.
+     */
+    public TablaColumnar tabla(String nombre) {
+        TablaColumnar tabla = tablas.get(nombre);
+        if (tabla == null) {
+            throw new IllegalArgumentException("Tabla desconocida: " + nombre + "; hay " + tablas.keySet());
+        }
+        return tabla;
+    }
+
+    void decodificar(long posicion, int filas, long[] destino) {
+        int region = (int) (posicion / TAMANO_REGION);
+        CodificacionBloque.decodificar(regiones[region], (int) (posicion - region * TAMANO_REGION), filas, destino);
+    }
+
+    private record Metadatos(String nombre, long filas, List<String> columnas, List<TipoColumna> tipos,
+                             List<List<String>> diccionarios, int[] filasPorGrupo, long[][] posiciones,
+                             int[] longitudes, long[][] minimos, long[][] maximos) {
+
+        static Metadatos leer(DataInputStream entrada) throws IOException {
+            String nombre = entrada.readUTF();
+            long filas = entrada.readLong();
+            int numeroColumnas = entrada.readInt();
+            List<String> columnas = new ArrayList<>(numeroColumnas);
+            List<TipoColumna> tipos = new ArrayList<>(numeroColumnas);
+            List<List<String>> diccionarios = new ArrayList<>(numeroColumnas);
+            for (int c = 0; c < numeroColumnas; c++) {
+                columnas.add(entrada.readUTF());
+                TipoColumna tipo = TipoColumna.values()[entrada.readUnsignedByte()];
+                tipos.add(tipo);
+                if (tipo == TipoColumna.TEXTO) {
+                    int numero = entrada.readInt();
+                    List<String> valores = new ArrayList<>(numero);
+                    for (int i = 0; i < numero; i++) {
+                        valores.add(entrada.readUTF());
+                    }
+                    diccionarios.add(valores);
+                } else {
+                    diccionarios.add(null);
+                }
+            }
+            int grupos = entrada.readInt();
+            int[] filasPorGrupo = new int[grupos];
+            long[][] posiciones = new long[grupos][numeroColumnas];
+            int[] longitudes = new int[grupos * numeroColumnas];
+            long[][] minimos = new long[grupos][numeroColumnas];
+            long[][] maximos = new long[grupos][numeroColumnas];
+            for (int g = 0; g < grupos; g++) {
+                filasPorGrupo[g] = entrada.readInt();
+                for (int c = 0; c < numeroColumnas; c++) {
+                    posiciones[g][c] = entrada.readLong();
+                    longitudes[g * numeroColumnas + c] = entrada.readInt();
+                    minimos[g][c] = entrada.readLong();
+                    maximos[g][c] = entrada.readLong();
+                }
+            }
+            return new Metadatos(nombre, filas, columnas, tipos, diccionarios, filasPorGrupo, posiciones,
+                longitudes, minimos, maximos);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Una tabla de un {@link FicheroColumnar}: sus columnas, sus grupos de filas y las estadísticas
+ * (mínimo y máximo) de cada columna en cada grupo. Se consulta con {@link ConsultaColumnar}.
+ */
+public final class TablaColumnar {
+
+    private final FicheroColumnar fichero;
+    private final String nombre;
+    private final long filas;
+    private final List<String> columnas;
+    private final List<TipoColumna> tipos;
+    private final List<List<String>> diccionarios;
+    private final Map<Integer, Map<String, Integer>> codigosTexto = new ConcurrentHashMap<>();
+    private final int[] filasPorGrupo;
+    private final long[][] posiciones;
+    private final long[][] minimos;
+    private final long[][] maximos;
+
+    TablaColumnar(FicheroColumnar fichero, String nombre, long filas, List<String> columnas, List<TipoColumna> tipos,
+                  List<List<String>> diccionarios, int[] filasPorGrupo, long[][] posiciones,
+                  long[][] minimos, long[][] maximos) {
+        this.fichero = fichero;
+        this.nombre = nombre;
+        this.filas = filas;
+        this.columnas = columnas;
+        this.tipos = tipos;
+        this.diccionarios = diccionarios;
+        this.filasPorGrupo = filasPorGrupo;
+        this.posiciones = posiciones;
+        this.minimos = minimos;
+        this.maximos = maximos;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+    public List<String> getColumnas() {
+        return columnas;
+    }
+
+    public int numeroGrupos() {
+        return filasPorGrupo.length;
+    }
+
+    /**
+     * @throws IllegalArgumentException Si la tabla no tiene esa columna.
+     */
+    public int indiceColumna(String columna) {
+        int indice = columnas.indexOf(columna);
+        if (indice < 0) {
+            throw new IllegalArgumentException("La tabla " + nombre + " no tiene la columna " + columna
+                + "; tiene " + columnas);
+        }
+        return indice;
+    }
+
+    public TipoColumna tipo(int columna) {
+        return tipos.get(columna);
+    }
+
+    /**
+     * Convierte un valor del dominio al {@code long} con el que se guarda en la columna.
+     * @return Para una columna de texto, el código en el diccionario, o -1 si el texto no aparece.
+     */
+    public long codificar(int columna, Object valor) {
+        return switch (tipos.get(columna)) {
+            case ENTERO -> ((Number) valor).longValue();
+            case FECHA -> TipoColumna.deFecha((LocalDateTime) valor);
+            case DECIMAL -> TipoColumna.deDecimal(valor instanceof BigDecimal decimal ? decimal : new BigDecimal(valor.toString()));
+            case TEXTO -> codigosTexto.computeIfAbsent(columna, c -> {
+                Map<String, Integer> codigos = new HashMap<>();
+                List<String> diccionario = diccionarios.get(c);
+                for (int i = 0; i < diccionario.size(); i++) {
+                    codigos.put(diccionario.get(i), i);
+                }
+                return codigos;
+            }).getOrDefault(valor.toString(), -1);
+        };
+    }
+
+    /**
+     * Convierte un valor guardado en la columna a su valor del dominio: {@link Long}, {@link LocalDateTime},
+     * {@link BigDecimal} o {@link String}.
+     */
+    public Object decodificar(int columna, long valor) {
+        return switch (tipos.get(columna)) {
+            case ENTERO -> valor;
+            case FECHA -> TipoColumna.aFecha(valor);
+            case DECIMAL -> TipoColumna.aDecimal(valor);
+            case TEXTO -> diccionarios.get(columna).get((int) valor);
+        };
+    }
+
+    int filasGrupo(int grupo) {
+        return filasPorGrupo[grupo];
+    }
+
+    long minimo(int grupo, int columna) {
+        return minimos[grupo][columna];
+    }
+
+    long maximo(int grupo, int columna) {
+        return maximos[grupo][columna];
+    }
+
+    /**
+     * Decodifica la columna en el grupo de filas; {@code destino} debe tener sitio para {@link #filasGrupo}.
+     */
+    void leer(int grupo, int columna, long[] destino) {
+        fichero.decodificar(posiciones[grupo][columna], filasPorGrupo[grupo], destino);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Tipo lógico de una columna. Todas las columnas se guardan como {@code long}; el tipo dice cómo
+ * pasar de un valor del dominio a ese {@code long} y de vuelta.
+ */
+public enum TipoColumna {
+
+    /** Números enteros, tal cual. */
+    ENTERO,
+    /** {@link LocalDateTime} como segundos desde la época en UTC. */
+    FECHA,
+    /** {@link BigDecimal} redondeado a {@value #ESCALA_DECIMAL} decimales, como valor sin escala. */
+    DECIMAL,
+    /** Texto como código en el diccionario de la columna. */
+    TEXTO;
+
+    public static final int ESCALA_DECIMAL = 4;
+
+    static long deFecha(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static long deDecimal(BigDecimal valor) {
+        return valor.setScale(ESCALA_DECIMAL, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    static LocalDateTime aFecha(long valor) {
+        return LocalDateTime.ofEpochSecond(valor, 0, ZoneOffset.UTC);
+    }
+
+    static BigDecimal aDecimal(long valor) {
+        return BigDecimal.valueOf(valor, ESCALA_DECIMAL);
+    }
+}
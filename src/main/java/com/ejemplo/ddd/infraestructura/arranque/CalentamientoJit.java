@@ -0,0 +1,204 @@
+package com.ejemplo.ddd.infraestructura.arranque;
+
+import com.ejemplo.ddd.aplicacion.dto.ActualizarCantidadLineaRequest;
+import com.ejemplo.ddd.aplicacion.dto.AgregarLineaRequest;
+import com.ejemplo.ddd.aplicacion.dto.CancelarPedidoRequest;
+import com.ejemplo.ddd.aplicacion.dto.CrearPedidoRequest;
+import com.ejemplo.ddd.aplicacion.dto.PedidoDTO;
+import com.ejemplo.ddd.aplicacion.proyeccion.IndiceDirecciones;
+import com.ejemplo.ddd.aplicacion.proyeccion.ProyeccionResumenPedidos;
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido;
+import com.ejemplo.ddd.aplicacion.servicio.GuardadoAgrupadoPedidos;
+import com.ejemplo.ddd.aplicacion.servicio.MetricasPedidos;
+import com.ejemplo.ddd.aplicacion.servicio.PedidoAplicacionService;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.servicio.ServicioRealizacionPedido;
+import com.ejemplo.ddd.dominio.servicio.ServicioReservaExistencias;
+import com.ejemplo.ddd.infraestructura.inventario.InventarioEnMemoria;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calentamiento del JIT al arrancar, antes de que la aplicación acepte tráfico.
+ * <p>
+ * Recorre el ciclo de vida completo de pedidos sintéticos por el mismo código que una petición real
+ * (deserialización y validación del JSON, servicio de aplicación, construcción y mutación de
+ * {@code Pedido} con su aritmética de {@code Dinero}, guardado, lectura y clonado en el repositorio,
+ * conversión a DTO y serialización), para que C2 compile esos métodos antes de la primera petición.
+ * Usa un repositorio y unos servicios propios, así que no deja rastro en el almacén, la auditoría
+ * ni las métricas de la aplicación.
+ * <p>
+ * Como {@link ApplicationRunner} se ejecuta antes de que Spring Boot publique
+ * {@link ReadinessState#ACCEPTING_TRAFFIC}: mientras dura, {@code /actuator/health/readiness}
+ * responde {@code OUT_OF_SERVICE}. Termina al completar las iteraciones o al agotar la duración máxima,
+ * lo que ocurra antes, y publica el tiempo por iteración al principio y al final como medida de su eficacia.
+ */
+@Component
+@ConditionalOnProperty(name = "pedidos.calentamiento.habilitado", havingValue = "true", matchIfMissing = true)
+public class CalentamientoJit implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalentamientoJit.class);
+
+    // Iteraciones que se promedian para el tiempo inicial y el final
+    private static final int MUESTRA = 200;
+
+    private static final UUID PRODUCTO_1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID PRODUCTO_2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final byte[] JSON_CREAR = """
+        {"idCliente":"calentamiento","moneda":"EUR",
+         "direccionEnvio":{"calle":"Calle 1","ciudad":"Madrid","codigoPostal":"28001","pais":"ES"},
+         "lineas":[{"idProducto":"00000000-0000-0000-0000-000000000001","cantidad":2,"precioUnitario":10.50}]}
+        """.getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher publicador;
+    private final int iteraciones;
+    private final Duration duracionMaxima;
+
+    private volatile int iteracionesRealizadas;
+    private volatile long duracionNanos;
+    private volatile double nanosIteracionInicial;
+    private volatile double nanosIteracionFinal;
+
+    public CalentamientoJit(ObjectMapper objectMapper, Validator validator, ApplicationEventPublisher publicador,
+                            MeterRegistry meterRegistry,
+                            @Value("${pedidos.calentamiento.iteraciones:20000}") int iteraciones,
+                            @Value("${pedidos.calentamiento.duracion-maxima:PT30S}") Duration duracionMaxima) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.publicador = publicador;
+        this.iteraciones = iteraciones;
+        this.duracionMaxima = duracionMaxima;
+        Gauge.builder("pedidos.calentamiento.iteraciones", this, c -> c.iteracionesRealizadas)
+            .description("Iteraciones completadas por el calentamiento del arranque")
+            .register(meterRegistry);
+        TimeGauge.builder("pedidos.calentamiento.duracion", this, TimeUnit.NANOSECONDS, c -> c.duracionNanos)
+            .description("Duración del calentamiento del arranque")
+            .register(meterRegistry);
+        TimeGauge.builder("pedidos.calentamiento.tiempo.iteracion", this, TimeUnit.NANOSECONDS, c -> c.nanosIteracionInicial)
+            .description("Tiempo medio por iteración del calentamiento")
+            .tag("tramo", "inicial")
+            .register(meterRegistry);
+        TimeGauge.builder("pedidos.calentamiento.tiempo.iteracion", this, TimeUnit.NANOSECONDS, c -> c.nanosIteracionFinal)
+            .description("Tiempo medio por iteración del calentamiento")
+            .tag("tramo", "final")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.calentamiento.aceleracion", this, CalentamientoJit::aceleracion)
+            .description("Tiempo por iteración al principio del calentamiento dividido entre el del final")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        AvailabilityChangeEvent.publish(publicador, this, ReadinessState.REFUSING_TRAFFIC);
+        PedidoAplicacionService servicio = servicioAislado();
+        long inicio = System.nanoTime();
+        long limite = inicio + duracionMaxima.toNanos();
+        long[] tiempos = new long[Math.max(iteraciones, 0)];
+        int realizadas = 0;
+        try {
+            while (realizadas < iteraciones && System.nanoTime() < limite) {
+                long inicioIteracion = System.nanoTime();
+                iteracion(servicio, realizadas);
+                tiempos[realizadas++] = System.nanoTime() - inicioIteracion;
+            }
+        } catch (RuntimeException e) {
+            // El calentamiento no debe impedir el arranque
+            logger.warn("Calentamiento interrumpido tras {} iteraciones", realizadas, e);
+        }
+        iteracionesRealizadas = realizadas;
+        duracionNanos = System.nanoTime() - inicio;
+        int muestra = Math.min(MUESTRA, realizadas / 2);
+        if (muestra > 0) {
+            nanosIteracionInicial = media(tiempos, 0, muestra);
+            nanosIteracionFinal = media(tiempos, realizadas - muestra, realizadas);
+        }
+        logger.info("Calentamiento completado: {} iteraciones en {} ms, {} µs/iteración al principio y {} µs al final",
+            realizadas, TimeUnit.NANOSECONDS.toMillis(duracionNanos),
+            Math.round(nanosIteracionInicial / 1_000), Math.round(nanosIteracionFinal / 1_000));
+    }
+
+    private PedidoAplicacionService servicioAislado() {
+        SimpleMeterRegistry registroAislado = new SimpleMeterRegistry();
+        ProyeccionResumenPedidos proyeccion = new ProyeccionResumenPedidos(registroAislado, 1);
+        IndiceDirecciones indice = new IndiceDirecciones();
+        RegistroCambiosPedido cambios = new RegistroCambiosPedido(registroAislado, 1024);
+        MetricasPedidos metricas = new MetricasPedidos(registroAislado);
+        // Catálogo e inventario vacíos: los precios salen de las peticiones sintéticas y no se tocan las existencias reales
+        ServicioReservaExistencias reservas = new ServicioReservaExistencias(new InventarioEnMemoria());
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(proyeccion, indice, cambios, metricas, reservas), registroAislado);
+        return new PedidoAplicacionService(repositorio, new ServicioRealizacionPedido(ids -> Map.of(), false),
+            reservas, new GuardadoAgrupadoPedidos(repositorio, 0, 256), proyeccion, indice, cambios, metricas);
+    }
+
+    private void iteracion(PedidoAplicacionService servicio, int numero) {
+        try {
+            CrearPedidoRequest crear = objectMapper.readValue(JSON_CREAR, CrearPedidoRequest.class);
+            validator.validate(crear);
+            PedidoDTO pedido = servicio.gestionarCreacionPedido(crear);
+            IdentificadorPedido id = new IdentificadorPedido(pedido.idPedido());
+
+            servicio.agregarLineaAPedido(id, new AgregarLineaRequest(PRODUCTO_2, 1, new BigDecimal("4.95")));
+            servicio.actualizarCantidadLinea(id, new IdentificadorProducto(PRODUCTO_2), new ActualizarCantidadLineaRequest(3));
+            servicio.eliminarLineaDePedido(id, new IdentificadorProducto(PRODUCTO_2));
+            servicio.agregarLineaAPedido(id, new AgregarLineaRequest(PRODUCTO_1, 1, new BigDecimal("10.50")));
+            pedido = servicio.obtenerPedidoPorId(id).orElseThrow();
+            objectMapper.writeValueAsBytes(pedido);
+
+            if (numero % 4 == 0) {
+                pedido = servicio.cancelarPedido(id, new CancelarPedidoRequest("calentamiento"));
+            } else {
+                servicio.confirmarPedido(id);
+                servicio.marcarPedidoComoEnviado(id);
+                pedido = servicio.marcarPedidoComoEntregado(id);
+            }
+            objectMapper.writeValueAsBytes(pedido);
+            if (numero % 64 == 0) {
+                objectMapper.writeValueAsBytes(servicio.obtenerResumenesDePedidos());
+                objectMapper.writeValueAsBytes(servicio.buscarPorDireccion(IndiceDirecciones.Campo.CODIGO_POSTAL, "280", null, 20));
+            }
+            servicio.eliminarPedido(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static double media(long[] tiempos, int desde, int hasta) {
+        long suma = 0;
+        for (int i = desde; i < hasta; i++) {
+            suma += tiempos[i];
+        }
+        return (double) suma / (hasta - desde);
+    }
+
+    private double aceleracion() {
+        return nanosIteracionFinal > 0 ? nanosIteracionInicial / nanosIteracionFinal : 0;
+    }
+}
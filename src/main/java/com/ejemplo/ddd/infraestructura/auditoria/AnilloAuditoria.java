@@ -0,0 +1,109 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.auditoria.RegistroAuditoria.TipoCambio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cola acotada sin cerrojos de muchos productores y un consumidor (algoritmo de D. Vyukov).
+ * <p>
+ * Cada celda lleva su propio número de secuencia: un productor reserva la posición con un CAS
+ * sobre la cola y publica la celda escribiendo la secuencia con semántica release; el consumidor
+ * la lee con acquire. Los productores no se esperan entre sí salvo por ese CAS, y si el anillo
+ * está lleno {@link #publicar} devuelve {@code false} en lugar de bloquear.
+ * <p>
+ * Las celdas guardan referencias a las copias inmutables del repositorio, así que publicar no
+ * asigna memoria: la codificación se hace en el hilo consumidor.
+ */
+class AnilloAuditoria {
+
+    private final int mascara;
+    private final AtomicLongArray secuencias;
+    private final TipoCambio[] tipos;
+    private final Pedido[] anteriores;
+    private final Pedido[] pedidos;
+    private final long[] instantes;
+    private final AtomicLong posicionEscritura = new AtomicLong();
+    // Solo la modifica el consumidor; volatile para que pendientes() sea legible desde otros hilos
+    private volatile long posicionLectura;
+
+    AnilloAuditoria(int capacidad) {
+        if (capacidad < 2 || Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad del anillo debe ser una potencia de 2: " + capacidad);
+        }
+        this.mascara = capacidad - 1;
+        this.secuencias = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) {
+            secuencias.set(i, i);
+        }
+        this.tipos = new TipoCambio[capacidad];
+        this.anteriores = new Pedido[capacidad];
+        this.pedidos = new Pedido[capacidad];
+        this.instantes = new long[capacidad];
+    }
+
+    /**
+     * @return {@code false} si el anillo está lleno y el cambio no se ha encolado.
+     */
+    boolean publicar(TipoCambio tipo, Pedido anterior, Pedido pedido, long instanteMillis) {
+        long posicion = posicionEscritura.get();
+        while (true) {
+            int indice = (int) (posicion & mascara);
+            long diferencia = secuencias.getAcquire(indice) - posicion;
+            if (diferencia == 0) {
+                if (posicionEscritura.compareAndSet(posicion, posicion + 1)) {
+                    tipos[indice] = tipo;
+                    anteriores[indice] = anterior;
+                    pedidos[indice] = pedido;
+                    instantes[indice] = instanteMillis;
+                    secuencias.setRelease(indice, posicion + 1);
+                    return true;
+                }
+                posicion = posicionEscritura.get();
+            } else if (diferencia < 0) {
+                return false;
+            } else {
+                // Otro productor ya ocupó esta posición
+                posicion = posicionEscritura.get();
+            }
+        }
+    }
+
+    /**
+     * Entrega al consumidor los cambios disponibles, hasta un máximo. Solo debe llamarla un hilo.
+     * @return El número de cambios consumidos.
+     */
+    int drenar(Consumidor consumidor, int maximo) {
+        long posicion = posicionLectura;
+        int consumidos = 0;
+        while (consumidos < maximo) {
+            int indice = (int) (posicion & mascara);
+            if (secuencias.getAcquire(indice) != posicion + 1) {
+                break;
+            }
+            consumidor.consumir(posicion + 1, tipos[indice], anteriores[indice], pedidos[indice], instantes[indice]);
+            // Se sueltan las referencias para no retener pedidos antiguos en el anillo
+            anteriores[indice] = null;
+            pedidos[indice] = null;
+            secuencias.setRelease(indice, posicion + mascara + 1);
+            posicion++;
+            consumidos++;
+        }
+        posicionLectura = posicion;
+        return consumidos;
+    }
+
+    long pendientes() {
+        return posicionEscritura.get() - posicionLectura;
+    }
+
+    @FunctionalInterface
+    interface Consumidor {
+        /**
+         * @param secuencia Número de orden del cambio, empezando en 1.
+         */
+        void consumir(long secuencia, TipoCambio tipo, Pedido anterior, Pedido pedido, long instanteMillis);
+    }
+}
@@ -0,0 +1,145 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import com.ejemplo.ddd.infraestructura.auditoria.RegistroAuditoria.TipoCambio;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rastro de auditoría de las mutaciones de pedidos.
+ * <p>
+ * Las escrituras del repositorio solo encolan el cambio en un {@link AnilloAuditoria} sin
+ * cerrojos; un hilo dedicado lo drena por lotes hacia ficheros binarios mapeados en memoria
+ * ({@link EscritorAuditoria}). Así ningún escritor espera por E/S ni por otro escritor. Si el
+ * anillo se llena (el disco no da abasto) el cambio se descarta y se cuenta en
+ * {@code pedidos.auditoria.descartados} en lugar de frenar las escrituras.
+ * <p>
+ * Los ficheros se leen con {@link LectorAuditoria}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "pedidos.auditoria", name = "habilitada", havingValue = "true", matchIfMissing = true)
+public class AuditoriaPedidos implements ObservadorCambiosPedido {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaPedidos.class);
+
+    private static final int MAXIMO_POR_LOTE = 1024;
+    // Con el anillo vacío se duerme en lugar de sondear: la auditoría no necesita latencia baja
+    // y un sondeo agresivo roba CPU a los hilos que atienden peticiones
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AnilloAuditoria anillo;
+    private final EscritorAuditoria escritor;
+    private final long intervaloSincronizacionNanos;
+    private final Counter escritos;
+    private final Counter descartados;
+    private final Counter errores;
+    private final Thread hiloDrenado;
+    private volatile boolean activo = true;
+
+    public AuditoriaPedidos(MeterRegistry meterRegistry,
+                            @Value("${pedidos.auditoria.directorio:logs/auditoria}") Path directorio,
+                            @Value("${pedidos.auditoria.capacidad-anillo:65536}") int capacidadAnillo,
+                            @Value("${pedidos.auditoria.tamano-fichero:64MB}") DataSize tamanoFichero,
+                            @Value("${pedidos.auditoria.ficheros-retenidos:20}") int ficherosRetenidos,
+                            @Value("${pedidos.auditoria.intervalo-sincronizacion:1s}") Duration intervaloSincronizacion) {
+        this.anillo = new AnilloAuditoria(capacidadAnillo);
+        this.escritor = new EscritorAuditoria(directorio, tamanoFichero.toBytes(), ficherosRetenidos);
+        this.intervaloSincronizacionNanos = intervaloSincronizacion.toNanos();
+        this.escritos = Counter.builder("pedidos.auditoria.escritos")
+            .description("Cambios de pedidos escritos en el rastro de auditoría")
+            .register(meterRegistry);
+        this.descartados = Counter.builder("pedidos.auditoria.descartados")
+            .description("Cambios de pedidos descartados por tener el anillo de auditoría lleno")
+            .register(meterRegistry);
+        this.errores = Counter.builder("pedidos.auditoria.errores")
+            .description("Cambios de pedidos que no se pudieron escribir en disco")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.auditoria.pendientes", anillo, AnilloAuditoria::pendientes)
+            .description("Cambios encolados pendientes de escribir")
+            .register(meterRegistry);
+
+        this.hiloDrenado = new Thread(this::drenar, "auditoria-pedidos");
+        this.hiloDrenado.setDaemon(true);
+        this.hiloDrenado.start();
+    }
+
+    @Override
+    public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+        publicar(anterior == null ? TipoCambio.CREADO : TipoCambio.MODIFICADO, anterior, nuevo);
+    }
+
+    @Override
+    public void pedidoEliminado(Pedido eliminado) {
+        publicar(TipoCambio.ELIMINADO, eliminado, eliminado);
+    }
+
+    @Override
+    public void pedidoRestaurado(Pedido restaurado) {
+        // Cargar una captura al arrancar no cambia ningún pedido: el rastro ya tiene su historia
+    }
+
+    private void publicar(TipoCambio tipo, Pedido anterior, Pedido pedido) {
+        if (!anillo.publicar(tipo, anterior, pedido, System.currentTimeMillis())) {
+            descartados.increment();
+        }
+    }
+
+    /**
+     * Detiene el drenado tras escribir lo que quede en el anillo.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        hiloDrenado.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drenar() {
+        long ultimaSincronizacion = System.nanoTime();
+        try {
+            while (activo || anillo.pendientes() > 0) {
+                int consumidos = anillo.drenar(this::escribir, MAXIMO_POR_LOTE);
+                if (consumidos > 0) {
+                    escritos.increment(consumidos);
+                } else {
+                    LockSupport.parkNanos(ESPERA_NANOS);
+                }
+                long ahora = System.nanoTime();
+                if (ahora - ultimaSincronizacion >= intervaloSincronizacionNanos) {
+                    escritor.sincronizar();
+                    ultimaSincronizacion = ahora;
+                }
+            }
+        } finally {
+            try {
+                escritor.close();
+            } catch (IOException e) {
+                logger.error("Error al cerrar el fichero de auditoría", e);
+            }
+        }
+    }
+
+    private void escribir(long secuencia, TipoCambio tipo, Pedido anterior, Pedido pedido, long instanteMillis) {
+        try {
+            escritor.escribir(secuencia, tipo, anterior, pedido, instanteMillis);
+        } catch (IOException e) {
+            errores.increment();
+            logger.error("No se pudo escribir el registro de auditoría {} del pedido {}", secuencia, pedido.getId().valor(), e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.auditoria.RegistroAuditoria.TipoCambio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Escribe los registros de auditoría en ficheros mapeados en memoria que rotan al llenarse.
+ * <p>
+ * Cada fichero se crea con su tamaño final y se mapea entero, de modo que escribir un registro es
+ * copiar 64 bytes en memoria; el sistema operativo los lleva a disco en segundo plano y
+ * {@link #sincronizar()} fuerza el volcado. Se conservan los últimos {@code ficherosRetenidos}.
+ * No es seguro para uso concurrente: lo usa solo el hilo que drena el anillo.
+ */
+class EscritorAuditoria implements Closeable {
+
+    static final String PREFIJO = "auditoria-";
+    static final String EXTENSION = ".bin";
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directorio;
+    private final int tamanoFichero;
+    private final int ficherosRetenidos;
+
+    private FileChannel canal;
+    private MappedByteBuffer buffer;
+    private int posicion;
+
+    /**
+     * @param tamanoFichero Tamaño de cada fichero; se ajusta a un número entero de registros.
+     */
+    EscritorAuditoria(Path directorio, long tamanoFichero, int ficherosRetenidos) {
+        long registros = Math.max(1, (Math.min(tamanoFichero, Integer.MAX_VALUE) - FormatoAuditoria.TAMANO_CABECERA)
+            / FormatoAuditoria.TAMANO_REGISTRO);
+        this.directorio = directorio;
+        this.tamanoFichero = (int) (FormatoAuditoria.TAMANO_CABECERA + registros * FormatoAuditoria.TAMANO_REGISTRO);
+        this.ficherosRetenidos = Math.max(1, ficherosRetenidos);
+    }
+
+    void escribir(long secuencia, TipoCambio tipo, Pedido anterior, Pedido pedido, long instanteMillis) throws IOException {
+        if (buffer == null || posicion + FormatoAuditoria.TAMANO_REGISTRO > tamanoFichero) {
+            rotar(secuencia);
+        }
+        FormatoAuditoria.escribirRegistro(buffer, posicion, secuencia, instanteMillis, tipo, anterior, pedido);
+        posicion += FormatoAuditoria.TAMANO_REGISTRO;
+    }
+
+    void sincronizar() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        cerrarActual();
+    }
+
+    private void rotar(long primeraSecuencia) throws IOException {
+        cerrarActual();
+        Files.createDirectories(directorio);
+        Path fichero = directorio.resolve(String.format("%s%s-%020d%s",
+            PREFIJO, FORMATO_FECHA.format(LocalDateTime.now()), primeraSecuencia, EXTENSION));
+        canal = FileChannel.open(fichero, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoFichero);
+        FormatoAuditoria.escribirCabecera(buffer, primeraSecuencia);
+        posicion = FormatoAuditoria.TAMANO_CABECERA;
+        purgarAntiguos();
+    }
+
+    private void cerrarActual() throws IOException {
+        if (canal != null) {
+            buffer.force();
+            canal.close();
+            canal = null;
+            buffer = null;
+        }
+    }
+
+    private void purgarAntiguos() throws IOException {
+        List<Path> ficheros = LectorAuditoria.ficheros(directorio);
+        for (int i = 0; i < ficheros.size() - ficherosRetenidos; i++) {
+            Files.deleteIfExists(ficheros.get(i));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.auditoria.RegistroAuditoria.TipoCambio;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Formato binario de los ficheros de auditoría.
+ * <p>
+ * Cada fichero empieza con una cabecera de {@value #TAMANO_CABECERA} bytes (número mágico,
+ * versión, tamaño de registro y secuencia del primer registro) seguida de registros de tamaño fijo
+ * ({@value #TAMANO_REGISTRO} bytes). El fichero se crea con su tamaño final y relleno de ceros, así
+ * que el primer registro con tipo 0 marca el final de los datos escritos.
+ * <pre>
+ *  0 secuencia (long)        24 id pedido, bits altos (long)
+ *  8 instante epoch ms (long) 32 id pedido, bits bajos (long)
+ * 16 tipo (byte)             40 líneas (int)
+ * 17 estado anterior (byte)  44 decimales de la moneda (int)
+ * 18 estado nuevo (byte)     48 total en unidades mínimas (long)
+ * 19 moneda ISO 4217 (3 B)   56 reservado
+ * </pre>
+ */
+final class FormatoAuditoria {
+
+    static final int MAGICO = 0x50415544; // "PAUD"
+    static final short VERSION = 1;
+    static final int TAMANO_CABECERA = 64;
+    static final int TAMANO_REGISTRO = 64;
+
+    private static final byte SIN_ESTADO = -1;
+    private static final EstadoPedido[] ESTADOS = EstadoPedido.values();
+    private static final TipoCambio[] TIPOS = TipoCambio.values();
+
+    private FormatoAuditoria() {
+    }
+
+    static void escribirCabecera(ByteBuffer buffer, long primeraSecuencia) {
+        buffer.putInt(0, MAGICO);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) TAMANO_REGISTRO);
+        buffer.putLong(8, primeraSecuencia);
+    }
+
+    static long leerCabecera(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGICO) {
+            throw new IllegalArgumentException("No es un fichero de auditoría de pedidos");
+        }
+        if (buffer.getShort(4) != VERSION || buffer.getShort(6) != TAMANO_REGISTRO) {
+            throw new IllegalArgumentException("Versión de fichero de auditoría no soportada: " + buffer.getShort(4));
+        }
+        return buffer.getLong(8);
+    }
+
+    /**
+     * Codifica el cambio en la posición indicada.
+     * @param anterior Estado previo, o {@code null} si el pedido es nuevo.
+     * @param pedido El estado nuevo o, si se eliminó, el último estado persistido.
+     */
+    static void escribirRegistro(ByteBuffer buffer, int posicion, long secuencia, long instanteMillis,
+                                 TipoCambio tipo, Pedido anterior, Pedido pedido) {
+        UUID id = pedido.getId().valor();
+        Dinero total = pedido.getTotalPedido();
+        int decimales = Math.max(0, total.moneda().getDefaultFractionDigits());
+        byte[] moneda = total.moneda().getCurrencyCode().getBytes(StandardCharsets.US_ASCII);
+
+        buffer.putLong(posicion, secuencia);
+        buffer.putLong(posicion + 8, instanteMillis);
+        buffer.put(posicion + 16, (byte) (tipo.ordinal() + 1));
+        buffer.put(posicion + 17, anterior != null ? (byte) anterior.getEstado().ordinal() : SIN_ESTADO);
+        buffer.put(posicion + 18, (byte) pedido.getEstado().ordinal());
+        buffer.put(posicion + 19, moneda[0]);
+        buffer.put(posicion + 20, moneda[1]);
+        buffer.put(posicion + 21, moneda[2]);
+        buffer.putLong(posicion + 24, id.getMostSignificantBits());
+        buffer.putLong(posicion + 32, id.getLeastSignificantBits());
+        buffer.putInt(posicion + 40, pedido.getLineasPedido().size());
+        buffer.putInt(posicion + 44, decimales);
+        buffer.putLong(posicion + 48, total.cantidad().movePointRight(decimales).longValue());
+    }
+
+    /**
+     * @return El registro en la posición indicada, o {@code null} si no hay más datos.
+     */
+    static RegistroAuditoria leerRegistro(ByteBuffer buffer, int posicion) {
+        byte tipo = buffer.get(posicion + 16);
+        if (tipo == 0) {
+            return null;
+        }
+        byte anterior = buffer.get(posicion + 17);
+        byte[] moneda = {buffer.get(posicion + 19), buffer.get(posicion + 20), buffer.get(posicion + 21)};
+        return new RegistroAuditoria(
+            buffer.getLong(posicion),
+            Instant.ofEpochMilli(buffer.getLong(posicion + 8)),
+            TIPOS[tipo - 1],
+            new UUID(buffer.getLong(posicion + 24), buffer.getLong(posicion + 32)),
+            anterior == SIN_ESTADO ? null : ESTADOS[anterior],
+            ESTADOS[buffer.get(posicion + 18)],
+            buffer.getInt(posicion + 40),
+            BigDecimal.valueOf(buffer.getLong(posicion + 48), buffer.getInt(posicion + 44)),
+            new String(moneda, StandardCharsets.US_ASCII)
+        );
+    }
+}
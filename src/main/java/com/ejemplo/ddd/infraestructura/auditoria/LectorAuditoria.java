@@ -0,0 +1,86 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Herramienta de línea de comandos para leer el rastro de auditoría de pedidos.
+ * <pre>
+ * java -cp target/ddd-ejemplo-0.0.1-SNAPSHOT.jar \
+ *   -Dloader.main=com.ejemplo.ddd.infraestructura.auditoria.LectorAuditoria \
+ *   org.springframework.boot.loader.PropertiesLauncher logs/auditoria [idPedido]
+ * </pre>
+ * Acepta un directorio (se leen todos sus ficheros en orden) o un fichero concreto, y
+ * opcionalmente el id de un pedido para mostrar solo su historia.
+ */
+public final class LectorAuditoria {
+
+    private LectorAuditoria() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Uso: LectorAuditoria <directorio|fichero> [idPedido]");
+            System.exit(2);
+        }
+        Path ruta = Path.of(args[0]);
+        UUID filtro = args.length == 2 ? UUID.fromString(args[1]) : null;
+        List<Path> ficheros = Files.isDirectory(ruta) ? ficheros(ruta) : List.of(ruta);
+
+        long[] leidos = new long[1];
+        for (Path fichero : ficheros) {
+            recorrer(fichero, registro -> {
+                if (filtro == null || filtro.equals(registro.idPedido())) {
+                    System.out.println(registro);
+                    leidos[0]++;
+                }
+            });
+        }
+        System.err.printf("%d registros en %d ficheros%n", leidos[0], ficheros.size());
+    }
+
+    /**
+     * @return Los ficheros de auditoría del directorio, del más antiguo al más reciente.
+     */
+    static List<Path> ficheros(Path directorio) throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return List.of();
+        }
+        try (Stream<Path> contenido = Files.list(directorio)) {
+            return contenido
+                .filter(p -> {
+                    String nombre = p.getFileName().toString();
+                    return nombre.startsWith(EscritorAuditoria.PREFIJO) && nombre.endsWith(EscritorAuditoria.EXTENSION);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Entrega en orden los registros escritos en el fichero.
+     */
+    static void recorrer(Path fichero, Consumer<RegistroAuditoria> consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            FormatoAuditoria.leerCabecera(buffer);
+            for (int posicion = FormatoAuditoria.TAMANO_CABECERA;
+                 posicion + FormatoAuditoria.TAMANO_REGISTRO <= buffer.capacity();
+                 posicion += FormatoAuditoria.TAMANO_REGISTRO) {
+                RegistroAuditoria registro = FormatoAuditoria.leerRegistro(buffer, posicion);
+                if (registro == null) {
+                    return;
+                }
+                consumidor.accept(registro);
+            }
+        }
+    }
+}
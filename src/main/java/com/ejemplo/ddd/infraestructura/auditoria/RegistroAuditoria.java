@@ -0,0 +1,33 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Registro del rastro de auditoría tal como se lee de los ficheros.
+ * @param estadoAnterior Estado antes del cambio, o {@code null} si el pedido es nuevo.
+ */
+public record RegistroAuditoria(
+    long secuencia,
+    Instant instante,
+    TipoCambio tipo,
+    UUID idPedido,
+    EstadoPedido estadoAnterior,
+    EstadoPedido estadoNuevo,
+    int lineas,
+    BigDecimal total,
+    String moneda
+) {
+
+    public enum TipoCambio { CREADO, MODIFICADO, ELIMINADO }
+
+    @Override
+    public String toString() {
+        return String.format("%d %s %-10s %s %s -> %s lineas=%d total=%s %s",
+            secuencia, instante, tipo, idPedido,
+            estadoAnterior != null ? estadoAnterior : "-", estadoNuevo, lineas, total.toPlainString(), moneda);
+    }
+}
@@ -0,0 +1,130 @@
+package com.ejemplo.ddd.infraestructura.caducidad;
+
+import com.ejemplo.ddd.aplicacion.servicio.PedidoAplicacionService;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cancela los pedidos que siguen {@code PENDIENTE} pasado {@code pedidos.caducidad.plazo} desde su creación
+ * (carritos abandonados).
+ * <p>
+ * Cada pedido pendiente tiene un temporizador en una {@link RuedaTemporizadores}: se programa cuando el
+ * pedido se guarda por primera vez y se cancela cuando deja de estar pendiente o se elimina. Un hilo
+ * avanza la rueda cada {@code pedidos.caducidad.resolucion} y cancela los vencidos a través del servicio
+ * de aplicación, de modo que la cancelación emite su evento y pasa por la escritura agrupada como
+ * cualquier otra. El coste es constante por pedido y no depende de cuántos haya en el almacén.
+ */
+@Component
+@ConditionalOnProperty(prefix = "pedidos.caducidad", name = "habilitada", havingValue = "true", matchIfMissing = true)
+public class CaducidadPedidos implements ObservadorCambiosPedido {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaducidadPedidos.class);
+
+    // Si la cancelación falla (p. ej. por contrapresión de los eventos) se vuelve a intentar pasado este tiempo
+    private static final Duration REINTENTO = Duration.ofMinutes(1);
+
+    // Perezoso: el servicio depende del repositorio, que a su vez notifica a este observador
+    private final ObjectProvider<PedidoAplicacionService> servicio;
+    private final long plazoMillis;
+    private final RuedaTemporizadores<IdentificadorPedido> rueda;
+    private final Counter cancelados;
+    private final Counter errores;
+    private final ScheduledExecutorService programador;
+
+    public CaducidadPedidos(ObjectProvider<PedidoAplicacionService> servicio, MeterRegistry meterRegistry,
+                            @Value("${pedidos.caducidad.plazo:24h}") Duration plazo,
+                            @Value("${pedidos.caducidad.resolucion:1s}") Duration resolucion) {
+        this.servicio = servicio;
+        this.plazoMillis = plazo.toMillis();
+        this.rueda = new RuedaTemporizadores<>(System.currentTimeMillis(), resolucion.toMillis());
+        this.cancelados = Counter.builder("pedidos.caducidad.cancelados")
+            .description("Pedidos pendientes cancelados al agotar el plazo de confirmación")
+            .register(meterRegistry);
+        this.errores = Counter.builder("pedidos.caducidad.errores")
+            .description("Cancelaciones por caducidad que fallaron y se reintentan")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.caducidad.pendientes", rueda, RuedaTemporizadores::pendientes)
+            .description("Pedidos pendientes con un plazo de confirmación en curso")
+            .register(meterRegistry);
+        this.programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "caducidad-pedidos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodo = resolucion.toMillis();
+        programador.scheduleWithFixedDelay(this::vencer, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+        if (nuevo.getEstado() == EstadoPedido.PENDIENTE) {
+            if (anterior == null) {
+                long creacion = nuevo.getFechaCreacion().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                rueda.programar(nuevo.getId(), creacion + plazoMillis);
+            }
+        } else if (anterior != null && anterior.getEstado() == EstadoPedido.PENDIENTE) {
+            rueda.cancelar(nuevo.getId());
+        }
+    }
+
+    @Override
+    public void pedidoEliminado(Pedido eliminado) {
+        rueda.cancelar(eliminado.getId());
+    }
+
+    @Override
+    public void pedidoTrasladado(Pedido trasladado) {
+        // El plazo lo vigila ahora el nuevo propietario, que programa el suyo al recibirlo
+        rueda.cancelar(trasladado.getId());
+    }
+
+    /**
+     * Avanza la rueda hasta ahora y cancela los pedidos vencidos.
+     * @return Pedidos cancelados.
+     */
+    int vencer() {
+        List<IdentificadorPedido> vencidos = rueda.avanzar(System.currentTimeMillis());
+        int total = 0;
+        for (IdentificadorPedido id : vencidos) {
+            try {
+                if (servicio.getObject().cancelarPedidoCaducado(id)) {
+                    cancelados.increment();
+                    total++;
+                }
+            } catch (RuntimeException e) {
+                errores.increment();
+                logger.warn("No se pudo cancelar el pedido caducado {}; se reintenta en {}", id.valor(), REINTENTO, e);
+                rueda.programar(id, System.currentTimeMillis() + REINTENTO.toMillis());
+            }
+        }
+        if (total > 0) {
+            logger.info("Cancelados {} pedidos pendientes sin confirmar en el plazo", total);
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void detener() {
+        programador.shutdownNow();
+    }
+}
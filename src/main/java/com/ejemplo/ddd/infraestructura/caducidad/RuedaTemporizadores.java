@@ -0,0 +1,177 @@
+package com.ejemplo.ddd.infraestructura.caducidad;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rueda jerárquica de temporizadores: programa, cancela y vence temporizadores en O(1) cada uno,
+ * sin depender de cuántos haya pendientes.
+ * <p>
+ * El tiempo avanza en tics de {@code resolucion} milisegundos. Cada nivel tiene 64 casillas; una
+ * casilla del nivel {@code n} abarca 64<sup>n</sup> tics. Un temporizador se guarda en el nivel más
+ * bajo cuyo alcance cubre su vencimiento, y cuando el nivel inferior da la vuelta se reparte
+ * (cascada) a los niveles más finos. Cada temporizador baja como mucho una vez por nivel.
+ * <p>
+ * Las casillas son listas doblemente enlazadas con centinela, de modo que cancelar es desenlazar un
+ * nodo. Las operaciones se sincronizan sobre la rueda; los temporizadores vencidos se devuelven para
+ * que el llamante los atienda fuera del cerrojo.
+ *
+ * @param <K> Clave de cada temporizador; programar una clave que ya tiene temporizador lo sustituye.
+ */
+class RuedaTemporizadores<K> {
+
+    private static final int BITS_POR_NIVEL = 6;
+    private static final int CASILLAS_POR_NIVEL = 1 << BITS_POR_NIVEL;
+    private static final int MASCARA = CASILLAS_POR_NIVEL - 1;
+    // 64^6 tics: con resolución de un segundo, más de dos mil años
+    private static final int NIVELES = 6;
+    private static final long ALCANCE_MAXIMO = (1L << (BITS_POR_NIVEL * NIVELES)) - 1;
+
+    private final long origenMillis;
+    private final long resolucionMillis;
+    private final Nodo<K>[][] casillas;
+    private final Map<K, Nodo<K>> porClave = new HashMap<>();
+    // Último tic procesado
+    private long actual;
+
+    @SuppressWarnings("unchecked")
+    RuedaTemporizadores(long origenMillis, long resolucionMillis) {
+        if (resolucionMillis <= 0) {
+            throw new IllegalArgumentException("La resolución de la rueda debe ser positiva");
+        }
+        this.origenMillis = origenMillis;
+        this.resolucionMillis = resolucionMillis;
+        this.casillas = new Nodo[NIVELES][CASILLAS_POR_NIVEL];
+        for (Nodo<K>[] nivel : casillas) {
+            for (int i = 0; i < CASILLAS_POR_NIVEL; i++) {
+                nivel[i] = Nodo.centinela();
+            }
+        }
+    }
+
+    /**
+     * Programa (o reprograma) el temporizador de {@code clave} para que venza en {@code vencimientoMillis}.
+     * Un vencimiento ya pasado vence en el siguiente tic.
+     */
+    synchronized void programar(K clave, long vencimientoMillis) {
+        Nodo<K> nodo = porClave.get(clave);
+        if (nodo == null) {
+            nodo = new Nodo<>(clave);
+            porClave.put(clave, nodo);
+        } else {
+            nodo.desenlazar();
+        }
+        // Redondeo hacia arriba: un temporizador nunca vence antes de su hora
+        long tic = Math.floorDiv(vencimientoMillis - origenMillis + resolucionMillis - 1, resolucionMillis);
+        nodo.tic = Math.min(Math.max(tic, actual + 1), actual + ALCANCE_MAXIMO);
+        colocar(nodo);
+    }
+
+    /**
+     * @return {@code true} si {@code clave} tenía un temporizador pendiente.
+     */
+    synchronized boolean cancelar(K clave) {
+        Nodo<K> nodo = porClave.remove(clave);
+        if (nodo == null) {
+            return false;
+        }
+        nodo.desenlazar();
+        return true;
+    }
+
+    /**
+     * Avanza la rueda hasta {@code ahoraMillis}, tic a tic.
+     *
+     * @return Las claves de los temporizadores vencidos, en orden de vencimiento.
+     */
+    synchronized List<K> avanzar(long ahoraMillis) {
+        long hasta = Math.floorDiv(ahoraMillis - origenMillis, resolucionMillis);
+        List<K> vencidos = new ArrayList<>();
+        while (actual < hasta) {
+            actual++;
+            // Primero los niveles altos, para que lo que bajan a niveles más finos se procese en este tic
+            int nivel = 0;
+            while (nivel + 1 < NIVELES && (actual & ((1L << (BITS_POR_NIVEL * (nivel + 1))) - 1)) == 0) {
+                nivel++;
+            }
+            for (; nivel > 0; nivel--) {
+                Nodo<K> centinela = casillas[nivel][(int) (actual >>> (BITS_POR_NIVEL * nivel)) & MASCARA];
+                Nodo<K> nodo = centinela.siguiente;
+                centinela.vaciar();
+                while (nodo != centinela) {
+                    Nodo<K> siguiente = nodo.siguiente;
+                    colocar(nodo);
+                    nodo = siguiente;
+                }
+            }
+            Nodo<K> centinela = casillas[0][(int) actual & MASCARA];
+            for (Nodo<K> nodo = centinela.siguiente; nodo != centinela; nodo = nodo.siguiente) {
+                porClave.remove(nodo.clave);
+                vencidos.add(nodo.clave);
+            }
+            centinela.vaciar();
+        }
+        return vencidos;
+    }
+
+    synchronized int pendientes() {
+        return porClave.size();
+    }
+
+    private void colocar(Nodo<K> nodo) {
+        long delta = nodo.tic - actual;
+        int nivel = 0;
+        while (delta >= CASILLAS_POR_NIVEL && nivel + 1 < NIVELES) {
+            delta >>>= BITS_POR_NIVEL;
+            nivel++;
+        }
+        if (nodo.tic <= actual) {
+            // Solo al bajar en cascada algo que vence en el tic en curso
+            casillas[0][(int) actual & MASCARA].enlazar(nodo);
+            return;
+        }
+        casillas[nivel][(int) (nodo.tic >>> (BITS_POR_NIVEL * nivel)) & MASCARA].enlazar(nodo);
+    }
+
+    private static final class Nodo<K> {
+
+        private final K clave;
+        private long tic;
+        private Nodo<K> anterior;
+        private Nodo<K> siguiente;
+
+        private Nodo(K clave) {
+            this.clave = clave;
+        }
+
+        static <K> Nodo<K> centinela() {
+            Nodo<K> centinela = new Nodo<>(null);
+            centinela.vaciar();
+            return centinela;
+        }
+
+        // Solo en centinelas: enlaza al final de la casilla
+        void enlazar(Nodo<K> nodo) {
+            nodo.anterior = anterior;
+            nodo.siguiente = this;
+            anterior.siguiente = nodo;
+            anterior = nodo;
+        }
+
+        void desenlazar() {
+            if (anterior != null) {
+                anterior.siguiente = siguiente;
+                siguiente.anterior = anterior;
+                anterior = null;
+                siguiente = null;
+            }
+        }
+
+        void vaciar() {
+            anterior = this;
+            siguiente = this;
+        }
+    }
+}
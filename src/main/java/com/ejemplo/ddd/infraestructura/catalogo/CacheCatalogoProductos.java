@@ -0,0 +1,262 @@
+package com.ejemplo.ddd.infraestructura.catalogo;
+
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.modelo.producto.Producto;
+import com.ejemplo.ddd.dominio.repositorio.CatalogoProductos;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caché cercana del {@link CatalogoProductos}, delante del catálogo de origen.
+ * <p>
+ * Cada producto consultado (también los que el catálogo no conoce) se guarda con la hora a la que se leyó:
+ * <ul>
+ *   <li>Hasta {@code pedidos.catalogo.cache.refrescar-tras} se sirve tal cual.</li>
+ *   <li>Después, y hasta {@code pedidos.catalogo.cache.caducar-tras}, se sirve igualmente pero se encola para
+ *   refrescarlo en segundo plano (stale-while-revalidate): el llamante no espera al catálogo.</li>
+ *   <li>Pasado ese plazo hay que volver a pedirlo. Si el catálogo falla se sirve el valor caducado antes
+ *   que fallar el pedido.</li>
+ * </ul>
+ * Lo que falta de una consulta se pide al origen en una sola llamada, y los refrescos se agrupan en lotes
+ * de {@code pedidos.catalogo.cache.tamano-lote}. Guarda como mucho {@code pedidos.catalogo.cache.capacidad}
+ * productos; al pasarse se expulsan entradas al azar.
+ */
+@Primary
+@Component
+public class CacheCatalogoProductos implements CatalogoProductos {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheCatalogoProductos.class);
+
+    private final CatalogoProductos origen;
+    private final int capacidad;
+    private final long refrescarTrasNanos;
+    private final long caducarTrasNanos;
+    private final int tamanoLote;
+    private final LongSupplier reloj;
+
+    private final ConcurrentHashMap<IdentificadorProducto, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Set<IdentificadorProducto> porRefrescar = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refrescoProgramado = new AtomicBoolean();
+    private final AtomicBoolean expulsando = new AtomicBoolean();
+    private final ExecutorService refresco;
+
+    private final Counter aciertos;
+    private final Counter obsoletos;
+    private final Counter fallos;
+    private final Counter errores;
+    private final Timer tiempoConsulta;
+    private final Timer tiempoRefresco;
+
+    @Autowired
+    public CacheCatalogoProductos(CatalogoProductosFichero origen, MeterRegistry meterRegistry,
+                                  @Value("${pedidos.catalogo.cache.capacidad:100000}") int capacidad,
+                                  @Value("${pedidos.catalogo.cache.refrescar-tras:30s}") Duration refrescarTras,
+                                  @Value("${pedidos.catalogo.cache.caducar-tras:10m}") Duration caducarTras,
+                                  @Value("${pedidos.catalogo.cache.tamano-lote:500}") int tamanoLote) {
+        this(origen, meterRegistry, capacidad, refrescarTras, caducarTras, tamanoLote, System::nanoTime);
+    }
+
+    CacheCatalogoProductos(CatalogoProductos origen, MeterRegistry meterRegistry, int capacidad,
+                           Duration refrescarTras, Duration caducarTras, int tamanoLote, LongSupplier reloj) {
+        if (capacidad <= 0 || tamanoLote <= 0) {
+            throw new IllegalArgumentException("La capacidad y el tamaño de lote de la caché del catálogo deben ser positivos");
+        }
+        if (caducarTras.compareTo(refrescarTras) < 0) {
+            throw new IllegalArgumentException("La caché del catálogo no puede caducar antes de refrescar");
+        }
+        this.origen = origen;
+        this.capacidad = capacidad;
+        this.refrescarTrasNanos = refrescarTras.toNanos();
+        this.caducarTrasNanos = caducarTras.toNanos();
+        this.tamanoLote = tamanoLote;
+        this.reloj = reloj;
+        this.refresco = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "refresco-catalogo");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.aciertos = contador(meterRegistry, "acierto");
+        this.obsoletos = contador(meterRegistry, "obsoleto");
+        this.fallos = contador(meterRegistry, "fallo");
+        this.errores = Counter.builder("pedidos.catalogo.errores")
+            .description("Llamadas al catálogo de productos que fallaron")
+            .register(meterRegistry);
+        this.tiempoConsulta = temporizador(meterRegistry, "consulta");
+        this.tiempoRefresco = temporizador(meterRegistry, "refresco");
+        Gauge.builder("pedidos.catalogo.cache.tamano", entradas, Map::size)
+            .description("Productos en la caché del catálogo")
+            .register(meterRegistry);
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("pedidos.catalogo.cache")
+            .description("Productos consultados en la caché del catálogo, por resultado")
+            .tag("resultado", resultado)
+            .register(meterRegistry);
+    }
+
+    private static Timer temporizador(MeterRegistry meterRegistry, String llamada) {
+        return Timer.builder("pedidos.catalogo.origen")
+            .description("Duración de las llamadas al catálogo de productos de origen")
+            .tag("llamada", llamada)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Map<IdentificadorProducto, Producto> buscarPorIds(Collection<IdentificadorProducto> ids) {
+        long ahora = reloj.getAsLong();
+        Map<IdentificadorProducto, Producto> encontrados = new HashMap<>();
+        Set<IdentificadorProducto> vistos = new HashSet<>();
+        List<IdentificadorProducto> pedir = new ArrayList<>();
+        for (IdentificadorProducto id : ids) {
+            if (!vistos.add(id)) {
+                continue;
+            }
+            Entrada entrada = entradas.get(id);
+            long edad = entrada == null ? Long.MAX_VALUE : ahora - entrada.leidaNanos();
+            if (edad >= caducarTrasNanos) {
+                fallos.increment();
+                pedir.add(id);
+                continue;
+            }
+            if (edad >= refrescarTrasNanos) {
+                obsoletos.increment();
+                programarRefresco(id);
+            } else {
+                aciertos.increment();
+            }
+            if (entrada.producto() != null) {
+                encontrados.put(id, entrada.producto());
+            }
+        }
+        if (!pedir.isEmpty()) {
+            pedirAlOrigen(pedir, encontrados);
+        }
+        return encontrados;
+    }
+
+    private void pedirAlOrigen(List<IdentificadorProducto> pedir, Map<IdentificadorProducto, Producto> encontrados) {
+        Map<IdentificadorProducto, Producto> leidos;
+        try {
+            long inicio = System.nanoTime();
+            leidos = origen.buscarPorIds(pedir);
+            tiempoConsulta.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            errores.increment();
+            // Mejor un precio caducado que un pedido rechazado; sin nada guardado no queda otra que fallar
+            for (IdentificadorProducto id : pedir) {
+                Entrada caducada = entradas.get(id);
+                if (caducada == null) {
+                    throw e;
+                }
+                if (caducada.producto() != null) {
+                    encontrados.put(id, caducada.producto());
+                }
+            }
+            logger.warn("Catálogo de productos no disponible; se sirven {} productos caducados", pedir.size(), e);
+            return;
+        }
+        guardar(pedir, leidos);
+        for (IdentificadorProducto id : pedir) {
+            Producto producto = leidos.get(id);
+            if (producto != null) {
+                encontrados.put(id, producto);
+            }
+        }
+    }
+
+    private void guardar(List<IdentificadorProducto> ids, Map<IdentificadorProducto, Producto> leidos) {
+        long leidaNanos = reloj.getAsLong();
+        for (IdentificadorProducto id : ids) {
+            entradas.put(id, new Entrada(leidos.get(id), leidaNanos));
+        }
+        if (entradas.size() > capacidad) {
+            expulsar();
+        }
+    }
+
+    private void expulsar() {
+        if (!expulsando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // El orden de recorrido de la tabla no guarda relación con el uso: equivale a expulsar al azar.
+            // Se deja un margen para no expulsar en cada inserción
+            int objetivo = capacidad - capacidad / 16;
+            Iterator<IdentificadorProducto> claves = entradas.keySet().iterator();
+            while (entradas.size() > objetivo && claves.hasNext()) {
+                claves.next();
+                claves.remove();
+            }
+        } finally {
+            expulsando.set(false);
+        }
+    }
+
+    private void programarRefresco(IdentificadorProducto id) {
+        if (porRefrescar.add(id) && refrescoProgramado.compareAndSet(false, true)) {
+            refresco.execute(this::refrescar);
+        }
+    }
+
+    private void refrescar() {
+        // Lo que se encole a partir de aquí programa otra pasada
+        refrescoProgramado.set(false);
+        List<IdentificadorProducto> lote = new ArrayList<>(tamanoLote);
+        Iterator<IdentificadorProducto> pendientes = porRefrescar.iterator();
+        while (pendientes.hasNext()) {
+            lote.add(pendientes.next());
+            pendientes.remove();
+            if (lote.size() == tamanoLote || !pendientes.hasNext()) {
+                try {
+                    long inicio = System.nanoTime();
+                    Map<IdentificadorProducto, Producto> leidos = origen.buscarPorIds(lote);
+                    tiempoRefresco.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                    guardar(lote, leidos);
+                } catch (RuntimeException e) {
+                    // Siguen sirviéndose obsoletos; al caducar se pedirán en la propia consulta
+                    errores.increment();
+                    logger.warn("No se pudieron refrescar {} productos del catálogo", lote.size(), e);
+                }
+                lote.clear();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        refresco.shutdownNow();
+    }
+
+    /**
+     * @param producto {@code null} si el catálogo no conoce el producto.
+     */
+    private record Entrada(Producto producto, long leidaNanos) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.ejemplo.ddd.infraestructura.catalogo;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.modelo.producto.Producto;
+import com.ejemplo.ddd.dominio.repositorio.CatalogoProductos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Catálogo de productos local que sustituye al servicio de catálogo real: lee los productos de un CSV
+ * ({@code idProducto,nombre,precio,moneda}, con cabecera opcional y comentarios con {@code #}) y lo vuelve
+ * a leer cuando cambia. Si el fichero no existe el catálogo está vacío.
+ * <p>
+ * {@code pedidos.catalogo.fichero.latencia} añade una espera fija por llamada para simular la red; se usa
+ * siempre detrás de {@link CacheCatalogoProductos}.
+ */
+@Component
+public class CatalogoProductosFichero implements CatalogoProductos {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogoProductosFichero.class);
+
+    // Como mucho una comprobación de la fecha del fichero por segundo
+    private static final long INTERVALO_COMPROBACION_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path ruta;
+    private final long latenciaNanos;
+    private volatile Map<IdentificadorProducto, Producto> productos = Map.of();
+    private volatile FileTime modificacionLeida;
+    private volatile long ultimaComprobacion;
+
+    public CatalogoProductosFichero(@Value("${pedidos.catalogo.fichero.ruta:catalogo-productos.csv}") Path ruta,
+                                    @Value("${pedidos.catalogo.fichero.latencia:0ms}") Duration latencia) {
+        this.ruta = ruta;
+        this.latenciaNanos = latencia.toNanos();
+        this.ultimaComprobacion = System.nanoTime();
+        recargarSiCambia();
+    }
+
+    @Override
+    public Map<IdentificadorProducto, Producto> buscarPorIds(Collection<IdentificadorProducto> ids) {
+        long ahora = System.nanoTime();
+        if (ahora - ultimaComprobacion >= INTERVALO_COMPROBACION_NANOS) {
+            ultimaComprobacion = ahora;
+            recargarSiCambia();
+        }
+        if (latenciaNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latenciaNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Map<IdentificadorProducto, Producto> actuales = productos;
+        Map<IdentificadorProducto, Producto> encontrados = new HashMap<>();
+        for (IdentificadorProducto id : ids) {
+            Producto producto = actuales.get(id);
+            if (producto != null) {
+                encontrados.put(id, producto);
+            }
+        }
+        return encontrados;
+    }
+
+    private synchronized void recargarSiCambia() {
+        FileTime modificacion;
+        try {
+            modificacion = Files.getLastModifiedTime(ruta);
+        } catch (NoSuchFileException e) {
+            if (modificacionLeida != null || !productos.isEmpty()) {
+                logger.warn("El catálogo {} ha desaparecido; se mantiene el último leído", ruta);
+            }
+            return;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo consultar el catálogo " + ruta, e);
+        }
+        if (modificacion.equals(modificacionLeida)) {
+            return;
+        }
+        try {
+            productos = leer(Files.readAllLines(ruta, StandardCharsets.UTF_8));
+            modificacionLeida = modificacion;
+            logger.info("Catálogo de productos cargado de {}: {} productos", ruta, productos.size());
+        } catch (IOException | RuntimeException e) {
+            // Un fichero a medio escribir o con errores no sustituye al último bueno
+            logger.error("No se pudo leer el catálogo {}; se mantiene el anterior", ruta, e);
+        }
+    }
+
+    static Map<IdentificadorProducto, Producto> leer(List<String> lineas) {
+        Map<IdentificadorProducto, Producto> leidos = new HashMap<>();
+        for (int i = 0; i < lineas.size(); i++) {
+            String linea = lineas.get(i).strip();
+            if (linea.isEmpty() || linea.startsWith("#") || linea.startsWith("idProducto")) {
+                continue;
+            }
+            String[] campos = linea.split(",", -1);
+            if (campos.length != 4) {
+                throw new IllegalArgumentException("Línea " + (i + 1) + " del catálogo: se esperaban 4 campos");
+            }
+            IdentificadorProducto id = IdentificadorProducto.deString(campos[0].strip());
+            Dinero precio = new Dinero(new BigDecimal(campos[2].strip()), Currency.getInstance(campos[3].strip()));
+            leidos.put(id, new Producto(id, campos[1].strip(), precio));
+        }
+        return Map.copyOf(leidos);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Anillo de hash consistente que asigna cada pedido a un nodo del cluster.
+ * <p>
+ * Cada nodo ocupa {@code nodosVirtuales} puntos del anillo, derivados solo de su id; un pedido
+ * pertenece al primer punto igual o posterior al hash de su id. Al añadir o quitar un nodo solo
+ * cambian de dueño los pedidos de los tramos que gana o pierde ese nodo (en media 1/N del total),
+ * y los puntos virtuales reparten la carga de forma pareja. Es inmutable: un cambio de miembros
+ * construye un anillo nuevo.
+ */
+public final class AnilloHashConsistente {
+
+    private final List<Nodo> nodos;
+    // Puntos del anillo ordenados y, en paralelo, el índice en nodos de su dueño
+    private final long[] puntos;
+    private final int[] duenos;
+
+    public AnilloHashConsistente(List<Nodo> nodos, int nodosVirtuales) {
+        if (nodos.isEmpty()) {
+            throw new IllegalArgumentException("El cluster debe tener al menos un nodo");
+        }
+        if (nodosVirtuales <= 0) {
+            throw new IllegalArgumentException("El número de nodos virtuales debe ser positivo");
+        }
+        Set<String> ids = new HashSet<>();
+        for (Nodo nodo : nodos) {
+            if (!ids.add(nodo.id())) {
+                throw new IllegalArgumentException("Nodo repetido en el cluster: " + nodo.id());
+            }
+        }
+        this.nodos = List.copyOf(nodos);
+
+        // Ante una colisión de hash gana el id de nodo menor, para que todos los nodos construyan el mismo anillo
+        Punto[] ordenados = new Punto[nodos.size() * nodosVirtuales];
+        int k = 0;
+        for (int n = 0; n < nodos.size(); n++) {
+            for (int v = 0; v < nodosVirtuales; v++) {
+                ordenados[k++] = new Punto(hashPunto(nodos.get(n).id(), v), n);
+            }
+        }
+        Arrays.sort(ordenados, Comparator.<Punto>comparingLong(p -> p.hash() ^ Long.MIN_VALUE)
+            .thenComparing(p -> nodos.get(p.dueno()).id()));
+        this.puntos = new long[ordenados.length];
+        this.duenos = new int[ordenados.length];
+        for (int i = 0; i < ordenados.length; i++) {
+            puntos[i] = ordenados[i].hash();
+            duenos[i] = ordenados[i].dueno();
+        }
+    }
+
+    private record Punto(long hash, int dueno) {}
+
+    public Nodo propietario(IdentificadorPedido id) {
+        return propietario(hash(id));
+    }
+
+    Nodo propietario(long hash) {
+        // Primer punto con hash >= hash (en orden sin signo), dando la vuelta al final
+        int bajo = 0;
+        int alto = puntos.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (Long.compareUnsigned(puntos[medio], hash) < 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return nodos.get(duenos[bajo == puntos.length ? 0 : bajo]);
+    }
+
+    public List<Nodo> nodos() {
+        return nodos;
+    }
+
+    public Nodo nodo(String id) {
+        for (Nodo nodo : nodos) {
+            if (nodo.id().equals(id)) {
+                return nodo;
+            }
+        }
+        return null;
+    }
+
+    static long hash(IdentificadorPedido id) {
+        return mezclar(id.valor().getMostSignificantBits() ^ Long.rotateLeft(id.valor().getLeastSignificantBits(), 32));
+    }
+
+    private static long hashPunto(String idNodo, int virtual) {
+        // FNV-1a de "id#virtual" y mezcla final para repartir bien ids parecidos (nodo-1, nodo-2...)
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (idNodo + "#" + virtual).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mezclar(hash);
+    }
+
+    // Finalizador de MurmurHash3 (fmix64)
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53e1a85L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,162 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.infraestructura.persistencia.CodecPedido;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Cliente del protocolo interno entre nodos del cluster.
+ * <p>
+ * Va sobre HTTP/1.1 con conexiones persistentes y cuerpos binarios de {@link CodecPedido}. Todas las
+ * llamadas llevan el secreto del cluster en la cabecera {@value #CABECERA_SECRETO}, y los reenvíos
+ * la cabecera {@value #CABECERA_REENVIO} para que el destino los atienda sin volver a reenviarlos.
+ */
+@Component
+@ConditionalOnProperty(name = "pedidos.cluster.habilitado", havingValue = "true")
+public class ClienteCluster {
+
+    public static final String CABECERA_REENVIO = "X-Cluster-Reenviado";
+    public static final String CABECERA_SECRETO = "X-Cluster-Secreto";
+    static final String RUTA_INTERNA = "/internal/cluster";
+    private static final String BINARIO = "application/octet-stream";
+
+    private final HttpClient http;
+    private final Duration tiempoEspera;
+    private final String secreto;
+    private final String idLocal;
+
+    public ClienteCluster(MiembrosCluster miembros,
+                          @Value("${pedidos.cluster.tiempo-espera:PT2S}") Duration tiempoEspera,
+                          @Value("${pedidos.cluster.secreto:}") String secreto) {
+        this.http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(tiempoEspera)
+            .build();
+        this.tiempoEspera = tiempoEspera;
+        this.secreto = secreto;
+        this.idLocal = miembros.getIdLocal();
+    }
+
+    /**
+     * Reenvía una petición de la API al nodo propietario tal cual (método, ruta, cabeceras indicadas y cuerpo).
+     */
+    public HttpResponse<byte[]> reenviar(Nodo nodo, String metodo, String rutaYConsulta,
+                                         Map<String, String> cabeceras, byte[] cuerpo) {
+        HttpRequest.Builder peticion = peticion(nodo, rutaYConsulta)
+            .header(CABECERA_REENVIO, idLocal)
+            .method(metodo, cuerpo.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(cuerpo));
+        cabeceras.forEach(peticion::header);
+        return enviar(nodo, peticion.build());
+    }
+
+    public void guardar(Nodo nodo, Collection<Pedido> pedidos) {
+        HttpRequest peticion = peticion(nodo, RUTA_INTERNA + "/pedidos")
+            .header("Content-Type", BINARIO)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(CodecPedido.codificarPedidos(pedidos)))
+            .build();
+        comprobar(nodo, enviar(nodo, peticion));
+    }
+
+    public Optional<Pedido> buscarPorId(Nodo nodo, IdentificadorPedido id) {
+        HttpResponse<byte[]> respuesta = enviar(nodo, peticion(nodo, RUTA_INTERNA + "/pedidos/" + id.valor()).GET().build());
+        if (respuesta.statusCode() == 404) {
+            return Optional.empty();
+        }
+        comprobar(nodo, respuesta);
+        return CodecPedido.decodificarPedidos(respuesta.body()).stream().findFirst();
+    }
+
+    public List<Pedido> buscarPorIds(Nodo nodo, Collection<IdentificadorPedido> ids) {
+        HttpRequest peticion = peticion(nodo, RUTA_INTERNA + "/pedidos/_mget")
+            .header("Content-Type", BINARIO)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(CodecPedido.codificarIds(ids)))
+            .build();
+        HttpResponse<byte[]> respuesta = enviar(nodo, peticion);
+        comprobar(nodo, respuesta);
+        return CodecPedido.decodificarPedidos(respuesta.body());
+    }
+
+    public void eliminar(Nodo nodo, IdentificadorPedido id) {
+        comprobar(nodo, enviar(nodo, peticion(nodo, RUTA_INTERNA + "/pedidos/" + id.valor()).DELETE().build()));
+    }
+
+    /**
+     * Pedidos almacenados en el nodo, todos o solo los de un estado.
+     */
+    public CompletableFuture<List<Pedido>> buscarLocales(Nodo nodo, EstadoPedido estado) {
+        String ruta = RUTA_INTERNA + "/pedidos" + (estado != null ? "?estado=" + estado.name() : "");
+        return enviarAsincrono(nodo, peticion(nodo, ruta).GET().build())
+            .thenApply(CodecPedido::decodificarPedidos);
+    }
+
+    public CompletableFuture<List<ResumenPedido>> buscarResumenesLocales(Nodo nodo) {
+        return enviarAsincrono(nodo, peticion(nodo, RUTA_INTERNA + "/resumenes").GET().build())
+            .thenApply(CodecPedido::decodificarResumenes);
+    }
+
+    private HttpRequest.Builder peticion(Nodo nodo, String rutaYConsulta) {
+        return HttpRequest.newBuilder(URI.create(nodo.url() + rutaYConsulta))
+            .timeout(tiempoEspera)
+            .header(CABECERA_SECRETO, secreto);
+    }
+
+    private HttpResponse<byte[]> enviar(Nodo nodo, HttpRequest peticion) {
+        try {
+            return http.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new NodoNoDisponibleException("El nodo " + nodo.id() + " no responde", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NodoNoDisponibleException("Interrumpido esperando al nodo " + nodo.id(), e);
+        }
+    }
+
+    private CompletableFuture<byte[]> enviarAsincrono(Nodo nodo, HttpRequest peticion) {
+        return http.sendAsync(peticion, HttpResponse.BodyHandlers.ofByteArray())
+            .handle((respuesta, error) -> {
+                if (error != null) {
+                    throw new NodoNoDisponibleException("El nodo " + nodo.id() + " no responde", error);
+                }
+                comprobar(nodo, respuesta);
+                return respuesta.body();
+            });
+    }
+
+    private static void comprobar(Nodo nodo, HttpResponse<byte[]> respuesta) {
+        if (respuesta.statusCode() / 100 != 2) {
+            throw new NodoNoDisponibleException("El nodo " + nodo.id() + " respondió " + respuesta.statusCode());
+        }
+    }
+
+    /**
+     * Espera el resultado de una llamada asíncrona, propagando los errores sin envolver.
+     */
+    static <T> T esperar(CompletableFuture<T> llamada) {
+        try {
+            return llamada.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.infraestructura.persistencia.CodecPedido;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Protocolo interno entre nodos del cluster: lee y escribe directamente en el almacén local, sin
+ * volver a repartir por el anillo, con cuerpos binarios de {@link CodecPedido}.
+ * <p>
+ * {@code PUT /internal/cluster/miembros} cambia los miembros de este nodo y traslada a sus nuevos
+ * propietarios los pedidos que ya no le corresponden. Para añadir o quitar un nodo se envía la
+ * nueva lista a todos los nodos (el que se retira, el último).
+ */
+@RestController
+@RequestMapping(ClienteCluster.RUTA_INTERNA)
+@ConditionalOnProperty(name = "pedidos.cluster.habilitado", havingValue = "true")
+public class ControladorInternoCluster {
+
+    private static final Logger logger = LoggerFactory.getLogger(ControladorInternoCluster.class);
+
+    private final PedidoRepositoryImpl local;
+    private final PedidoRepositoryCluster repositorio;
+    private final MiembrosCluster miembros;
+
+    public ControladorInternoCluster(PedidoRepositoryImpl local, PedidoRepositoryCluster repositorio,
+                                     MiembrosCluster miembros) {
+        this.local = local;
+        this.repositorio = repositorio;
+        this.miembros = miembros;
+    }
+
+    @PostMapping(value = "/pedidos", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> guardar(@RequestBody byte[] cuerpo) {
+        local.guardarTodos(CodecPedido.decodificarPedidos(cuerpo));
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(value = "/pedidos/{idPedido}", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> buscarPorId(@PathVariable String idPedido) {
+        return local.buscarPorId(IdentificadorPedido.deString(idPedido))
+            .map(pedido -> ResponseEntity.ok(CodecPedido.codificarPedidos(List.of(pedido))))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping(value = "/pedidos/_mget", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+        produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public byte[] buscarPorIds(@RequestBody byte[] cuerpo) {
+        return CodecPedido.codificarPedidos(local.buscarPorIds(CodecPedido.decodificarIds(cuerpo)).values());
+    }
+
+    @GetMapping(value = "/pedidos", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public byte[] buscarLocales(@RequestParam(required = false) EstadoPedido estado) {
+        return CodecPedido.codificarPedidos(estado != null ? local.buscarPorEstado(estado) : local.buscarTodos());
+    }
+
+    @GetMapping(value = "/resumenes", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public byte[] buscarResumenesLocales() {
+        return CodecPedido.codificarResumenes(local.buscarResumenes());
+    }
+
+    @DeleteMapping("/pedidos/{idPedido}")
+    public ResponseEntity<Void> eliminar(@PathVariable String idPedido) {
+        local.eliminarPorId(IdentificadorPedido.deString(idPedido));
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/miembros")
+    public MiembrosDTO obtenerMiembros() {
+        return new MiembrosDTO(miembros.getIdLocal(), miembros.getAnillo().nodos().stream().map(Nodo::toString).toList(), 0);
+    }
+
+    /**
+     * @param lista Miembros en el formato de {@code pedidos.cluster.miembros}: {@code id=url,id=url}.
+     */
+    @PutMapping(value = "/miembros", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public MiembrosDTO actualizarMiembros(@RequestBody String lista) {
+        AnilloHashConsistente anillo;
+        try {
+            anillo = miembros.actualizar(Nodo.deLista(lista));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        int movidos = repositorio.rebalancear();
+        logger.info("Miembros del cluster actualizados a {}; {} pedidos trasladados", anillo.nodos(), movidos);
+        return new MiembrosDTO(miembros.getIdLocal(), anillo.nodos().stream().map(Nodo::toString).toList(), movidos);
+    }
+
+    public record MiembrosDTO(String nodoLocal, List<String> miembros, int movidos) {}
+}
@@ -0,0 +1,179 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.infraestructura.web.IdentidadCliente;
+import com.ejemplo.ddd.infraestructura.web.idempotencia.RegistroIdempotencia;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reenvía al nodo propietario las peticiones sobre un pedido que no es de este nodo.
+ * <p>
+ * Se aplica a {@code /api/pedidos/{id}} y sus subrutas, antes del control de admisión, de modo que
+ * la cuota y la concurrencia las aplica solo el propietario. La identidad del cliente se le pasa en
+ * {@value IdentidadCliente#CABECERA_LLAMANTE}, y el propietario solo la cree si la petición trae el secreto del
+ * cluster; el {@value IdentidadCliente#CABECERA} que declara el cliente viaja tal cual.
+ * La petición se reenvía tal cual por una conexión persistente y la respuesta se copia sin
+ * interpretarla; el destino la reconoce por {@value ClienteCluster#CABECERA_REENVIO} y no la reenvía
+ * otra vez aunque su anillo difiera durante un cambio de miembros.
+ * <p>
+ * También protege {@code /internal/cluster/**}: las peticiones sin el secreto se rechazan con 403. Como
+ * ese protocolo cambia los miembros y escribe pedidos sin más control, el modo cluster no arranca sin
+ * {@code pedidos.cluster.secreto}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@ConditionalOnProperty(name = "pedidos.cluster.habilitado", havingValue = "true")
+public class FiltroReenvioCluster extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FiltroReenvioCluster.class);
+
+    private static final String PREFIJO_PEDIDO = "/api/pedidos/";
+    private static final List<String> CABECERAS_PETICION = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, RegistroIdempotencia.CABECERA, IdentidadCliente.CABECERA);
+    private static final List<String> CABECERAS_RESPUESTA = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER, RegistroIdempotencia.CABECERA_REPETIDA);
+
+    private final MiembrosCluster miembros;
+    private final ClienteCluster cliente;
+    private final byte[] secreto;
+    private final Timer reenviosCorrectos;
+    private final Timer reenviosFallidos;
+
+    public FiltroReenvioCluster(MiembrosCluster miembros, ClienteCluster cliente, MeterRegistry meterRegistry,
+                                @Value("${pedidos.cluster.secreto:}") String secreto) {
+        if (secreto.isBlank()) {
+            throw new IllegalStateException("El modo cluster exige pedidos.cluster.secreto: sin él, "
+                + ClienteCluster.RUTA_INTERNA + " quedaría abierto a cualquiera");
+        }
+        this.miembros = miembros;
+        this.cliente = cliente;
+        this.secreto = secreto.getBytes(StandardCharsets.UTF_8);
+        this.reenviosCorrectos = temporizador(meterRegistry, "exito");
+        this.reenviosFallidos = temporizador(meterRegistry, "error");
+    }
+
+    private static Timer temporizador(MeterRegistry meterRegistry, String resultado) {
+        return Timer.builder("pedidos.cluster.reenvios")
+            .description("Peticiones reenviadas al nodo propietario del pedido")
+            .tag("resultado", resultado)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !uri.startsWith(ClienteCluster.RUTA_INTERNA + "/") && !uri.startsWith(PREFIJO_PEDIDO);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String uri = request.getRequestURI();
+        if (uri.startsWith(ClienteCluster.RUTA_INTERNA + "/")) {
+            if (!secretoValido(request.getHeader(ClienteCluster.CABECERA_SECRETO))) {
+                rechazar(response, HttpStatus.FORBIDDEN, "Secreto del cluster no válido");
+                return;
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (request.getHeader(ClienteCluster.CABECERA_REENVIO) != null) {
+            // Ya reenviada por otro nodo: se atiende aquí, con la identidad del cliente original si es de fiar
+            String cliente = request.getHeader(IdentidadCliente.CABECERA_LLAMANTE);
+            if (cliente != null && secretoValido(request.getHeader(ClienteCluster.CABECERA_SECRETO))) {
+                request.setAttribute(IdentidadCliente.ATRIBUTO, cliente);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+        IdentificadorPedido id = idPedido(uri);
+        Nodo propietario = id != null ? miembros.propietario(id) : null;
+        if (propietario == null || miembros.esLocal(propietario)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        reenviar(request, response, propietario);
+    }
+
+    private void reenviar(HttpServletRequest request, HttpServletResponse response, Nodo propietario) throws IOException {
+        long inicio = System.nanoTime();
+        byte[] cuerpo = request.getInputStream().readAllBytes();
+        Map<String, String> cabeceras = new LinkedHashMap<>();
+        for (String nombre : CABECERAS_PETICION) {
+            String valor = request.getHeader(nombre);
+            if (valor != null) {
+                cabeceras.put(nombre, valor);
+            }
+        }
+        // El propietario debe ver la identidad que ha resuelto este nodo, no la dirección de este nodo
+        cabeceras.put(IdentidadCliente.CABECERA_LLAMANTE, IdentidadCliente.de(request));
+        String ruta = request.getRequestURI() + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        HttpResponse<byte[]> respuesta;
+        try {
+            respuesta = cliente.reenviar(propietario, request.getMethod(), ruta, cabeceras, cuerpo);
+        } catch (NodoNoDisponibleException e) {
+            reenviosFallidos.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            logger.warn("No se pudo reenviar {} {}: {}", request.getMethod(), ruta, e.getMessage());
+            rechazar(response, HttpStatus.SERVICE_UNAVAILABLE, "Nodo propietario no disponible");
+            return;
+        }
+        response.setStatus(respuesta.statusCode());
+        for (String nombre : CABECERAS_RESPUESTA) {
+            respuesta.headers().firstValue(nombre).ifPresent(valor -> response.setHeader(nombre, valor));
+        }
+        response.setContentLength(respuesta.body().length);
+        response.getOutputStream().write(respuesta.body());
+        reenviosCorrectos.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    // El id es el primer segmento tras /api/pedidos/; rutas como /api/pedidos/resumen no son de un pedido
+    private static IdentificadorPedido idPedido(String uri) {
+        int fin = uri.indexOf('/', PREFIJO_PEDIDO.length());
+        String segmento = uri.substring(PREFIJO_PEDIDO.length(), fin < 0 ? uri.length() : fin);
+        if (segmento.length() != 36) {
+            return null;
+        }
+        try {
+            return new IdentificadorPedido(UUID.fromString(segmento));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean secretoValido(String recibido) {
+        return recibido != null && MessageDigest.isEqual(secreto, recibido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void rechazar(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        response.setStatus(estado.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(mensaje);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Vista de este nodo sobre los miembros del cluster y el anillo que reparte los pedidos entre ellos.
+ * <p>
+ * Los miembros iniciales se configuran en {@code pedidos.cluster.miembros}; después se cambian con
+ * {@code PUT /internal/cluster/miembros} en cada nodo. El anillo se sustituye entero, de modo que
+ * las consultas de propietario no toman cerrojos.
+ */
+@Component
+@ConditionalOnProperty(name = "pedidos.cluster.habilitado", havingValue = "true")
+public class MiembrosCluster {
+
+    private final String idLocal;
+    private final int nodosVirtuales;
+    private volatile AnilloHashConsistente anillo;
+
+    public MiembrosCluster(@Value("${pedidos.cluster.nodo}") String idLocal,
+                           @Value("${pedidos.cluster.miembros}") String miembros,
+                           @Value("${pedidos.cluster.nodos-virtuales:128}") int nodosVirtuales) {
+        this.idLocal = idLocal;
+        this.nodosVirtuales = nodosVirtuales;
+        List<Nodo> nodos = Nodo.deLista(miembros);
+        if (nodos.stream().noneMatch(n -> n.id().equals(idLocal))) {
+            throw new IllegalArgumentException("El nodo local " + idLocal + " no está en pedidos.cluster.miembros");
+        }
+        this.anillo = new AnilloHashConsistente(nodos, nodosVirtuales);
+    }
+
+    public String getIdLocal() {
+        return idLocal;
+    }
+
+    public AnilloHashConsistente getAnillo() {
+        return anillo;
+    }
+
+    public Nodo propietario(IdentificadorPedido id) {
+        return anillo.propietario(id);
+    }
+
+    public boolean esLocal(Nodo nodo) {
+        return nodo.id().equals(idLocal);
+    }
+
+    /**
+     * Miembros distintos de este nodo. Si este nodo ya no es miembro (se está retirando), son todos.
+     */
+    public List<Nodo> remotos() {
+        return anillo.nodos().stream().filter(n -> !esLocal(n)).toList();
+    }
+
+    /**
+     * Sustituye los miembros. Los pedidos locales que cambien de dueño los traslada
+     * {@link PedidoRepositoryCluster#rebalancear()}.
+     */
+    public synchronized AnilloHashConsistente actualizar(List<Nodo> nodos) {
+        anillo = new AnilloHashConsistente(nodos, nodosVirtuales);
+        return anillo;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Miembro del cluster: su identificador estable (que decide su posición en el anillo) y la URL base
+ * en la que atiende tanto la API como el protocolo interno.
+ */
+public record Nodo(String id, URI url) {
+
+    public Nodo {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("El id del nodo no puede estar vacío");
+        }
+        if (url == null) {
+            throw new IllegalArgumentException("La URL del nodo no puede ser nula");
+        }
+    }
+
+    /**
+     * Lee una lista de miembros con el formato {@code id=url,id=url}.
+     */
+    public static List<Nodo> deLista(String lista) {
+        List<Nodo> nodos = new ArrayList<>();
+        for (String entrada : lista.split(",")) {
+            String recortada = entrada.trim();
+            if (recortada.isEmpty()) {
+                continue;
+            }
+            int igual = recortada.indexOf('=');
+            if (igual <= 0) {
+                throw new IllegalArgumentException("Miembro del cluster no válido (se espera id=url): " + recortada);
+            }
+            nodos.add(new Nodo(recortada.substring(0, igual).trim(), URI.create(recortada.substring(igual + 1).trim())));
+        }
+        return nodos;
+    }
+
+    @Override
+    public String toString() {
+        return id + "=" + url;
+    }
+}
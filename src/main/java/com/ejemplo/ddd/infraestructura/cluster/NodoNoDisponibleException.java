@@ -0,0 +1,15 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+/**
+ * Un nodo del cluster no ha respondido, o ha respondido con un error, a una llamada del protocolo interno.
+ */
+public class NodoNoDisponibleException extends RuntimeException {
+
+    public NodoNoDisponibleException(String mensaje) {
+        super(mensaje);
+    }
+
+    public NodoNoDisponibleException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
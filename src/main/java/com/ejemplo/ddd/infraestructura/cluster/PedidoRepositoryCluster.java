@@ -0,0 +1,233 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import com.ejemplo.ddd.aplicacion.traza.Tramo;
+import com.ejemplo.ddd.aplicacion.traza.Trazador;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.dominio.repositorio.GuardadoParcialException;
+import com.ejemplo.ddd.dominio.repositorio.PedidoRepository;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Repositorio de pedidos repartido entre los nodos del cluster.
+ * <p>
+ * Cada pedido vive en el almacén local de su propietario en el {@link AnilloHashConsistente}. Las
+ * operaciones por id van al propietario; los recorridos completos se piden a todos los nodos a la
+ * vez y se concatenan, y fallan si algún nodo no responde para no devolver listados incompletos.
+ * <p>
+ * Las peticiones HTTP sobre un pedido concreto ya llegan al propietario gracias a
+ * {@link FiltroReenvioCluster}, así que en la práctica este repositorio solo sale de la red en las
+ * altas (el id se genera en el nodo que recibe la petición), los listados y los rebalanceos.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "pedidos.cluster.habilitado", havingValue = "true")
+public class PedidoRepositoryCluster implements PedidoRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(PedidoRepositoryCluster.class);
+
+    // Pedidos por mensaje al trasladar pedidos a su nuevo propietario
+    static final int LOTE_TRASPASO = 1000;
+
+    private final PedidoRepositoryImpl local;
+    private final MiembrosCluster miembros;
+    private final ClienteCluster cliente;
+    private final Counter movidos;
+
+    public PedidoRepositoryCluster(PedidoRepositoryImpl local, MiembrosCluster miembros, ClienteCluster cliente,
+                                   MeterRegistry meterRegistry) {
+        this.local = local;
+        this.miembros = miembros;
+        this.cliente = cliente;
+        this.movidos = Counter.builder("pedidos.cluster.movidos")
+            .description("Pedidos trasladados a otro nodo al cambiar los miembros del cluster")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void guardar(Pedido pedido) {
+        Nodo propietario = miembros.propietario(pedido.getId());
+        if (miembros.esLocal(propietario)) {
+            local.guardar(pedido);
+            return;
+        }
+        try (Tramo tramo = Trazador.abrir("cluster.guardar")) {
+            cliente.guardar(propietario, List.of(pedido));
+        }
+    }
+
+    @Override
+    public boolean guardarSiEstado(Pedido pedido, EstadoPedido estadoEsperado) {
+        if (miembros.esLocal(miembros.propietario(pedido.getId()))) {
+            return local.guardarSiEstado(pedido, estadoEsperado);
+        }
+        // El protocolo entre nodos no tiene escritura condicional: se compara y se guarda por separado
+        return PedidoRepository.super.guardarSiEstado(pedido, estadoEsperado);
+    }
+
+    @Override
+    public void guardarTodos(Collection<Pedido> pedidos) {
+        Map<Nodo, List<Pedido>> porPropietario = agrupar(pedidos, Pedido::getId);
+        // Un nodo que falla no impide guardar en los demás; su grupo entero se informa como fallido
+        Map<IdentificadorPedido, RuntimeException> fallos = new LinkedHashMap<>();
+        for (Map.Entry<Nodo, List<Pedido>> grupo : porPropietario.entrySet()) {
+            try {
+                if (miembros.esLocal(grupo.getKey())) {
+                    local.guardarTodos(grupo.getValue());
+                } else {
+                    try (Tramo tramo = Trazador.abrir("cluster.guardarTodos")) {
+                        cliente.guardar(grupo.getKey(), grupo.getValue());
+                    }
+                }
+            } catch (GuardadoParcialException e) {
+                fallos.putAll(e.getFallos());
+            } catch (RuntimeException e) {
+                grupo.getValue().forEach(pedido -> fallos.put(pedido.getId(), e));
+            }
+        }
+        if (!fallos.isEmpty()) {
+            throw new GuardadoParcialException(fallos);
+        }
+    }
+
+    @Override
+    public Optional<Pedido> buscarPorId(IdentificadorPedido id) {
+        Nodo propietario = miembros.propietario(id);
+        if (miembros.esLocal(propietario)) {
+            return local.buscarPorId(id);
+        }
+        try (Tramo tramo = Trazador.abrir("cluster.buscarPorId")) {
+            return cliente.buscarPorId(propietario, id);
+        }
+    }
+
+    @Override
+    public Map<IdentificadorPedido, Pedido> buscarPorIds(Collection<IdentificadorPedido> ids) {
+        Map<IdentificadorPedido, Pedido> encontrados = new LinkedHashMap<>();
+        for (Map.Entry<Nodo, List<IdentificadorPedido>> grupo : agrupar(ids, Function.identity()).entrySet()) {
+            if (miembros.esLocal(grupo.getKey())) {
+                encontrados.putAll(local.buscarPorIds(grupo.getValue()));
+            } else {
+                try (Tramo tramo = Trazador.abrir("cluster.buscarPorIds")) {
+                    cliente.buscarPorIds(grupo.getKey(), grupo.getValue()).forEach(p -> encontrados.put(p.getId(), p));
+                }
+            }
+        }
+        // Mismo orden que los ids pedidos, como el repositorio local
+        Map<IdentificadorPedido, Pedido> ordenados = new LinkedHashMap<>();
+        for (IdentificadorPedido id : ids) {
+            Pedido pedido = encontrados.get(id);
+            if (pedido != null) {
+                ordenados.put(id, pedido);
+            }
+        }
+        return ordenados;
+    }
+
+    @Override
+    public List<Pedido> buscarTodos() {
+        try (Tramo tramo = Trazador.abrir("cluster.buscarTodos")) {
+            return recorrer(nodo -> cliente.buscarLocales(nodo, null), local::buscarTodos);
+        }
+    }
+
+    @Override
+    public List<ResumenPedido> buscarResumenes() {
+        try (Tramo tramo = Trazador.abrir("cluster.buscarResumenes")) {
+            return recorrer(cliente::buscarResumenesLocales, local::buscarResumenes);
+        }
+    }
+
+    @Override
+    public List<Pedido> buscarPorEstado(EstadoPedido estado) {
+        try (Tramo tramo = Trazador.abrir("cluster.buscarPorEstado")) {
+            return recorrer(nodo -> cliente.buscarLocales(nodo, estado), () -> local.buscarPorEstado(estado));
+        }
+    }
+
+    @Override
+    public void eliminarPorId(IdentificadorPedido id) {
+        Nodo propietario = miembros.propietario(id);
+        if (miembros.esLocal(propietario)) {
+            local.eliminarPorId(id);
+            return;
+        }
+        try (Tramo tramo = Trazador.abrir("cluster.eliminarPorId")) {
+            cliente.eliminar(propietario, id);
+        }
+    }
+
+    /**
+     * Traslada a su propietario actual los pedidos locales que ya no son de este nodo, en lotes de
+     * {@value #LOTE_TRASPASO}. Con el anillo consistente solo cambian de dueño los pedidos de los
+     * tramos del anillo que ganan o pierden los nodos que entran o salen.
+     * <p>
+     * Cada lote se quita del almacén local cuando el destino lo ha confirmado, de modo que un fallo a
+     * mitad deja los pedidos pendientes en este nodo y basta con repetir el rebalanceo. Quitarlos no es
+     * un borrado: los observadores reciben {@code pedidoTrasladado}, no {@code pedidoEliminado}. Una escritura
+     * local sobre un pedido que se está trasladando en ese mismo instante puede perderse; los cambios
+     * de miembros deben hacerse con poco tráfico.
+     *
+     * @return Número de pedidos trasladados.
+     */
+    public synchronized int rebalancear() {
+        Map<Nodo, List<Pedido>> ajenos = new LinkedHashMap<>();
+        for (Pedido pedido : local.buscarTodos()) {
+            Nodo propietario = miembros.propietario(pedido.getId());
+            if (!miembros.esLocal(propietario)) {
+                ajenos.computeIfAbsent(propietario, n -> new ArrayList<>()).add(pedido);
+            }
+        }
+        int trasladados = 0;
+        for (Map.Entry<Nodo, List<Pedido>> destino : ajenos.entrySet()) {
+            List<Pedido> pedidos = destino.getValue();
+            for (int desde = 0; desde < pedidos.size(); desde += LOTE_TRASPASO) {
+                List<Pedido> lote = pedidos.subList(desde, Math.min(desde + LOTE_TRASPASO, pedidos.size()));
+                cliente.guardar(destino.getKey(), lote);
+                lote.forEach(pedido -> local.quitarTrasladado(pedido.getId()));
+                trasladados += lote.size();
+                movidos.increment(lote.size());
+            }
+            logger.info("Trasladados {} pedidos al nodo {}", pedidos.size(), destino.getKey().id());
+        }
+        return trasladados;
+    }
+
+    private <T> Map<Nodo, List<T>> agrupar(Collection<T> elementos, Function<T, IdentificadorPedido> id) {
+        Map<Nodo, List<T>> grupos = new LinkedHashMap<>();
+        for (T elemento : elementos) {
+            grupos.computeIfAbsent(miembros.propietario(id.apply(elemento)), n -> new ArrayList<>()).add(elemento);
+        }
+        return grupos;
+    }
+
+    // Las llamadas remotas salen todas antes de recorrer el almacén local, que se solapa con ellas
+    private <T> List<T> recorrer(Function<Nodo, CompletableFuture<List<T>>> remoto, Supplier<List<T>> locales) {
+        List<CompletableFuture<List<T>>> pendientes = miembros.remotos().stream().map(remoto).toList();
+        List<T> resultado = new ArrayList<>(locales.get());
+        for (CompletableFuture<List<T>> pendiente : pendientes) {
+            resultado.addAll(ClienteCluster.esperar(pendiente));
+        }
+        return resultado;
+    }
+}
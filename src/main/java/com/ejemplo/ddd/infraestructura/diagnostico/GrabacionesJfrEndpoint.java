@@ -0,0 +1,195 @@
+package com.ejemplo.ddd.infraestructura.diagnostico;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Endpoint de Actuator ({@code /actuator/jfr}) para gestionar grabaciones de JDK Flight Recorder
+ * sin reiniciar la aplicación ni conectar agentes externos.
+ * <ul>
+ *   <li>{@code GET /actuator/jfr}: lista las grabaciones de la JVM.</li>
+ *   <li>{@code POST /actuator/jfr} con {@code {"nombre": "...", "duracionMaxima": "PT10M"}}: inicia una grabación.</li>
+ *   <li>{@code GET /actuator/jfr/{id}}: descarga una copia de lo grabado hasta ahora, sin detenerla. La copia
+ *       es un fichero temporal que se borra al terminar de enviarla.</li>
+ *   <li>{@code DELETE /actuator/jfr/{id}}: detiene la grabación y la vuelca al directorio configurado.</li>
+ * </ul>
+ * Las grabaciones incluyen los eventos de pedidos ({@code com.ejemplo.ddd.ComandoPedido} y
+ * {@code com.ejemplo.ddd.OperacionRepositorio}) con los umbrales configurados, junto a los de GC y
+ * contención de cerrojos de la configuración base.
+ * <p>
+ * No está expuesto por defecto: da acceso a la actividad de la JVM y escribe en disco, así que solo se
+ * publica con el perfil {@code diagnostico}.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class GrabacionesJfrEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrabacionesJfrEndpoint.class);
+
+    private static final String EVENTO_COMANDO = "com.ejemplo.ddd.ComandoPedido";
+    private static final String EVENTO_REPOSITORIO = "com.ejemplo.ddd.OperacionRepositorio";
+    private static final DateTimeFormatter FORMATO_FICHERO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final String configuracionBase;
+    private final Duration umbralComandos;
+    private final Duration umbralRepositorio;
+    private final Duration duracionMaximaPorDefecto;
+    private final Path directorio;
+
+    public GrabacionesJfrEndpoint(@Value("${pedidos.jfr.configuracion:profile}") String configuracionBase,
+                                  @Value("${pedidos.jfr.umbral-comandos:20ms}") Duration umbralComandos,
+                                  @Value("${pedidos.jfr.umbral-repositorio:5ms}") Duration umbralRepositorio,
+                                  @Value("${pedidos.jfr.duracion-maxima:PT30M}") Duration duracionMaximaPorDefecto,
+                                  @Value("${pedidos.jfr.directorio:${java.io.tmpdir}/pedidos-jfr}") Path directorio) {
+        this.configuracionBase = configuracionBase;
+        this.umbralComandos = umbralComandos;
+        this.umbralRepositorio = umbralRepositorio;
+        this.duracionMaximaPorDefecto = duracionMaximaPorDefecto;
+        this.directorio = directorio;
+    }
+
+    @ReadOperation
+    public List<GrabacionJfr> listar() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+            .map(GrabacionJfr::de)
+            .toList();
+    }
+
+    /**
+     * Inicia una grabación con la configuración base y los eventos de pedidos.
+     * @param duracionMaxima Antigüedad máxima de los datos retenidos; la grabación sigue activa
+     *                       hasta que se detenga, descartando lo más antiguo.
+     */
+    @WriteOperation
+    public GrabacionJfr iniciar(@Nullable String nombre, @Nullable Duration duracionMaxima) {
+        Configuration configuracion;
+        try {
+            configuracion = Configuration.getConfiguration(configuracionBase);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("No se pudo cargar la configuración JFR: " + configuracionBase, e);
+        }
+        Recording grabacion = new Recording(configuracion);
+        grabacion.setName(nombre != null ? nombre : "pedidos-" + FORMATO_FICHERO.format(LocalDateTime.now()));
+        grabacion.setMaxAge(duracionMaxima != null ? duracionMaxima : duracionMaximaPorDefecto);
+        grabacion.setToDisk(true);
+        grabacion.enable(EVENTO_COMANDO).withThreshold(umbralComandos);
+        grabacion.enable(EVENTO_REPOSITORIO).withThreshold(umbralRepositorio);
+        grabacion.start();
+        logger.info("Grabación JFR {} iniciada ({})", grabacion.getId(), grabacion.getName());
+        return GrabacionJfr.de(grabacion);
+    }
+
+    /**
+     * Descarga lo grabado hasta el momento. La grabación sigue en curso.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> volcar(@Selector long id) {
+        Optional<Recording> grabacion = buscar(id);
+        if (grabacion.isEmpty()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path fichero;
+        try {
+            fichero = Files.createTempFile("pedidos-jfr-", ".jfr");
+            grabacion.get().dump(fichero);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo volcar la grabación JFR " + id, e);
+        }
+        return new WebEndpointResponse<>(new VolcadoTemporal(fichero), WebEndpointResponse.STATUS_OK);
+    }
+
+    /**
+     * Detiene la grabación, la vuelca al directorio configurado y libera sus recursos.
+     */
+    @DeleteOperation
+    public GrabacionJfr detener(@Selector long id) {
+        Optional<Recording> encontrada = buscar(id);
+        if (encontrada.isEmpty()) {
+            return null;
+        }
+        Recording grabacion = encontrada.get();
+        grabacion.stop();
+        Path fichero = volcarAFichero(grabacion);
+        GrabacionJfr resultado = GrabacionJfr.de(grabacion).conDestino(fichero);
+        grabacion.close();
+        logger.info("Grabación JFR {} detenida y volcada en {}", id, fichero);
+        return resultado;
+    }
+
+    private static Optional<Recording> buscar(long id) {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+            .filter(r -> r.getId() == id)
+            .findFirst();
+    }
+
+    private Path volcarAFichero(Recording grabacion) {
+        try {
+            Files.createDirectories(directorio);
+            Path fichero = directorio.resolve("pedidos-" + grabacion.getId() + "-"
+                + FORMATO_FICHERO.format(LocalDateTime.now()) + ".jfr");
+            grabacion.dump(fichero);
+            return fichero;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo volcar la grabación JFR " + grabacion.getId(), e);
+        }
+    }
+
+    /**
+     * Fichero de un volcado que se borra al cerrar el flujo con el que se envía, tanto si el envío
+     * termina como si se corta.
+     */
+    static class VolcadoTemporal extends FileSystemResource {
+
+        VolcadoTemporal(Path fichero) {
+            super(fichero);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        }
+    }
+
+    public record GrabacionJfr(long id, String nombre, String estado, Instant inicio, Duration duracionMaxima,
+                               long tamanoBytes, String destino) {
+
+        static GrabacionJfr de(Recording grabacion) {
+            return new GrabacionJfr(grabacion.getId(), grabacion.getName(), grabacion.getState().name(),
+                grabacion.getStartTime(), grabacion.getMaxAge(), grabacion.getSize(),
+                grabacion.getDestination() != null ? grabacion.getDestination().toString() : null);
+        }
+
+        GrabacionJfr conDestino(Path fichero) {
+            return new GrabacionJfr(id, nombre, estado, inicio, duracionMaxima, tamanoBytes, fichero.toString());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.ejemplo.ddd.infraestructura.diagnostico;
+
+import com.ejemplo.ddd.aplicacion.traza.Traza;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Guarda en memoria las trazas más lentas de cada endpoint.
+ * <p>
+ * Por endpoint hay un anillo de {@code ventanas} ventanas de tiempo; cada ventana conserva sus N
+ * trazas más lentas en un array de tamaño fijo. Al consultar se combinan las ventanas vigentes,
+ * de modo que un pico antiguo deja de aparecer cuando el anillo da la vuelta. Una traza que no
+ * supera a la más rápida de una ventana llena se descarta sin tomar ningún cerrojo.
+ */
+@Component
+public class RegistroTrazasLentas {
+
+    private static final String ENDPOINT_OTROS = "otros";
+
+    private final int trazasPorVentana;
+    private final int numeroVentanas;
+    private final long duracionVentanaMillis;
+    private final int maximoEndpoints;
+    private final ConcurrentMap<String, PeoresTrazas> porEndpoint = new ConcurrentHashMap<>();
+
+    public RegistroTrazasLentas(@Value("${pedidos.trazas.por-endpoint:10}") int trazasPorVentana,
+                                @Value("${pedidos.trazas.ventanas:5}") int numeroVentanas,
+                                @Value("${pedidos.trazas.duracion-ventana:PT1M}") Duration duracionVentana,
+                                @Value("${pedidos.trazas.maximo-endpoints:100}") int maximoEndpoints) {
+        this.trazasPorVentana = trazasPorVentana;
+        this.numeroVentanas = numeroVentanas;
+        this.duracionVentanaMillis = duracionVentana.toMillis();
+        this.maximoEndpoints = maximoEndpoints;
+    }
+
+    public void registrar(Traza traza) {
+        String endpoint = traza.getNombre() != null ? traza.getNombre() : ENDPOINT_OTROS;
+        PeoresTrazas peores = porEndpoint.get(endpoint);
+        if (peores == null) {
+            if (porEndpoint.size() >= maximoEndpoints) {
+                endpoint = ENDPOINT_OTROS;
+            }
+            peores = porEndpoint.computeIfAbsent(endpoint, e -> new PeoresTrazas(numeroVentanas, trazasPorVentana));
+        }
+        peores.ofrecer(traza, traza.getInicioEpochMillis() / duracionVentanaMillis);
+    }
+
+    /**
+     * @return Por endpoint, sus trazas más lentas en las ventanas vigentes, de la más lenta a la más rápida.
+     */
+    public Map<String, List<Traza>> obtenerPeores() {
+        long ventanaActual = System.currentTimeMillis() / duracionVentanaMillis;
+        Map<String, List<Traza>> resultado = new TreeMap<>();
+        porEndpoint.forEach((endpoint, peores) -> {
+            List<Traza> trazas = peores.obtener(ventanaActual - numeroVentanas + 1, trazasPorVentana);
+            if (!trazas.isEmpty()) {
+                resultado.put(endpoint, trazas);
+            }
+        });
+        return resultado;
+    }
+
+    public void limpiar() {
+        porEndpoint.clear();
+    }
+
+    private static final class PeoresTrazas {
+        private final Ventana[] ventanas;
+
+        PeoresTrazas(int numeroVentanas, int trazasPorVentana) {
+            ventanas = new Ventana[numeroVentanas];
+            for (int i = 0; i < numeroVentanas; i++) {
+                ventanas[i] = new Ventana(trazasPorVentana);
+            }
+        }
+
+        void ofrecer(Traza traza, long numeroVentana) {
+            ventanas[(int) (numeroVentana % ventanas.length)].ofrecer(traza, numeroVentana);
+        }
+
+        List<Traza> obtener(long primeraVentanaVigente, int maximo) {
+            List<Traza> todas = new ArrayList<>();
+            for (Ventana ventana : ventanas) {
+                ventana.copiarSiVigente(primeraVentanaVigente, todas);
+            }
+            todas.sort(Comparator.comparingLong(Traza::getDuracionNanos).reversed());
+            return todas.size() > maximo ? List.copyOf(todas.subList(0, maximo)) : todas;
+        }
+    }
+
+    private static final class Ventana {
+        private final Traza[] trazas;
+        private int ocupadas;
+        // Se leen sin cerrojo para descartar rápido las trazas que no entran
+        private volatile long numero = -1;
+        private volatile long umbralNanos;
+
+        Ventana(int capacidad) {
+            trazas = new Traza[capacidad];
+        }
+
+        void ofrecer(Traza traza, long numeroVentana) {
+            long duracion = traza.getDuracionNanos();
+            if (duracion <= umbralNanos && numero == numeroVentana) {
+                return;
+            }
+            synchronized (this) {
+                if (numero != numeroVentana) {
+                    if (numeroVentana < numero) {
+                        return; // Traza de una ventana que ya rotó
+                    }
+                    // La ventana da la vuelta: se descarta lo de hace un ciclo
+                    Arrays.fill(trazas, null);
+                    ocupadas = 0;
+                    umbralNanos = 0;
+                    numero = numeroVentana;
+                }
+                if (ocupadas < trazas.length) {
+                    trazas[ocupadas++] = traza;
+                } else if (duracion > umbralNanos) {
+                    trazas[indiceMasRapida()] = traza;
+                } else {
+                    return;
+                }
+                if (ocupadas == trazas.length) {
+                    umbralNanos = trazas[indiceMasRapida()].getDuracionNanos();
+                }
+            }
+        }
+
+        synchronized void copiarSiVigente(long primeraVentanaVigente, List<Traza> destino) {
+            if (numero >= primeraVentanaVigente) {
+                for (int i = 0; i < ocupadas; i++) {
+                    destino.add(trazas[i]);
+                }
+            }
+        }
+
+        private int indiceMasRapida() {
+            int indice = 0;
+            for (int i = 1; i < trazas.length; i++) {
+                if (trazas[i].getDuracionNanos() < trazas[indice].getDuracionNanos()) {
+                    indice = i;
+                }
+            }
+            return indice;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ejemplo.ddd.infraestructura.diagnostico;
+
+import com.ejemplo.ddd.aplicacion.traza.Traza;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint de Actuator ({@code /actuator/trazas}) con las trazas más lentas de cada endpoint de la
+ * API y el desglose de tiempo por fase.
+ * <p>
+ * De cada tramo se da su duración total y su tiempo propio (sin contar los tramos anidados).
+ * {@code sinDesglosarMs} es el tiempo de la petición fuera de cualquier tramo: filtros, el
+ * despachador de Spring y la escritura de la respuesta en el socket.
+ */
+@Component
+@Endpoint(id = "trazas")
+public class TrazasLentasEndpoint {
+
+    private final RegistroTrazasLentas registro;
+
+    public TrazasLentasEndpoint(RegistroTrazasLentas registro) {
+        this.registro = registro;
+    }
+
+    @ReadOperation
+    public Map<String, List<TrazaDTO>> trazasLentas() {
+        Map<String, List<TrazaDTO>> resultado = new LinkedHashMap<>();
+        registro.obtenerPeores().forEach((endpoint, trazas) ->
+            resultado.put(endpoint, trazas.stream().map(TrazasLentasEndpoint::aDTO).toList()));
+        return resultado;
+    }
+
+    @DeleteOperation
+    public void limpiar() {
+        registro.limpiar();
+    }
+
+    static TrazaDTO aDTO(Traza traza) {
+        int numero = traza.getNumeroTramos();
+        List<TramoDTO> tramos = new ArrayList<>(numero);
+        long desglosado = 0;
+        for (int i = 0; i < numero; i++) {
+            int profundidad = traza.getProfundidadTramo(i);
+            long duracion = traza.getDuracionTramoNanos(i);
+            long hijos = 0;
+            for (int j = i + 1; j < numero && traza.getProfundidadTramo(j) > profundidad; j++) {
+                if (traza.getProfundidadTramo(j) == profundidad + 1) {
+                    hijos += traza.getDuracionTramoNanos(j);
+                }
+            }
+            if (profundidad == 0) {
+                desglosado += duracion;
+            }
+            tramos.add(new TramoDTO(traza.getNombreTramo(i), profundidad,
+                aMillis(traza.getInicioTramoNanos(i)), aMillis(duracion), aMillis(duracion - hijos)));
+        }
+        return new TrazaDTO(Instant.ofEpochMilli(traza.getInicioEpochMillis()), aMillis(traza.getDuracionNanos()),
+            aMillis(traza.getDuracionNanos() - desglosado), traza.getTramosDescartados(), tramos);
+    }
+
+    private static double aMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    public record TrazaDTO(Instant inicio, double duracionMs, double sinDesglosarMs, int tramosDescartados,
+                           List<TramoDTO> tramos) {}
+
+    public record TramoDTO(String nombre, int profundidad, double inicioMs, double duracionMs, double propioMs) {}
+}
@@ -0,0 +1,212 @@
+package com.ejemplo.ddd.infraestructura.eventos;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EventoPedido;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Búfer circular de eventos con un solo productor y varios lectores independientes.
+ * <p>
+ * Las casillas se reservan al crearlo y se reutilizan: publicar no reserva memoria, solo copia
+ * referencias y hace una escritura volátil por lote. Cada lector avanza a su ritmo con su propia
+ * posición; el productor no sobrescribe una casilla hasta que todos los lectores la han procesado,
+ * así que el lector más lento frena al productor (contrapresión) en lugar de perder eventos.
+ * <p>
+ * Las esperas se hacen con {@link LockSupport#park}: quien se va a dormir lo anuncia en un campo
+ * volátil y vuelve a comprobar antes de aparcar, y quien avanza despierta solo a quien lo ha anunciado.
+ * Las esperas tienen además un tope de tiempo, como red de seguridad.
+ */
+class AnilloEventos {
+
+    private static final long ESPERA_MAXIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final EventoPedido[] casillas;
+    private final int mascara;
+    private final List<Lector> lectores = new ArrayList<>();
+
+    // Posición del último evento publicado; -1 si aún no hay ninguno
+    private volatile long publicada = -1;
+    private volatile boolean cerrado;
+    private volatile Thread productorEsperando;
+
+    /**
+     * @param capacidad Número de casillas; se redondea a la siguiente potencia de dos.
+     */
+    AnilloEventos(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del anillo de eventos debe ser positiva");
+        }
+        int casillasReales = Integer.bitCount(capacidad) == 1 ? capacidad : Integer.highestOneBit(capacidad) << 1;
+        this.casillas = new EventoPedido[casillasReales];
+        this.mascara = casillasReales - 1;
+    }
+
+    int capacidad() {
+        return casillas.length;
+    }
+
+    /**
+     * Añade un lector que empieza en el siguiente evento que se publique. Los lectores se añaden
+     * antes de empezar a publicar.
+     */
+    Lector nuevoLector() {
+        Lector lector = new Lector(publicada);
+        lectores.add(lector);
+        return lector;
+    }
+
+    long publicada() {
+        return publicada;
+    }
+
+    /**
+     * Publica un lote de eventos, esperando si hace falta a que el lector más lento deje sitio.
+     * Solo la llama el hilo productor.
+     *
+     * @return {@code false} si el hilo se interrumpió antes de publicarlo todo; lo ya copiado a
+     * las casillas se publica igualmente.
+     */
+    boolean publicar(List<EventoPedido> eventos) {
+        long siguiente = publicada + 1;
+        int i = 0;
+        while (i < eventos.size()) {
+            // Se copia todo lo que cabe y se publica de una vez
+            long limite = minimoProcesado() + casillas.length;
+            if (siguiente > limite) {
+                publicada = siguiente - 1;
+                despertarLectores();
+                if (!esperarHueco(siguiente)) {
+                    return false;
+                }
+                continue;
+            }
+            for (; i < eventos.size() && siguiente <= limite; i++, siguiente++) {
+                casillas[(int) siguiente & mascara] = eventos.get(i);
+            }
+        }
+        publicada = siguiente - 1;
+        despertarLectores();
+        return true;
+    }
+
+    /**
+     * Marca el anillo como cerrado: los lectores terminan cuando han procesado lo publicado.
+     */
+    void cerrar() {
+        cerrado = true;
+        despertarLectores();
+    }
+
+    private boolean esperarHueco(long siguiente) {
+        Thread actual = Thread.currentThread();
+        productorEsperando = actual;
+        try {
+            while (siguiente > minimoProcesado() + casillas.length) {
+                if (actual.isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, ESPERA_MAXIMA_NANOS);
+            }
+            return true;
+        } finally {
+            productorEsperando = null;
+        }
+    }
+
+    private long minimoProcesado() {
+        long minimo = publicada;
+        for (int i = 0; i < lectores.size(); i++) {
+            minimo = Math.min(minimo, lectores.get(i).procesada);
+        }
+        return minimo;
+    }
+
+    private void despertarLectores() {
+        for (int i = 0; i < lectores.size(); i++) {
+            Thread hilo = lectores.get(i).esperando;
+            if (hilo != null) {
+                LockSupport.unpark(hilo);
+            }
+        }
+    }
+
+    /**
+     * Posición de lectura de un consumidor. Cada lector lo usa un solo hilo.
+     */
+    final class Lector {
+
+        // Posición del último evento procesado: las casillas hasta ella se pueden sobrescribir
+        private volatile long procesada;
+        private volatile Thread esperando;
+
+        private Lector(long inicial) {
+            this.procesada = inicial;
+        }
+
+        /**
+         * Copia a {@code destino} hasta {@code maximo} eventos publicados y aún no procesados, esperando
+         * hasta {@code esperaNanos} a que haya alguno. No avanza la posición: eso lo hace
+         * {@link #procesados(int)} cuando el lote se ha entregado.
+         *
+         * @return La posición del primer evento copiado, o -1 si el anillo está cerrado y no queda nada.
+         */
+        long leer(List<EventoPedido> destino, int maximo, long esperaNanos) {
+            long desde = procesada + 1;
+            long disponible = publicada;
+            if (disponible < desde) {
+                disponible = esperar(desde, esperaNanos);
+                if (disponible < desde) {
+                    return cerrado && publicada < desde ? -1 : desde;
+                }
+            }
+            long hasta = Math.min(disponible, desde + maximo - 1);
+            for (long p = desde; p <= hasta; p++) {
+                destino.add(casillas[(int) p & mascara]);
+            }
+            return desde;
+        }
+
+        /**
+         * Da por procesados los siguientes {@code numero} eventos y libera sus casillas.
+         */
+        void procesados(int numero) {
+            procesada = procesada + numero;
+            Thread productor = productorEsperando;
+            if (productor != null) {
+                LockSupport.unpark(productor);
+            }
+        }
+
+        long procesada() {
+            return procesada;
+        }
+
+        /**
+         * Eventos publicados que este lector aún no ha procesado.
+         */
+        long retraso() {
+            return publicada - procesada;
+        }
+
+        private long esperar(long desde, long esperaNanos) {
+            long limite = System.nanoTime() + esperaNanos;
+            esperando = Thread.currentThread();
+            try {
+                // Se vuelve a comprobar tras anunciarse, para no perder un aviso del productor
+                while (publicada < desde && !cerrado) {
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0 || Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, Math.min(restante, ESPERA_MAXIMA_NANOS));
+                }
+                return publicada;
+            } finally {
+                esperando = null;
+            }
+        }
+    }
+}
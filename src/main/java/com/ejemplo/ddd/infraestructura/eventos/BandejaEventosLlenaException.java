@@ -0,0 +1,12 @@
+package com.ejemplo.ddd.infraestructura.eventos;
+
+/**
+ * La bandeja de salida de eventos sigue llena tras la espera máxima: los suscriptores no dan abasto.
+ * Se lanza antes de guardar nada, así que la escritura que la recibe no ha tenido efecto.
+ */
+public class BandejaEventosLlenaException extends RuntimeException {
+
+    public BandejaEventosLlenaException(int capacidad) {
+        super("La bandeja de eventos de pedidos está llena (" + capacidad + " eventos pendientes de despachar)");
+    }
+}
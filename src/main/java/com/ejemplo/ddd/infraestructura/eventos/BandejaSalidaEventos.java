@@ -0,0 +1,139 @@
+package com.ejemplo.ddd.infraestructura.eventos;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EventoPedido;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bandeja de salida (outbox) de los eventos de dominio de los pedidos.
+ * <p>
+ * El repositorio anota aquí los eventos de cada pedido en la misma operación en la que lo guarda, de
+ * modo que un evento existe si y solo si su transición se ha persistido. Cada evento recibe un número
+ * de secuencia creciente; el {@link DespachadorEventosPedido} los saca por lotes para repartirlos.
+ * <p>
+ * Anotar solo toma un cerrojo muy breve. La capacidad es la contrapresión de los suscriptores: si la
+ * bandeja está llena, {@link #esperarHueco()} retiene la escritura antes de guardar nada, hasta que
+ * haya hueco o se agote {@code pedidos.eventos.espera-maxima}.
+ * <p>
+ * Vive en memoria, con la misma durabilidad que el almacén de pedidos.
+ */
+@Component
+@ConditionalOnProperty(prefix = "pedidos.eventos", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class BandejaSalidaEventos {
+
+    private final int capacidad;
+    private final long esperaMaximaNanos;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition hayEventos = cerrojo.newCondition();
+    private final Condition hayHueco = cerrojo.newCondition();
+    private final ArrayDeque<EventoPedido> pendientes;
+    // Secuencia del primer evento pendiente; protegida por el cerrojo
+    private long primeraPendiente;
+    // Se leen sin cerrojo para no tomarlo en el caso habitual
+    private volatile int numeroPendientes;
+
+    public BandejaSalidaEventos(MeterRegistry meterRegistry,
+                                @Value("${pedidos.eventos.capacidad-bandeja:65536}") int capacidad,
+                                @Value("${pedidos.eventos.espera-maxima:5s}") Duration esperaMaxima) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la bandeja de eventos debe ser positiva");
+        }
+        this.capacidad = capacidad;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.pendientes = new ArrayDeque<>(Math.min(capacidad, 4096));
+        // Como en el registro de cambios, la secuencia sigue creciendo tras un reinicio
+        this.primeraPendiente = System.currentTimeMillis() * 1000 + 1;
+        Gauge.builder("pedidos.eventos.bandeja", this, b -> b.numeroPendientes)
+            .description("Eventos de dominio anotados pendientes de despachar")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Espera, si la bandeja está llena, a que el despachador saque eventos. Se llama antes de guardar
+     * un pedido con eventos, para que la contrapresión no deje nunca un guardado sin sus eventos.
+     *
+     * @throws BandejaEventosLlenaException Si sigue llena tras la espera máxima.
+     */
+    public void esperarHueco() {
+        if (numeroPendientes < capacidad) {
+            return;
+        }
+        cerrojo.lock();
+        try {
+            long restante = esperaMaximaNanos;
+            while (pendientes.size() >= capacidad) {
+                if (restante <= 0) {
+                    throw new BandejaEventosLlenaException(capacidad);
+                }
+                restante = hayHueco.awaitNanos(restante);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BandejaEventosLlenaException(capacidad);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Anota los eventos de un guardado, en orden. No espera nunca: la capacidad se comprueba antes con
+     * {@link #esperarHueco()}, así que puede superarse en lo que anoten a la vez las escrituras en curso.
+     */
+    public void anotar(List<EventoPedido> eventos) {
+        if (eventos.isEmpty()) {
+            return;
+        }
+        cerrojo.lock();
+        try {
+            pendientes.addAll(eventos);
+            numeroPendientes = pendientes.size();
+            hayEventos.signal();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Saca hasta {@code maximo} eventos, esperando hasta {@code esperaNanos} a que haya alguno.
+     * Solo la llama el hilo del despachador.
+     *
+     * @return La secuencia del primer evento sacado; los demás son consecutivos. Si no había ninguno,
+     * la secuencia que tendrá el siguiente.
+     */
+    long sacar(List<EventoPedido> destino, int maximo, long esperaNanos) throws InterruptedException {
+        cerrojo.lock();
+        try {
+            long restante = esperaNanos;
+            while (pendientes.isEmpty() && restante > 0) {
+                restante = hayEventos.awaitNanos(restante);
+            }
+            long primera = primeraPendiente;
+            int sacados = Math.min(maximo, pendientes.size());
+            for (int i = 0; i < sacados; i++) {
+                destino.add(pendientes.pollFirst());
+            }
+            primeraPendiente += sacados;
+            numeroPendientes = pendientes.size();
+            if (sacados > 0) {
+                hayHueco.signalAll();
+            }
+            return primera;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    int pendientes() {
+        return numeroPendientes;
+    }
+}
@@ -0,0 +1,203 @@
+package com.ejemplo.ddd.infraestructura.eventos;
+
+import com.ejemplo.ddd.aplicacion.eventos.SuscriptorEventosPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.EventoPedido;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reparte los eventos de la {@link BandejaSalidaEventos} a los {@link SuscriptorEventosPedido}.
+ * <p>
+ * Un hilo de relevo saca los eventos de la bandeja por lotes y los publica en un {@link AnilloEventos};
+ * cada suscriptor tiene su propio hilo, que lee del anillo a su ritmo y recibe los eventos en lotes de
+ * como mucho {@code pedidos.eventos.tamano-lote}. Guardar un pedido solo paga anotar en la bandeja:
+ * ni el relevo ni las entregas corren en el hilo de la petición.
+ * <p>
+ * Si un suscriptor falla, su lote se reintenta con esperas crecientes hasta que lo acepta. Mientras, el
+ * resto sigue recibiendo eventos hasta que el anillo se llena; entonces el relevo se detiene, la
+ * bandeja se llena y los guardados con eventos esperan (ver {@link BandejaSalidaEventos#esperarHueco()}).
+ */
+@Component
+@ConditionalOnProperty(prefix = "pedidos.eventos", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class DespachadorEventosPedido {
+
+    private static final Logger logger = LoggerFactory.getLogger(DespachadorEventosPedido.class);
+
+    // Tope de cada espera de los hilos, para que vean a tiempo la orden de parar
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long PRIMER_REINTENTO_MILLIS = 100;
+    private static final long REINTENTO_MAXIMO_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final BandejaSalidaEventos bandeja;
+    private final AnilloEventos anillo;
+    private final int tamanoLote;
+    private final Duration esperaCierre;
+    private final Counter publicados;
+    private final DistributionSummary tamanoLotes;
+    private final Thread hiloRelevo;
+    private final List<Thread> hilosSuscriptores = new ArrayList<>();
+    private final List<AnilloEventos.Lector> lectores = new ArrayList<>();
+
+    // Secuencia del evento en la posición 0 del anillo; se fija con el primer lote
+    private volatile long desfase;
+    private volatile boolean activo = true;
+
+    @Autowired
+    public DespachadorEventosPedido(BandejaSalidaEventos bandeja, ObjectProvider<SuscriptorEventosPedido> suscriptores,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${pedidos.eventos.capacidad-anillo:8192}") int capacidadAnillo,
+                                    @Value("${pedidos.eventos.tamano-lote:256}") int tamanoLote,
+                                    @Value("${pedidos.eventos.espera-cierre:5s}") Duration esperaCierre) {
+        this(bandeja, suscriptores.orderedStream().toList(), meterRegistry, capacidadAnillo, tamanoLote, esperaCierre);
+    }
+
+    public DespachadorEventosPedido(BandejaSalidaEventos bandeja, List<SuscriptorEventosPedido> suscriptores,
+                                    MeterRegistry meterRegistry, int capacidadAnillo, int tamanoLote,
+                                    Duration esperaCierre) {
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote de eventos debe ser positivo");
+        }
+        this.bandeja = bandeja;
+        this.anillo = new AnilloEventos(capacidadAnillo);
+        this.tamanoLote = tamanoLote;
+        this.esperaCierre = esperaCierre;
+        this.publicados = Counter.builder("pedidos.eventos.publicados")
+            .description("Eventos de dominio publicados a los suscriptores")
+            .register(meterRegistry);
+        this.tamanoLotes = DistributionSummary.builder("pedidos.eventos.lote")
+            .description("Eventos por lote sacado de la bandeja de salida")
+            .register(meterRegistry);
+
+        for (SuscriptorEventosPedido suscriptor : suscriptores) {
+            AnilloEventos.Lector lector = anillo.nuevoLector();
+            lectores.add(lector);
+            Counter entregados = Counter.builder("pedidos.eventos.entregados")
+                .description("Eventos de dominio entregados al suscriptor")
+                .tag("suscriptor", suscriptor.nombre())
+                .register(meterRegistry);
+            Counter errores = Counter.builder("pedidos.eventos.errores")
+                .description("Entregas de lotes de eventos que fallaron y se reintentan")
+                .tag("suscriptor", suscriptor.nombre())
+                .register(meterRegistry);
+            Gauge.builder("pedidos.eventos.retraso", lector, AnilloEventos.Lector::retraso)
+                .description("Eventos publicados que el suscriptor aún no ha procesado")
+                .tag("suscriptor", suscriptor.nombre())
+                .register(meterRegistry);
+            Thread hilo = new Thread(() -> entregar(suscriptor, lector, entregados, errores),
+                "eventos-" + suscriptor.nombre());
+            hilo.setDaemon(true);
+            hilosSuscriptores.add(hilo);
+        }
+
+        this.hiloRelevo = new Thread(this::relevar, "relevo-eventos");
+        this.hiloRelevo.setDaemon(true);
+        hilosSuscriptores.forEach(Thread::start);
+        hiloRelevo.start();
+    }
+
+    /**
+     * Deja de despachar tras entregar, durante como mucho {@code pedidos.eventos.espera-cierre}, lo que
+     * quede en la bandeja y en el anillo.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        long limite = System.nanoTime() + esperaCierre.toNanos();
+        while (System.nanoTime() < limite && !alDia()) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        activo = false;
+        hiloRelevo.interrupt();
+        hiloRelevo.join(TimeUnit.NANOSECONDS.toMillis(ESPERA_NANOS) * 2);
+        anillo.cerrar();
+        for (Thread hilo : hilosSuscriptores) {
+            hilo.join(TimeUnit.NANOSECONDS.toMillis(ESPERA_NANOS) * 2);
+            // Un suscriptor que sigue fallando está en una pausa de reintento: se le despierta para que pare
+            hilo.interrupt();
+        }
+        if (!alDia()) {
+            logger.warn("Se detiene el despacho con {} eventos pendientes en la bandeja y {} en el anillo",
+                bandeja.pendientes(), lectores.stream().mapToLong(AnilloEventos.Lector::retraso).max().orElse(0));
+        }
+    }
+
+    /**
+     * Indica si todos los eventos anotados hasta ahora se han entregado a todos los suscriptores.
+     */
+    public boolean alDia() {
+        return bandeja.pendientes() == 0 && lectores.stream().allMatch(l -> l.retraso() == 0);
+    }
+
+    private void relevar() {
+        List<EventoPedido> lote = new ArrayList<>(tamanoLote);
+        try {
+            while (activo) {
+                lote.clear();
+                long primera = bandeja.sacar(lote, tamanoLote, ESPERA_NANOS);
+                if (lote.isEmpty()) {
+                    continue;
+                }
+                desfase = primera - (anillo.publicada() + 1);
+                tamanoLotes.record(lote.size());
+                if (!anillo.publicar(lote)) {
+                    return;
+                }
+                publicados.increment(lote.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void entregar(SuscriptorEventosPedido suscriptor, AnilloEventos.Lector lector,
+                          Counter entregados, Counter errores) {
+        List<EventoPedido> lote = new ArrayList<>(tamanoLote);
+        List<EventoPedido> vista = Collections.unmodifiableList(lote);
+        while (true) {
+            lote.clear();
+            long posicion = lector.leer(lote, tamanoLote, ESPERA_NANOS);
+            if (posicion < 0) {
+                return;
+            }
+            if (lote.isEmpty()) {
+                continue;
+            }
+            long primeraSecuencia = desfase + posicion;
+            long pausa = PRIMER_REINTENTO_MILLIS;
+            while (true) {
+                try {
+                    suscriptor.recibir(primeraSecuencia, vista);
+                    break;
+                } catch (Exception e) {
+                    errores.increment();
+                    logger.error("El suscriptor {} no aceptó {} eventos desde la secuencia {}; se reintenta en {} ms",
+                        suscriptor.nombre(), lote.size(), primeraSecuencia, pausa, e);
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(pausa);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                pausa = Math.min(pausa * 2, REINTENTO_MAXIMO_MILLIS);
+            }
+            lector.procesados(lote.size());
+            entregados.increment(lote.size());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ejemplo.ddd.infraestructura.eventos;
+
+import com.ejemplo.ddd.aplicacion.eventos.SuscriptorEventosPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.EventoPedido;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Sumidero por defecto de los eventos de dominio: los añade a un fichero de JSON por líneas
+ * ({@code eventos.jsonl}), uno por evento y con su secuencia, para que otro proceso los siga.
+ * <p>
+ * Cada lote se vuelca al sistema operativo antes de confirmarse. Otros destinos (un broker, un
+ * webhook) se enchufan igual, como otro bean {@link SuscriptorEventosPedido}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "pedidos.eventos.fichero", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class SumideroEventosFichero implements SuscriptorEventosPedido {
+
+    static final String NOMBRE_FICHERO = "eventos.jsonl";
+
+    private final Writer escritor;
+    private final JsonGenerator generador;
+
+    public SumideroEventosFichero(@Value("${pedidos.eventos.fichero.directorio:${LOG_PATH:logs}/eventos}") Path directorio)
+            throws IOException {
+        Files.createDirectories(directorio);
+        this.escritor = Files.newBufferedWriter(directorio.resolve(NOMBRE_FICHERO), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.generador = new JsonFactory().createGenerator(escritor);
+        // Las líneas las separa escribir(), no el generador
+        this.generador.setRootValueSeparator(null);
+    }
+
+    @Override
+    public String nombre() {
+        return "fichero";
+    }
+
+    @Override
+    public synchronized void recibir(long primeraSecuencia, List<EventoPedido> eventos) throws IOException {
+        long secuencia = primeraSecuencia;
+        for (EventoPedido evento : eventos) {
+            escribir(secuencia++, evento);
+        }
+        generador.flush();
+    }
+
+    private void escribir(long secuencia, EventoPedido evento) throws IOException {
+        generador.writeStartObject();
+        generador.writeNumberField("secuencia", secuencia);
+        generador.writeStringField("tipo", evento.getClass().getSimpleName());
+        generador.writeStringField("idPedido", evento.idPedido().valor().toString());
+        generador.writeStringField("idCliente", evento.idCliente());
+        generador.writeStringField("instante", evento.instante().toString());
+        switch (evento) {
+            case EventoPedido.PedidoConfirmado confirmado -> {
+                generador.writeStringField("total", confirmado.total().cantidad().toPlainString());
+                generador.writeStringField("moneda", confirmado.total().moneda().getCurrencyCode());
+                generador.writeNumberField("numeroLineas", confirmado.numeroLineas());
+            }
+            case EventoPedido.PedidoEnviado enviado -> {
+                generador.writeStringField("ciudad", enviado.direccionEnvio().ciudad());
+                generador.writeStringField("codigoPostal", enviado.direccionEnvio().codigoPostal());
+                generador.writeStringField("pais", enviado.direccionEnvio().pais());
+            }
+            case EventoPedido.PedidoEntregado entregado -> {
+            }
+            case EventoPedido.PedidoCancelado cancelado -> {
+                generador.writeStringField("estadoAnterior", cancelado.estadoAnterior().name());
+                generador.writeStringField("motivo", cancelado.motivo());
+            }
+        }
+        generador.writeEndObject();
+        generador.writeRaw('\n');
+    }
+
+    @PreDestroy
+    public synchronized void cerrar() throws IOException {
+        generador.close();
+        escritor.close();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ejemplo.ddd.infraestructura.inventario;
+
+import com.ejemplo.ddd.dominio.modelo.inventario.Existencias;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.repositorio.InventarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inventario en memoria del nodo. Las existencias iniciales salen de un CSV ({@code idProducto,existencias},
+ * con cabecera opcional y comentarios con {@code #}) que se lee una sola vez al arrancar: a partir de ahí
+ * los contadores vivos son la fuente de verdad. Si el fichero no existe no se controla ningún producto.
+ * <p>
+ * El CSV son las unidades en almacén, incluidas las apartadas para pedidos confirmados que aún no han
+ * salido: al restaurar una captura esas reservas se vuelven a apartar.
+ * <p>
+ * No se puede usar en modo cluster: cada nodo tendría su propia copia de todas las existencias y un
+ * producto se vendería tantas veces como nodos haya. Con {@code pedidos.cluster.habilitado=true} hay que
+ * desactivar el control de existencias ({@code pedidos.inventario.habilitado=false}) o el arranque falla.
+ */
+@Repository
+public class InventarioEnMemoria implements InventarioRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventarioEnMemoria.class);
+
+    private final Map<IdentificadorProducto, Existencias> existencias = new ConcurrentHashMap<>();
+
+    public InventarioEnMemoria() {
+    }
+
+    @Autowired
+    public InventarioEnMemoria(@Value("${pedidos.inventario.habilitado:true}") boolean habilitado,
+                               @Value("${pedidos.cluster.habilitado:false}") boolean cluster,
+                               @Value("${pedidos.inventario.fichero.ruta:inventario-productos.csv}") Path ruta) {
+        if (!habilitado) {
+            logger.info("Control de existencias desactivado");
+            return;
+        }
+        if (cluster) {
+            throw new IllegalStateException("El inventario en memoria no admite el modo cluster: "
+                + "desactive pedidos.inventario.habilitado o pedidos.cluster.habilitado");
+        }
+        if (!Files.exists(ruta)) {
+            logger.info("Sin fichero de inventario {}: no se controlan existencias", ruta);
+            return;
+        }
+        try {
+            leer(Files.readAllLines(ruta, StandardCharsets.UTF_8)).forEach(this::guardar);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el inventario " + ruta, e);
+        }
+        logger.info("Inventario cargado de {}: {} productos", ruta, existencias.size());
+    }
+
+    @Override
+    public Optional<Existencias> buscarPorProducto(IdentificadorProducto idProducto) {
+        return Optional.ofNullable(existencias.get(idProducto));
+    }
+
+    @Override
+    public void guardar(Existencias nuevas) {
+        existencias.put(nuevas.getIdProducto(), nuevas);
+    }
+
+    static List<Existencias> leer(List<String> lineas) {
+        return lineas.stream()
+            .map(String::strip)
+            .filter(linea -> !linea.isEmpty() && !linea.startsWith("#") && !linea.startsWith("idProducto"))
+            .map(linea -> {
+                String[] campos = linea.split(",", -1);
+                if (campos.length != 2) {
+                    throw new IllegalArgumentException("Línea de inventario no válida: " + linea);
+                }
+                return new Existencias(IdentificadorProducto.deString(campos[0].strip()), Long.parseLong(campos[1].strip()));
+            })
+            .toList();
+    }
+}
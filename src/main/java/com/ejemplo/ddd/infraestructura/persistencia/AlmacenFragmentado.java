@@ -0,0 +1,428 @@
+package com.ejemplo.ddd.infraestructura.persistencia;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Almacén en memoria de pedidos repartido en fragmentos por el hash de {@link IdentificadorPedido}.
+ * <p>
+ * Cada fragmento tiene su propio mapa, su índice por estado y su mantenimiento: las escrituras solo
+ * bloquean su fragmento y, cuando un fragmento se ha vaciado en gran parte, se compacta él solo
+ * (un {@link ConcurrentHashMap} no reduce nunca su tabla). Las lecturas no toman cerrojos.
+ * <p>
+ * Los recorridos completos se reparten por fragmentos en un {@link ForkJoinPool} propio, de modo que
+ * su rendimiento crece con el número de núcleos. Por debajo de {@code umbralParalelo} pedidos se
+ * recorren en el hilo que llama, porque repartir cuesta más que recorrer.
+ * <p>
+ * Guarda las copias del repositorio tal cual: no clona ni notifica, eso lo hace {@link PedidoRepositoryImpl}.
+ * Cada escritura recibe lo que el repositorio hace con ella ({@link AlEscribir}) y lo ejecuta antes de
+ * soltar el cerrojo del fragmento, de modo que dos escrituras del mismo pedido se ven fuera del almacén
+ * en el mismo orden en que se aplicaron.
+ * <p>
+ * {@link #capturar()} obtiene el contenido en un instante sin detener las escrituras: mientras dura,
+ * la primera escritura de cada pedido en su fragmento conserva antes el estado que sustituye (copia
+ * en escritura), así que la captura no ve nada escrito después de empezar.
+ */
+class AlmacenFragmentado {
+
+    private final Fragmento[] fragmentos;
+    private final int mascara;
+    private final int desplazamiento;
+    private final int umbralParalelo;
+    private final ForkJoinPool pool;
+    private final AtomicReference<Captura> captura = new AtomicReference<>();
+
+    /**
+     * @param numeroFragmentos Se redondea a la siguiente potencia de dos.
+     * @param paralelismo      Hilos del pool de recorridos; 0 para usar uno por núcleo.
+     */
+    AlmacenFragmentado(int numeroFragmentos, int paralelismo, int umbralParalelo) {
+        if (numeroFragmentos <= 0) {
+            throw new IllegalArgumentException("El número de fragmentos debe ser positivo");
+        }
+        int potencia = Integer.highestOneBit(numeroFragmentos - 1) << 1;
+        int numero = numeroFragmentos == 1 ? 1 : potencia;
+        this.fragmentos = new Fragmento[numero];
+        for (int i = 0; i < numero; i++) {
+            fragmentos[i] = new Fragmento(captura);
+        }
+        this.mascara = numero - 1;
+        this.desplazamiento = 32 - Integer.numberOfTrailingZeros(numero);
+        this.umbralParalelo = umbralParalelo;
+        int hilos = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(hilos, forkJoinPool -> {
+            var hilo = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            hilo.setName("almacen-pedidos-" + hilo.getPoolIndex());
+            hilo.setDaemon(true);
+            return hilo;
+        }, null, false);
+    }
+
+    /**
+     * Lo que se hace con una escritura que ha tenido efecto, todavía bajo el cerrojo de su fragmento.
+     * Debe ser rápido y no escribir en el almacén.
+     */
+    @FunctionalInterface
+    interface AlEscribir {
+
+        /**
+         * @param anterior La copia sustituida o quitada, o {@code null} si el pedido no existía.
+         * @param nuevo    La copia puesta, o {@code null} si se ha quitado.
+         */
+        void escrito(Pedido anterior, Pedido nuevo);
+    }
+
+    Pedido obtener(IdentificadorPedido id) {
+        return fragmento(id).pedidos.get(id);
+    }
+
+    /**
+     * @return El pedido al que sustituye, o {@code null} si no existía.
+     */
+    Pedido poner(Pedido pedido, AlEscribir alEscribir) {
+        return fragmento(pedido.getId()).poner(pedido, alEscribir);
+    }
+
+    /**
+     * @return El pedido eliminado, o {@code null} si no existía (y entonces no se llama a {@code alEscribir}).
+     */
+    Pedido quitar(IdentificadorPedido id, AlEscribir alEscribir) {
+        return fragmento(id).quitar(id, alEscribir);
+    }
+
+    /**
+     * Pone el pedido solo si no hay ninguno con su id.
+     * @return Si se ha puesto.
+     */
+    boolean ponerSiAusente(Pedido pedido, AlEscribir alEscribir) {
+        return fragmento(pedido.getId()).ponerSiAusente(pedido, alEscribir);
+    }
+
+    /**
+     * Pone el pedido solo si la copia almacenada está en {@code estadoEsperado}.
+     * @return La copia sustituida, o {@code null} si no se ha puesto.
+     */
+    Pedido ponerSiEstado(Pedido pedido, EstadoPedido estadoEsperado, AlEscribir alEscribir) {
+        return fragmento(pedido.getId()).ponerSiEstado(pedido, estadoEsperado, alEscribir);
+    }
+
+    /**
+     * Quita el pedido solo si la copia almacenada sigue siendo {@code esperado}.
+     * @return Si se ha quitado.
+     */
+    boolean quitarSi(Pedido esperado, AlEscribir alEscribir) {
+        return fragmento(esperado.getId()).quitarSi(esperado, alEscribir);
+    }
+
+    int tamano() {
+        int total = 0;
+        for (Fragmento fragmento : fragmentos) {
+            total += fragmento.pedidos.size();
+        }
+        return total;
+    }
+
+    int numeroFragmentos() {
+        return fragmentos.length;
+    }
+
+    /**
+     * Aplica la función a todos los pedidos, repartiendo el trabajo por fragmentos.
+     * El orden del resultado no está definido.
+     */
+    <T> List<T> mapear(Function<Pedido, T> funcion) {
+        return concatenar(porFragmento(fragmento -> fragmento.mapear(funcion)));
+    }
+
+    /**
+     * Entrega todos los pedidos al consumidor desde el hilo que llama, fragmento a fragmento.
+     */
+    void recorrer(Consumer<Pedido> consumidor) {
+        for (Fragmento fragmento : fragmentos) {
+            fragmento.pedidos.values().forEach(consumidor);
+        }
+    }
+
+    /**
+     * Como {@link #mapear(Function)}, pero solo con los pedidos en el estado indicado, que se buscan en el índice.
+     */
+    <T> List<T> mapearPorEstado(EstadoPedido estado, Function<Pedido, T> funcion) {
+        return concatenar(porFragmento(fragmento -> fragmento.mapearPorEstado(estado, funcion)));
+    }
+
+    /**
+     * Ejecuta la tarea en cada fragmento, en paralelo si el almacén supera el umbral.
+     * @return El resultado de cada fragmento, en orden de fragmento.
+     */
+    <R> List<R> porFragmento(Function<Fragmento, R> tarea) {
+        List<R> resultados = new ArrayList<>(fragmentos.length);
+        if (fragmentos.length == 1 || tamano() < umbralParalelo) {
+            for (Fragmento fragmento : fragmentos) {
+                resultados.add(tarea.apply(fragmento));
+            }
+            return resultados;
+        }
+        List<ForkJoinTask<R>> tareas = new ArrayList<>(fragmentos.length);
+        for (Fragmento fragmento : fragmentos) {
+            tareas.add(pool.submit(() -> tarea.apply(fragmento)));
+        }
+        for (ForkJoinTask<R> pendiente : tareas) {
+            resultados.add(pendiente.join());
+        }
+        return resultados;
+    }
+
+    /**
+     * Los pedidos tal como estaban al empezar la captura, sin detener las escrituras ni bloquear más que
+     * un instante cada fragmento. Se recorren los fragmentos en paralelo; el coste para las escrituras
+     * concurrentes es conservar el estado anterior de cada pedido la primera vez que cambia.
+     * <p>
+     * Un pedido que cambia mientras se recorre su fragmento puede aparecer dos veces, las dos con el
+     * mismo estado; quien carga la captura debe quedarse con uno.
+     *
+     * @return Los pedidos de cada fragmento y, al final, los que cambiaron durante la captura.
+     * @throws IllegalStateException Si ya hay otra captura en curso.
+     */
+    List<List<Pedido>> capturar() {
+        Captura nueva = new Captura();
+        if (!captura.compareAndSet(null, nueva)) {
+            throw new IllegalStateException("Ya hay una captura del almacén en curso");
+        }
+        try {
+            List<List<Pedido>> partes = new ArrayList<>(porFragmento(fragmento -> fragmento.capturar(nueva)));
+            partes.add(nueva.anteriores());
+            return partes;
+        } finally {
+            captura.set(null);
+        }
+    }
+
+    void cerrar() {
+        pool.shutdownNow();
+    }
+
+    private Fragmento fragmento(IdentificadorPedido id) {
+        // Bits altos de un hash multiplicativo: los bajos son los que usa el ConcurrentHashMap de cada
+        // fragmento, y si fueran iguales en todo el fragmento solo ocuparía una parte de su tabla
+        int mezcla = id.hashCode() * 0x9E3779B9;
+        return fragmentos[(mezcla >>> desplazamiento) & mascara];
+    }
+
+    private static <T> List<T> concatenar(List<List<T>> partes) {
+        int total = 0;
+        for (List<T> parte : partes) {
+            total += parte.size();
+        }
+        List<T> resultado = new ArrayList<>(total);
+        for (List<T> parte : partes) {
+            resultado.addAll(parte);
+        }
+        return resultado;
+    }
+
+    /**
+     * Estado de los pedidos que han cambiado desde que empezó una captura, tal como estaban al empezar.
+     * Solo se anota el primer cambio de cada pedido; un pedido creado después se anota como ausente.
+     */
+    static final class Captura {
+
+        private static final Optional<Pedido> AUSENTE = Optional.empty();
+
+        private final Map<IdentificadorPedido, Optional<Pedido>> anteriores = new ConcurrentHashMap<>();
+
+        void conservar(IdentificadorPedido id, Pedido anterior) {
+            anteriores.putIfAbsent(id, anterior != null ? Optional.of(anterior) : AUSENTE);
+        }
+
+        boolean haCambiado(IdentificadorPedido id) {
+            return anteriores.containsKey(id);
+        }
+
+        List<Pedido> anteriores() {
+            List<Pedido> resultado = new ArrayList<>(anteriores.size());
+            for (Optional<Pedido> anterior : anteriores.values()) {
+                anterior.ifPresent(resultado::add);
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Un fragmento del almacén. Las escrituras se serializan en el propio fragmento para que el mapa, el
+     * índice y lo que el repositorio hace con cada escritura vayan juntos; las lecturas del índice
+     * comprueban el estado del pedido, por si leen entre ambas actualizaciones.
+     */
+    static final class Fragmento {
+
+        // Tamaño mínimo para compactar y proporción del pico por debajo de la cual se compacta
+        private static final int MINIMO_COMPACTAR = 1024;
+        private static final int DIVISOR_COMPACTAR = 4;
+
+        private final AtomicReference<Captura> captura;
+        private volatile Map<IdentificadorPedido, Pedido> pedidos = new ConcurrentHashMap<>();
+        private volatile Map<EstadoPedido, Set<IdentificadorPedido>> porEstado = nuevoIndice(16);
+        private int pico;
+        private int compactaciones;
+
+        Fragmento(AtomicReference<Captura> captura) {
+            this.captura = captura;
+        }
+
+        synchronized Pedido poner(Pedido pedido, AlEscribir alEscribir) {
+            Pedido anterior = escribir(pedido);
+            alEscribir.escrito(anterior, pedido);
+            return anterior;
+        }
+
+        synchronized boolean ponerSiAusente(Pedido pedido, AlEscribir alEscribir) {
+            if (pedidos.containsKey(pedido.getId())) {
+                return false;
+            }
+            poner(pedido, alEscribir);
+            return true;
+        }
+
+        synchronized Pedido ponerSiEstado(Pedido pedido, EstadoPedido estadoEsperado, AlEscribir alEscribir) {
+            Pedido actual = pedidos.get(pedido.getId());
+            if (actual == null || actual.getEstado() != estadoEsperado) {
+                return null;
+            }
+            return poner(pedido, alEscribir);
+        }
+
+        synchronized Pedido quitar(IdentificadorPedido id, AlEscribir alEscribir) {
+            Pedido removido = borrar(id);
+            if (removido != null) {
+                alEscribir.escrito(removido, null);
+            }
+            return removido;
+        }
+
+        synchronized boolean quitarSi(Pedido esperado, AlEscribir alEscribir) {
+            if (pedidos.get(esperado.getId()) != esperado) {
+                return false;
+            }
+            quitar(esperado.getId(), alEscribir);
+            return true;
+        }
+
+        // Solo con el cerrojo del fragmento
+        private Pedido escribir(Pedido pedido) {
+            conservarSiCaptura(pedido.getId());
+            Pedido anterior = pedidos.put(pedido.getId(), pedido);
+            if (anterior != null && anterior.getEstado() != pedido.getEstado()) {
+                porEstado.get(anterior.getEstado()).remove(pedido.getId());
+            }
+            porEstado.get(pedido.getEstado()).add(pedido.getId());
+            pico = Math.max(pico, pedidos.size());
+            return anterior;
+        }
+
+        // Solo con el cerrojo del fragmento
+        private Pedido borrar(IdentificadorPedido id) {
+            conservarSiCaptura(id);
+            Pedido removido = pedidos.remove(id);
+            if (removido != null) {
+                porEstado.get(removido.getEstado()).remove(id);
+                compactarSiProcede();
+            }
+            return removido;
+        }
+
+        <T> List<T> mapear(Function<Pedido, T> funcion) {
+            Map<IdentificadorPedido, Pedido> actuales = pedidos;
+            List<T> resultado = new ArrayList<>(actuales.size());
+            for (Pedido pedido : actuales.values()) {
+                resultado.add(funcion.apply(pedido));
+            }
+            return resultado;
+        }
+
+        <T> List<T> mapearPorEstado(EstadoPedido estado, Function<Pedido, T> funcion) {
+            Map<IdentificadorPedido, Pedido> actuales = pedidos;
+            Set<IdentificadorPedido> ids = porEstado.get(estado);
+            List<T> resultado = new ArrayList<>(ids.size());
+            for (IdentificadorPedido id : ids) {
+                Pedido pedido = actuales.get(id);
+                if (pedido != null && pedido.getEstado() == estado) {
+                    resultado.add(funcion.apply(pedido));
+                }
+            }
+            return resultado;
+        }
+
+        int tamano() {
+            return pedidos.size();
+        }
+
+        List<Pedido> capturar(Captura enCurso) {
+            esperarEscrituras();
+            // Se lee el pedido antes de consultar la captura: si es posterior a ella, su estado anterior
+            // ya está conservado, porque la escritura conserva antes de publicar
+            Map<IdentificadorPedido, Pedido> actuales = pedidos;
+            List<Pedido> resultado = new ArrayList<>(actuales.size());
+            for (Map.Entry<IdentificadorPedido, Pedido> entrada : actuales.entrySet()) {
+                Pedido pedido = entrada.getValue();
+                if (!enCurso.haCambiado(entrada.getKey())) {
+                    resultado.add(pedido);
+                }
+            }
+            return resultado;
+        }
+
+        // Las escrituras que empezaron sin ver la captura terminan antes de que se pueda tomar el cerrojo
+        private synchronized void esperarEscrituras() {
+        }
+
+        private void conservarSiCaptura(IdentificadorPedido id) {
+            Captura enCurso = captura.get();
+            if (enCurso != null) {
+                enCurso.conservar(id, pedidos.get(id));
+            }
+        }
+
+        synchronized int compactaciones() {
+            return compactaciones;
+        }
+
+        // Las lecturas siguen usando el mapa anterior hasta que se publica el nuevo, que es idéntico
+        private void compactarSiProcede() {
+            int tamano = pedidos.size();
+            if (pico < MINIMO_COMPACTAR || tamano > pico / DIVISOR_COMPACTAR) {
+                return;
+            }
+            Map<IdentificadorPedido, Pedido> compactado = new ConcurrentHashMap<>(Math.max(16, tamano * 2));
+            compactado.putAll(pedidos);
+            Map<EstadoPedido, Set<IdentificadorPedido>> indice = nuevoIndice(Math.max(16, tamano / 2));
+            for (Pedido pedido : compactado.values()) {
+                indice.get(pedido.getEstado()).add(pedido.getId());
+            }
+            pedidos = compactado;
+            porEstado = indice;
+            pico = tamano;
+            compactaciones++;
+        }
+
+        private static Map<EstadoPedido, Set<IdentificadorPedido>> nuevoIndice(int capacidad) {
+            Map<EstadoPedido, Set<IdentificadorPedido>> indice = new EnumMap<>(EstadoPedido.class);
+            for (EstadoPedido estado : EstadoPedido.values()) {
+                indice.put(estado, ConcurrentHashMap.newKeySet(capacidad));
+            }
+            return indice;
+        }
+    }
+}
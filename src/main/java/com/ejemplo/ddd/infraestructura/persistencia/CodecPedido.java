@@ -0,0 +1,222 @@
+package com.ejemplo.ddd.infraestructura.persistencia;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.LineaPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Codificación binaria de pedidos, compartida por el protocolo interno del cluster (traspaso de
+ * pedidos entre nodos y recorridos repartidos) y los segmentos del archivo de pedidos terminados.
+ * <p>
+ * Cada mensaje empieza por {@value #VERSION} y el número de elementos. Los ids van como dos
+ * {@code long}, los importes como escala y valor sin escala, las fechas como segundos y nanosegundos
+ * en UTC, y la moneda de las líneas no se repite porque es la del pedido. Un pedido típico ocupa
+ * del orden de un tercio que en JSON y se decodifica sin reflexión.
+ */
+public final class CodecPedido {
+
+    static final byte VERSION = 1;
+
+    private static final EstadoPedido[] ESTADOS = EstadoPedido.values();
+
+    private CodecPedido() {
+    }
+
+    public static byte[] codificarPedidos(Collection<Pedido> pedidos) {
+        return codificar(salida -> {
+            salida.writeInt(pedidos.size());
+            for (Pedido pedido : pedidos) {
+                escribirPedido(salida, pedido);
+            }
+        });
+    }
+
+    public static List<Pedido> decodificarPedidos(byte[] datos) {
+        return decodificar(datos, entrada -> {
+            int numero = entrada.readInt();
+            List<Pedido> pedidos = new ArrayList<>(numero);
+            for (int i = 0; i < numero; i++) {
+                pedidos.add(leerPedido(entrada));
+            }
+            return pedidos;
+        });
+    }
+
+    public static byte[] codificarResumenes(Collection<ResumenPedido> resumenes) {
+        return codificar(salida -> {
+            salida.writeInt(resumenes.size());
+            for (ResumenPedido resumen : resumenes) {
+                escribirUuid(salida, resumen.id().valor());
+                salida.writeUTF(resumen.idCliente());
+                salida.writeByte(resumen.estado().ordinal());
+                salida.writeUTF(resumen.totalPedido().moneda().getCurrencyCode());
+                escribirImporte(salida, resumen.totalPedido().cantidad());
+                salida.writeInt(resumen.numeroLineas());
+                escribirFecha(salida, resumen.fechaCreacion());
+                escribirFecha(salida, resumen.fechaUltimaModificacion());
+            }
+        });
+    }
+
+    public static List<ResumenPedido> decodificarResumenes(byte[] datos) {
+        return decodificar(datos, entrada -> {
+            int numero = entrada.readInt();
+            List<ResumenPedido> resumenes = new ArrayList<>(numero);
+            for (int i = 0; i < numero; i++) {
+                IdentificadorPedido id = new IdentificadorPedido(leerUuid(entrada));
+                String idCliente = entrada.readUTF();
+                EstadoPedido estado = ESTADOS[entrada.readUnsignedByte()];
+                Currency moneda = Currency.getInstance(entrada.readUTF());
+                Dinero total = new Dinero(leerImporte(entrada), moneda);
+                resumenes.add(new ResumenPedido(id, idCliente, estado, total, entrada.readInt(),
+                    leerFecha(entrada), leerFecha(entrada)));
+            }
+            return resumenes;
+        });
+    }
+
+    public static byte[] codificarIds(Collection<IdentificadorPedido> ids) {
+        return codificar(salida -> {
+            salida.writeInt(ids.size());
+            for (IdentificadorPedido id : ids) {
+                escribirUuid(salida, id.valor());
+            }
+        });
+    }
+
+    public static List<IdentificadorPedido> decodificarIds(byte[] datos) {
+        return decodificar(datos, entrada -> {
+            int numero = entrada.readInt();
+            List<IdentificadorPedido> ids = new ArrayList<>(numero);
+            for (int i = 0; i < numero; i++) {
+                ids.add(new IdentificadorPedido(leerUuid(entrada)));
+            }
+            return ids;
+        });
+    }
+
+    private static void escribirPedido(DataOutputStream salida, Pedido pedido) throws IOException {
+        escribirUuid(salida, pedido.getId().valor());
+        salida.writeUTF(pedido.getIdCliente());
+        Direccion direccion = pedido.getDireccionEnvio();
+        salida.writeUTF(direccion.calle());
+        salida.writeUTF(direccion.ciudad());
+        salida.writeUTF(direccion.codigoPostal());
+        salida.writeUTF(direccion.pais());
+        salida.writeByte(pedido.getEstado().ordinal());
+        salida.writeUTF(pedido.getTotalPedido().moneda().getCurrencyCode());
+        escribirImporte(salida, pedido.getTotalPedido().cantidad());
+        escribirFecha(salida, pedido.getFechaCreacion());
+        escribirFecha(salida, pedido.getFechaUltimaModificacion());
+        List<LineaPedido> lineas = pedido.getLineasPedido();
+        salida.writeShort(lineas.size());
+        for (LineaPedido linea : lineas) {
+            escribirUuid(salida, linea.getIdProducto().valor());
+            salida.writeInt(linea.getCantidad());
+            escribirImporte(salida, linea.getPrecioUnitario().cantidad());
+        }
+    }
+
+    private static Pedido leerPedido(DataInputStream entrada) throws IOException {
+        IdentificadorPedido id = new IdentificadorPedido(leerUuid(entrada));
+        String idCliente = entrada.readUTF();
+        Direccion direccion = new Direccion(entrada.readUTF(), entrada.readUTF(), entrada.readUTF(), entrada.readUTF());
+        EstadoPedido estado = ESTADOS[entrada.readUnsignedByte()];
+        Currency moneda = Currency.getInstance(entrada.readUTF());
+        Dinero total = new Dinero(leerImporte(entrada), moneda);
+        LocalDateTime fechaCreacion = leerFecha(entrada);
+        LocalDateTime fechaUltimaModificacion = leerFecha(entrada);
+        int numeroLineas = entrada.readUnsignedShort();
+        List<LineaPedido> lineas = new ArrayList<>(numeroLineas);
+        for (int i = 0; i < numeroLineas; i++) {
+            IdentificadorProducto producto = new IdentificadorProducto(leerUuid(entrada));
+            int cantidad = entrada.readInt();
+            lineas.add(new LineaPedido(producto, cantidad, new Dinero(leerImporte(entrada), moneda)));
+        }
+        return new Pedido(id, idCliente, direccion, lineas, total, estado, fechaCreacion, fechaUltimaModificacion);
+    }
+
+    private static void escribirUuid(DataOutputStream salida, UUID uuid) throws IOException {
+        salida.writeLong(uuid.getMostSignificantBits());
+        salida.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID leerUuid(DataInputStream entrada) throws IOException {
+        return new UUID(entrada.readLong(), entrada.readLong());
+    }
+
+    private static void escribirImporte(DataOutputStream salida, BigDecimal importe) throws IOException {
+        byte[] sinEscala = importe.unscaledValue().toByteArray();
+        salida.writeByte(importe.scale());
+        salida.writeByte(sinEscala.length);
+        salida.write(sinEscala);
+    }
+
+    private static BigDecimal leerImporte(DataInputStream entrada) throws IOException {
+        int escala = entrada.readByte();
+        byte[] sinEscala = new byte[entrada.readUnsignedByte()];
+        entrada.readFully(sinEscala);
+        return new BigDecimal(new BigInteger(sinEscala), escala);
+    }
+
+    private static void escribirFecha(DataOutputStream salida, LocalDateTime fecha) throws IOException {
+        salida.writeLong(fecha.toEpochSecond(ZoneOffset.UTC));
+        salida.writeInt(fecha.getNano());
+    }
+
+    private static LocalDateTime leerFecha(DataInputStream entrada) throws IOException {
+        return LocalDateTime.ofEpochSecond(entrada.readLong(), entrada.readInt(), ZoneOffset.UTC);
+    }
+
+    private interface Escritura {
+        void escribir(DataOutputStream salida) throws IOException;
+    }
+
+    private interface Lectura<T> {
+        T leer(DataInputStream entrada) throws IOException;
+    }
+
+    private static byte[] codificar(Escritura escritura) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream salida = new DataOutputStream(bytes)) {
+            salida.writeByte(VERSION);
+            escritura.escribir(salida);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static <T> T decodificar(byte[] datos, Lectura<T> lectura) {
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(datos))) {
+            byte version = entrada.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Versión del protocolo interno no soportada: " + version);
+            }
+            return lectura.leer(entrada);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Mensaje del protocolo interno mal formado", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ejemplo.ddd.infraestructura.persistencia;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.Collection;
+
+/**
+ * Evento de JDK Flight Recorder emitido por las operaciones de {@link PedidoRepositoryImpl}.
+ * <p>
+ * Solo se graba si la operación supera el umbral (5 ms por defecto). Sirve para cruzar en la
+ * grabación las pausas de GC o la contención de cerrojos con el pedido que las sufrió.
+ */
+@Name("com.ejemplo.ddd.OperacionRepositorio")
+@Label("Operación de repositorio de pedidos")
+@Description("Operación del repositorio de pedidos que ha superado el umbral de duración")
+@Category({"Pedidos", "Persistencia"})
+@Threshold("5 ms")
+@StackTrace(false)
+class EventoOperacionRepositorio extends Event {
+
+    @Label("Operación")
+    String operacion;
+
+    @Label("Id de pedido")
+    String idPedido;
+
+    @Label("Pedidos")
+    int pedidos;
+
+    @Label("Líneas")
+    int lineas;
+
+    static EventoOperacionRepositorio iniciar(String operacion) {
+        EventoOperacionRepositorio evento = new EventoOperacionRepositorio();
+        evento.operacion = operacion;
+        evento.begin();
+        return evento;
+    }
+
+    /**
+     * Cierra el evento y lo graba si procede.
+     * @param id Pedido afectado, o {@code null} en operaciones sobre varios pedidos.
+     */
+    void finalizar(IdentificadorPedido id, int pedidos, int lineas) {
+        end();
+        if (shouldCommit()) {
+            this.idPedido = id != null ? id.valor().toString() : null;
+            this.pedidos = pedidos;
+            this.lineas = lineas;
+            commit();
+        }
+    }
+
+    /**
+     * Como {@link #finalizar}, para operaciones sobre varios pedidos. Las líneas solo se suman
+     * si el evento va a grabarse.
+     */
+    void finalizarLote(Collection<Pedido> lote) {
+        end();
+        if (shouldCommit()) {
+            this.pedidos = lote.size();
+            for (Pedido pedido : lote) {
+                this.lineas += pedido.getLineasPedido().size();
+            }
+            commit();
+        }
+    }
+}
@@ -1,25 +1,162 @@
 package com.ejemplo.ddd.infraestructura.persistencia;
 
+import com.ejemplo.ddd.aplicacion.traza.Tramo;
+import com.ejemplo.ddd.aplicacion.traza.Trazador;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.EventoPedido;
 import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
 import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.dominio.repositorio.GuardadoParcialException;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
 import com.ejemplo.ddd.dominio.repositorio.PedidoRepository;
+import com.ejemplo.ddd.infraestructura.eventos.BandejaSalidaEventos;
+import com.ejemplo.ddd.infraestructura.persistencia.archivo.ArchivoPedidos;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Implementación en memoria del Repositorio de Pedidos para fines de demostración.
  * En una aplicación real, esto usaría JPA, JDBC, u otra tecnología de persistencia.
+ * <p>
+ * Los pedidos se reparten por id en los fragmentos de un {@link AlmacenFragmentado}; los recorridos
+ * completos ({@link #buscarTodos()}, {@link #buscarResumenes()}, {@link #buscarPorEstado(EstadoPedido)})
+ * se hacen en paralelo por fragmentos.
+ * <p>
+ * Si hay {@link ArchivoPedidos}, los pedidos terminados antiguos se pueden sacar del almacén con
+ * {@link #archivarTerminados(LocalDateTime, int)}: dejan de aparecer en los recorridos, pero
+ * {@link #buscarPorId(IdentificadorPedido)} y {@link #buscarPorIds(Collection)} los siguen
+ * encontrando en el archivo, por una vía más lenta.
+ * <p>
+ * Los observadores se notifican bajo el cerrojo del fragmento que hace la escritura, así que ven las
+ * escrituras de un mismo pedido en el orden en que se aplicaron al almacén, sea cual sea la operación.
+ * <p>
+ * Si hay {@link BandejaSalidaEventos}, cada guardado anota en ella los eventos de dominio pendientes del
+ * pedido justo después de ponerlo en el almacén y antes de notificar a los observadores, bajo el mismo
+ * cerrojo: los eventos de un pedido quedan en la bandeja en el orden de sus transiciones aunque las
+ * escriban a la vez un guardado agrupado y uno condicional.
  */
 @Repository
 public class PedidoRepositoryImpl implements PedidoRepository {
 
-    private final Map<IdentificadorPedido, Pedido> almacenDePedidos = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(PedidoRepositoryImpl.class);
+
+    private static final List<EstadoPedido> ESTADOS_TERMINADOS = List.of(EstadoPedido.ENTREGADO, EstadoPedido.CANCELADO);
+
+    private final AlmacenFragmentado almacenDePedidos;
+    private final List<ObservadorCambiosPedido> observadores;
+    private final ArchivoPedidos archivo;
+    private final BandejaSalidaEventos bandejaEventos;
+
+    // Temporizadores creados una sola vez para no buscar en el registro en cada operación
+    private final Timer tiempoGuardar;
+    // Guardados condicionales descartados porque el pedido ya no estaba en el estado esperado
+    private final Timer tiempoGuardarRechazado;
+    private final Timer tiempoGuardarTodos;
+    private final Timer tiempoBuscarPorId;
+    private final Timer tiempoBuscarPorIds;
+    private final Timer tiempoBuscarTodos;
+    private final Timer tiempoBuscarResumenes;
+    private final Timer tiempoBuscarPorEstado;
+    private final Timer tiempoEliminarPorId;
+    private final Timer tiempoBuscarEnArchivo;
+    private final Timer tiempoArchivar;
+
+    // Lo que se hace bajo el cerrojo del fragmento en cada escritura; se crean una sola vez
+    private final AlmacenFragmentado.AlEscribir notificarGuardado = this::notificarGuardado;
+    private final AlmacenFragmentado.AlEscribir notificarEliminado = (anterior, nuevo) -> notificarEliminado(anterior);
+    private final AlmacenFragmentado.AlEscribir notificarArchivado = (anterior, nuevo) -> notificarArchivado(anterior);
+    private final AlmacenFragmentado.AlEscribir notificarTrasladado = (anterior, nuevo) -> notificarTrasladado(anterior);
+    private final AlmacenFragmentado.AlEscribir notificarRestaurado = (anterior, nuevo) -> notificarRestaurado(nuevo);
+
+    @Autowired
+    public PedidoRepositoryImpl(List<ObservadorCambiosPedido> observadores, MeterRegistry meterRegistry,
+                                @Nullable ArchivoPedidos archivo, @Nullable BandejaSalidaEventos bandejaEventos,
+                                @Value("${pedidos.almacen.fragmentos:16}") int fragmentos,
+                                @Value("${pedidos.almacen.paralelismo:0}") int paralelismo,
+                                @Value("${pedidos.almacen.umbral-recorrido-paralelo:4096}") int umbralRecorridoParalelo) {
+        this.observadores = List.copyOf(observadores);
+        this.archivo = archivo;
+        this.bandejaEventos = bandejaEventos;
+        this.almacenDePedidos = new AlmacenFragmentado(fragmentos, paralelismo, umbralRecorridoParalelo);
+        this.tiempoGuardar = temporizador(meterRegistry, "guardar");
+        this.tiempoGuardarRechazado = temporizador(meterRegistry, "guardar_rechazado");
+        this.tiempoGuardarTodos = temporizador(meterRegistry, "guardar_todos");
+        this.tiempoBuscarPorId = temporizador(meterRegistry, "buscar_por_id");
+        this.tiempoBuscarPorIds = temporizador(meterRegistry, "buscar_por_ids");
+        this.tiempoBuscarTodos = temporizador(meterRegistry, "buscar_todos");
+        this.tiempoBuscarResumenes = temporizador(meterRegistry, "buscar_resumenes");
+        this.tiempoBuscarPorEstado = temporizador(meterRegistry, "buscar_por_estado");
+        this.tiempoEliminarPorId = temporizador(meterRegistry, "eliminar_por_id");
+        this.tiempoBuscarEnArchivo = temporizador(meterRegistry, "buscar_en_archivo");
+        this.tiempoArchivar = temporizador(meterRegistry, "archivar");
+        Gauge.builder("pedidos.almacen.tamano", almacenDePedidos, AlmacenFragmentado::tamano)
+            .description("Pedidos en el almacén en memoria")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Repositorio sin publicación de eventos.
+     */
+    public PedidoRepositoryImpl(List<ObservadorCambiosPedido> observadores, MeterRegistry meterRegistry,
+                                @Nullable ArchivoPedidos archivo,
+                                int fragmentos, int paralelismo, int umbralRecorridoParalelo) {
+        this(observadores, meterRegistry, archivo, null, fragmentos, paralelismo, umbralRecorridoParalelo);
+    }
+
+    /**
+     * Repositorio sin archivo ni publicación de eventos.
+     */
+    public PedidoRepositoryImpl(List<ObservadorCambiosPedido> observadores, MeterRegistry meterRegistry,
+                                int fragmentos, int paralelismo, int umbralRecorridoParalelo) {
+        this(observadores, meterRegistry, null, null, fragmentos, paralelismo, umbralRecorridoParalelo);
+    }
+
+    /**
+     * Repositorio con la configuración por defecto, para benchmarks y almacenes auxiliares.
+     */
+    public PedidoRepositoryImpl(List<ObservadorCambiosPedido> observadores, MeterRegistry meterRegistry) {
+        this(observadores, meterRegistry, 16, 0, 4096);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        almacenDePedidos.cerrar();
+    }
+
+    private static Timer temporizador(MeterRegistry meterRegistry, String operacion) {
+        return Timer.builder("pedidos.repositorio")
+            .description("Duración de las operaciones del repositorio de pedidos")
+            .tag("operacion", operacion)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private static void registrar(Timer temporizador, long inicio) {
+        temporizador.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
 
     @Override
     public void guardar(Pedido pedido) {
@@ -27,32 +164,357 @@ public class PedidoRepositoryImpl implements PedidoRepository {
         // o para asegurar que no se modifica el objeto original fuera del repositorio,
         // guardamos una "copia". En un sistema real con JPA, el EntityManager se encarga de esto.
         // Esta clonación es MUY simplificada.
-        Pedido copiaParaAlmacen = clonarPedido(pedido);
-        almacenDePedidos.put(pedido.getId(), copiaParaAlmacen);
-        System.out.println("INFO: Pedido guardado/actualizado en memoria: " + pedido.getId().valor());
+        try (Tramo tramo = Trazador.abrir("repositorio.guardar")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("guardar");
+            long inicio = System.nanoTime();
+            Pedido copiaParaAlmacen = clonarTrazado(pedido);
+            List<EventoPedido> eventos = pedido.extraerEventos();
+            esperarHuecoEventos(!eventos.isEmpty());
+            almacenDePedidos.poner(copiaParaAlmacen, anotarYNotificar(eventos));
+            registrar(tiempoGuardar, inicio);
+            evento.finalizar(pedido.getId(), 1, copiaParaAlmacen.getLineasPedido().size());
+            logger.trace("Pedido guardado/actualizado en memoria: {}", pedido.getId().valor());
+        }
+    }
+
+    @Override
+    public boolean guardarSiEstado(Pedido pedido, EstadoPedido estadoEsperado) {
+        // Como guardar, pero la comparación y la escritura van bajo el cerrojo del fragmento
+        try (Tramo tramo = Trazador.abrir("repositorio.guardarSiEstado")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("guardar");
+            long inicio = System.nanoTime();
+            Pedido copiaParaAlmacen = clonarTrazado(pedido);
+            List<EventoPedido> eventos = pedido.extraerEventos();
+            esperarHuecoEventos(!eventos.isEmpty());
+            Pedido anterior = almacenDePedidos.ponerSiEstado(copiaParaAlmacen, estadoEsperado, anotarYNotificar(eventos));
+            // Un rechazo también cuesta la comparación bajo el cerrojo: se mide aparte para no mezclarlo
+            // con los guardados, y el evento lo marca con cero pedidos guardados
+            boolean guardado = anterior != null;
+            registrar(guardado ? tiempoGuardar : tiempoGuardarRechazado, inicio);
+            if (!guardado) {
+                evento.operacion = "guardar_rechazado";
+            }
+            evento.finalizar(pedido.getId(), guardado ? 1 : 0, copiaParaAlmacen.getLineasPedido().size());
+            // Si no se guarda, los eventos se descartan con el comando: nada de lo que describen ha llegado a guardarse
+            return guardado;
+        }
+    }
+
+    @Override
+    public void guardarTodos(Collection<Pedido> pedidos) {
+        // Se clonan todos antes de publicar nada, de modo que el lote no se ve a medio clonar.
+        try (Tramo tramo = Trazador.abrir("repositorio.guardarTodos")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("guardar_todos");
+            long inicio = System.nanoTime();
+            // Si un pedido viene varias veces gana el último, pero los eventos de todos se anotan en orden:
+            // cada instancia es un comando que ya se dio por hecho (p. ej. una confirmación y una cancelación)
+            Map<IdentificadorPedido, Pedido> ultimos = new HashMap<>();
+            Map<IdentificadorPedido, List<EventoPedido>> eventos = new HashMap<>();
+            for (Pedido pedido : pedidos) {
+                ultimos.put(pedido.getId(), pedido);
+                List<EventoPedido> eventosPedido = pedido.extraerEventos();
+                if (!eventosPedido.isEmpty()) {
+                    eventos.computeIfAbsent(pedido.getId(), id -> new ArrayList<>()).addAll(eventosPedido);
+                }
+            }
+            // Un pedido que falla no arrastra al resto del lote: su error se informa aparte
+            Map<IdentificadorPedido, RuntimeException> fallos = new LinkedHashMap<>();
+            Map<IdentificadorPedido, Pedido> copias = new HashMap<>();
+            for (Pedido pedido : ultimos.values()) {
+                try {
+                    copias.put(pedido.getId(), clonarPedido(pedido));
+                } catch (RuntimeException e) {
+                    fallos.put(pedido.getId(), e);
+                }
+            }
+            esperarHuecoEventos(!eventos.isEmpty());
+            List<Pedido> guardados = new ArrayList<>(copias.size());
+            for (Pedido copia : copias.values()) {
+                try {
+                    almacenDePedidos.poner(copia, anotarYNotificar(eventos.getOrDefault(copia.getId(), List.of())));
+                    guardados.add(copia);
+                } catch (RuntimeException e) {
+                    fallos.put(copia.getId(), e);
+                }
+            }
+            registrar(tiempoGuardarTodos, inicio);
+            evento.finalizarLote(guardados);
+            logger.trace("Lote de {} pedidos guardado/actualizado en memoria", guardados.size());
+            if (!fallos.isEmpty()) {
+                throw new GuardadoParcialException(fallos);
+            }
+        }
     }
 
     @Override
     public Optional<Pedido> buscarPorId(IdentificadorPedido id) {
-        Pedido pedidoAlmacenado = almacenDePedidos.get(id);
-        // Devolver una copia para simular que se obtiene una entidad "desapegada"
-        return Optional.ofNullable(pedidoAlmacenado != null ? clonarPedido(pedidoAlmacenado) : null);
+        try (Tramo tramo = Trazador.abrir("repositorio.buscarPorId")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("buscar_por_id");
+            long inicio = System.nanoTime();
+            Pedido pedidoAlmacenado = almacenDePedidos.obtener(id);
+            // Devolver una copia para simular que se obtiene una entidad "desapegada"
+            Optional<Pedido> resultado = pedidoAlmacenado != null
+                ? Optional.of(clonarTrazado(pedidoAlmacenado))
+                : buscarEnArchivo(id); // Lo decodificado del archivo ya es una copia
+            registrar(tiempoBuscarPorId, inicio);
+            evento.finalizar(id, resultado.isPresent() ? 1 : 0, pedidoAlmacenado != null ? pedidoAlmacenado.getLineasPedido().size() : 0);
+            return resultado;
+        }
+    }
+
+    @Override
+    public Map<IdentificadorPedido, Pedido> buscarPorIds(Collection<IdentificadorPedido> ids) {
+        try (Tramo tramo = Trazador.abrir("repositorio.buscarPorIds")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("buscar_por_ids");
+            long inicio = System.nanoTime();
+            Map<IdentificadorPedido, Pedido> encontrados = new LinkedHashMap<>();
+            for (IdentificadorPedido id : ids) {
+                Pedido pedidoAlmacenado = almacenDePedidos.obtener(id);
+                if (pedidoAlmacenado != null) {
+                    encontrados.putIfAbsent(id, clonarPedido(pedidoAlmacenado));
+                } else if (!encontrados.containsKey(id)) {
+                    buscarEnArchivo(id).ifPresent(archivado -> encontrados.put(id, archivado));
+                }
+            }
+            registrar(tiempoBuscarPorIds, inicio);
+            evento.finalizarLote(encontrados.values());
+            return encontrados;
+        }
     }
 
     @Override
     public List<Pedido> buscarTodos() {
-        return almacenDePedidos.values().stream()
-                               .map(this::clonarPedido) // Devolver copias
-                               .collect(Collectors.toList());
+        try (Tramo tramo = Trazador.abrir("repositorio.buscarTodos")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("buscar_todos");
+            long inicio = System.nanoTime();
+            List<Pedido> pedidos = almacenDePedidos.mapear(this::clonarPedido); // Devolver copias
+            registrar(tiempoBuscarTodos, inicio);
+            evento.finalizarLote(pedidos);
+            return pedidos;
+        }
+    }
+
+    @Override
+    public List<ResumenPedido> buscarResumenes() {
+        // Las copias almacenadas son inmutables y los VO de cabecera también, así que no hace falta clonar
+        try (Tramo tramo = Trazador.abrir("repositorio.buscarResumenes")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("buscar_resumenes");
+            long inicio = System.nanoTime();
+            List<ResumenPedido> resumenes = almacenDePedidos.mapear(ResumenPedido::de);
+            registrar(tiempoBuscarResumenes, inicio);
+            evento.finalizar(null, resumenes.size(), 0);
+            return resumenes;
+        }
+    }
+
+    @Override
+    public List<Pedido> buscarPorEstado(EstadoPedido estado) {
+        try (Tramo tramo = Trazador.abrir("repositorio.buscarPorEstado")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("buscar_por_estado");
+            long inicio = System.nanoTime();
+            List<Pedido> pedidos = almacenDePedidos.mapearPorEstado(estado, this::clonarPedido);
+            registrar(tiempoBuscarPorEstado, inicio);
+            evento.finalizarLote(pedidos);
+            return pedidos;
+        }
     }
 
     @Override
     public void eliminarPorId(IdentificadorPedido id) {
-        Pedido removido = almacenDePedidos.remove(id);
-        if (removido != null) {
-            System.out.println("INFO: Pedido eliminado de memoria: " + id.valor());
-        } else {
-            System.out.println("WARN: Intento de eliminar pedido no existente en memoria: " + id.valor());
+        try (Tramo tramo = Trazador.abrir("repositorio.eliminarPorId")) {
+            EventoOperacionRepositorio evento = EventoOperacionRepositorio.iniciar("eliminar_por_id");
+            long inicio = System.nanoTime();
+            Pedido removido = almacenDePedidos.quitar(id, notificarEliminado);
+            if (archivo != null) {
+                // También la copia archivada, si la hay, para que no reaparezca por la vía lenta
+                Optional<Pedido> archivado = archivo.buscar(id);
+                if (archivado.isPresent()) {
+                    archivo.eliminar(id);
+                    if (removido == null) {
+                        // Solo estaba archivado: no hay escritura en el almacén con la que ordenarlo
+                        removido = archivado.get();
+                        notificarArchivadoEliminado(removido);
+                    }
+                }
+            }
+            registrar(tiempoEliminarPorId, inicio);
+            evento.finalizar(id, removido != null ? 1 : 0, removido != null ? removido.getLineasPedido().size() : 0);
+            if (removido == null) {
+                logger.debug("Intento de eliminar pedido no existente en memoria: {}", id.valor());
+            }
+        }
+    }
+
+    /**
+     * Quita del almacén activo un pedido que ya se ha copiado a su nuevo propietario en el cluster y lo
+     * notifica con {@link ObservadorCambiosPedido#pedidoTrasladado(Pedido)}: el pedido sigue existiendo
+     * en otro nodo, así que no es un borrado para el registro de cambios, la auditoría ni los eventos.
+     *
+     * @return Si el pedido estaba en el almacén.
+     */
+    public boolean quitarTrasladado(IdentificadorPedido id) {
+        try (Tramo tramo = Trazador.abrir("repositorio.quitarTrasladado")) {
+            return almacenDePedidos.quitar(id, notificarTrasladado) != null;
+        }
+    }
+
+    /**
+     * Mueve al archivo, en un segmento nuevo, hasta {@code maximo} pedidos entregados o cancelados
+     * cuya última modificación es anterior a {@code limite}, y los quita del almacén activo.
+     * <p>
+     * El segmento se escribe antes de quitar nada. Si un pedido cambia entre ambos pasos se queda en
+     * el almacén activo, que tiene preferencia sobre la copia archivada.
+     *
+     * @return Pedidos archivados; si es {@code maximo} puede quedar alguno más por archivar.
+     */
+    public int archivarTerminados(LocalDateTime limite, int maximo) {
+        if (archivo == null) {
+            throw new IllegalStateException("El repositorio no tiene archivo de pedidos");
+        }
+        try (Tramo tramo = Trazador.abrir("repositorio.archivarTerminados")) {
+            long inicio = System.nanoTime();
+            List<Pedido> candidatos = new ArrayList<>();
+            for (EstadoPedido estado : ESTADOS_TERMINADOS) {
+                for (Pedido pedido : almacenDePedidos.mapearPorEstado(estado, Function.identity())) {
+                    if (candidatos.size() < maximo && pedido.getFechaUltimaModificacion().isBefore(limite)) {
+                        candidatos.add(pedido);
+                    }
+                }
+            }
+            if (candidatos.isEmpty()) {
+                return 0;
+            }
+            archivo.archivar(candidatos);
+            int archivados = 0;
+            for (Pedido pedido : candidatos) {
+                if (almacenDePedidos.quitarSi(pedido, notificarArchivado)) {
+                    archivados++;
+                }
+            }
+            registrar(tiempoArchivar, inicio);
+            return archivados;
+        }
+    }
+
+    /**
+     * Entrega al consumidor, desde el hilo que llama, todos los pedidos: los del almacén activo y los
+     * archivados que no han vuelto a él. Para exportaciones por lotes: no clona, así que el consumidor
+     * no debe modificar los pedidos, y con archivo lee todos sus segmentos.
+     */
+    public void recorrerIncluidoArchivo(Consumer<Pedido> consumidor) {
+        almacenDePedidos.recorrer(consumidor);
+        if (archivo != null) {
+            archivo.recorrer(archivado -> {
+                if (almacenDePedidos.obtener(archivado.getId()) == null) {
+                    consumidor.accept(archivado);
+                }
+            });
+        }
+    }
+
+    /**
+     * Los pedidos del almacén activo tal como estaban en un instante, obtenidos sin detener las
+     * escrituras (véase {@link AlmacenFragmentado#capturar()}). No clona: no se deben modificar.
+     *
+     * @return Los pedidos en partes; un pedido puede aparecer en dos partes, siempre con el mismo estado.
+     */
+    public List<List<Pedido>> capturar() {
+        try (Tramo tramo = Trazador.abrir("repositorio.capturar")) {
+            return almacenDePedidos.capturar();
+        }
+    }
+
+    /**
+     * Carga en el almacén activo pedidos de una captura anterior y lo notifica a los observadores con
+     * {@link ObservadorCambiosPedido#pedidoRestaurado(Pedido)}. Los pedidos cuyo id ya está en el
+     * almacén no se tocan: o son repetidos o el almacén tiene una versión más reciente.
+     * <p>
+     * Se puede llamar desde varios hilos a la vez. Los pedidos pasan a ser del repositorio sin clonarse,
+     * así que quien llama no debe conservarlos.
+     *
+     * @return Pedidos cargados.
+     */
+    public int restaurar(Collection<Pedido> pedidos) {
+        int cargados = 0;
+        for (Pedido pedido : pedidos) {
+            if (almacenDePedidos.ponerSiAusente(pedido, notificarRestaurado)) {
+                cargados++;
+            }
+        }
+        return cargados;
+    }
+
+    private Optional<Pedido> buscarEnArchivo(IdentificadorPedido id) {
+        if (archivo == null) {
+            return Optional.empty();
+        }
+        try (Tramo tramo = Trazador.abrir("repositorio.buscarEnArchivo")) {
+            long inicio = System.nanoTime();
+            Optional<Pedido> archivado = archivo.buscar(id);
+            registrar(tiempoBuscarEnArchivo, inicio);
+            return archivado;
+        }
+    }
+
+    // Antes de tocar el almacén: si la bandeja sigue llena, el guardado falla sin haber tenido efecto
+    private void esperarHuecoEventos(boolean hayEventos) {
+        if (bandejaEventos != null && hayEventos) {
+            bandejaEventos.esperarHueco();
+        }
+    }
+
+    // Sin eventos que anotar basta con notificar, sin crear nada por guardado
+    private AlmacenFragmentado.AlEscribir anotarYNotificar(List<EventoPedido> eventos) {
+        if (bandejaEventos == null || eventos.isEmpty()) {
+            return notificarGuardado;
+        }
+        return (anterior, nuevo) -> {
+            bandejaEventos.anotar(eventos);
+            notificarGuardado(anterior, nuevo);
+        };
+    }
+
+    private void notificarGuardado(Pedido anterior, Pedido nuevo) {
+        // Las copias almacenadas no se modifican nunca, así que pueden compartirse con los observadores
+        for (ObservadorCambiosPedido observador : observadores) {
+            observador.pedidoGuardado(anterior, nuevo);
+        }
+    }
+
+    private void notificarEliminado(Pedido eliminado) {
+        for (ObservadorCambiosPedido observador : observadores) {
+            observador.pedidoEliminado(eliminado);
+        }
+    }
+
+    private void notificarArchivado(Pedido archivado) {
+        for (ObservadorCambiosPedido observador : observadores) {
+            observador.pedidoArchivado(archivado);
+        }
+    }
+
+    private void notificarArchivadoEliminado(Pedido eliminado) {
+        for (ObservadorCambiosPedido observador : observadores) {
+            observador.pedidoArchivadoEliminado(eliminado);
+        }
+    }
+
+    private void notificarTrasladado(Pedido trasladado) {
+        for (ObservadorCambiosPedido observador : observadores) {
+            observador.pedidoTrasladado(trasladado);
+        }
+    }
+
+    private void notificarRestaurado(Pedido restaurado) {
+        for (ObservadorCambiosPedido observador : observadores) {
+            observador.pedidoRestaurado(restaurado);
+        }
+    }
+
+    // Solo en las operaciones de un pedido: en las de lote habría un tramo por pedido
+    private Pedido clonarTrazado(Pedido original) {
+        try (Tramo tramo = Trazador.abrir("repositorio.clonar")) {
+            return clonarPedido(original);
         }
     }
 
@@ -61,8 +523,9 @@ public class PedidoRepositoryImpl implements PedidoRepository {
      * En una implementación real con JPA, no necesitarías esto de esta forma.
      * El propósito aquí es simular que el repositorio devuelve instancias "frescas"
      * y que las modificaciones se hacen sobre esas instancias y luego se guardan.
+     * Visible en el paquete para poder medirlo con los benchmarks JMH.
      */
-    private Pedido clonarPedido(Pedido original) {
+    Pedido clonarPedido(Pedido original) {
         if (original == null) return null;
 
         // Reconstruir el pedido usando el constructor que toma todos los campos.
@@ -0,0 +1,93 @@
+package com.ejemplo.ddd.infraestructura.persistencia.archivo;
+
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Archiva periódicamente los pedidos entregados o cancelados que llevan más de
+ * {@code pedidos.archivo.antiguedad} sin cambios, en segmentos de como mucho
+ * {@code pedidos.archivo.pedidos-por-segmento} pedidos.
+ * <p>
+ * Corre en un hilo propio y de baja prioridad: un archivado solo bloquea, pedido a pedido, el
+ * fragmento del almacén del que lo quita.
+ */
+@Component
+@ConditionalOnProperty(prefix = "pedidos.archivo", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class ArchivadorPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivadorPedidos.class);
+
+    private final PedidoRepositoryImpl repositorio;
+    private final Duration antiguedad;
+    private final int pedidosPorSegmento;
+    private final Counter archivados;
+    private final Counter errores;
+    private final ScheduledExecutorService programador;
+
+    public ArchivadorPedidos(PedidoRepositoryImpl repositorio, MeterRegistry meterRegistry,
+                             @Value("${pedidos.archivo.antiguedad:30d}") Duration antiguedad,
+                             @Value("${pedidos.archivo.intervalo:1h}") Duration intervalo,
+                             @Value("${pedidos.archivo.pedidos-por-segmento:50000}") int pedidosPorSegmento) {
+        this.repositorio = repositorio;
+        this.antiguedad = antiguedad;
+        this.pedidosPorSegmento = pedidosPorSegmento;
+        this.archivados = Counter.builder("pedidos.archivo.archivados")
+            .description("Pedidos terminados movidos del almacén activo al archivo")
+            .register(meterRegistry);
+        this.errores = Counter.builder("pedidos.archivo.errores")
+            .description("Pasadas de archivado que fallaron")
+            .register(meterRegistry);
+        this.programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "archivado-pedidos");
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+        long periodo = intervalo.toMillis();
+        programador.scheduleWithFixedDelay(this::archivar, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Una pasada de archivado: repite hasta que no quedan pedidos por archivar.
+     * @return Pedidos archivados en la pasada.
+     */
+    public int archivar() {
+        LocalDateTime limite = LocalDateTime.now().minus(antiguedad);
+        int total = 0;
+        try {
+            int archivadosLote;
+            do {
+                archivadosLote = repositorio.archivarTerminados(limite, pedidosPorSegmento);
+                total += archivadosLote;
+                archivados.increment(archivadosLote);
+            } while (archivadosLote == pedidosPorSegmento);
+            if (total > 0) {
+                logger.info("Archivados {} pedidos terminados antes de {}", total, limite);
+            }
+        } catch (RuntimeException e) {
+            // Se reintenta en la siguiente pasada; lo ya archivado queda archivado
+            errores.increment();
+            logger.error("Error al archivar pedidos terminados", e);
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void detener() {
+        programador.shutdownNow();
+    }
+}
@@ -0,0 +1,247 @@
+package com.ejemplo.ddd.infraestructura.persistencia.archivo;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Archivo de pedidos terminados, fuera del almacén activo.
+ * <p>
+ * Cada archivado escribe un {@link SegmentoArchivo} nuevo; los segmentos no se modifican nunca. Los
+ * pedidos archivados que se eliminan después se anotan en un fichero de borrados de solo añadir
+ * ({@value #FICHERO_ELIMINADOS}) que se carga entero en memoria al arrancar.
+ * <p>
+ * Las búsquedas recorren los segmentos del más reciente al más antiguo; el filtro de Bloom de cada
+ * segmento evita leer el disco en los que no tienen el pedido.
+ */
+@Component
+@ConditionalOnProperty(prefix = "pedidos.archivo", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class ArchivoPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoPedidos.class);
+
+    static final String FICHERO_ELIMINADOS = "eliminados.bin";
+
+    private final Path directorio;
+    private final int pedidosPorBloque;
+    private final CopyOnWriteArrayList<SegmentoArchivo> segmentos = new CopyOnWriteArrayList<>();
+    private final Set<IdentificadorPedido> eliminados = ConcurrentHashMap.newKeySet();
+    private final FileChannel ficheroEliminados;
+    private long siguienteSegmento;
+
+    public ArchivoPedidos(MeterRegistry meterRegistry,
+                          @Value("${pedidos.archivo.directorio:logs/archivo}") Path directorio,
+                          @Value("${pedidos.archivo.pedidos-por-bloque:128}") int pedidosPorBloque) {
+        this.directorio = directorio;
+        this.pedidosPorBloque = pedidosPorBloque;
+        try {
+            Files.createDirectories(directorio);
+            cargarSegmentos();
+            Path eliminadosPath = directorio.resolve(FICHERO_ELIMINADOS);
+            cargarEliminados(eliminadosPath);
+            this.ficheroEliminados = FileChannel.open(eliminadosPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            cerrarSegmentos();
+            throw new UncheckedIOException("No se pudo abrir el archivo de pedidos en " + directorio, e);
+        }
+        Gauge.builder("pedidos.archivo.segmentos", segmentos, List::size)
+            .description("Segmentos del archivo de pedidos terminados")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.archivo.pedidos", this, ArchivoPedidos::numeroPedidos)
+            .description("Pedidos en el archivo, incluidos los eliminados después de archivarse")
+            .register(meterRegistry);
+        logger.info("Archivo de pedidos en {}: {} segmentos, {} pedidos", directorio, segmentos.size(), numeroPedidos());
+    }
+
+    /**
+     * Escribe los pedidos en un segmento nuevo. Cuando vuelve, el segmento está en disco y visible
+     * para {@link #buscar(IdentificadorPedido)}.
+     */
+    public synchronized void archivar(Collection<Pedido> pedidos) {
+        if (pedidos.isEmpty()) {
+            return;
+        }
+        Path fichero = directorio.resolve(String.format("segmento-%08d%s", siguienteSegmento, SegmentoArchivo.EXTENSION));
+        try {
+            segmentos.add(SegmentoArchivo.escribir(fichero, List.copyOf(pedidos), pedidosPorBloque));
+            siguienteSegmento++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el segmento " + fichero, e);
+        }
+    }
+
+    /**
+     * Busca un pedido archivado. Es la vía lenta: puede leer y descomprimir un bloque de cada segmento
+     * cuyo filtro de Bloom no descarte el id.
+     */
+    public Optional<Pedido> buscar(IdentificadorPedido id) {
+        if (eliminados.contains(id)) {
+            return Optional.empty();
+        }
+        try {
+            for (int i = segmentos.size() - 1; i >= 0; i--) {
+                Pedido pedido = segmentos.get(i).buscar(id);
+                if (pedido != null) {
+                    return Optional.of(pedido);
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el archivo de pedidos", e);
+        }
+    }
+
+    /**
+     * Entrega una vez cada pedido archivado y no eliminado, en su versión más reciente. Lee y descomprime
+     * todos los segmentos, así que es para procesos por lotes, no para peticiones.
+     */
+    public void recorrer(Consumer<Pedido> consumidor) {
+        List<SegmentoArchivo> actuales = List.copyOf(segmentos);
+        try {
+            for (int i = actuales.size() - 1; i >= 0; i--) {
+                List<SegmentoArchivo> posteriores = actuales.subList(i + 1, actuales.size());
+                actuales.get(i).recorrer(pedido -> {
+                    if (!eliminados.contains(pedido.getId()) && !estaEn(posteriores, pedido.getId())) {
+                        consumidor.accept(pedido);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el archivo de pedidos", e);
+        }
+    }
+
+    /**
+     * Anota un pedido archivado como eliminado. La anotación se sincroniza con el disco antes de volver.
+     */
+    public synchronized void eliminar(IdentificadorPedido id) {
+        if (!eliminados.add(id)) {
+            return;
+        }
+        ByteBuffer registro = ByteBuffer.allocate(16)
+            .putLong(id.valor().getMostSignificantBits())
+            .putLong(id.valor().getLeastSignificantBits())
+            .flip();
+        try {
+            while (registro.hasRemaining()) {
+                ficheroEliminados.write(registro);
+            }
+            ficheroEliminados.force(false);
+        } catch (IOException e) {
+            eliminados.remove(id);
+            throw new UncheckedIOException("No se pudo anotar el borrado de " + id.valor(), e);
+        }
+    }
+
+    public int numeroSegmentos() {
+        return segmentos.size();
+    }
+
+    public long numeroPedidos() {
+        long total = 0;
+        for (SegmentoArchivo segmento : segmentos) {
+            total += segmento.numeroPedidos();
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public synchronized void cerrar() {
+        cerrarSegmentos();
+        try {
+            ficheroEliminados.close();
+        } catch (IOException e) {
+            logger.warn("Error al cerrar {}", FICHERO_ELIMINADOS, e);
+        }
+    }
+
+    // Un pedido que volvió al almacén activo y se archivó otra vez está en más de un segmento
+    private static boolean estaEn(List<SegmentoArchivo> segmentos, IdentificadorPedido id) {
+        try {
+            for (SegmentoArchivo segmento : segmentos) {
+                if (segmento.puedeContener(id) && segmento.buscar(id) != null) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el archivo de pedidos", e);
+        }
+    }
+
+    private void cargarSegmentos() throws IOException {
+        List<Path> ficheros;
+        List<Path> temporales;
+        try (Stream<Path> listado = Files.list(directorio)) {
+            ficheros = listado.filter(p -> p.getFileName().toString().endsWith(SegmentoArchivo.EXTENSION)).sorted().toList();
+        }
+        try (Stream<Path> listado = Files.list(directorio)) {
+            temporales = listado.filter(p -> p.getFileName().toString().endsWith(SegmentoArchivo.EXTENSION + ".tmp")).toList();
+        }
+        for (Path temporal : temporales) {
+            // Segmento que no llegó a renombrarse: sus pedidos no llegaron a quitarse del almacén activo
+            Files.delete(temporal);
+        }
+        List<SegmentoArchivo> abiertos = new ArrayList<>(ficheros.size());
+        for (Path fichero : ficheros) {
+            abiertos.add(SegmentoArchivo.abrir(fichero));
+            String nombre = fichero.getFileName().toString();
+            long numero = Long.parseLong(nombre.substring("segmento-".length(), nombre.length() - SegmentoArchivo.EXTENSION.length()));
+            siguienteSegmento = Math.max(siguienteSegmento, numero + 1);
+        }
+        segmentos.addAll(abiertos);
+    }
+
+    private void cargarEliminados(Path fichero) throws IOException {
+        if (!Files.exists(fichero)) {
+            return;
+        }
+        ByteBuffer contenido = ByteBuffer.wrap(Files.readAllBytes(fichero));
+        while (contenido.remaining() >= 16) {
+            eliminados.add(new IdentificadorPedido(new UUID(contenido.getLong(), contenido.getLong())));
+        }
+        if (contenido.hasRemaining()) {
+            // Un registro a medias al final es un borrado que no llegó a confirmarse
+            try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+                canal.truncate(contenido.position());
+            }
+        }
+    }
+
+    private void cerrarSegmentos() {
+        for (SegmentoArchivo segmento : segmentos) {
+            try {
+                segmento.close();
+            } catch (IOException e) {
+                logger.warn("Error al cerrar el segmento {}", segmento.fichero(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.ejemplo.ddd.infraestructura.persistencia.archivo;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.persistencia.CodecPedido;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Fichero inmutable con un lote de pedidos archivados.
+ * <p>
+ * Los pedidos se ordenan por id y se agrupan en bloques comprimidos con Deflate. Al final del fichero
+ * va un índice disperso con el primer id de cada bloque y un filtro de Bloom con todos los ids; al
+ * abrir el segmento solo se cargan en memoria el índice y el filtro. Una búsqueda por id que el filtro
+ * descarta no lee el disco; si no, se busca el bloque en el índice y se descomprime solo ese bloque.
+ * <pre>
+ * cabecera  int MAGIA, byte VERSION
+ * bloques   bloques Deflate de {@link CodecPedido#codificarPedidos}
+ * índice    por bloque: long, long (primer id), long posición, int longitud, int longitud sin comprimir
+ * filtro    long[] bits
+ * pie       long posición índice, int bloques, int pedidos, long posición filtro, int palabras filtro, int MAGIA
+ * </pre>
+ */
+final class SegmentoArchivo implements AutoCloseable {
+
+    static final String EXTENSION = ".seg";
+
+    private static final int MAGIA = 0x50444152; // "PDAR"
+    private static final byte VERSION = 1;
+    private static final int TAMANO_PIE = 8 + 4 + 4 + 8 + 4 + 4;
+    private static final int TAMANO_ENTRADA_INDICE = 8 + 8 + 8 + 4 + 4;
+    private static final int BITS_POR_PEDIDO = 10;
+    private static final int FUNCIONES_BLOOM = 7;
+
+    // Mismo orden que el de los bloques; los UUID se comparan sin signo
+    static final Comparator<Pedido> POR_ID = (a, b) -> compararIds(a.getId().valor(), b.getId().valor());
+
+    private final Path fichero;
+    private final FileChannel canal;
+    private final long[] primerMsb;
+    private final long[] primerLsb;
+    private final long[] posiciones;
+    private final int[] longitudes;
+    private final int[] longitudesOriginales;
+    private final long[] filtro;
+    private final int numeroPedidos;
+
+    private SegmentoArchivo(Path fichero, FileChannel canal, long[] primerMsb, long[] primerLsb, long[] posiciones,
+                            int[] longitudes, int[] longitudesOriginales, long[] filtro, int numeroPedidos) {
+        this.fichero = fichero;
+        this.canal = canal;
+        this.primerMsb = primerMsb;
+        this.primerLsb = primerLsb;
+        this.posiciones = posiciones;
+        this.longitudes = longitudes;
+        this.longitudesOriginales = longitudesOriginales;
+        this.filtro = filtro;
+        this.numeroPedidos = numeroPedidos;
+    }
+
+    /**
+     * Escribe el segmento en un fichero temporal, lo sincroniza y lo renombra a su nombre final, de
+     * modo que un segmento visible está siempre completo.
+     */
+    static SegmentoArchivo escribir(Path fichero, List<Pedido> pedidos, int pedidosPorBloque) throws IOException {
+        List<Pedido> ordenados = new ArrayList<>(pedidos);
+        ordenados.sort(POR_ID);
+        int numeroBloques = (ordenados.size() + pedidosPorBloque - 1) / pedidosPorBloque;
+        long[] filtro = new long[Math.max(1, (ordenados.size() * BITS_POR_PEDIDO + 63) / 64)];
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        try (FileOutputStream salidaFichero = new FileOutputStream(temporal.toFile());
+             DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(salidaFichero, 64 * 1024))) {
+            salida.writeInt(MAGIA);
+            salida.writeByte(VERSION);
+            long[] posiciones = new long[numeroBloques];
+            int[] longitudes = new int[numeroBloques];
+            int[] longitudesOriginales = new int[numeroBloques];
+            Deflater compresor = new Deflater();
+            try {
+                for (int b = 0; b < numeroBloques; b++) {
+                    List<Pedido> bloque = ordenados.subList(b * pedidosPorBloque,
+                        Math.min((b + 1) * pedidosPorBloque, ordenados.size()));
+                    byte[] original = CodecPedido.codificarPedidos(bloque);
+                    byte[] comprimido = comprimir(compresor, original);
+                    posiciones[b] = salida.size();
+                    longitudes[b] = comprimido.length;
+                    longitudesOriginales[b] = original.length;
+                    salida.write(comprimido);
+                }
+            } finally {
+                compresor.end();
+            }
+            long posicionIndice = salida.size();
+            for (int b = 0; b < numeroBloques; b++) {
+                UUID primero = ordenados.get(b * pedidosPorBloque).getId().valor();
+                salida.writeLong(primero.getMostSignificantBits());
+                salida.writeLong(primero.getLeastSignificantBits());
+                salida.writeLong(posiciones[b]);
+                salida.writeInt(longitudes[b]);
+                salida.writeInt(longitudesOriginales[b]);
+            }
+            for (Pedido pedido : ordenados) {
+                anadirAlFiltro(filtro, pedido.getId());
+            }
+            long posicionFiltro = salida.size();
+            for (long palabra : filtro) {
+                salida.writeLong(palabra);
+            }
+            salida.writeLong(posicionIndice);
+            salida.writeInt(numeroBloques);
+            salida.writeInt(ordenados.size());
+            salida.writeLong(posicionFiltro);
+            salida.writeInt(filtro.length);
+            salida.writeInt(MAGIA);
+            salida.flush();
+            salidaFichero.getChannel().force(true);
+        }
+        Files.move(temporal, fichero, StandardCopyOption.ATOMIC_MOVE);
+        return abrir(fichero);
+    }
+
+    static SegmentoArchivo abrir(Path fichero) throws IOException {
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ);
+        try {
+            long tamano = canal.size();
+            if (tamano < 5 + TAMANO_PIE) {
+                throw new IOException("Segmento truncado: " + fichero);
+            }
+            ByteBuffer pie = leer(canal, tamano - TAMANO_PIE, TAMANO_PIE);
+            long posicionIndice = pie.getLong();
+            int numeroBloques = pie.getInt();
+            int numeroPedidos = pie.getInt();
+            long posicionFiltro = pie.getLong();
+            int palabrasFiltro = pie.getInt();
+            if (pie.getInt() != MAGIA || leer(canal, 0, 5).getInt() != MAGIA) {
+                throw new IOException("No es un segmento de archivo de pedidos: " + fichero);
+            }
+            ByteBuffer indice = leer(canal, posicionIndice, numeroBloques * TAMANO_ENTRADA_INDICE);
+            long[] primerMsb = new long[numeroBloques];
+            long[] primerLsb = new long[numeroBloques];
+            long[] posiciones = new long[numeroBloques];
+            int[] longitudes = new int[numeroBloques];
+            int[] longitudesOriginales = new int[numeroBloques];
+            for (int b = 0; b < numeroBloques; b++) {
+                primerMsb[b] = indice.getLong();
+                primerLsb[b] = indice.getLong();
+                posiciones[b] = indice.getLong();
+                longitudes[b] = indice.getInt();
+                longitudesOriginales[b] = indice.getInt();
+            }
+            long[] filtro = new long[palabrasFiltro];
+            leer(canal, posicionFiltro, palabrasFiltro * 8).asLongBuffer().get(filtro);
+            return new SegmentoArchivo(fichero, canal, primerMsb, primerLsb, posiciones, longitudes,
+                longitudesOriginales, filtro, numeroPedidos);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return El pedido archivado, o {@code null} si no está en este segmento.
+     */
+    Pedido buscar(IdentificadorPedido id) throws IOException {
+        if (!puedeContener(id)) {
+            return null;
+        }
+        UUID buscado = id.valor();
+        int bloque = bloqueCandidato(buscado.getMostSignificantBits(), buscado.getLeastSignificantBits());
+        if (bloque < 0) {
+            return null;
+        }
+        for (Pedido pedido : leerBloque(bloque)) {
+            if (pedido.getId().equals(id)) {
+                return pedido;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Entrega todos los pedidos del segmento, en orden de id, descomprimiendo un bloque cada vez.
+     */
+    void recorrer(Consumer<Pedido> consumidor) throws IOException {
+        for (int bloque = 0; bloque < posiciones.length; bloque++) {
+            leerBloque(bloque).forEach(consumidor);
+        }
+    }
+
+    boolean puedeContener(IdentificadorPedido id) {
+        long hash = hashBloom(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = filtro.length * 64L;
+        for (int i = 0; i < FUNCIONES_BLOOM; i++) {
+            long bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            if ((filtro[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int numeroPedidos() {
+        return numeroPedidos;
+    }
+
+    Path fichero() {
+        return fichero;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    // Último bloque cuyo primer id es menor o igual que el buscado
+    private int bloqueCandidato(long msb, long lsb) {
+        int bajo = 0;
+        int alto = primerMsb.length - 1;
+        int candidato = -1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int comparacion = compararIds(primerMsb[medio], primerLsb[medio], msb, lsb);
+            if (comparacion <= 0) {
+                candidato = medio;
+                bajo = medio + 1;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return candidato;
+    }
+
+    private List<Pedido> leerBloque(int bloque) throws IOException {
+        ByteBuffer comprimido = leer(canal, posiciones[bloque], longitudes[bloque]);
+        byte[] original = new byte[longitudesOriginales[bloque]];
+        Inflater descompresor = new Inflater();
+        try {
+            descompresor.setInput(comprimido);
+            int leidos = 0;
+            while (leidos < original.length && !descompresor.finished()) {
+                leidos += descompresor.inflate(original, leidos, original.length - leidos);
+            }
+            if (leidos != original.length) {
+                throw new IOException("Bloque incompleto en " + fichero);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloque corrupto en " + fichero, e);
+        } finally {
+            descompresor.end();
+        }
+        return CodecPedido.decodificarPedidos(original);
+    }
+
+    private static byte[] comprimir(Deflater compresor, byte[] original) {
+        compresor.reset();
+        compresor.setInput(original);
+        compresor.finish();
+        byte[] bufer = new byte[Math.max(64, original.length / 2)];
+        int escritos = 0;
+        while (!compresor.finished()) {
+            if (escritos == bufer.length) {
+                bufer = Arrays.copyOf(bufer, bufer.length * 2);
+            }
+            escritos += compresor.deflate(bufer, escritos, bufer.length - escritos);
+        }
+        return Arrays.copyOf(bufer, escritos);
+    }
+
+    private static ByteBuffer leer(FileChannel canal, long posicion, int longitud) throws IOException {
+        ByteBuffer bufer = ByteBuffer.allocate(longitud);
+        while (bufer.hasRemaining()) {
+            if (canal.read(bufer, posicion + bufer.position()) < 0) {
+                throw new IOException("Fin de fichero inesperado");
+            }
+        }
+        return bufer.flip();
+    }
+
+    private static void anadirAlFiltro(long[] filtro, IdentificadorPedido id) {
+        long hash = hashBloom(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = filtro.length * 64L;
+        for (int i = 0; i < FUNCIONES_BLOOM; i++) {
+            long bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            filtro[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    // Dos hashes de 32 bits para el doble hashing del filtro, a partir de un mezclado de 64 bits (fmix64)
+    private static long hashBloom(IdentificadorPedido id) {
+        UUID uuid = id.valor();
+        long h = uuid.getMostSignificantBits() ^ Long.rotateLeft(uuid.getLeastSignificantBits(), 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int compararIds(UUID a, UUID b) {
+        return compararIds(a.getMostSignificantBits(), a.getLeastSignificantBits(),
+            b.getMostSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    private static int compararIds(long msbA, long lsbA, long msbB, long lsbB) {
+        int comparacion = Long.compareUnsigned(msbA, msbB);
+        return comparacion != 0 ? comparacion : Long.compareUnsigned(lsbA, lsbB);
+    }
+}
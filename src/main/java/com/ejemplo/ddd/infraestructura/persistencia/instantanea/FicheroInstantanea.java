@@ -0,0 +1,166 @@
+package com.ejemplo.ddd.infraestructura.persistencia.instantanea;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.persistencia.CodecPedido;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Fichero con una captura del almacén activo de pedidos, para recargarlo tras un reinicio.
+ * <p>
+ * Los pedidos van en bloques independientes de como mucho {@code pedidosPorBloque} pedidos, sin
+ * comprimir porque lo que importa es cargar deprisa, cada uno con su CRC32. El índice de bloques va al
+ * final. Al cargar, cada bloque se proyecta en memoria y se decodifica en su propio hilo, así que la
+ * carga crece con el número de núcleos.
+ * <pre>
+ * cabecera  int MAGIA, byte VERSION, long instante de la captura (ms)
+ * bloques   {@link CodecPedido#codificarPedidos}
+ * índice    por bloque: long posición, int longitud, int pedidos, int CRC32
+ * pie       long posición índice, int bloques, long pedidos, int MAGIA
+ * </pre>
+ */
+final class FicheroInstantanea {
+
+    static final String EXTENSION = ".snap";
+
+    private static final int MAGIA = 0x50444e53; // "PDNS"
+    private static final byte VERSION = 1;
+    private static final int TAMANO_CABECERA = 4 + 1 + 8;
+    private static final int TAMANO_PIE = 8 + 4 + 8 + 4;
+    private static final int TAMANO_ENTRADA_INDICE = 8 + 4 + 4 + 4;
+
+    /**
+     * @param pedidos Pedidos escritos; al cargar, los que se han cargado (sin repetidos).
+     */
+    record Resumen(long instante, long bytes, int bloques, long pedidos) {}
+
+    private FicheroInstantanea() {
+    }
+
+    /**
+     * Escribe las partes de una captura en un fichero temporal, lo sincroniza y lo renombra a su nombre
+     * final, de modo que el fichero visible está siempre completo. Los bloques se codifican de uno en
+     * uno para no tener la captura entera codificada en memoria.
+     */
+    static Resumen escribir(Path fichero, List<List<Pedido>> partes, int pedidosPorBloque, long instante)
+            throws IOException {
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        List<long[]> indice = new ArrayList<>();
+        long pedidos = 0;
+        long posicion;
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            escribirTodo(canal, ByteBuffer.allocate(TAMANO_CABECERA).putInt(MAGIA).put(VERSION).putLong(instante).flip());
+            posicion = TAMANO_CABECERA;
+            CRC32 crc = new CRC32();
+            for (List<Pedido> parte : partes) {
+                for (int desde = 0; desde < parte.size(); desde += pedidosPorBloque) {
+                    List<Pedido> bloque = parte.subList(desde, Math.min(desde + pedidosPorBloque, parte.size()));
+                    byte[] datos = CodecPedido.codificarPedidos(bloque);
+                    crc.reset();
+                    crc.update(datos);
+                    indice.add(new long[] {posicion, datos.length, bloque.size(), crc.getValue()});
+                    escribirTodo(canal, ByteBuffer.wrap(datos));
+                    posicion += datos.length;
+                    pedidos += bloque.size();
+                }
+            }
+            ByteBuffer indiceYPie = ByteBuffer.allocate(indice.size() * TAMANO_ENTRADA_INDICE + TAMANO_PIE);
+            for (long[] entrada : indice) {
+                indiceYPie.putLong(entrada[0]).putInt((int) entrada[1]).putInt((int) entrada[2]).putInt((int) entrada[3]);
+            }
+            indiceYPie.putLong(posicion).putInt(indice.size()).putLong(pedidos).putInt(MAGIA);
+            escribirTodo(canal, indiceYPie.flip());
+            canal.force(true);
+            posicion = canal.size();
+        }
+        Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Resumen(instante, posicion, indice.size(), pedidos);
+    }
+
+    /**
+     * Decodifica los bloques del fichero en paralelo en {@code hilos} y entrega cada uno a {@code destino},
+     * que devuelve cuántos de sus pedidos ha cargado. {@code destino} se llama desde varios hilos a la vez.
+     *
+     * @throws IOException Si el fichero no es una captura o algún bloque está dañado; puede que para
+     * entonces se hayan entregado ya otros bloques.
+     */
+    static Resumen cargar(Path fichero, ExecutorService hilos, ToIntFunction<List<Pedido>> destino)
+            throws IOException, InterruptedException {
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano < TAMANO_CABECERA + TAMANO_PIE) {
+                throw new IOException("Captura truncada: " + fichero);
+            }
+            ByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAMANO_CABECERA);
+            ByteBuffer pie = canal.map(FileChannel.MapMode.READ_ONLY, tamano - TAMANO_PIE, TAMANO_PIE);
+            long posicionIndice = pie.getLong();
+            int numeroBloques = pie.getInt();
+            pie.getLong();
+            if (cabecera.getInt() != MAGIA || pie.getInt() != MAGIA) {
+                throw new IOException("No es una captura de pedidos: " + fichero);
+            }
+            if (cabecera.get() != VERSION) {
+                throw new IOException("Versión de captura no soportada: " + fichero);
+            }
+            long instante = cabecera.getLong();
+            ByteBuffer indice = canal.map(FileChannel.MapMode.READ_ONLY, posicionIndice,
+                (long) numeroBloques * TAMANO_ENTRADA_INDICE);
+            List<Callable<Integer>> tareas = new ArrayList<>(numeroBloques);
+            for (int b = 0; b < numeroBloques; b++) {
+                long posicion = indice.getLong();
+                int longitud = indice.getInt();
+                indice.getInt();
+                int crcEsperado = indice.getInt();
+                tareas.add(() -> destino.applyAsInt(leerBloque(canal, fichero, posicion, longitud, crcEsperado)));
+            }
+            long cargados = 0;
+            for (Future<Integer> tarea : hilos.invokeAll(tareas)) {
+                try {
+                    cargados += tarea.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException("Error al cargar " + fichero, e.getCause());
+                }
+            }
+            return new Resumen(instante, tamano, numeroBloques, cargados);
+        }
+    }
+
+    private static List<Pedido> leerBloque(FileChannel canal, Path fichero, long posicion, int longitud, int crcEsperado)
+            throws IOException {
+        MappedByteBuffer proyectado = canal.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+        byte[] datos = new byte[longitud];
+        proyectado.get(datos);
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new IOException("Bloque dañado en " + fichero + " en la posición " + posicion);
+        }
+        try {
+            return CodecPedido.decodificarPedidos(datos);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bloque ilegible en " + fichero + " en la posición " + posicion, e);
+        }
+    }
+
+    private static void escribirTodo(FileChannel canal, ByteBuffer datos) throws IOException {
+        while (datos.hasRemaining()) {
+            canal.write(datos);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.ejemplo.ddd.infraestructura.persistencia.instantanea;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Capturas del almacén activo de pedidos en disco, para que un reinicio no empiece con el almacén vacío.
+ * <p>
+ * Cada {@code pedidos.instantanea.intervalo} y al parar la aplicación se captura el almacén sin detener
+ * las escrituras ({@link PedidoRepositoryImpl#capturar()}) y se sustituye el fichero
+ * {@value #FICHERO}. Al arrancar, antes de aceptar tráfico, se carga en paralelo con
+ * {@code pedidos.instantanea.hilos-carga} hilos.
+ * <p>
+ * No es un mecanismo de durabilidad: tras una caída se pierde lo escrito desde la última captura (el
+ * rastro de auditoría sí lo tiene). Los pedidos archivados no entran en la captura porque ya están en disco.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "pedidos.instantanea", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class InstantaneasPedidos implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstantaneasPedidos.class);
+
+    static final String FICHERO = "pedidos" + FicheroInstantanea.EXTENSION;
+
+    private final PedidoRepositoryImpl repositorio;
+    private final Path fichero;
+    private final int pedidosPorBloque;
+    private final int hilosCarga;
+    private final Timer tiempoEscritura;
+    private final Counter errores;
+    private final ScheduledExecutorService programador;
+
+    // Hasta cargar la captura anterior no se escribe ninguna, para no sustituirla por un almacén a medio cargar
+    private volatile boolean cargada;
+    private volatile FicheroInstantanea.Resumen ultimaEscrita;
+    private volatile long pedidosCargados;
+    private volatile long duracionCargaNanos;
+
+    public InstantaneasPedidos(PedidoRepositoryImpl repositorio, MeterRegistry meterRegistry,
+                               @Value("${pedidos.instantanea.directorio:logs/instantanea}") Path directorio,
+                               @Value("${pedidos.instantanea.intervalo:5m}") Duration intervalo,
+                               @Value("${pedidos.instantanea.pedidos-por-bloque:50000}") int pedidosPorBloque,
+                               @Value("${pedidos.instantanea.hilos-carga:0}") int hilosCarga) {
+        this.repositorio = repositorio;
+        this.fichero = directorio.resolve(FICHERO);
+        this.pedidosPorBloque = pedidosPorBloque;
+        this.hilosCarga = hilosCarga > 0 ? hilosCarga : Runtime.getRuntime().availableProcessors();
+        try {
+            Files.createDirectories(directorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el directorio de capturas " + directorio, e);
+        }
+        this.tiempoEscritura = Timer.builder("pedidos.instantanea.escritura")
+            .description("Duración de la captura del almacén de pedidos y su escritura en disco")
+            .register(meterRegistry);
+        this.errores = Counter.builder("pedidos.instantanea.errores")
+            .description("Capturas del almacén de pedidos que no se pudieron escribir o cargar")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.instantanea.bytes", this, i -> i.ultimaEscrita != null ? i.ultimaEscrita.bytes() : 0)
+            .description("Tamaño de la última captura escrita")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.instantanea.pedidos", this, i -> i.ultimaEscrita != null ? i.ultimaEscrita.pedidos() : 0)
+            .description("Pedidos en la última captura escrita")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.instantanea.carga.pedidos", this, i -> i.pedidosCargados)
+            .description("Pedidos cargados de la captura al arrancar")
+            .register(meterRegistry);
+        TimeGauge.builder("pedidos.instantanea.carga.duracion", this, TimeUnit.NANOSECONDS, i -> i.duracionCargaNanos)
+            .description("Duración de la carga de la captura al arrancar")
+            .register(meterRegistry);
+        this.programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "instantanea-pedidos");
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+        long periodo = intervalo.toMillis();
+        programador.scheduleWithFixedDelay(this::capturarProgramada, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!Files.exists(fichero)) {
+            logger.info("No hay captura del almacén de pedidos en {}; se arranca vacío", fichero);
+            cargada = true;
+            return;
+        }
+        long inicio = System.nanoTime();
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(hilosCarga, tarea -> {
+            Thread hilo = new Thread(tarea, "carga-instantanea-" + numeroHilo.getAndIncrement());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            FicheroInstantanea.Resumen cargada = FicheroInstantanea.cargar(fichero, hilos, repositorio::restaurar);
+            pedidosCargados = cargada.pedidos();
+            duracionCargaNanos = System.nanoTime() - inicio;
+            logger.info("Cargados {} pedidos de la captura de {} ({} bloques, {} bytes) en {} ms",
+                cargada.pedidos(), Instant.ofEpochMilli(cargada.instante()), cargada.bloques(), cargada.bytes(),
+                TimeUnit.NANOSECONDS.toMillis(duracionCargaNanos));
+        } catch (IOException e) {
+            // Se arranca con lo que se haya podido cargar; la siguiente captura sustituye al fichero dañado
+            errores.increment();
+            logger.error("No se pudo cargar la captura del almacén de pedidos {}", fichero, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            hilos.shutdownNow();
+            cargada = true;
+        }
+    }
+
+    /**
+     * Captura el almacén activo y sustituye el fichero de captura.
+     */
+    synchronized FicheroInstantanea.Resumen capturar() throws IOException {
+        long inicio = System.nanoTime();
+        long instante = System.currentTimeMillis();
+        List<List<Pedido>> partes = repositorio.capturar();
+        FicheroInstantanea.Resumen escrita = FicheroInstantanea.escribir(fichero, partes, pedidosPorBloque, instante);
+        tiempoEscritura.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        ultimaEscrita = escrita;
+        logger.debug("Captura del almacén de pedidos: {} pedidos, {} bytes", escrita.pedidos(), escrita.bytes());
+        return escrita;
+    }
+
+    @PreDestroy
+    public void detener() {
+        programador.shutdownNow();
+        capturarProgramada();
+    }
+
+    private void capturarProgramada() {
+        if (!cargada) {
+            return;
+        }
+        try {
+            capturar();
+        } catch (IOException | RuntimeException e) {
+            // Queda la captura anterior; se reintenta en la siguiente pasada
+            errores.increment();
+            logger.error("No se pudo capturar el almacén de pedidos en {}", fichero, e);
+        }
+    }
+}
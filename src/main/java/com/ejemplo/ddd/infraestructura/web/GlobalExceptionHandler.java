@@ -1,5 +1,8 @@
 package com.ejemplo.ddd.infraestructura.web;
 
+import com.ejemplo.ddd.aplicacion.proyeccion.CursorCambiosCaducadoException;
+import com.ejemplo.ddd.infraestructura.cluster.NodoNoDisponibleException;
+import com.ejemplo.ddd.infraestructura.eventos.BandejaEventosLlenaException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -19,6 +22,24 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(ex.getStatusCode()).body(ex.getReason());
     }
 
+    @ExceptionHandler(NodoNoDisponibleException.class)
+    public ResponseEntity<String> handleNodoNoDisponibleException(NodoNoDisponibleException ex) {
+        logger.warn("Cluster node unavailable: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Cluster node unavailable");
+    }
+
+    @ExceptionHandler(BandejaEventosLlenaException.class)
+    public ResponseEntity<String> handleBandejaEventosLlenaException(BandejaEventosLlenaException ex) {
+        logger.warn("Event outbox full: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Event subscribers are lagging, retry later");
+    }
+
+    @ExceptionHandler(CursorCambiosCaducadoException.class)
+    public ResponseEntity<String> handleCursorCambiosCaducadoException(CursorCambiosCaducadoException ex) {
+        logger.info("Change feed cursor expired: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).body(ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleException(Exception ex) {
         logger.error("Unhandled exception: {}", ex.getMessage(), ex);
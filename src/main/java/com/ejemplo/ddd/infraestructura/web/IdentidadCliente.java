@@ -0,0 +1,37 @@
+package com.ejemplo.ddd.infraestructura.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.security.Principal;
+
+/**
+ * Identidad del cliente que hace una petición, para las cuotas de admisión y el ámbito de las claves de
+ * idempotencia.
+ * <p>
+ * Es el usuario autenticado si lo hay y, si no, la dirección remota. Entre nodos del cluster viaja en
+ * {@value #CABECERA_LLAMANTE}, que solo toma en cuenta un filtro de confianza que ya ha verificado al
+ * emisor (el secreto compartido) y que la deja en el atributo {@value #ATRIBUTO}.
+ * <p>
+ * La cabecera {@value #CABECERA} es otra cosa: el {@code idCliente} que declara el propio llamante, que
+ * sirve para repartir su cuota de admisión pero nunca como identidad.
+ */
+public final class IdentidadCliente {
+
+    public static final String CABECERA = "X-Cliente-Id";
+    public static final String CABECERA_LLAMANTE = "X-Pedidos-Llamante";
+    public static final String ATRIBUTO = IdentidadCliente.class.getName();
+
+    private IdentidadCliente() {
+    }
+
+    public static String de(HttpServletRequest request) {
+        Principal usuario = request.getUserPrincipal();
+        if (usuario != null) {
+            return "usuario:" + usuario.getName();
+        }
+        if (request.getAttribute(ATRIBUTO) instanceof String verificada) {
+            return verificada;
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -1,18 +1,24 @@
 package com.ejemplo.ddd.infraestructura.web;
 
 import com.ejemplo.ddd.aplicacion.dto.*;
+import com.ejemplo.ddd.aplicacion.proyeccion.IndiceDirecciones;
 import com.ejemplo.ddd.aplicacion.servicio.PedidoAplicacionService;
 import com.ejemplo.ddd.aplicacion.servicio.PedidoNoEncontradoException;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
 import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
 import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.web.idempotencia.RegistroIdempotencia;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,26 +28,36 @@ import org.slf4j.LoggerFactory;
 public class PedidoController {
 
     private static final Logger logger = LoggerFactory.getLogger(PedidoController.class);
+    private static final int LIMITE_MAXIMO_BUSQUEDA = 1000;
+    private static final int LIMITE_MAXIMO_CAMBIOS = 10_000;
+    private static final long ESPERA_MAXIMA_CAMBIOS_SEGUNDOS = 30;
 
     private final PedidoAplicacionService pedidoAplicacionService;
+    private final RegistroIdempotencia registroIdempotencia;
 
-    public PedidoController(PedidoAplicacionService pedidoAplicacionService) {
+    public PedidoController(PedidoAplicacionService pedidoAplicacionService, RegistroIdempotencia registroIdempotencia) {
         this.pedidoAplicacionService = pedidoAplicacionService;
+        this.registroIdempotencia = registroIdempotencia;
     }
 
     // --- CREATE ---
     @PostMapping
-    public ResponseEntity<PedidoDTO> crearPedido(@Valid @RequestBody CrearPedidoRequest request) {
-        try {
-            PedidoDTO nuevoPedidoDTO = pedidoAplicacionService.gestionarCreacionPedido(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(nuevoPedidoDTO);
-        } catch (IllegalArgumentException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
-        } catch (Exception e) {
-            // Loggear el error de forma apropiada
-            logger.error("Error interno al crear el pedido: {}", e.getMessage(), e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error interno al crear el pedido.");
-        }
+    public ResponseEntity<PedidoDTO> crearPedido(
+            @Valid @RequestBody CrearPedidoRequest request,
+            @RequestHeader(value = RegistroIdempotencia.CABECERA, required = false) String claveIdempotencia,
+            HttpServletRequest peticionHttp) {
+        return registroIdempotencia.ejecutar(claveIdempotencia, peticionHttp, "crear", request, () -> {
+            try {
+                PedidoDTO nuevoPedidoDTO = pedidoAplicacionService.gestionarCreacionPedido(request);
+                return ResponseEntity.status(HttpStatus.CREATED).body(nuevoPedidoDTO);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            } catch (Exception e) {
+                // Loggear el error de forma apropiada
+                logger.error("Error interno al crear el pedido: {}", e.getMessage(), e);
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error interno al crear el pedido.");
+            }
+        });
     }
 
     // --- READ ---
@@ -59,12 +75,84 @@ public class PedidoController {
         }
     }
 
+    @PostMapping("/_mget")
+    public ResponseEntity<PedidosPorIdsDTO> obtenerPedidosPorIds(@Valid @RequestBody BuscarPedidosPorIdsRequest request) {
+        return ResponseEntity.ok(pedidoAplicacionService.obtenerPedidosPorIds(request.ids()));
+    }
+
     @GetMapping
     public ResponseEntity<List<PedidoDTO>> obtenerTodosLosPedidos() {
         List<PedidoDTO> pedidos = pedidoAplicacionService.obtenerTodosLosPedidos();
         return ResponseEntity.ok(pedidos);
     }
 
+    @GetMapping(params = {"estado", "!vista"})
+    public ResponseEntity<List<PedidoDTO>> obtenerPedidosPorEstado(@RequestParam String estado) {
+        return ResponseEntity.ok(pedidoAplicacionService.obtenerPedidosPorEstado(parsearEstado(estado)));
+    }
+
+    /**
+     * Búsqueda por prefijo del código postal o de la ciudad de envío (sin distinguir mayúsculas ni tildes),
+     * opcionalmente solo en un estado. Se sirve del índice de direcciones, sin recorrer los pedidos.
+     */
+    @GetMapping("/busqueda")
+    public ResponseEntity<List<PedidoResumenDTO>> buscarPorDireccion(
+            @RequestParam(required = false) String codigoPostal,
+            @RequestParam(required = false) String ciudad,
+            @RequestParam(required = false) String estado,
+            @RequestParam(defaultValue = "100") int limite) {
+        if ((codigoPostal == null) == (ciudad == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Indica codigoPostal o ciudad, solo uno de los dos");
+        }
+        if (limite < 1 || limite > LIMITE_MAXIMO_BUSQUEDA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El límite debe estar entre 1 y " + LIMITE_MAXIMO_BUSQUEDA);
+        }
+        EstadoPedido estadoPedido = estado != null ? parsearEstado(estado) : null;
+        try {
+            return ResponseEntity.ok(codigoPostal != null
+                ? pedidoAplicacionService.buscarPorDireccion(IndiceDirecciones.Campo.CODIGO_POSTAL, codigoPostal, estadoPedido, limite)
+                : pedidoAplicacionService.buscarPorDireccion(IndiceDirecciones.Campo.CIUDAD, ciudad, estadoPedido, limite));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Cambios de pedidos posteriores al cursor {@code desde}. Sin cursor devuelve el cursor actual, desde
+     * el que seguir los cambios. Con {@code espera} (en segundos) y sin cambios, la respuesta se retiene
+     * hasta que llegue alguno o se agote la espera, sin ocupar un hilo del servidor mientras tanto.
+     * El cursor 0 lee desde el primer cambio registrado. Un cursor que el registro ya no cubre responde 410 y
+     * obliga a resincronizar con un listado completo.
+     */
+    @GetMapping("/cambios")
+    public CompletableFuture<ResponseEntity<CambiosPedidosDTO>> obtenerCambios(
+            @RequestParam(required = false) Long desde,
+            @RequestParam(defaultValue = "1000") int limite,
+            @RequestParam(defaultValue = "0") long espera) {
+        if (limite < 1 || limite > LIMITE_MAXIMO_CAMBIOS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El límite debe estar entre 1 y " + LIMITE_MAXIMO_CAMBIOS);
+        }
+        if (espera < 0 || espera > ESPERA_MAXIMA_CAMBIOS_SEGUNDOS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "La espera debe estar entre 0 y " + ESPERA_MAXIMA_CAMBIOS_SEGUNDOS + " segundos");
+        }
+        if (desde == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(pedidoAplicacionService.obtenerCambios(null, limite)));
+        }
+        return pedidoAplicacionService.esperarCambios(desde, limite, Duration.ofSeconds(espera))
+            .thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping(params = "vista=resumen")
+    public ResponseEntity<List<PedidoResumenDTO>> obtenerResumenesDePedidos() {
+        return ResponseEntity.ok(pedidoAplicacionService.obtenerResumenesDePedidos());
+    }
+
+    @GetMapping("/resumen")
+    public ResponseEntity<ResumenPedidosDTO> obtenerResumen() {
+        return ResponseEntity.ok(pedidoAplicacionService.obtenerResumen());
+    }
+
     // --- UPDATE ---
     @PutMapping("/{idPedido}/direccion")
     public ResponseEntity<PedidoDTO> actualizarDireccionEnvio(
@@ -130,57 +218,76 @@ public class PedidoController {
     }
 
     @PostMapping("/{idPedido}/confirmar")
-    public ResponseEntity<PedidoDTO> confirmarPedido(@PathVariable String idPedido) {
-        try {
-            IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
-            PedidoDTO pedidoActualizado = pedidoAplicacionService.confirmarPedido(identificador);
-            return ResponseEntity.ok(pedidoActualizado);
-        } catch (PedidoNoEncontradoException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
-        }
+    public ResponseEntity<PedidoDTO> confirmarPedido(
+            @PathVariable String idPedido,
+            @RequestHeader(value = RegistroIdempotencia.CABECERA, required = false) String claveIdempotencia,
+            HttpServletRequest peticionHttp) {
+        return registroIdempotencia.ejecutar(claveIdempotencia, peticionHttp, "confirmar:" + idPedido, null, () -> {
+            try {
+                IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
+                PedidoDTO pedidoActualizado = pedidoAplicacionService.confirmarPedido(identificador);
+                return ResponseEntity.ok(pedidoActualizado);
+            } catch (PedidoNoEncontradoException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        });
     }
     
     @PostMapping("/{idPedido}/enviar")
-    public ResponseEntity<PedidoDTO> marcarPedidoComoEnviado(@PathVariable String idPedido) {
-        try {
-            IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
-            PedidoDTO pedidoActualizado = pedidoAplicacionService.marcarPedidoComoEnviado(identificador);
-            return ResponseEntity.ok(pedidoActualizado);
-        } catch (PedidoNoEncontradoException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
-        }
+    public ResponseEntity<PedidoDTO> marcarPedidoComoEnviado(
+            @PathVariable String idPedido,
+            @RequestHeader(value = RegistroIdempotencia.CABECERA, required = false) String claveIdempotencia,
+            HttpServletRequest peticionHttp) {
+        return registroIdempotencia.ejecutar(claveIdempotencia, peticionHttp, "enviar:" + idPedido, null, () -> {
+            try {
+                IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
+                PedidoDTO pedidoActualizado = pedidoAplicacionService.marcarPedidoComoEnviado(identificador);
+                return ResponseEntity.ok(pedidoActualizado);
+            } catch (PedidoNoEncontradoException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        });
     }
 
     @PostMapping("/{idPedido}/entregar")
-    public ResponseEntity<PedidoDTO> marcarPedidoComoEntregado(@PathVariable String idPedido) {
-         try {
-            IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
-            PedidoDTO pedidoActualizado = pedidoAplicacionService.marcarPedidoComoEntregado(identificador);
-            return ResponseEntity.ok(pedidoActualizado);
-        } catch (PedidoNoEncontradoException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
-        }
+    public ResponseEntity<PedidoDTO> marcarPedidoComoEntregado(
+            @PathVariable String idPedido,
+            @RequestHeader(value = RegistroIdempotencia.CABECERA, required = false) String claveIdempotencia,
+            HttpServletRequest peticionHttp) {
+        return registroIdempotencia.ejecutar(claveIdempotencia, peticionHttp, "entregar:" + idPedido, null, () -> {
+            try {
+                IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
+                PedidoDTO pedidoActualizado = pedidoAplicacionService.marcarPedidoComoEntregado(identificador);
+                return ResponseEntity.ok(pedidoActualizado);
+            } catch (PedidoNoEncontradoException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        });
     }
     
     @PostMapping("/{idPedido}/cancelar")
     public ResponseEntity<PedidoDTO> cancelarPedido(
             @PathVariable String idPedido,
-            @Valid @RequestBody CancelarPedidoRequest request) {
-        try {
-            IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
-            PedidoDTO pedidoActualizado = pedidoAplicacionService.cancelarPedido(identificador, request);
-            return ResponseEntity.ok(pedidoActualizado);
-        } catch (PedidoNoEncontradoException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
-        }
+            @Valid @RequestBody CancelarPedidoRequest request,
+            @RequestHeader(value = RegistroIdempotencia.CABECERA, required = false) String claveIdempotencia,
+            HttpServletRequest peticionHttp) {
+        return registroIdempotencia.ejecutar(claveIdempotencia, peticionHttp, "cancelar:" + idPedido, request, () -> {
+            try {
+                IdentificadorPedido identificador = IdentificadorPedido.deString(idPedido);
+                PedidoDTO pedidoActualizado = pedidoAplicacionService.cancelarPedido(identificador, request);
+                return ResponseEntity.ok(pedidoActualizado);
+            } catch (PedidoNoEncontradoException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        });
     }
 
     // --- DELETE ---
@@ -196,4 +303,12 @@ public class PedidoController {
         // No se lanza NOT_FOUND aquí si el servicio de aplicación no lo hace,
         // ya que DELETE es idempotente.
     }
+
+    private static EstadoPedido parsearEstado(String estado) {
+        try {
+            return EstadoPedido.valueOf(estado.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Estado de pedido no válido: " + estado);
+        }
+    }
 }
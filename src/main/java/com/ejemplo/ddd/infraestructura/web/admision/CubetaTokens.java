@@ -0,0 +1,61 @@
+package com.ejemplo.ddd.infraestructura.web.admision;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cubeta de tokens sin bloqueos basada en GCRA (Generic Cell Rate Algorithm).
+ * <p>
+ * En lugar de guardar tokens y hora de recarga (dos campos que habría que actualizar juntos),
+ * guarda un único instante teórico de llegada (TAT). Una petición se admite si
+ * {@code ahora >= TAT - tolerancia}, y al admitirla el TAT avanza un intervalo de emisión.
+ * Todo se resuelve con un único CAS sobre un {@link AtomicLong}.
+ */
+public class CubetaTokens {
+
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final AtomicLong instanteTeorico;
+
+    /**
+     * @param tokensPorSegundo Tasa sostenida de peticiones admitidas.
+     * @param rafaga Número de peticiones que pueden admitirse de golpe con la cubeta llena.
+     */
+    public CubetaTokens(double tokensPorSegundo, int rafaga) {
+        if (tokensPorSegundo <= 0) {
+            throw new IllegalArgumentException("La tasa de tokens debe ser positiva");
+        }
+        if (rafaga <= 0) {
+            throw new IllegalArgumentException("La ráfaga debe ser positiva");
+        }
+        this.intervaloNanos = Math.max(1, (long) (1_000_000_000L / tokensPorSegundo));
+        this.toleranciaNanos = intervaloNanos * (rafaga - 1);
+        this.instanteTeorico = new AtomicLong(Long.MIN_VALUE);
+    }
+
+    /**
+     * Intenta consumir un token.
+     * @param ahoraNanos Instante actual según {@link System#nanoTime()}.
+     * @return 0 si se admite la petición, o los nanosegundos que faltan hasta que haya un token.
+     */
+    public long intentarConsumir(long ahoraNanos) {
+        while (true) {
+            long tat = instanteTeorico.get();
+            long base = tat == Long.MIN_VALUE ? ahoraNanos : Math.max(tat, ahoraNanos);
+            long espera = base - toleranciaNanos - ahoraNanos;
+            if (espera > 0) {
+                return espera;
+            }
+            if (instanteTeorico.compareAndSet(tat, base + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} si la cubeta está llena, es decir, el cliente lleva tiempo sin consumir tokens.
+     */
+    public boolean estaLlena(long ahoraNanos) {
+        long tat = instanteTeorico.get();
+        return tat == Long.MIN_VALUE || tat <= ahoraNanos;
+    }
+}
@@ -0,0 +1,266 @@
+package com.ejemplo.ddd.infraestructura.web.admision;
+
+import com.ejemplo.ddd.infraestructura.web.IdentidadCliente;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Control de admisión para la API de pedidos.
+ * <p>
+ * Antes de que la petición llegue al controlador (y por tanto al repositorio) se aplican dos
+ * barreras: una cubeta de tokens por cliente, que rechaza con 429 al cliente que supera su cuota,
+ * y un límite global de concurrencia adaptativo, que rechaza con 503 cuando la latencia observada
+ * indica sobrecarga. Así un cliente ruidoso agota su propia cuota en lugar de ralentizar a todos.
+ * <p>
+ * La cuota es por {@code idCliente}, que el llamante declara en la cabecera {@value IdentidadCliente#CABECERA}
+ * (el cuerpo no se lee aquí para que el rechazo sea inmediato), dentro de cada llamante de la API
+ * ({@link IdentidadCliente}: el usuario autenticado o la dirección remota). Como la cabecera la elige el propio
+ * llamante, todas sus cubetas de cliente comparten además una cubeta del llamante de
+ * {@code clientes-por-llamante} cuotas: varios clientes detrás de una misma pasarela no se quitan cuota entre
+ * sí, y cambiar la cabecera en cada petición no da más que eso. Sin cabecera, la cuota es la del llamante.
+ * <p>
+ * Los listados y recorridos ({@link #esRecorrido}) ocupan hueco en el límite de concurrencia, pero su
+ * latencia no lo ajusta: tardan más por lo que devuelven, no por sobrecarga, y si no rebajarían el límite
+ * para las peticiones puntuales.
+ * <p>
+ * Se guarda estado de como mucho {@code maximo-clientes} clientes. Con la tabla llena, los que tienen la
+ * cubeta llena se purgan (como mucho una vez por lo que tarda en llenarse una cubeta) y, si aun así no
+ * hay sitio, el cliente nuevo comparte una cubeta común con los demás que no caben.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class FiltroControlAdmision extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FiltroControlAdmision.class);
+
+    private static final String CLIENTE_OTROS = "otros";
+    private static final String RUTA_PEDIDOS = "/api/pedidos";
+    // Sufijo de la cubeta que suman todos los clientes de un llamante
+    private static final String SUFIJO_LLAMANTE = "/*";
+
+    private final boolean habilitado;
+    private final double tokensPorSegundo;
+    private final int rafaga;
+    private final int clientesPorLlamante;
+    private final int maximoClientes;
+    private final int maximoClientesConMetricas;
+    private final LimiteConcurrenciaAdaptativo limiteConcurrencia;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, EstadoCliente> clientes = new ConcurrentHashMap<>();
+    // Las altas, las purgas y las etiquetas de métricas se cambian siempre bajo este cerrojo
+    private final Object cerrojoAltas = new Object();
+    private final Set<String> clientesConMetricas = new HashSet<>();
+    private final long intervaloPurgaNanos;
+    private long proximaPurgaNanos;
+    private final EstadoCliente desbordados;
+    private final Counter rechazosConcurrencia;
+
+    public FiltroControlAdmision(MeterRegistry meterRegistry,
+                                 @Value("${pedidos.admision.habilitada:true}") boolean habilitado,
+                                 @Value("${pedidos.admision.tokens-por-segundo:200}") double tokensPorSegundo,
+                                 @Value("${pedidos.admision.rafaga:400}") int rafaga,
+                                 @Value("${pedidos.admision.clientes-por-llamante:8}") int clientesPorLlamante,
+                                 @Value("${pedidos.admision.maximo-clientes:10000}") int maximoClientes,
+                                 @Value("${pedidos.admision.maximo-clientes-con-metricas:100}") int maximoClientesConMetricas,
+                                 @Value("${pedidos.admision.concurrencia.inicial:64}") int concurrenciaInicial,
+                                 @Value("${pedidos.admision.concurrencia.minima:8}") int concurrenciaMinima,
+                                 @Value("${pedidos.admision.concurrencia.maxima:512}") int concurrenciaMaxima,
+                                 @Value("${pedidos.admision.latencia-objetivo-ms:50}") long latenciaObjetivoMs) {
+        if (clientesPorLlamante <= 0) {
+            throw new IllegalArgumentException("Las cuotas por llamante deben ser positivas");
+        }
+        this.meterRegistry = meterRegistry;
+        this.habilitado = habilitado;
+        this.tokensPorSegundo = tokensPorSegundo;
+        this.rafaga = rafaga;
+        this.clientesPorLlamante = clientesPorLlamante;
+        this.maximoClientes = maximoClientes;
+        this.maximoClientesConMetricas = maximoClientesConMetricas;
+        this.intervaloPurgaNanos = (long) (TimeUnit.SECONDS.toNanos(1) * (rafaga / tokensPorSegundo));
+        this.proximaPurgaNanos = System.nanoTime();
+        this.desbordados = nuevoEstadoCliente(CLIENTE_OTROS, CLIENTE_OTROS, 1);
+        this.limiteConcurrencia = new LimiteConcurrenciaAdaptativo(
+            concurrenciaInicial, concurrenciaMinima, concurrenciaMaxima, TimeUnit.MILLISECONDS.toNanos(latenciaObjetivoMs));
+        this.rechazosConcurrencia = Counter.builder("pedidos.admision.rechazos")
+            .description("Peticiones rechazadas por el control de admisión")
+            .tag("cliente", "global")
+            .tag("motivo", "concurrencia")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.admision.limite.concurrencia", limiteConcurrencia, LimiteConcurrenciaAdaptativo::getLimite)
+            .description("Límite adaptativo actual de peticiones en vuelo")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.admision.en.vuelo", limiteConcurrencia, LimiteConcurrenciaAdaptativo::getEnVuelo)
+            .description("Peticiones en vuelo admitidas")
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !habilitado || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long inicio = System.nanoTime();
+        String llamante = IdentidadCliente.de(request);
+        String idCliente = request.getHeader(IdentidadCliente.CABECERA);
+        EstadoCliente cliente;
+        EstadoCliente cuotaLlamante = null;
+        if (idCliente == null || idCliente.isBlank()) {
+            cliente = estadoCliente(llamante, 1, inicio);
+        } else {
+            cliente = estadoCliente(llamante + "/" + idCliente, 1, inicio);
+            cuotaLlamante = estadoCliente(llamante + SUFIJO_LLAMANTE, clientesPorLlamante, inicio);
+        }
+
+        EstadoCliente limitante = cliente;
+        long esperaNanos = cliente.cubeta.intentarConsumir(inicio);
+        if (esperaNanos == 0 && cuotaLlamante != null && cuotaLlamante != cliente) {
+            limitante = cuotaLlamante;
+            esperaNanos = cuotaLlamante.cubeta.intentarConsumir(inicio);
+        }
+        if (esperaNanos > 0) {
+            limitante.rechazosCuota.increment();
+            long segundos = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(esperaNanos + 999_999_999L));
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(segundos));
+            rechazar(response, HttpStatus.TOO_MANY_REQUESTS, "Cuota de peticiones excedida");
+            return;
+        }
+        if (!limiteConcurrencia.intentarAdquirir()) {
+            rechazosConcurrencia.increment();
+            rechazar(response, HttpStatus.SERVICE_UNAVAILABLE, "Servicio sobrecargado, reintente más tarde");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long fin = System.nanoTime();
+            if (esRecorrido(request)) {
+                limiteConcurrencia.liberarSinMedir();
+            } else {
+                limiteConcurrencia.liberar(fin - inicio, fin);
+            }
+            cliente.latencia.record(fin - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Listados por estado o resumidos, búsqueda por dirección, feed de cambios y lectura múltiple: su
+     * duración depende de cuántos pedidos devuelven.
+     */
+    static boolean esRecorrido(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.equals(RUTA_PEDIDOS) && "GET".equals(request.getMethod())
+            || uri.equals(RUTA_PEDIDOS + "/busqueda")
+            || uri.equals(RUTA_PEDIDOS + "/cambios")
+            || uri.equals(RUTA_PEDIDOS + "/_mget");
+    }
+
+    /**
+     * @param cuotas Cuántas cuotas de cliente tiene la cubeta: 1 para un cliente y
+     *               {@code clientes-por-llamante} para la cubeta común de un llamante.
+     */
+    private EstadoCliente estadoCliente(String idCliente, int cuotas, long ahoraNanos) {
+        EstadoCliente estado = clientes.get(idCliente);
+        if (estado != null) {
+            return estado;
+        }
+        synchronized (cerrojoAltas) {
+            estado = clientes.get(idCliente);
+            if (estado != null) {
+                return estado;
+            }
+            if (clientes.size() >= maximoClientes) {
+                purgarClientesInactivos(ahoraNanos);
+                if (clientes.size() >= maximoClientes) {
+                    return desbordados;
+                }
+            }
+            // Las métricas por cliente se limitan para no disparar la cardinalidad en Prometheus
+            String etiqueta = CLIENTE_OTROS;
+            if (clientesConMetricas.size() < maximoClientesConMetricas) {
+                clientesConMetricas.add(idCliente);
+                etiqueta = idCliente;
+            }
+            estado = nuevoEstadoCliente(idCliente, etiqueta, cuotas);
+            clientes.put(idCliente, estado);
+            return estado;
+        }
+    }
+
+    private EstadoCliente nuevoEstadoCliente(String idCliente, String etiqueta, int cuotas) {
+        return new EstadoCliente(
+            new CubetaTokens(tokensPorSegundo * cuotas, rafaga * cuotas),
+            Counter.builder("pedidos.admision.rechazos")
+                .description("Peticiones rechazadas por el control de admisión")
+                .tag("cliente", etiqueta)
+                .tag("motivo", "cuota")
+                .register(meterRegistry),
+            Timer.builder("pedidos.admision.latencia")
+                .description("Latencia de las peticiones admitidas por cliente")
+                .tag("cliente", etiqueta)
+                .publishPercentileHistogram()
+                .register(meterRegistry),
+            !etiqueta.equals(CLIENTE_OTROS)
+        );
+    }
+
+    // Llamado con el cerrojo de altas
+    private void purgarClientesInactivos(long ahoraNanos) {
+        // Recorrer la tabla entera en cada alta la haría cuadrática: hasta que pueda llenarse otra cubeta
+        // no habrá nada nuevo que purgar
+        if (ahoraNanos - proximaPurgaNanos < 0) {
+            return;
+        }
+        proximaPurgaNanos = ahoraNanos + intervaloPurgaNanos;
+        // Un cliente con la cubeta llena no tiene estado que conservar
+        int antes = clientes.size();
+        clientes.entrySet().removeIf(entrada -> {
+            EstadoCliente estado = entrada.getValue();
+            if (!estado.cubeta.estaLlena(ahoraNanos)) {
+                return false;
+            }
+            if (estado.metricasPropias) {
+                // Deja la etiqueta libre para otro cliente
+                clientesConMetricas.remove(entrada.getKey());
+                meterRegistry.remove(estado.rechazosCuota);
+                meterRegistry.remove(estado.latencia);
+            }
+            return true;
+        });
+        logger.debug("Purgados {} clientes inactivos del control de admisión", antes - clientes.size());
+    }
+
+    private static void rechazar(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        response.setStatus(estado.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(mensaje);
+    }
+
+    private record EstadoCliente(CubetaTokens cubeta, Counter rechazosCuota, Timer latencia, boolean metricasPropias) {}
+}
@@ -0,0 +1,95 @@
+package com.ejemplo.ddd.infraestructura.web.admision;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Límite global de peticiones en vuelo que se adapta a la latencia observada (AIMD).
+ * <p>
+ * Mientras la latencia se mantiene por debajo del objetivo, el límite crece de forma aditiva
+ * (aproximadamente una unidad por cada "límite" peticiones completadas). Cuando una petición
+ * supera el objetivo, el límite se reduce multiplicativamente, como mucho una vez por ventana,
+ * para no desplomarse por una sola ráfaga de peticiones lentas.
+ */
+public class LimiteConcurrenciaAdaptativo {
+
+    private static final double FACTOR_REDUCCION = 0.9;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final long latenciaObjetivoNanos;
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    // El límite se guarda como bits de double para actualizarlo con CAS
+    private final AtomicLong limite;
+    private final AtomicLong ultimaReduccionNanos = new AtomicLong(System.nanoTime());
+
+    public LimiteConcurrenciaAdaptativo(int limiteInicial, int limiteMinimo, int limiteMaximo, long latenciaObjetivoNanos) {
+        if (limiteMinimo <= 0 || limiteMinimo > limiteMaximo) {
+            throw new IllegalArgumentException("Los límites de concurrencia deben cumplir 0 < mínimo <= máximo");
+        }
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.latenciaObjetivoNanos = latenciaObjetivoNanos;
+        int inicial = Math.max(limiteMinimo, Math.min(limiteMaximo, limiteInicial));
+        this.limite = new AtomicLong(Double.doubleToLongBits(inicial));
+    }
+
+    /**
+     * Reserva un hueco si hay capacidad.
+     * @return {@code true} si la petición puede continuar; en ese caso debe llamarse a {@link #liberar}.
+     */
+    public boolean intentarAdquirir() {
+        int limiteActual = getLimite();
+        while (true) {
+            int actual = enVuelo.get();
+            if (actual >= limiteActual) {
+                return false;
+            }
+            if (enVuelo.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libera el hueco y ajusta el límite con la latencia de la petición completada.
+     */
+    public void liberar(long latenciaNanos, long ahoraNanos) {
+        enVuelo.decrementAndGet();
+        if (latenciaNanos > latenciaObjetivoNanos) {
+            long ultima = ultimaReduccionNanos.get();
+            // Una reducción por ventana de latencia objetivo como mucho
+            if (ahoraNanos - ultima >= latenciaObjetivoNanos && ultimaReduccionNanos.compareAndSet(ultima, ahoraNanos)) {
+                actualizarLimite(l -> Math.max(limiteMinimo, l * FACTOR_REDUCCION));
+            }
+        } else {
+            actualizarLimite(l -> Math.min(limiteMaximo, l + 1.0 / l));
+        }
+    }
+
+    /**
+     * Libera el hueco sin ajustar el límite, para peticiones cuya latencia no indica la carga.
+     */
+    public void liberarSinMedir() {
+        enVuelo.decrementAndGet();
+    }
+
+    public int getLimite() {
+        return (int) Double.longBitsToDouble(limite.get());
+    }
+
+    public int getEnVuelo() {
+        return enVuelo.get();
+    }
+
+    private void actualizarLimite(DoubleUnaryOperator ajuste) {
+        while (true) {
+            long bits = limite.get();
+            double nuevo = ajuste.applyAsDouble(Double.longBitsToDouble(bits));
+            if (limite.compareAndSet(bits, Double.doubleToLongBits(nuevo))) {
+                return;
+            }
+        }
+    }
+}
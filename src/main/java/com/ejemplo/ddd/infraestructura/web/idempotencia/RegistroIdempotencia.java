@@ -0,0 +1,249 @@
+package com.ejemplo.ddd.infraestructura.web.idempotencia;
+
+import com.ejemplo.ddd.infraestructura.web.IdentidadCliente;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registro de claves de idempotencia (cabecera {@value #CABECERA}) para creación y comandos.
+ * <p>
+ * Las claves son de cada cliente ({@link IdentidadCliente}: el usuario autenticado o, si no lo hay, la
+ * dirección remota): la misma clave enviada por dos clientes son dos claves distintas. La primera petición con una clave ejecuta la operación; las repeticiones
+ * dentro del TTL reciben la respuesta original sin volver a ejecutarla, siempre que traigan la misma
+ * petición: reutilizar la clave con otro cuerpo se rechaza con 422. Si un duplicado llega mientras la
+ * primera ejecución sigue en curso, espera a su resultado como mucho {@code pedidos.idempotencia.espera-maxima}
+ * y después responde 409 sin lanzar otra. Los errores 4xx son deterministas y también se recuerdan;
+ * cualquier otro fallo libera la clave para que el cliente pueda reintentar.
+ * <p>
+ * El almacén está acotado: las claves se purgan en orden de registro, que con un TTL fijo es casi el de
+ * caducidad, de modo que cada alta solo mira la cabeza de la cola. Si al llenarse la clave más antigua
+ * aún no ha caducado, la operación se ejecuta sin registrar la clave.
+ */
+@Component
+public class RegistroIdempotencia {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistroIdempotencia.class);
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    private final ConcurrentMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+    // Claves en orden de registro; puede contener entradas ya retiradas del mapa, que se descartan al purgar
+    private final ConcurrentLinkedQueue<Registrada> orden = new ConcurrentLinkedQueue<>();
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final long esperaMaximaNanos;
+    private final int maximoEntradas;
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter desbordamientos;
+
+    public RegistroIdempotencia(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                                @Value("${pedidos.idempotencia.ttl:PT10M}") Duration ttl,
+                                @Value("${pedidos.idempotencia.espera-maxima:PT10S}") Duration esperaMaxima,
+                                @Value("${pedidos.idempotencia.maximo-claves:100000}") int maximoEntradas) {
+        this.objectMapper = objectMapper;
+        this.ttlNanos = ttl.toNanos();
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.maximoEntradas = maximoEntradas;
+        this.aciertos = Counter.builder("pedidos.idempotencia")
+            .description("Peticiones con clave de idempotencia")
+            .tag("resultado", "acierto")
+            .register(meterRegistry);
+        this.fallos = Counter.builder("pedidos.idempotencia")
+            .description("Peticiones con clave de idempotencia")
+            .tag("resultado", "fallo")
+            .register(meterRegistry);
+        this.desbordamientos = Counter.builder("pedidos.idempotencia")
+            .description("Peticiones con clave de idempotencia")
+            .tag("resultado", "desbordamiento")
+            .register(meterRegistry);
+        Gauge.builder("pedidos.idempotencia.claves", entradas, ConcurrentMap::size)
+            .description("Claves de idempotencia registradas")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por cliente, clave y operación.
+     * @param clave Valor de la cabecera {@value #CABECERA}; si es {@code null} se ejecuta sin más.
+     * @param peticionHttp Petición HTTP de la que sale la identidad del cliente ({@link IdentidadCliente}).
+     * @param operacion Ámbito de la clave (ej. "confirmar:{idPedido}") para que no colisione entre endpoints.
+     * @param peticion Cuerpo de la petición, o {@code null} si no tiene; una repetición debe traer el mismo.
+     * @param accion La operación a ejecutar.
+     * @throws ResponseStatusException 422 si la clave ya se usó con otra petición; 409 si la primera
+     *         ejecución sigue en curso pasada la espera máxima.
+     */
+    public <T> ResponseEntity<T> ejecutar(String clave, HttpServletRequest peticionHttp, String operacion, Object peticion,
+                                          Supplier<ResponseEntity<T>> accion) {
+        return ejecutar(clave, IdentidadCliente.de(peticionHttp), operacion, peticion, accion);
+    }
+
+    /**
+     * Como {@link #ejecutar(String, HttpServletRequest, String, Object, Supplier)} con la identidad ya resuelta.
+     * @param cliente Identidad del cliente que envía la petición.
+     * @param operacion Ámbito de la clave (ej. "confirmar:{idPedido}") para que no colisione entre endpoints.
+     * @param peticion Cuerpo de la petición, o {@code null} si no tiene; una repetición debe traer el mismo.
+     * @param accion La operación a ejecutar.
+     * @throws ResponseStatusException 422 si la clave ya se usó con otra petición; 409 si la primera
+     *         ejecución sigue en curso pasada la espera máxima.
+     */
+    <T> ResponseEntity<T> ejecutar(String clave, String cliente, String operacion, Object peticion,
+                                   Supplier<ResponseEntity<T>> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        String claveCompleta = cliente + ":" + operacion + ":" + clave;
+        long ahora = System.nanoTime();
+
+        Entrada nueva = new Entrada(huella(peticion));
+        Entrada existente = entradas.putIfAbsent(claveCompleta, nueva);
+        if (existente != null && existente.caducada(ahora)) {
+            entradas.remove(claveCompleta, existente);
+            existente = entradas.putIfAbsent(claveCompleta, nueva);
+        }
+        if (existente != null) {
+            aciertos.increment();
+            logger.debug("Clave de idempotencia repetida: {}", claveCompleta);
+            if (!Arrays.equals(existente.huella, nueva.huella)) {
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "La clave de idempotencia ya se usó con otra petición");
+            }
+            return repetir(existente);
+        }
+
+        fallos.increment();
+        if (!hacerHueco(ahora)) {
+            entradas.remove(claveCompleta, nueva);
+            desbordamientos.increment();
+            return accion.get();
+        }
+        orden.add(new Registrada(claveCompleta, nueva));
+        return ejecutarPrimera(claveCompleta, nueva, accion);
+    }
+
+    private <T> ResponseEntity<T> ejecutarPrimera(String claveCompleta, Entrada entrada, Supplier<ResponseEntity<T>> accion) {
+        try {
+            ResponseEntity<T> respuesta = accion.get();
+            entrada.completar(respuesta, System.nanoTime() + ttlNanos);
+            return respuesta;
+        } catch (Throwable e) {
+            // También los Error: una entrada que se quedase en curso no caducaría nunca
+            if (e instanceof ResponseStatusException rse && rse.getStatusCode().is4xxClientError()) {
+                entrada.fallar(e, System.nanoTime() + ttlNanos);
+            } else {
+                // Error no determinista: se libera la clave para permitir el reintento
+                entradas.remove(claveCompleta, entrada);
+                entrada.fallar(e, System.nanoTime());
+            }
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> repetir(Entrada entrada) {
+        ResponseEntity<?> original;
+        try {
+            original = entrada.resultado.get(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "La petición original con esta clave de idempotencia sigue en curso");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrumpido esperando la petición original");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return (ResponseEntity<T>) ResponseEntity.status(original.getStatusCode())
+            .headers(original.getHeaders())
+            .header(CABECERA_REPETIDA, "true")
+            .body(original.getBody());
+    }
+
+    private byte[] huella(Object peticion) {
+        if (peticion == null) {
+            return new byte[0];
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(peticion));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular la huella de la petición", e);
+        }
+    }
+
+    /**
+     * Retira de la cabeza de la cola las claves caducadas o ya retiradas; se para en la primera vigente.
+     * @return Si el almacén queda dentro de su límite.
+     */
+    private boolean hacerHueco(long ahora) {
+        Registrada cabeza;
+        while ((cabeza = orden.peek()) != null) {
+            boolean retirada = entradas.get(cabeza.clave()) != cabeza.entrada();
+            if (!retirada && !cabeza.entrada().caducada(ahora)) {
+                break;
+            }
+            if (orden.remove(cabeza) && !retirada) {
+                entradas.remove(cabeza.clave(), cabeza.entrada());
+            }
+        }
+        return entradas.size() <= maximoEntradas;
+    }
+
+    private record Registrada(String clave, Entrada entrada) {}
+
+    private static final class Entrada {
+        private final CompletableFuture<ResponseEntity<?>> resultado = new CompletableFuture<>();
+        // Resumen SHA-256 del cuerpo de la petición original
+        private final byte[] huella;
+        // Mientras la ejecución está en curso la entrada no caduca
+        private volatile long caducaNanos = Long.MAX_VALUE;
+        private volatile boolean completada;
+
+        Entrada(byte[] huella) {
+            this.huella = huella;
+        }
+
+        void completar(ResponseEntity<?> respuesta, long caduca) {
+            caducaNanos = caduca;
+            completada = true;
+            resultado.complete(respuesta);
+        }
+
+        void fallar(Throwable error, long caduca) {
+            caducaNanos = caduca;
+            completada = true;
+            resultado.completeExceptionally(error);
+        }
+
+        boolean caducada(long ahora) {
+            return completada && ahora - caducaNanos >= 0;
+        }
+    }
+}
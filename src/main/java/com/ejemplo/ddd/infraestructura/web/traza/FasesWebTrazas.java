@@ -0,0 +1,43 @@
+package com.ejemplo.ddd.infraestructura.web.traza;
+
+import com.ejemplo.ddd.aplicacion.traza.Trazador;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Marca en la traza las fases web que no tienen un punto de cierre propio: la entrada
+ * (deserialización del cuerpo y validación, hasta que el servicio abre su tramo) y la
+ * serialización de la respuesta (hasta que termina la petición).
+ * <p>
+ * Se registra como interceptor en {@link com.ejemplo.ddd.config.TrazasConfig}.
+ */
+@RestControllerAdvice
+public class FasesWebTrazas implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Trazador.abrirFase("web.entrada");
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        Trazador.abrirFase("web.serializacion");
+        return body;
+    }
+}
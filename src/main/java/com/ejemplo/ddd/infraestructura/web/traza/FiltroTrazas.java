@@ -0,0 +1,66 @@
+package com.ejemplo.ddd.infraestructura.web.traza;
+
+import com.ejemplo.ddd.aplicacion.traza.Traza;
+import com.ejemplo.ddd.aplicacion.traza.Trazador;
+import com.ejemplo.ddd.infraestructura.diagnostico.RegistroTrazasLentas;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Inicia la traza de las peticiones muestreadas de la API y la entrega a {@link RegistroTrazasLentas}
+ * al terminar.
+ * <p>
+ * Se ejecuta después del control de admisión, de modo que las peticiones rechazadas no se trazan.
+ * La traza se agrupa por método y patrón de la ruta ({@code GET /api/pedidos/{id}}) para que el
+ * número de endpoints no crezca con los identificadores.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class FiltroTrazas extends OncePerRequestFilter {
+
+    private final boolean habilitadas;
+    private final double muestreo;
+    private final RegistroTrazasLentas registro;
+
+    public FiltroTrazas(RegistroTrazasLentas registro,
+                        @Value("${pedidos.trazas.habilitadas:true}") boolean habilitadas,
+                        @Value("${pedidos.trazas.muestreo:0.05}") double muestreo) {
+        this.registro = registro;
+        this.habilitadas = habilitadas;
+        this.muestreo = muestreo;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !habilitadas || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (muestreo < 1.0 && ThreadLocalRandom.current().nextDouble() >= muestreo) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Trazador.iniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Traza traza = Trazador.terminar();
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            traza.setNombre(request.getMethod() + " " + (patron != null ? patron : "desconocido"));
+            registro.registrar(traza);
+        }
+    }
+}
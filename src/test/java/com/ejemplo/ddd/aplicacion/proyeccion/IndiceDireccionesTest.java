@@ -0,0 +1,98 @@
+package com.ejemplo.ddd.aplicacion.proyeccion;
+
+import com.ejemplo.ddd.aplicacion.proyeccion.IndiceDirecciones.Campo;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceDireccionesTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private IndiceDirecciones indice;
+    private PedidoRepositoryImpl repositorio;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceDirecciones();
+        repositorio = new PedidoRepositoryImpl(List.of(indice), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositorio.cerrar();
+    }
+
+    @Test
+    @DisplayName("Should find orders by normalized postcode and city prefix and follow address, state and deletion changes")
+    void shouldFollowOrderChanges() {
+        Pedido madrid = pedido("Madrid", "28001");
+        Pedido malaga = pedido("Málaga", "29 002");
+        repositorio.guardar(madrid);
+        repositorio.guardar(malaga);
+
+        assertEquals(List.of(madrid.getId()), ids(indice.buscar(Campo.CODIGO_POSTAL, "280", null, 10)));
+        assertEquals(List.of(malaga.getId()), ids(indice.buscar(Campo.CODIGO_POSTAL, "29-00", null, 10)));
+        assertEquals(List.of(malaga.getId()), ids(indice.buscar(Campo.CIUDAD, " mala", null, 10)));
+        assertEquals(List.of(madrid.getId(), malaga.getId()), ids(indice.buscar(Campo.CIUDAD, "M", null, 10)));
+
+        madrid.actualizarDireccionEnvio(new Direccion("Calle 2", "Getafe", "28901", "ES"));
+        madrid.confirmarPedido();
+        repositorio.guardar(madrid);
+        assertTrue(indice.buscar(Campo.CODIGO_POSTAL, "28001", null, 10).isEmpty());
+        assertTrue(indice.buscar(Campo.CIUDAD, "GETAFE", EstadoPedido.PENDIENTE, 10).isEmpty());
+        List<ResumenPedido> procesando = indice.buscar(Campo.CIUDAD, "GETAFE", EstadoPedido.PROCESANDO, 10);
+        assertEquals(List.of(madrid.getId()), ids(procesando));
+        assertEquals(EstadoPedido.PROCESANDO, procesando.get(0).estado());
+
+        repositorio.eliminarPorId(madrid.getId());
+        assertTrue(indice.buscar(Campo.CODIGO_POSTAL, "28", null, 10).isEmpty());
+        assertEquals(1, indice.tamano());
+        assertThrows(IllegalArgumentException.class, () -> indice.buscar(Campo.CIUDAD, "  ", null, 10));
+    }
+
+    @Test
+    @DisplayName("Should return orders of every state in postcode order up to the limit")
+    void shouldMergeStatesInOrderUpToLimit() {
+        for (int i = 0; i < 50; i++) {
+            Pedido pedido = pedido("Sevilla", String.format("410%02d", i));
+            if (i % 2 == 0) {
+                pedido.confirmarPedido();
+            }
+            repositorio.guardar(pedido);
+        }
+
+        List<ResumenPedido> primeros = indice.buscar(Campo.CODIGO_POSTAL, "410", null, 20);
+        assertEquals(20, primeros.size());
+        assertEquals(EstadoPedido.PROCESANDO, primeros.get(0).estado());
+        assertEquals(EstadoPedido.PENDIENTE, primeros.get(1).estado());
+        assertEquals(10, indice.buscar(Campo.CODIGO_POSTAL, "4101", null, 20).size());
+        assertEquals(5, indice.buscar(Campo.CODIGO_POSTAL, "4101", EstadoPedido.PENDIENTE, 20).size());
+    }
+
+    private static Pedido pedido(String ciudad, String codigoPostal) {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", new Direccion("Calle 1", ciudad, codigoPostal, "ES"), EUR);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(BigDecimal.TEN, EUR));
+        return pedido;
+    }
+
+    private static List<IdentificadorPedido> ids(List<ResumenPedido> resumenes) {
+        return resumenes.stream().map(ResumenPedido::id).toList();
+    }
+}
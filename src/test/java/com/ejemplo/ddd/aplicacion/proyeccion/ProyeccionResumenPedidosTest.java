@@ -0,0 +1,108 @@
+package com.ejemplo.ddd.aplicacion.proyeccion;
+
+import com.ejemplo.ddd.aplicacion.dto.ResumenPedidosDTO;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProyeccionResumenPedidosTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Direccion DIRECCION = new Direccion("Calle 1", "Madrid", "28001", "ES");
+
+    private ProyeccionResumenPedidos proyeccion;
+    private PedidoRepositoryImpl repositorio;
+
+    @BeforeEach
+    void setUp() {
+        proyeccion = new ProyeccionResumenPedidos(new SimpleMeterRegistry(), 30);
+        repositorio = new PedidoRepositoryImpl(List.of(proyeccion), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositorio.cerrar();
+    }
+
+    @Test
+    @DisplayName("Should move counts and revenue between states on create, transition and delete, excluding cancelled orders")
+    void shouldTrackCountsAndTotalsAcrossWrites() {
+        Pedido primero = pedido(EUR, "10.50");
+        Pedido segundo = pedido(EUR, "4.25");
+        Pedido tercero = pedido(USD, "7.00");
+        repositorio.guardar(primero);
+        repositorio.guardar(segundo);
+        repositorio.guardar(tercero);
+
+        ResumenPedidosDTO alta = proyeccion.obtenerResumen();
+        assertEquals(3L, alta.pedidosPorEstado().get(EstadoPedido.PENDIENTE));
+        assertEquals(Map.of("EUR", new BigDecimal("14.75"), "USD", new BigDecimal("7.00")), alta.ingresosPorMoneda());
+
+        primero.confirmarPedido();
+        repositorio.guardar(primero);
+        segundo.cancelarPedido("Cliente arrepentido");
+        repositorio.guardar(segundo);
+
+        ResumenPedidosDTO transiciones = proyeccion.obtenerResumen();
+        assertEquals(1L, transiciones.pedidosPorEstado().get(EstadoPedido.PENDIENTE));
+        assertEquals(1L, transiciones.pedidosPorEstado().get(EstadoPedido.PROCESANDO));
+        assertEquals(1L, transiciones.pedidosPorEstado().get(EstadoPedido.CANCELADO));
+        assertEquals(new BigDecimal("10.50"), transiciones.ingresosPorMoneda().get("EUR"));
+
+        repositorio.eliminarPorId(primero.getId());
+        repositorio.eliminarPorId(segundo.getId());
+
+        ResumenPedidosDTO bajas = proyeccion.obtenerResumen();
+        assertEquals(0L, bajas.pedidosPorEstado().get(EstadoPedido.PROCESANDO));
+        assertEquals(0L, bajas.pedidosPorEstado().get(EstadoPedido.CANCELADO));
+        assertEquals(new BigDecimal("0.00"), bajas.ingresosPorMoneda().get("EUR"));
+        assertEquals(new BigDecimal("7.00"), bajas.ingresosPorMoneda().get("USD"));
+        ResumenPedidosDTO.ResumenDiaDTO hoy = bajas.dias().get(bajas.dias().size() - 1);
+        assertEquals(LocalDate.now(), hoy.fecha());
+        assertEquals(1, hoy.pedidos());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the summary from restored orders and leave days past retention out of the daily buckets")
+    void shouldRebuildFromRestoredOrders() {
+        Pedido reciente = pedido(EUR, "20.00");
+        reciente.confirmarPedido();
+        Pedido antiguo = new Pedido(IdentificadorPedido.nuevo(), "cliente-1", DIRECCION, List.of(),
+            new Dinero(new BigDecimal("5.00"), EUR), EstadoPedido.ENTREGADO,
+            LocalDateTime.now().minusDays(60), LocalDateTime.now().minusDays(59));
+
+        assertEquals(2, repositorio.restaurar(List.of(reciente, antiguo)));
+
+        ResumenPedidosDTO resumen = proyeccion.obtenerResumen();
+        assertEquals(1L, resumen.pedidosPorEstado().get(EstadoPedido.PROCESANDO));
+        assertEquals(1L, resumen.pedidosPorEstado().get(EstadoPedido.ENTREGADO));
+        assertEquals(new BigDecimal("25.00"), resumen.ingresosPorMoneda().get("EUR"));
+        assertEquals(1, resumen.dias().size(), "el pedido de hace 60 días queda fuera de la retención de 30");
+        assertEquals(new BigDecimal("20.00"), resumen.dias().get(0).ingresosPorMoneda().get("EUR"));
+    }
+
+    private static Pedido pedido(Currency moneda, String precio) {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, moneda);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(new BigDecimal(precio), moneda));
+        return pedido;
+    }
+}
@@ -0,0 +1,177 @@
+package com.ejemplo.ddd.aplicacion.proyeccion;
+
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido.Cambio;
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido.Lectura;
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido.TipoCambio;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistroCambiosPedidoTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private RegistroCambiosPedido registro;
+    private PedidoRepositoryImpl repositorio;
+
+    @BeforeEach
+    void setUp() {
+        registro = new RegistroCambiosPedido(new SimpleMeterRegistry(), 8);
+        repositorio = new PedidoRepositoryImpl(List.of(registro), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositorio.cerrar();
+    }
+
+    @Test
+    @DisplayName("Should return saves and deletions after the cursor in sequence order, up to the limit")
+    void shouldReadChangesAfterCursor() {
+        long inicio = registro.ultimaSecuencia();
+        Pedido pedido = pedido();
+        repositorio.guardar(pedido);
+        pedido.confirmarPedido();
+        repositorio.guardar(pedido);
+        repositorio.eliminarPorId(pedido.getId());
+
+        Lectura primera = registro.leer(inicio, 2);
+        assertEquals(List.of(TipoCambio.GUARDADO, TipoCambio.GUARDADO), primera.cambios().stream().map(Cambio::tipo).toList());
+        assertEquals(EstadoPedido.PROCESANDO, primera.cambios().get(1).pedido().getEstado());
+        assertEquals(inicio + 2, primera.siguiente());
+        assertTrue(primera.pendientes());
+
+        Lectura segunda = registro.leer(primera.siguiente(), 2);
+        assertEquals(1, segunda.cambios().size());
+        assertEquals(TipoCambio.ELIMINADO, segunda.cambios().get(0).tipo());
+        assertEquals(pedido.getId(), segunda.cambios().get(0).pedido().getId());
+        assertFalse(segunda.pendientes());
+
+        Lectura alDia = registro.leer(segunda.siguiente(), 2);
+        assertTrue(alDia.cambios().isEmpty());
+        assertEquals(segunda.siguiente(), alDia.siguiente());
+    }
+
+    @Test
+    @DisplayName("Should reject cursors the ring has already overwritten or that come from another run")
+    void shouldRejectExpiredCursors() {
+        long inicio = registro.ultimaSecuencia();
+        for (int i = 0; i < 9; i++) {
+            repositorio.guardar(pedido());
+        }
+
+        CursorCambiosCaducadoException caducado = assertThrows(CursorCambiosCaducadoException.class,
+            () -> registro.leer(inicio, 100));
+        assertEquals(inicio + 9, caducado.getUltimaSecuencia());
+        assertEquals(8, registro.leer(inicio + 1, 100).cambios().size());
+        assertThrows(CursorCambiosCaducadoException.class, () -> registro.leer(inicio + 10, 100));
+        assertThrows(CursorCambiosCaducadoException.class, () -> registro.leer(42, 100));
+    }
+
+    @Test
+    @DisplayName("Should read from the first change with cursor zero until the ring wraps around")
+    void shouldReadFromBeginningWithCursorZero() {
+        long inicio = registro.ultimaSecuencia();
+        assertTrue(registro.leer(RegistroCambiosPedido.DESDE_EL_PRINCIPIO, 100).cambios().isEmpty());
+        assertFalse(registro.esperar(RegistroCambiosPedido.DESDE_EL_PRINCIPIO).isDone());
+
+        for (int i = 0; i < 8; i++) {
+            repositorio.guardar(pedido());
+        }
+        Lectura todo = registro.leer(RegistroCambiosPedido.DESDE_EL_PRINCIPIO, 100);
+        assertEquals(8, todo.cambios().size());
+        assertEquals(inicio + 1, todo.cambios().get(0).secuencia());
+        assertEquals(inicio + 8, todo.siguiente());
+
+        repositorio.guardar(pedido());
+        assertThrows(CursorCambiosCaducadoException.class,
+            () -> registro.leer(RegistroCambiosPedido.DESDE_EL_PRINCIPIO, 100));
+    }
+
+    @Test
+    @DisplayName("Should complete waits when the next change arrives and immediately when already behind")
+    void shouldSignalWaitersOnNextChange() {
+        long actual = registro.ultimaSecuencia();
+        CompletableFuture<Void> espera = registro.esperar(actual);
+        assertFalse(espera.isDone());
+
+        repositorio.guardar(pedido());
+
+        assertTrue(espera.isDone());
+        assertTrue(registro.esperar(actual).isDone());
+        assertFalse(registro.esperar(registro.ultimaSecuencia()).isDone());
+    }
+
+    @Test
+    @DisplayName("Should give the changes of one order their sequences in the order the store applied them")
+    void shouldSequenceChangesOfOneOrderInWriteOrder() throws Exception {
+        // Retiene al primer guardado entre su escritura y el registro, que es donde se colaba el segundo
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        ObservadorCambiosPedido retenedor = new ObservadorCambiosPedido() {
+            @Override
+            public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+                if (nuevo.getIdCliente().equals("lento")) {
+                    dentro.countDown();
+                    try {
+                        soltar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void pedidoEliminado(Pedido eliminado) {
+            }
+        };
+        repositorio.cerrar();
+        repositorio = new PedidoRepositoryImpl(List.of(retenedor, registro), new SimpleMeterRegistry());
+        Pedido original = pedido();
+        repositorio.guardar(original);
+        long inicio = registro.ultimaSecuencia();
+
+        Thread primero = new Thread(() -> repositorio.guardar(conCliente(original, "lento")));
+        primero.start();
+        assertTrue(dentro.await(5, TimeUnit.SECONDS));
+        Thread segundo = new Thread(() -> repositorio.guardarSiEstado(conCliente(original, "rapido"), EstadoPedido.PENDIENTE));
+        segundo.start();
+        segundo.join(200);
+        soltar.countDown();
+        primero.join();
+        segundo.join();
+
+        List<String> clientes = registro.leer(inicio, 10).cambios().stream().map(c -> c.pedido().getIdCliente()).toList();
+        assertEquals(List.of("lento", "rapido"), clientes);
+        assertEquals("rapido", repositorio.buscarPorId(original.getId()).orElseThrow().getIdCliente());
+    }
+
+    private static Pedido conCliente(Pedido pedido, String idCliente) {
+        return new Pedido(pedido.getId(), idCliente, pedido.getDireccionEnvio(), pedido.getLineasPedido(),
+            pedido.getTotalPedido(), pedido.getEstado(), pedido.getFechaCreacion(), pedido.getFechaUltimaModificacion());
+    }
+
+    private static Pedido pedido() {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", new Direccion("Calle 1", "Madrid", "28001", "ES"), EUR);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(BigDecimal.TEN, EUR));
+        return pedido;
+    }
+}
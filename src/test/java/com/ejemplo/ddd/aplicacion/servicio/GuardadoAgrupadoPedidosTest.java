@@ -0,0 +1,250 @@
+package com.ejemplo.ddd.aplicacion.servicio;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.repositorio.GuardadoParcialException;
+import com.ejemplo.ddd.dominio.repositorio.PedidoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuardadoAgrupadoPedidosTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    @Test
+    @DisplayName("Should persist every concurrent save in fewer batches than callers")
+    void shouldPersistConcurrentSavesInFewerBatches() throws Exception {
+        RepositorioLento repositorio = new RepositorioLento(5);
+        GuardadoAgrupadoPedidos guardado = new GuardadoAgrupadoPedidos(repositorio, 0, 256);
+        int llamantes = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(llamantes);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < llamantes; i++) {
+                Pedido pedido = Pedido.crearNuevoPedido("cliente-" + i, DIRECCION, EUR);
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    guardado.guardar(pedido);
+                    // Al volver, el pedido ya debe estar persistido
+                    assertTrue(repositorio.buscarPorId(pedido.getId()).isPresent());
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(llamantes, repositorio.almacen.size());
+        assertTrue(repositorio.lotes.get() < llamantes);
+    }
+
+    @Test
+    @DisplayName("Should hand concurrent saves of the same order to the repository in one batch, the last one winning")
+    void shouldCollapseRepeatedSavesOfSameOrder() throws Exception {
+        RepositorioLento repositorio = new RepositorioLento(0);
+        // El líder espera hasta que el lote tiene los dos guardados
+        GuardadoAgrupadoPedidos guardado = new GuardadoAgrupadoPedidos(repositorio, TimeUnit.SECONDS.toMicros(30), 2);
+        Pedido pendiente = Pedido.crearNuevoPedido("cliente-123", DIRECCION, EUR);
+        Pedido cancelado = new Pedido(pendiente.getId(), pendiente.getIdCliente(), pendiente.getDireccionEnvio(),
+            pendiente.getLineasPedido(), pendiente.getTotalPedido(), pendiente.getEstado(), pendiente.getFechaCreacion(),
+            pendiente.getFechaUltimaModificacion());
+        cancelado.cancelarPedido("Cliente solicitó cancelación");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (Pedido pedido : List.of(pendiente, cancelado)) {
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    guardado.guardar(pedido);
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, repositorio.lotes.get());
+        List<Pedido> lote = repositorio.ultimoLote;
+        assertEquals(2, lote.size());
+        // Pedido se compara por id: se comprueba que llegan las dos instancias
+        assertTrue(lote.get(0) == pendiente && lote.get(1) == cancelado
+            || lote.get(0) == cancelado && lote.get(1) == pendiente);
+        assertSame(lote.get(1), repositorio.almacen.get(pendiente.getId()));
+    }
+
+    @Test
+    @DisplayName("Should propagate repository failures to the caller")
+    void shouldPropagateRepositoryFailures() {
+        PedidoRepository repositorioRoto = new RepositorioLento(0) {
+            @Override
+            public void guardarTodos(Collection<Pedido> pedidos) {
+                throw new IllegalStateException("Almacenamiento no disponible");
+            }
+        };
+        GuardadoAgrupadoPedidos guardado = new GuardadoAgrupadoPedidos(repositorioRoto, 0, 256);
+
+        IllegalStateException exception = assertThrows(
+            IllegalStateException.class,
+            () -> guardado.guardar(Pedido.crearNuevoPedido("cliente-123", DIRECCION, EUR))
+        );
+
+        assertTrue(exception.getMessage().contains("Almacenamiento no disponible"));
+    }
+
+    @Test
+    @DisplayName("Should never hand the repository a batch larger than the maximum size")
+    void shouldCapBatchSize() throws Exception {
+        RepositorioLento repositorio = new RepositorioLento(5);
+        // Sin ventana: el lote solo se cierra al llenarse o cuando su líder obtiene el turno
+        GuardadoAgrupadoPedidos guardado = new GuardadoAgrupadoPedidos(repositorio, 0, 4);
+        int llamantes = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(llamantes);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < llamantes; i++) {
+                Pedido pedido = Pedido.crearNuevoPedido("cliente-" + i, DIRECCION, EUR);
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    guardado.guardar(pedido);
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(llamantes, repositorio.almacen.size());
+        assertTrue(repositorio.tamanoMaximo.get() <= 4, "lote de " + repositorio.tamanoMaximo.get() + " pedidos");
+    }
+
+    @Test
+    @DisplayName("Should fail only the caller whose order could not be saved")
+    void shouldReportFailuresPerOrder() throws Exception {
+        PedidoRepository repositorioParcial = new RepositorioLento(0) {
+            @Override
+            public void guardarTodos(Collection<Pedido> pedidos) {
+                Map<IdentificadorPedido, RuntimeException> fallos = new ConcurrentHashMap<>();
+                List<Pedido> validos = new ArrayList<>();
+                for (Pedido pedido : pedidos) {
+                    if (pedido.getIdCliente().equals("cliente-roto")) {
+                        fallos.put(pedido.getId(), new IllegalStateException("Pedido corrupto"));
+                    } else {
+                        validos.add(pedido);
+                    }
+                }
+                super.guardarTodos(validos);
+                if (!fallos.isEmpty()) {
+                    throw new GuardadoParcialException(fallos);
+                }
+            }
+        };
+        // El líder espera hasta que el lote tiene los dos guardados
+        GuardadoAgrupadoPedidos guardado = new GuardadoAgrupadoPedidos(repositorioParcial, TimeUnit.SECONDS.toMicros(30), 2);
+        Pedido valido = Pedido.crearNuevoPedido("cliente-123", DIRECCION, EUR);
+        Pedido roto = Pedido.crearNuevoPedido("cliente-roto", DIRECCION, EUR);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            Future<?> futuroValido = executor.submit(() -> {
+                salida.await();
+                guardado.guardar(valido);
+                return null;
+            });
+            Future<?> futuroRoto = executor.submit(() -> {
+                salida.await();
+                guardado.guardar(roto);
+                return null;
+            });
+            salida.countDown();
+
+            futuroValido.get(10, TimeUnit.SECONDS);
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> futuroRoto.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+            assertEquals("Pedido corrupto", exception.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(repositorioParcial.buscarPorId(valido.getId()).isPresent());
+        assertTrue(repositorioParcial.buscarPorId(roto.getId()).isEmpty());
+    }
+
+    private static class RepositorioLento implements PedidoRepository {
+        private final Map<IdentificadorPedido, Pedido> almacen = new ConcurrentHashMap<>();
+        private final AtomicInteger lotes = new AtomicInteger();
+        private final AtomicInteger tamanoMaximo = new AtomicInteger();
+        private volatile List<Pedido> ultimoLote = List.of();
+        private final long latenciaMillis;
+
+        RepositorioLento(long latenciaMillis) {
+            this.latenciaMillis = latenciaMillis;
+        }
+
+        @Override
+        public void guardar(Pedido pedido) {
+            guardarTodos(List.of(pedido));
+        }
+
+        @Override
+        public void guardarTodos(Collection<Pedido> pedidos) {
+            try {
+                Thread.sleep(latenciaMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pedidos.forEach(p -> almacen.put(p.getId(), p));
+            ultimoLote = List.copyOf(pedidos);
+            tamanoMaximo.accumulateAndGet(pedidos.size(), Math::max);
+            lotes.incrementAndGet();
+        }
+
+        @Override
+        public Optional<Pedido> buscarPorId(IdentificadorPedido id) {
+            return Optional.ofNullable(almacen.get(id));
+        }
+
+        @Override
+        public List<Pedido> buscarTodos() {
+            return new ArrayList<>(almacen.values());
+        }
+
+        @Override
+        public void eliminarPorId(IdentificadorPedido id) {
+            almacen.remove(id);
+        }
+    }
+}
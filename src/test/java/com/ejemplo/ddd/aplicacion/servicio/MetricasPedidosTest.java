@@ -0,0 +1,83 @@
+package com.ejemplo.ddd.aplicacion.servicio;
+
+import com.ejemplo.ddd.aplicacion.servicio.MetricasPedidos.CasoUso;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricasPedidosTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    private SimpleMeterRegistry registro;
+    private MetricasPedidos metricas;
+
+    @BeforeEach
+    void setUp() {
+        registro = new SimpleMeterRegistry();
+        metricas = new MetricasPedidos(registro);
+    }
+
+    @Test
+    @DisplayName("Should time successful use cases and return their result")
+    void shouldTimeSuccessfulUseCases() {
+        String resultado = metricas.medir(CasoUso.OBTENER, () -> "ok");
+
+        assertEquals("ok", resultado);
+        assertEquals(1, registro.get("pedidos.casos.uso").tags("caso", "obtener", "resultado", "exito").timer().count());
+        assertEquals(0, registro.get("pedidos.casos.uso").tags("caso", "obtener", "resultado", "error").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should count rejections by reason and rethrow the original exception")
+    void shouldCountRejectionsByReason() {
+        IllegalStateException error = new IllegalStateException("Solo se pueden confirmar pedidos pendientes");
+
+        IllegalStateException lanzada = assertThrows(IllegalStateException.class,
+            () -> metricas.medir(CasoUso.CONFIRMAR, () -> { throw error; }));
+        assertThrows(PedidoNoEncontradoException.class,
+            () -> metricas.medir(CasoUso.CONFIRMAR, () -> { throw new PedidoNoEncontradoException("Pedido no encontrado"); }));
+
+        assertSame(error, lanzada);
+        assertEquals(1, registro.get("pedidos.rechazos").tags("caso", "confirmar", "motivo", "estado_no_valido").counter().count());
+        assertEquals(1, registro.get("pedidos.rechazos").tags("caso", "confirmar", "motivo", "no_encontrado").counter().count());
+        assertEquals(2, registro.get("pedidos.casos.uso").tags("caso", "confirmar", "resultado", "error").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should count state transitions and track average lines per order")
+    void shouldCountTransitionsAndAverageLines() {
+        metricas.pedidoGuardado(null, pedidoConLineas(1));
+        Pedido anterior = pedidoConLineas(2);
+        metricas.pedidoGuardado(null, anterior);
+
+        Pedido confirmado = pedidoConLineas(3);
+        confirmado.confirmarPedido();
+        metricas.pedidoGuardado(anterior, confirmado);
+
+        assertEquals(1, registro.get("pedidos.transiciones").tags("desde", "PENDIENTE", "hacia", "PROCESANDO").counter().count());
+        assertEquals(2.0, registro.get("pedidos.lineas.media").gauge().value());
+
+        metricas.pedidoEliminado(confirmado);
+        assertEquals(1.0, registro.get("pedidos.lineas.media").gauge().value());
+    }
+
+    private static Pedido pedidoConLineas(int lineas) {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+        for (int i = 0; i < lineas; i++) {
+            pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(BigDecimal.TEN, EUR));
+        }
+        return pedido;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ejemplo.ddd.aplicacion.servicio;
+
+import com.ejemplo.ddd.aplicacion.proyeccion.IndiceDirecciones;
+import com.ejemplo.ddd.aplicacion.proyeccion.ProyeccionResumenPedidos;
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido;
+import com.ejemplo.ddd.dominio.modelo.inventario.Existencias;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.servicio.ServicioRealizacionPedido;
+import com.ejemplo.ddd.dominio.servicio.ServicioReservaExistencias;
+import com.ejemplo.ddd.infraestructura.inventario.InventarioEnMemoria;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoAplicacionServiceTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    private final IdentificadorProducto producto = IdentificadorProducto.nuevo();
+    private final Existencias existencias = new Existencias(producto, 1_000_000);
+
+    private PedidoRepositoryImpl repositorio;
+    private PedidoAplicacionService servicio;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InventarioEnMemoria inventario = new InventarioEnMemoria();
+        inventario.guardar(existencias);
+        ServicioReservaExistencias reservas = new ServicioReservaExistencias(inventario);
+        ProyeccionResumenPedidos proyeccion = new ProyeccionResumenPedidos(registry, 30);
+        IndiceDirecciones indice = new IndiceDirecciones();
+        RegistroCambiosPedido cambios = new RegistroCambiosPedido(registry, 1024);
+        MetricasPedidos metricas = new MetricasPedidos(registry);
+        repositorio = new PedidoRepositoryImpl(List.of(proyeccion, indice, cambios, metricas, reservas), registry);
+        servicio = new PedidoAplicacionService(repositorio, new ServicioRealizacionPedido(ids -> Map.of(), false),
+            reservas, new GuardadoAgrupadoPedidos(repositorio, 0, 256), proyeccion, indice, cambios, metricas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositorio.cerrar();
+    }
+
+    @Test
+    @DisplayName("Should keep the stock of the winning confirm when the same order is confirmed concurrently")
+    void shouldKeepReservationOfWinnerOnConcurrentConfirms() throws Exception {
+        int rondas = 1000;
+        int confirmacionesPorPedido = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(confirmacionesPorPedido);
+        try {
+            for (int ronda = 0; ronda < rondas; ronda++) {
+                Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+                pedido.agregarLineaPedido(producto, 2, new Dinero(new BigDecimal("10.50"), EUR));
+                repositorio.guardar(pedido);
+
+                CyclicBarrier salida = new CyclicBarrier(confirmacionesPorPedido);
+                List<Future<Boolean>> confirmaciones = new ArrayList<>();
+                for (int i = 0; i < confirmacionesPorPedido; i++) {
+                    confirmaciones.add(executor.submit(() -> {
+                        salida.await();
+                        try {
+                            servicio.confirmarPedido(pedido.getId());
+                            return true;
+                        } catch (IllegalStateException e) {
+                            return false; // Ya confirmado por otro hilo
+                        }
+                    }));
+                }
+                int ganadoras = 0;
+                for (Future<Boolean> confirmacion : confirmaciones) {
+                    ganadoras += confirmacion.get() ? 1 : 0;
+                }
+
+                assertEquals(1, ganadoras, "ronda " + ronda);
+                assertEquals(EstadoPedido.PROCESANDO, repositorio.buscarPorId(pedido.getId()).orElseThrow().getEstado());
+                assertEquals(1_000_000 - 2L * (ronda + 1), existencias.getDisponibles(),
+                    "las confirmaciones perdedoras no deben devolver la reserva de la ganadora (ronda " + ronda + ")");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ejemplo.ddd.aplicacion.traza;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrazaTest {
+
+    @Test
+    @DisplayName("Should record nested spans and close an open phase when the next span opens at its level")
+    void shouldRecordNestedSpansAndPhases() {
+        Traza traza = new Traza(0, 0);
+        traza.abrir("web.entrada", true, 10);
+        Tramo caso = traza.abrir("caso.confirmar", false, 20);
+        Tramo repositorio = traza.abrir("repositorio.buscarPorId", false, 25);
+        repositorio.close();
+        caso.close();
+        traza.abrir("web.serializacion", true, 90);
+        traza.terminar(100);
+
+        assertEquals(4, traza.getNumeroTramos());
+        assertEquals(100, traza.getDuracionNanos());
+        assertEquals("web.entrada", traza.getNombreTramo(0));
+        assertEquals(10, traza.getDuracionTramoNanos(0));
+        assertEquals(0, traza.getProfundidadTramo(1));
+        assertEquals(1, traza.getProfundidadTramo(2));
+        assertEquals(0, traza.getProfundidadTramo(3));
+        assertEquals(10, traza.getDuracionTramoNanos(3));
+    }
+
+    @Test
+    @DisplayName("Should ignore spans beyond the fixed capacity and count them as discarded")
+    void shouldDiscardSpansBeyondCapacity() {
+        Traza traza = new Traza(0, 0);
+        for (int i = 0; i < Traza.MAXIMO_TRAMOS + 3; i++) {
+            try (Tramo tramo = traza.abrir("tramo", false, i)) {
+                assertNotNull(tramo);
+            }
+        }
+        traza.terminar(1_000);
+
+        assertEquals(Traza.MAXIMO_TRAMOS, traza.getNumeroTramos());
+        assertEquals(3, traza.getTramosDescartados());
+    }
+
+    @Test
+    @DisplayName("Should return a no-op span when the thread has no trace")
+    void shouldReturnNoOpSpanWithoutTrace() {
+        assertSame(Tramo.NINGUNO, Trazador.abrir("repositorio.guardar"));
+        assertNull(Trazador.terminar());
+    }
+}
@@ -233,6 +233,19 @@ class PedidoTest {
         assertTrue(exception.getMessage().contains("Solo se pueden confirmar pedidos pendientes"));
     }
 
+    @Test
+    @DisplayName("Should reject line changes once the pedido is confirmed")
+    void shouldRejectLineChangesOnceConfirmed() {
+        pedido.agregarLineaPedido(productoId, 2, precioUnitario);
+        pedido.confirmarPedido();
+
+        assertThrows(IllegalStateException.class, () -> pedido.agregarLineaPedido(productoId, 1, precioUnitario));
+        assertThrows(IllegalStateException.class, () -> pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, precioUnitario));
+        assertThrows(IllegalStateException.class, () -> pedido.actualizarCantidadLineaPedido(productoId, 5));
+        assertThrows(IllegalStateException.class, () -> pedido.eliminarLineaPedido(productoId));
+        assertEquals(2, pedido.getLineasPedido().get(0).getCantidad());
+    }
+
     @Test
     @DisplayName("Should mark pedido as sent successfully")
     void shouldMarkPedidoAsSentSuccessfully() {
@@ -338,6 +351,45 @@ class PedidoTest {
         assertEquals(BigDecimal.ZERO, pedido.getTotalPedido().cantidad());
     }
 
+    @Test
+    @DisplayName("Should emit one domain event per state transition and hand them over once")
+    void shouldEmitDomainEventsOnTransitions() {
+        pedido.agregarLineaPedido(productoId, 2, precioUnitario);
+        assertTrue(pedido.extraerEventos().isEmpty());
+
+        pedido.confirmarPedido();
+        pedido.marcarComoEnviado();
+        List<EventoPedido> eventos = pedido.extraerEventos();
+
+        assertEquals(2, eventos.size());
+        EventoPedido.PedidoConfirmado confirmado = assertInstanceOf(EventoPedido.PedidoConfirmado.class, eventos.get(0));
+        assertEquals(pedido.getId(), confirmado.idPedido());
+        assertEquals(new BigDecimal("21.00"), confirmado.total().cantidad());
+        assertEquals(1, confirmado.numeroLineas());
+        assertEquals(direccion, assertInstanceOf(EventoPedido.PedidoEnviado.class, eventos.get(1)).direccionEnvio());
+        assertTrue(pedido.extraerEventos().isEmpty());
+
+        pedido.marcarComoEntregado();
+        assertInstanceOf(EventoPedido.PedidoEntregado.class, pedido.extraerEventos().get(0));
+    }
+
+    @Test
+    @DisplayName("Should record the previous state when cancelling and emit nothing on a repeated cancel")
+    void shouldEmitCancelEventOnlyOnce() {
+        pedido.agregarLineaPedido(productoId, 1, precioUnitario);
+        pedido.confirmarPedido();
+        pedido.extraerEventos();
+
+        pedido.cancelarPedido("Sin stock");
+        pedido.cancelarPedido("Otra vez");
+        List<EventoPedido> eventos = pedido.extraerEventos();
+
+        assertEquals(1, eventos.size());
+        EventoPedido.PedidoCancelado cancelado = assertInstanceOf(EventoPedido.PedidoCancelado.class, eventos.get(0));
+        assertEquals(EstadoPedido.PROCESANDO, cancelado.estadoAnterior());
+        assertEquals("Sin stock", cancelado.motivo());
+    }
+
     @Test
     @DisplayName("Should test equals and hashCode based on id")
     void shouldTestEqualsAndHashCodeBasedOnId() {
@@ -0,0 +1,224 @@
+package com.ejemplo.ddd.dominio.servicio;
+
+import com.ejemplo.ddd.dominio.modelo.inventario.Existencias;
+import com.ejemplo.ddd.dominio.modelo.inventario.ExistenciasInsuficientesException;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.inventario.InventarioEnMemoria;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServicioReservaExistenciasTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+    private static final Dinero PRECIO = new Dinero(new BigDecimal("10.50"), EUR);
+
+    private final IdentificadorProducto abundante = IdentificadorProducto.nuevo();
+    private final IdentificadorProducto escaso = IdentificadorProducto.nuevo();
+
+    private static Pedido pedido(IdentificadorProducto... productos) {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+        for (IdentificadorProducto producto : productos) {
+            pedido.agregarLineaPedido(producto, 2, PRECIO);
+        }
+        return pedido;
+    }
+
+    @Test
+    @DisplayName("Should reserve all lines or none, reserve once per order and release exactly what was reserved")
+    void shouldReserveAllOrNothing() {
+        InventarioEnMemoria inventario = new InventarioEnMemoria();
+        Existencias existenciasAbundante = new Existencias(abundante, 10);
+        Existencias existenciasEscaso = new Existencias(escaso, 3);
+        inventario.guardar(existenciasAbundante);
+        inventario.guardar(existenciasEscaso);
+        ServicioReservaExistencias servicio = new ServicioReservaExistencias(inventario);
+
+        Pedido primero = pedido(abundante, escaso, IdentificadorProducto.nuevo()); // El tercero no se controla
+        servicio.reservar(primero);
+        servicio.reservar(primero);
+        assertEquals(8, existenciasAbundante.getDisponibles());
+        assertEquals(1, existenciasEscaso.getDisponibles());
+
+        Pedido segundo = pedido(abundante, escaso);
+        ExistenciasInsuficientesException e = assertThrows(ExistenciasInsuficientesException.class,
+            () -> servicio.reservar(segundo));
+        assertEquals(escaso, e.getIdProducto());
+        assertEquals(8, existenciasAbundante.getDisponibles(), "la línea ya reservada debe devolverse");
+
+        servicio.liberar(primero.getId());
+        servicio.liberar(primero.getId());
+        assertEquals(10, existenciasAbundante.getDisponibles());
+        assertEquals(3, existenciasEscaso.getDisponibles());
+
+        servicio.reservar(segundo);
+        servicio.consumir(segundo.getId());
+        servicio.liberar(segundo.getId());
+        assertEquals(1, existenciasEscaso.getDisponibles(), "lo consumido no vuelve al inventario");
+    }
+
+    @Test
+    @DisplayName("Should not let a confirmed order grow past the stock it reserved")
+    void shouldNotGrowConfirmedOrderPastReservedStock() {
+        InventarioEnMemoria inventario = new InventarioEnMemoria();
+        Existencias existenciasEscaso = new Existencias(escaso, 2);
+        inventario.guardar(existenciasEscaso);
+        ServicioReservaExistencias servicio = new ServicioReservaExistencias(inventario);
+
+        Pedido confirmado = pedido(escaso);
+        confirmado.confirmarPedido();
+        servicio.reservar(confirmado);
+        assertEquals(0, existenciasEscaso.getDisponibles());
+
+        assertThrows(IllegalStateException.class, () -> confirmado.agregarLineaPedido(escaso, 5, PRECIO));
+        assertThrows(IllegalStateException.class, () -> confirmado.actualizarCantidadLineaPedido(escaso, 7));
+        assertEquals(2, confirmado.getLineasPedido().get(0).getCantidad());
+
+        servicio.liberar(confirmado.getId());
+        assertEquals(2, existenciasEscaso.getDisponibles(), "se devuelve justo lo reservado");
+    }
+
+    @Test
+    @DisplayName("Should re-reserve restored confirmed orders after a restart and release them when they are cancelled")
+    void shouldRebuildReservationsOnRestoreAndReleaseOnCancel() {
+        Pedido confirmado = pedido(escaso);
+        confirmado.confirmarPedido();
+        Pedido pendiente = pedido(escaso);
+
+        // Tras el reinicio: existencias recién cargadas y pedidos restaurados de la captura
+        InventarioEnMemoria inventario = new InventarioEnMemoria();
+        Existencias existenciasEscaso = new Existencias(escaso, 5);
+        inventario.guardar(existenciasEscaso);
+        ServicioReservaExistencias servicio = new ServicioReservaExistencias(inventario);
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(servicio), new SimpleMeterRegistry());
+        assertEquals(2, repositorio.restaurar(List.of(confirmado, pendiente)));
+        assertEquals(3, existenciasEscaso.getDisponibles(), "solo el confirmado vuelve a reservar");
+
+        Pedido cancelado = repositorio.buscarPorId(confirmado.getId()).orElseThrow();
+        cancelado.cancelarPedido("Cliente arrepentido");
+        repositorio.guardar(cancelado);
+        assertEquals(5, existenciasEscaso.getDisponibles());
+
+        Pedido eliminado = repositorio.buscarPorId(pendiente.getId()).orElseThrow();
+        eliminado.confirmarPedido();
+        servicio.reservar(eliminado);
+        repositorio.guardar(eliminado);
+        repositorio.eliminarPorId(eliminado.getId());
+        assertEquals(5, existenciasEscaso.getDisponibles());
+    }
+
+    @Test
+    @DisplayName("Should let only the first of a racing confirm and expiry win, keeping or releasing the reservation to match")
+    void shouldResolveRaceBetweenConfirmAndExpiry() {
+        InventarioEnMemoria inventario = new InventarioEnMemoria();
+        Existencias existenciasEscaso = new Existencias(escaso, 5);
+        inventario.guardar(existenciasEscaso);
+        ServicioReservaExistencias servicio = new ServicioReservaExistencias(inventario);
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(servicio), new SimpleMeterRegistry());
+
+        // La confirmación llega primero: la caducidad, leída antes, ya no cancela
+        Pedido original = pedido(escaso);
+        repositorio.guardar(original);
+        Pedido leidoPorCaducidad = repositorio.buscarPorId(original.getId()).orElseThrow();
+        Pedido confirmado = repositorio.buscarPorId(original.getId()).orElseThrow();
+        confirmado.confirmarPedido();
+        servicio.reservar(confirmado);
+        assertTrue(repositorio.guardarSiEstado(confirmado, EstadoPedido.PENDIENTE));
+        leidoPorCaducidad.cancelarPedido("Caducado");
+        assertFalse(repositorio.guardarSiEstado(leidoPorCaducidad, EstadoPedido.PENDIENTE));
+        assertEquals(EstadoPedido.PROCESANDO, repositorio.buscarPorId(original.getId()).orElseThrow().getEstado());
+        assertEquals(3, existenciasEscaso.getDisponibles());
+
+        // La caducidad llega primero: la confirmación, que ya había reservado, no pisa la cancelación
+        Pedido otro = pedido(escaso);
+        repositorio.guardar(otro);
+        Pedido leidoPorConfirmacion = repositorio.buscarPorId(otro.getId()).orElseThrow();
+        leidoPorConfirmacion.confirmarPedido();
+        servicio.reservar(leidoPorConfirmacion);
+        Pedido caducado = repositorio.buscarPorId(otro.getId()).orElseThrow();
+        caducado.cancelarPedido("Caducado");
+        assertTrue(repositorio.guardarSiEstado(caducado, EstadoPedido.PENDIENTE));
+        assertFalse(repositorio.guardarSiEstado(leidoPorConfirmacion, EstadoPedido.PENDIENTE));
+        assertEquals(EstadoPedido.CANCELADO, repositorio.buscarPorId(otro.getId()).orElseThrow().getEstado());
+        assertEquals(3, existenciasEscaso.getDisponibles(), "la cancelación libera lo reservado por la confirmación");
+        repositorio.cerrar();
+    }
+
+    @Test
+    @DisplayName("Should refuse to track stock in cluster mode unless stock control is disabled")
+    void shouldRefuseClusterMode() {
+        Path ruta = Path.of("inventario-inexistente.csv");
+        assertThrows(IllegalStateException.class, () -> new InventarioEnMemoria(true, true, ruta));
+        assertTrue(new InventarioEnMemoria(false, true, ruta).buscarPorProducto(escaso).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should never oversell a contended product and leave the other lines of rejected orders untouched")
+    void shouldNeverOversellUnderContention() throws InterruptedException {
+        InventarioEnMemoria inventario = new InventarioEnMemoria();
+        Existencias existenciasAbundante = new Existencias(abundante, 1_000_000);
+        Existencias existenciasEscaso = new Existencias(escaso, 1_000);
+        inventario.guardar(existenciasAbundante);
+        inventario.guardar(existenciasEscaso);
+        ServicioReservaExistencias servicio = new ServicioReservaExistencias(inventario);
+
+        int hilos = 32;
+        int pedidosPorHilo = 200;
+        AtomicInteger confirmados = new AtomicInteger();
+        AtomicInteger liberados = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Thread trabajador = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < pedidosPorHilo; i++) {
+                    Pedido pedido = pedido(abundante, escaso);
+                    try {
+                        servicio.reservar(pedido);
+                        confirmados.incrementAndGet();
+                        if (i % 3 == 0) {
+                            servicio.liberar(pedido.getId());
+                            liberados.incrementAndGet();
+                        }
+                    } catch (ExistenciasInsuficientesException e) {
+                        rechazados.incrementAndGet();
+                    }
+                }
+            });
+            trabajador.start();
+            trabajadores.add(trabajador);
+        }
+        salida.countDown();
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+
+        assertTrue(rechazados.get() > 0);
+        assertEquals(hilos * pedidosPorHilo, confirmados.get() + rechazados.get());
+        long retenidos = confirmados.get() - liberados.get();
+        assertTrue(2 * retenidos <= 1_000, "se han vendido " + 2 * retenidos + " unidades de 1000");
+        assertEquals(1_000 - 2 * retenidos, existenciasEscaso.getDisponibles());
+        assertEquals(1_000_000 - 2 * retenidos, existenciasAbundante.getDisponibles());
+    }
+}
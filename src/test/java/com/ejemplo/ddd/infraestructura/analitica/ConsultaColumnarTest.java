@@ -0,0 +1,130 @@
+package com.ejemplo.ddd.infraestructura.analitica;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.LineaPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsultaColumnarTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+    private static final EstadoPedido[] ESTADOS = {EstadoPedido.PENDIENTE, EstadoPedido.ENTREGADO, EstadoPedido.CANCELADO};
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    @DisplayName("Should aggregate revenue per product and month like a scan over the orders, skipping row groups by their min/max")
+    void shouldMatchNaiveAggregationAndSkipGroups() throws Exception {
+        List<IdentificadorProducto> productos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            productos.add(IdentificadorProducto.nuevo());
+        }
+        List<Pedido> pedidos = generarPedidos(productos, 6000);
+        Path ruta = directorio.resolve("pedidos.col");
+        long[] filas = ExportadorColumnar.escribir(ruta, pedidos::forEach, 1024);
+
+        // Lo esperado, calculado recorriendo los pedidos
+        Map<String, long[]> esperado = new TreeMap<>();
+        Map<String, BigDecimal> importes = new TreeMap<>();
+        long lineas = 0;
+        for (Pedido pedido : pedidos) {
+            lineas += pedido.getLineasPedido().size();
+            long mes = ExportadorColumnar.mes(pedido.getFechaCreacion());
+            if (pedido.getEstado() != EstadoPedido.ENTREGADO || mes < 202603 || mes > 202605) {
+                continue;
+            }
+            for (LineaPedido linea : pedido.getLineasPedido()) {
+                String clave = linea.getIdProducto().valor() + "/" + mes;
+                long[] acumulado = esperado.computeIfAbsent(clave, c -> new long[2]);
+                acumulado[0]++;
+                acumulado[1] += linea.getCantidad();
+                importes.merge(clave, linea.calcularSubtotal().cantidad(), BigDecimal::add);
+            }
+        }
+        assertEquals(pedidos.size(), filas[0]);
+        assertEquals(lineas, filas[1]);
+
+        TablaColumnar tabla = FicheroColumnar.abrir(ruta).tabla(ExportadorColumnar.TABLA_LINEAS);
+        ConsultaColumnar.Resultado resultado = ConsultaColumnar.sobre(tabla)
+            .dondeIgual("estado", "ENTREGADO")
+            .dondeEntre("mes", 202603, 202605)
+            .agruparPor("producto", "mes")
+            .sumar("cantidad")
+            .sumar("importe")
+            .ejecutar();
+
+        assertEquals(esperado.size(), resultado.filas().size());
+        for (ConsultaColumnar.Fila fila : resultado.filas()) {
+            String clave = fila.claves().get(0) + "/" + fila.claves().get(1);
+            assertArrayEquals(esperado.get(clave), new long[]{fila.filas(), (Long) fila.sumas().get(0)}, clave);
+            assertEquals(0, importes.get(clave).compareTo((BigDecimal) fila.sumas().get(1)), clave);
+        }
+        // Los pedidos se crean en orden de fecha, así que los grupos de otros meses se descartan sin leerlos
+        assertTrue(resultado.gruposDescartados() > 0);
+        assertEquals(tabla.numeroGrupos(), resultado.gruposLeidos() + resultado.gruposDescartados());
+        assertTrue(resultado.filasLeidas() < tabla.getFilas());
+    }
+
+    @Test
+    @DisplayName("Should count every row without filters and nothing for a text value that was never exported")
+    void shouldCountAllRowsAndNoneForUnknownText() throws Exception {
+        List<Pedido> pedidos = generarPedidos(List.of(IdentificadorProducto.nuevo()), 500);
+        Path ruta = directorio.resolve("pedidos.col");
+        ExportadorColumnar.escribir(ruta, pedidos::forEach, 100);
+        TablaColumnar tabla = FicheroColumnar.abrir(ruta).tabla(ExportadorColumnar.TABLA_PEDIDOS);
+
+        ConsultaColumnar.Resultado todas = ConsultaColumnar.sobre(tabla).ejecutar();
+        assertEquals(1, todas.filas().size());
+        assertEquals(500, todas.filas().get(0).filas());
+
+        ConsultaColumnar.Resultado ninguna = ConsultaColumnar.sobre(tabla).dondeIgual("cliente", "nadie").ejecutar();
+        assertTrue(ninguna.filas().isEmpty());
+        assertEquals(tabla.numeroGrupos(), ninguna.gruposDescartados());
+
+        assertThrows(IllegalArgumentException.class, () -> ConsultaColumnar.sobre(tabla).dondeEntre("cliente", "a", "b"));
+        assertThrows(IllegalArgumentException.class, () -> ConsultaColumnar.sobre(tabla).sumar("estado"));
+    }
+
+    // Pedidos de 2026 en orden de fecha de creación, con entre 1 y 4 líneas
+    private static List<Pedido> generarPedidos(List<IdentificadorProducto> productos, int numero) {
+        Random aleatorio = new Random(42);
+        List<Pedido> pedidos = new ArrayList<>(numero);
+        LocalDateTime inicio = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 0; i < numero; i++) {
+            LocalDateTime fecha = inicio.plusMinutes(i * (365L * 24 * 60 / numero));
+            List<LineaPedido> lineas = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (IdentificadorProducto producto : productos) {
+                if (lineas.size() < 4 && (lineas.isEmpty() || aleatorio.nextBoolean())) {
+                    BigDecimal precio = BigDecimal.valueOf(100 + aleatorio.nextInt(10_000), 2);
+                    LineaPedido linea = new LineaPedido(producto, 1 + aleatorio.nextInt(5), new Dinero(precio, EUR));
+                    lineas.add(linea);
+                    total = total.add(linea.calcularSubtotal().cantidad());
+                }
+            }
+            pedidos.add(new Pedido(IdentificadorPedido.nuevo(), "cliente-" + aleatorio.nextInt(50), DIRECCION, lineas,
+                new Dinero(total, EUR), ESTADOS[aleatorio.nextInt(ESTADOS.length)], fecha, fecha));
+        }
+        return pedidos;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ejemplo.ddd.infraestructura.arranque;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalentamientoJitTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final ApplicationAvailabilityBean disponibilidad = new ApplicationAvailabilityBean();
+    private final List<ReadinessState> estadosDuranteIteraciones = new ArrayList<>();
+
+    @Test
+    @DisplayName("Should refuse traffic for the whole warm-up and complete every iteration")
+    void shouldRefuseTrafficWhileWarmingUp() {
+        CalentamientoJit calentamiento = new CalentamientoJit(objectMapper, validadorQueAnotaDisponibilidad(),
+            publicador(), registry, 50, Duration.ofMinutes(1));
+
+        calentamiento.run(new DefaultApplicationArguments());
+
+        assertEquals(50, estadosDuranteIteraciones.size());
+        assertTrue(estadosDuranteIteraciones.stream().allMatch(ReadinessState.REFUSING_TRAFFIC::equals));
+        assertEquals(50.0, registry.get("pedidos.calentamiento.iteraciones").gauge().value());
+        assertTrue(registry.get("pedidos.calentamiento.tiempo.iteracion").tag("tramo", "final").timeGauge().value() > 0);
+    }
+
+    @Test
+    @DisplayName("Should stop at the maximum duration even if iterations remain")
+    void shouldStopAtMaximumDuration() {
+        CalentamientoJit calentamiento = new CalentamientoJit(objectMapper, validadorQueAnotaDisponibilidad(),
+            publicador(), registry, 1_000_000, Duration.ZERO);
+
+        calentamiento.run(new DefaultApplicationArguments());
+
+        assertEquals(0.0, registry.get("pedidos.calentamiento.iteraciones").gauge().value());
+        assertEquals(ReadinessState.REFUSING_TRAFFIC, disponibilidad.getReadinessState());
+    }
+
+    // Hace llegar los eventos de disponibilidad al bean de Spring Boot, como haría el contexto
+    private ApplicationEventPublisher publicador() {
+        return evento -> {
+            if (evento instanceof AvailabilityChangeEvent<?> cambio) {
+                disponibilidad.onApplicationEvent(cambio);
+            }
+        };
+    }
+
+    // Validador real que anota el estado de disponibilidad cada vez que una iteración valida su petición
+    private Validator validadorQueAnotaDisponibilidad() {
+        Validator real = Validation.buildDefaultValidatorFactory().getValidator();
+        return (Validator) Proxy.newProxyInstance(Validator.class.getClassLoader(), new Class<?>[]{Validator.class},
+            (proxy, metodo, argumentos) -> {
+                if (metodo.getName().equals("validate")) {
+                    estadosDuranteIteraciones.add(disponibilidad.getReadinessState());
+                }
+                try {
+                    return metodo.invoke(real, argumentos);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+}
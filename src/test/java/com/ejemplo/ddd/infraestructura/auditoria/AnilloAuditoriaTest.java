@@ -0,0 +1,94 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.infraestructura.auditoria.RegistroAuditoria.TipoCambio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnilloAuditoriaTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    @Test
+    @DisplayName("Should reject changes when the ring is full instead of blocking")
+    void shouldRejectWhenFull() {
+        AnilloAuditoria anillo = new AnilloAuditoria(4);
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(anillo.publicar(TipoCambio.CREADO, null, pedido, i));
+        }
+        assertFalse(anillo.publicar(TipoCambio.CREADO, null, pedido, 5));
+        assertEquals(4, anillo.pendientes());
+
+        assertEquals(2, anillo.drenar((secuencia, tipo, anterior, p, instante) -> { }, 2));
+        assertTrue(anillo.publicar(TipoCambio.MODIFICADO, pedido, pedido, 6));
+        assertEquals(3, anillo.pendientes());
+    }
+
+    @Test
+    @DisplayName("Should deliver every change from concurrent producers in per-producer order")
+    void shouldDeliverConcurrentChangesInOrder() throws Exception {
+        AnilloAuditoria anillo = new AnilloAuditoria(1024);
+        int productores = 4;
+        int cambiosPorProductor = 20_000;
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < productores; i++) {
+            pedidos.add(Pedido.crearNuevoPedido("cliente-" + i, DIRECCION, EUR));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(productores);
+        CountDownLatch salida = new CountDownLatch(1);
+        Map<Pedido, Long> ultimoPorProductor = new HashMap<>();
+        long[] secuenciaAnterior = {0};
+        int recibidos = 0;
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (Pedido pedido : pedidos) {
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    for (long i = 1; i <= cambiosPorProductor; i++) {
+                        while (!anillo.publicar(TipoCambio.MODIFICADO, null, pedido, i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            while (recibidos < productores * cambiosPorProductor) {
+                recibidos += anillo.drenar((secuencia, tipo, anterior, pedido, instante) -> {
+                    assertEquals(secuenciaAnterior[0] + 1, secuencia);
+                    secuenciaAnterior[0] = secuencia;
+                    long ultimo = ultimoPorProductor.getOrDefault(pedido, 0L);
+                    assertEquals(ultimo + 1, instante);
+                    ultimoPorProductor.put(pedido, instante);
+                }, 256);
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, anillo.pendientes());
+        for (Pedido pedido : pedidos) {
+            assertEquals(cambiosPorProductor, ultimoPorProductor.get(pedido));
+        }
+    }
+}
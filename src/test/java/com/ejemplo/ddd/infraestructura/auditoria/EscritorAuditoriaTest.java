@@ -0,0 +1,87 @@
+package com.ejemplo.ddd.infraestructura.auditoria;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.auditoria.RegistroAuditoria.TipoCambio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscritorAuditoriaTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    @DisplayName("Should read back written records in order across rolled files")
+    void shouldReadBackRecordsAcrossRolledFiles() throws Exception {
+        Pedido pendiente = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+        pendiente.agregarLineaPedido(IdentificadorProducto.nuevo(), 2, new Dinero(new BigDecimal("10.50"), EUR));
+        Pedido confirmado = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+        confirmado.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(BigDecimal.ONE, EUR));
+        confirmado.confirmarPedido();
+
+        // Cabecera + 3 registros por fichero: 10 registros ocupan 4 ficheros
+        try (EscritorAuditoria escritor = new EscritorAuditoria(directorio, 64 + 3 * 64, 10)) {
+            escritor.escribir(1, TipoCambio.CREADO, null, pendiente, 1_000);
+            for (long secuencia = 2; secuencia <= 10; secuencia++) {
+                escritor.escribir(secuencia, TipoCambio.MODIFICADO, pendiente, confirmado, 1_000 + secuencia);
+            }
+        }
+
+        List<Path> ficheros = LectorAuditoria.ficheros(directorio);
+        List<RegistroAuditoria> registros = new ArrayList<>();
+        for (Path fichero : ficheros) {
+            LectorAuditoria.recorrer(fichero, registros::add);
+        }
+
+        assertEquals(4, ficheros.size());
+        assertEquals(10, registros.size());
+        RegistroAuditoria creado = registros.get(0);
+        assertEquals(1, creado.secuencia());
+        assertEquals(TipoCambio.CREADO, creado.tipo());
+        assertEquals(pendiente.getId().valor(), creado.idPedido());
+        assertNull(creado.estadoAnterior());
+        assertEquals(EstadoPedido.PENDIENTE, creado.estadoNuevo());
+        assertEquals(new BigDecimal("21.00"), creado.total());
+        assertEquals("EUR", creado.moneda());
+
+        RegistroAuditoria ultimo = registros.get(9);
+        assertEquals(10, ultimo.secuencia());
+        assertEquals(EstadoPedido.PENDIENTE, ultimo.estadoAnterior());
+        assertEquals(EstadoPedido.PROCESANDO, ultimo.estadoNuevo());
+        assertEquals(1, ultimo.lineas());
+    }
+
+    @Test
+    @DisplayName("Should keep only the configured number of files")
+    void shouldKeepOnlyRetainedFiles() throws Exception {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+
+        try (EscritorAuditoria escritor = new EscritorAuditoria(directorio, 64 + 64, 2)) {
+            for (long secuencia = 1; secuencia <= 5; secuencia++) {
+                escritor.escribir(secuencia, TipoCambio.CREADO, null, pedido, secuencia);
+            }
+        }
+
+        List<Path> ficheros = LectorAuditoria.ficheros(directorio);
+        assertEquals(2, ficheros.size());
+        List<RegistroAuditoria> registros = new ArrayList<>();
+        LectorAuditoria.recorrer(ficheros.get(0), registros::add);
+        assertEquals(4, registros.get(0).secuencia());
+    }
+}
@@ -0,0 +1,69 @@
+package com.ejemplo.ddd.infraestructura.caducidad;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuedaTemporizadoresTest {
+
+    @Test
+    @DisplayName("Should fire every timer once, never early and at the first advance past its deadline, across all levels")
+    void shouldFireTimersOnTimeAcrossLevels() {
+        RuedaTemporizadores<Integer> rueda = new RuedaTemporizadores<>(0, 1);
+        Random aleatorio = new Random(42);
+        int numero = 100_000;
+        long horizonte = 5_000_000; // Llega al cuarto nivel
+        Map<Integer, Long> vencimientos = new HashMap<>();
+        for (int i = 0; i < numero; i++) {
+            // Muchos cercanos y algunos lejanos
+            long vencimiento = i % 4 == 0 ? aleatorio.nextLong(horizonte) : aleatorio.nextLong(5_000);
+            vencimientos.put(i, vencimiento);
+            rueda.programar(i, vencimiento);
+        }
+        Set<Integer> cancelados = new HashSet<>();
+        for (int i = 0; i < numero; i += 7) {
+            assertTrue(rueda.cancelar(i));
+            cancelados.add(i);
+        }
+        assertEquals(numero - cancelados.size(), rueda.pendientes());
+
+        Set<Integer> vencidos = new HashSet<>();
+        long anterior = 0;
+        while (anterior < horizonte) {
+            long ahora = anterior + 1 + aleatorio.nextLong(50_000);
+            for (Integer clave : rueda.avanzar(ahora)) {
+                long vencimiento = vencimientos.get(clave);
+                assertTrue(vencimiento <= ahora, "vence en " + vencimiento + " y saltó en " + ahora);
+                assertTrue(vencimiento > anterior || vencimiento <= 0, "debió saltar antes de " + anterior);
+                assertTrue(vencidos.add(clave));
+                assertFalse(cancelados.contains(clave));
+            }
+            anterior = ahora;
+        }
+        assertEquals(numero - cancelados.size(), vencidos.size());
+        assertEquals(0, rueda.pendientes());
+    }
+
+    @Test
+    @DisplayName("Should replace a rescheduled timer and fire past deadlines on the next tick")
+    void shouldRescheduleAndFireOverdueTimers() {
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(1_000, 10);
+        rueda.programar("a", 2_000);
+        rueda.programar("a", 1_500);
+        rueda.programar("b", 500); // Anterior al origen
+
+        assertEquals(List.of("b"), rueda.avanzar(1_010));
+        assertEquals(List.of(), rueda.avanzar(1_499));
+        assertEquals(List.of("a"), rueda.avanzar(1_500));
+        assertEquals(List.of(), rueda.avanzar(3_000));
+        assertFalse(rueda.cancelar("a"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.ejemplo.ddd.infraestructura.catalogo;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.modelo.producto.Producto;
+import com.ejemplo.ddd.dominio.repositorio.CatalogoProductos;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheCatalogoProductosTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private final OrigenFalso origen = new OrigenFalso();
+    private final AtomicLong reloj = new AtomicLong();
+    private final CacheCatalogoProductos cache = new CacheCatalogoProductos(origen, new SimpleMeterRegistry(), 1000,
+        Duration.ofSeconds(30), Duration.ofMinutes(10), 100, reloj::get);
+
+    @AfterEach
+    void detener() {
+        cache.detener();
+    }
+
+    @Test
+    @DisplayName("Should fetch all missing products of a lookup in one call and serve repeats from the cache")
+    void shouldBatchMissesIntoOneCall() {
+        List<IdentificadorProducto> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            IdentificadorProducto id = IdentificadorProducto.nuevo();
+            ids.add(id);
+            if (i % 2 == 0) {
+                origen.poner(id, "10.00");
+            }
+        }
+        ids.add(ids.get(0)); // Repetido
+
+        assertEquals(100, cache.buscarPorIds(ids).size());
+        assertEquals(1, origen.llamadas.size());
+        assertEquals(200, origen.llamadas.get(0).size());
+
+        // Los que el catálogo no conoce también se recuerdan
+        assertEquals(100, cache.buscarPorIds(ids).size());
+        assertEquals(1, origen.llamadas.size());
+    }
+
+    @Test
+    @DisplayName("Should serve a stale price at once and refresh it in the background")
+    void shouldServeStaleWhileRevalidating() throws InterruptedException {
+        IdentificadorProducto id = IdentificadorProducto.nuevo();
+        origen.poner(id, "10.00");
+        cache.buscarPorIds(List.of(id));
+        origen.poner(id, "12.00");
+
+        reloj.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals(new BigDecimal("10.00"), cache.buscarPorIds(List.of(id)).get(id).precio().cantidad());
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (origen.llamadas.size() < 2 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, origen.llamadas.size());
+        // El refresco escribe la entrada después de leer del origen
+        while (!cache.buscarPorIds(List.of(id)).get(id).precio().cantidad().equals(new BigDecimal("12.00"))
+            && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        assertEquals(new BigDecimal("12.00"), cache.buscarPorIds(List.of(id)).get(id).precio().cantidad());
+    }
+
+    @Test
+    @DisplayName("Should fall back to an expired price when the catalogue fails and fail only without one")
+    void shouldServeExpiredEntriesWhenOriginFails() {
+        IdentificadorProducto conocido = IdentificadorProducto.nuevo();
+        origen.poner(conocido, "10.00");
+        cache.buscarPorIds(List.of(conocido));
+
+        reloj.addAndGet(Duration.ofMinutes(11).toNanos());
+        origen.caido = true;
+        assertEquals(new BigDecimal("10.00"), cache.buscarPorIds(List.of(conocido)).get(conocido).precio().cantidad());
+        assertThrows(IllegalStateException.class, () -> cache.buscarPorIds(List.of(conocido, IdentificadorProducto.nuevo())));
+    }
+
+    private static class OrigenFalso implements CatalogoProductos {
+
+        final Map<IdentificadorProducto, Producto> productos = new ConcurrentHashMap<>();
+        final List<List<IdentificadorProducto>> llamadas = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean caido;
+
+        void poner(IdentificadorProducto id, String precio) {
+            productos.put(id, new Producto(id, "producto", new Dinero(new BigDecimal(precio), EUR)));
+        }
+
+        @Override
+        public Map<IdentificadorProducto, Producto> buscarPorIds(Collection<IdentificadorProducto> ids) {
+            if (caido) {
+                throw new IllegalStateException("Catálogo caído");
+            }
+            llamadas.add(List.copyOf(ids));
+            Map<IdentificadorProducto, Producto> encontrados = new HashMap<>();
+            for (IdentificadorProducto id : ids) {
+                Producto producto = productos.get(id);
+                if (producto != null) {
+                    encontrados.put(id, producto);
+                }
+            }
+            return encontrados;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ejemplo.ddd.infraestructura.catalogo;
+
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.modelo.producto.Producto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogoProductosFicheroTest {
+
+    @Test
+    @DisplayName("Should parse the catalogue CSV skipping comments, blank lines and the header")
+    void shouldParseCatalogue() {
+        Map<IdentificadorProducto, Producto> productos = CatalogoProductosFichero.leer(List.of(
+            "# Comentario",
+            "idProducto,nombre,precio,moneda",
+            "",
+            "00000000-0000-0000-0000-000000000001, Camiseta ,10.50,EUR",
+            "00000000-0000-0000-0000-000000000002,Taza,5,USD"));
+
+        assertEquals(2, productos.size());
+        Producto camiseta = productos.get(IdentificadorProducto.deString("00000000-0000-0000-0000-000000000001"));
+        assertEquals("Camiseta", camiseta.nombre());
+        assertEquals(new BigDecimal("10.50"), camiseta.precio().cantidad());
+        assertEquals("USD", productos.get(IdentificadorProducto.deString("00000000-0000-0000-0000-000000000002"))
+            .precio().moneda().getCurrencyCode());
+        assertThrows(IllegalArgumentException.class, () -> CatalogoProductosFichero.leer(List.of("a,b,c")));
+    }
+}
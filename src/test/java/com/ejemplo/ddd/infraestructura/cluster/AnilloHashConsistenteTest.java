@@ -0,0 +1,90 @@
+package com.ejemplo.ddd.infraestructura.cluster;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnilloHashConsistenteTest {
+
+    private static final int PEDIDOS = 40_000;
+    private static final int NODOS_VIRTUALES = 128;
+
+    private final List<IdentificadorPedido> ids = generarIds();
+
+    @Test
+    @DisplayName("Should spread orders evenly across the nodes")
+    void shouldSpreadOrdersEvenly() {
+        AnilloHashConsistente anillo = new AnilloHashConsistente(Nodo.deLista(
+            "a=http://localhost:8081,b=http://localhost:8082,c=http://localhost:8083,d=http://localhost:8084"),
+            NODOS_VIRTUALES);
+
+        Map<String, Integer> porNodo = new HashMap<>();
+        ids.forEach(id -> porNodo.merge(anillo.propietario(id).id(), 1, Integer::sum));
+
+        assertEquals(4, porNodo.size());
+        int esperado = PEDIDOS / 4;
+        porNodo.forEach((nodo, numero) ->
+            assertTrue(Math.abs(numero - esperado) < esperado * 0.2, "Reparto desigual en " + nodo + ": " + numero));
+    }
+
+    @Test
+    @DisplayName("Should move only about 1/N of the orders, all to the new node, when a node joins")
+    void shouldMoveOnlyOrdersOfNewNodeWhenJoining() {
+        AnilloHashConsistente antes = new AnilloHashConsistente(Nodo.deLista(
+            "a=http://localhost:8081,b=http://localhost:8082,c=http://localhost:8083,d=http://localhost:8084"),
+            NODOS_VIRTUALES);
+        AnilloHashConsistente despues = new AnilloHashConsistente(Nodo.deLista(
+            "a=http://localhost:8081,b=http://localhost:8082,c=http://localhost:8083,d=http://localhost:8084,e=http://localhost:8085"),
+            NODOS_VIRTUALES);
+
+        int movidos = 0;
+        for (IdentificadorPedido id : ids) {
+            String anterior = antes.propietario(id).id();
+            String nuevo = despues.propietario(id).id();
+            if (!anterior.equals(nuevo)) {
+                assertEquals("e", nuevo);
+                movidos++;
+            }
+        }
+        double proporcion = movidos / (double) PEDIDOS;
+        assertTrue(proporcion > 0.15 && proporcion < 0.25, "Proporción movida: " + proporcion);
+    }
+
+    @Test
+    @DisplayName("Should only reassign the orders of a node that leaves")
+    void shouldOnlyReassignOrdersOfLeavingNode() {
+        AnilloHashConsistente antes = new AnilloHashConsistente(Nodo.deLista(
+            "a=http://localhost:8081,b=http://localhost:8082,c=http://localhost:8083"), NODOS_VIRTUALES);
+        AnilloHashConsistente despues = new AnilloHashConsistente(Nodo.deLista(
+            "a=http://localhost:8081,c=http://localhost:8083"), NODOS_VIRTUALES);
+
+        for (IdentificadorPedido id : ids) {
+            String anterior = antes.propietario(id).id();
+            if (!anterior.equals("b")) {
+                assertEquals(anterior, despues.propietario(id).id());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject duplicated node ids")
+    void shouldRejectDuplicatedNodes() {
+        assertThrows(IllegalArgumentException.class, () -> new AnilloHashConsistente(Nodo.deLista(
+            "a=http://localhost:8081,a=http://localhost:8082"), NODOS_VIRTUALES));
+    }
+
+    private static List<IdentificadorPedido> generarIds() {
+        List<IdentificadorPedido> ids = new ArrayList<>(PEDIDOS);
+        for (int i = 0; i < PEDIDOS; i++) {
+            ids.add(IdentificadorPedido.nuevo());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ejemplo.ddd.infraestructura.diagnostico;
+
+import com.ejemplo.ddd.infraestructura.diagnostico.GrabacionesJfrEndpoint.GrabacionJfr;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GrabacionesJfrEndpointTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    @DisplayName("Should start, list, download and stop a recording, leaving only the stopped dump on disk")
+    void shouldStartListDownloadAndStopRecording() throws Exception {
+        GrabacionesJfrEndpoint endpoint = new GrabacionesJfrEndpoint("default", Duration.ofMillis(20),
+            Duration.ofMillis(5), Duration.ofMinutes(5), directorio);
+
+        GrabacionJfr iniciada = endpoint.iniciar("prueba", null);
+        assertEquals("RUNNING", iniciada.estado());
+        assertTrue(endpoint.listar().stream().anyMatch(g -> g.id() == iniciada.id() && g.nombre().equals("prueba")));
+
+        WebEndpointResponse<Resource> descarga = endpoint.volcar(iniciada.id());
+        assertEquals(WebEndpointResponse.STATUS_OK, descarga.getStatus());
+        Path temporal = descarga.getBody().getFile().toPath();
+        assertTrue(Files.exists(temporal));
+        try (InputStream contenido = descarga.getBody().getInputStream()) {
+            assertTrue(contenido.readAllBytes().length > 0);
+        }
+        assertFalse(Files.exists(temporal), "el volcado de la descarga se borra al enviarlo");
+
+        GrabacionJfr detenida = endpoint.detener(iniciada.id());
+        assertEquals("STOPPED", detenida.estado());
+        assertTrue(Files.size(Path.of(detenida.destino())) > 0);
+        assertTrue(endpoint.listar().stream().noneMatch(g -> g.id() == iniciada.id()));
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            assertEquals(1, ficheros.count());
+        }
+
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.volcar(iniciada.id()).getStatus());
+    }
+}
@@ -0,0 +1,266 @@
+package com.ejemplo.ddd.infraestructura.eventos;
+
+import com.ejemplo.ddd.aplicacion.eventos.SuscriptorEventosPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.EventoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DespachadorEventosPedidoTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should deliver every saved transition to each subscriber in order, in batches and with consecutive sequences")
+    void shouldDeliverAllEventsInOrderToEverySubscriber() throws Exception {
+        BandejaSalidaEventos bandeja = new BandejaSalidaEventos(registry, 1024, Duration.ofSeconds(5));
+        Receptor primero = new Receptor("primero");
+        Receptor segundo = new Receptor("segundo");
+        DespachadorEventosPedido despachador = new DespachadorEventosPedido(bandeja, List.of(primero, segundo),
+            registry, 64, 16, Duration.ofSeconds(5));
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(), registry, null, bandeja, 4, 1, 4096);
+        try {
+            List<Pedido> pedidos = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                Pedido pedido = nuevoPedido();
+                repositorio.guardar(pedido); // Crear no emite eventos
+                pedido.confirmarPedido();
+                repositorio.guardar(pedido);
+                pedidos.add(pedido);
+            }
+            for (Pedido pedido : pedidos) {
+                pedido.marcarComoEnviado();
+                repositorio.guardar(pedido);
+            }
+            despachador.detener();
+
+            for (Receptor receptor : List.of(primero, segundo)) {
+                assertEquals(600, receptor.eventos.size());
+                for (int i = 0; i < 300; i++) {
+                    assertEquals(pedidos.get(i).getId(), receptor.eventos.get(i).idPedido());
+                    assertInstanceOf(EventoPedido.PedidoConfirmado.class, receptor.eventos.get(i));
+                    assertInstanceOf(EventoPedido.PedidoEnviado.class, receptor.eventos.get(300 + i));
+                }
+                for (int i = 1; i < 600; i++) {
+                    assertEquals(receptor.secuencias.get(0) + i, receptor.secuencias.get(i));
+                }
+                assertTrue(receptor.tamanosLote.stream().allMatch(tamano -> tamano <= 16));
+            }
+            assertEquals(primero.secuencias, segundo.secuencias);
+        } finally {
+            repositorio.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should deliver the events of every instance of an order saved twice in the same batch, in order")
+    void shouldKeepEventsOfEveryInstanceInBatch() throws Exception {
+        BandejaSalidaEventos bandeja = new BandejaSalidaEventos(registry, 1024, Duration.ofSeconds(5));
+        Receptor receptor = new Receptor("receptor");
+        DespachadorEventosPedido despachador = new DespachadorEventosPedido(bandeja, List.of(receptor),
+            registry, 64, 16, Duration.ofSeconds(5));
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(), registry, null, bandeja, 4, 1, 4096);
+        try {
+            Pedido pedido = nuevoPedido();
+            repositorio.guardar(pedido);
+            Pedido confirmado = repositorio.buscarPorId(pedido.getId()).orElseThrow();
+            confirmado.confirmarPedido();
+            Pedido cancelado = repositorio.buscarPorId(pedido.getId()).orElseThrow();
+            cancelado.cancelarPedido("El cliente se ha arrepentido");
+
+            repositorio.guardarTodos(List.of(confirmado, cancelado));
+            despachador.detener();
+
+            assertEquals(2, receptor.eventos.size());
+            assertInstanceOf(EventoPedido.PedidoConfirmado.class, receptor.eventos.get(0));
+            assertInstanceOf(EventoPedido.PedidoCancelado.class, receptor.eventos.get(1));
+            // Gana la última instancia
+            assertEquals(EstadoPedido.CANCELADO, repositorio.buscarPorId(pedido.getId()).orElseThrow().getEstado());
+        } finally {
+            repositorio.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should queue the events of one order in the order its saves reached the store, whatever the save path")
+    void shouldQueueEventsInStoreOrder() throws Exception {
+        // Retiene la anotación de la confirmación, que es donde se colaba el envío
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        BandejaSalidaEventos bandeja = new BandejaSalidaEventos(registry, 1024, Duration.ofSeconds(5)) {
+            @Override
+            public void anotar(List<EventoPedido> eventos) {
+                if (!eventos.isEmpty() && eventos.get(0) instanceof EventoPedido.PedidoConfirmado) {
+                    dentro.countDown();
+                    try {
+                        soltar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.anotar(eventos);
+            }
+        };
+        Receptor receptor = new Receptor("receptor");
+        DespachadorEventosPedido despachador = new DespachadorEventosPedido(bandeja, List.of(receptor),
+            registry, 64, 16, Duration.ofSeconds(5));
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(), registry, null, bandeja, 4, 1, 4096);
+        try {
+            Pedido pedido = nuevoPedido();
+            repositorio.guardar(pedido);
+            Pedido confirmado = repositorio.buscarPorId(pedido.getId()).orElseThrow();
+            confirmado.confirmarPedido();
+
+            Thread confirmacion = new Thread(() -> repositorio.guardarSiEstado(confirmado, EstadoPedido.PENDIENTE));
+            confirmacion.start();
+            assertTrue(dentro.await(5, TimeUnit.SECONDS));
+            // El envío lee el pedido ya confirmado, pero no puede anotar hasta que la confirmación termine
+            Pedido enviado = repositorio.buscarPorId(pedido.getId()).orElseThrow();
+            enviado.marcarComoEnviado();
+            Thread envio = new Thread(() -> repositorio.guardarTodos(List.of(enviado)));
+            envio.start();
+            envio.join(200);
+            soltar.countDown();
+            confirmacion.join();
+            envio.join();
+            despachador.detener();
+
+            assertEquals(2, receptor.eventos.size());
+            assertInstanceOf(EventoPedido.PedidoConfirmado.class, receptor.eventos.get(0));
+            assertInstanceOf(EventoPedido.PedidoEnviado.class, receptor.eventos.get(1));
+        } finally {
+            repositorio.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should redeliver the same batch to a failing subscriber without holding back the others")
+    void shouldRetryFailedBatch() throws Exception {
+        BandejaSalidaEventos bandeja = new BandejaSalidaEventos(registry, 1024, Duration.ofSeconds(5));
+        AtomicInteger fallosPendientes = new AtomicInteger(2);
+        List<Long> intentos = Collections.synchronizedList(new ArrayList<>());
+        Receptor fallido = new Receptor("fallido") {
+            @Override
+            public void recibir(long primeraSecuencia, List<EventoPedido> lote) throws Exception {
+                intentos.add(primeraSecuencia);
+                if (fallosPendientes.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Destino caído");
+                }
+                super.recibir(primeraSecuencia, lote);
+            }
+        };
+        Receptor sano = new Receptor("sano");
+        DespachadorEventosPedido despachador = new DespachadorEventosPedido(bandeja, List.of(fallido, sano),
+            registry, 64, 16, Duration.ofSeconds(5));
+
+        Pedido pedido = nuevoPedido();
+        pedido.confirmarPedido();
+        bandeja.anotar(pedido.extraerEventos());
+        // El sano no espera a que el fallido termine sus reintentos
+        assertTrue(sano.primerLote.await(5, TimeUnit.SECONDS));
+        assertTrue(fallido.eventos.isEmpty());
+        despachador.detener();
+
+        assertEquals(1, fallido.eventos.size());
+        assertEquals(List.of(sano.secuencias.get(0), sano.secuencias.get(0), sano.secuencias.get(0)), intentos);
+        assertEquals(2.0, registry.get("pedidos.eventos.errores").tag("suscriptor", "fallido").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should hold writers back and then reject them, without saving, while a subscriber is stuck")
+    void shouldApplyBackpressureFromSlowSubscriber() throws Exception {
+        BandejaSalidaEventos bandeja = new BandejaSalidaEventos(registry, 4, Duration.ofMillis(100));
+        CountDownLatch liberar = new CountDownLatch(1);
+        Receptor atascado = new Receptor("atascado") {
+            @Override
+            public void recibir(long primeraSecuencia, List<EventoPedido> lote) throws Exception {
+                liberar.await();
+                super.recibir(primeraSecuencia, lote);
+            }
+        };
+        DespachadorEventosPedido despachador = new DespachadorEventosPedido(bandeja, List.of(atascado),
+            registry, 4, 2, Duration.ofSeconds(5));
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(), registry, null, bandeja, 4, 1, 4096);
+        try {
+            int guardados = 0;
+            Pedido rechazado = null;
+            while (rechazado == null && guardados < 100) {
+                Pedido pedido = nuevoPedido();
+                pedido.confirmarPedido();
+                try {
+                    repositorio.guardar(pedido);
+                    guardados++;
+                } catch (BandejaEventosLlenaException e) {
+                    rechazado = pedido;
+                }
+            }
+            // Caben el lote en entrega, el anillo y la bandeja; nada más
+            assertNotNull(rechazado);
+            assertTrue(guardados <= 2 + 4 + 4, guardados + " guardados");
+            assertTrue(repositorio.buscarPorId(rechazado.getId()).isEmpty());
+
+            liberar.countDown();
+            despachador.detener();
+            assertTrue(despachador.alDia());
+            assertEquals(guardados, atascado.eventos.size());
+        } finally {
+            repositorio.cerrar();
+        }
+    }
+
+    private static Pedido nuevoPedido() {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(new BigDecimal("10.50"), EUR));
+        return pedido;
+    }
+
+    private static class Receptor implements SuscriptorEventosPedido {
+
+        private final String nombre;
+        final List<EventoPedido> eventos = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> secuencias = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> tamanosLote = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch primerLote = new CountDownLatch(1);
+
+        Receptor(String nombre) {
+            this.nombre = nombre;
+        }
+
+        @Override
+        public String nombre() {
+            return nombre;
+        }
+
+        @Override
+        public void recibir(long primeraSecuencia, List<EventoPedido> lote) throws Exception {
+            tamanosLote.add(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                secuencias.add(primeraSecuencia + i);
+                eventos.add(lote.get(i));
+            }
+            primerLote.countDown();
+        }
+    }
+}
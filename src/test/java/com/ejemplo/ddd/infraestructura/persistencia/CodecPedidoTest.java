@@ -0,0 +1,56 @@
+package com.ejemplo.ddd.infraestructura.persistencia;
+
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecPedidoTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @Test
+    @DisplayName("Should decode exactly the orders and summaries that were encoded")
+    void shouldRoundTripOrdersAndSummaries() {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", new Direccion("Calle Mayor 1", "Madrid", "28013", "España"), EUR);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 3, new Dinero(new BigDecimal("10.50"), EUR));
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(new BigDecimal("1234567.89"), EUR));
+        pedido.confirmarPedido();
+
+        Pedido decodificado = CodecPedido.decodificarPedidos(CodecPedido.codificarPedidos(List.of(pedido))).get(0);
+
+        assertEquals(pedido.getId(), decodificado.getId());
+        assertEquals(pedido.getEstado(), decodificado.getEstado());
+        assertEquals(pedido.getDireccionEnvio(), decodificado.getDireccionEnvio());
+        assertEquals(pedido.getTotalPedido(), decodificado.getTotalPedido());
+        assertEquals(pedido.getFechaCreacion(), decodificado.getFechaCreacion());
+        assertEquals(pedido.getFechaUltimaModificacion(), decodificado.getFechaUltimaModificacion());
+        assertEquals(pedido.getLineasPedido().size(), decodificado.getLineasPedido().size());
+        for (int i = 0; i < pedido.getLineasPedido().size(); i++) {
+            assertEquals(pedido.getLineasPedido().get(i).getIdProducto(), decodificado.getLineasPedido().get(i).getIdProducto());
+            assertEquals(pedido.getLineasPedido().get(i).getCantidad(), decodificado.getLineasPedido().get(i).getCantidad());
+            assertEquals(pedido.getLineasPedido().get(i).getPrecioUnitario(), decodificado.getLineasPedido().get(i).getPrecioUnitario());
+        }
+
+        ResumenPedido resumen = ResumenPedido.de(pedido);
+        assertEquals(List.of(resumen), CodecPedido.decodificarResumenes(CodecPedido.codificarResumenes(List.of(resumen))));
+    }
+
+    @Test
+    @DisplayName("Should reject a message with an unknown protocol version")
+    void shouldRejectUnknownVersion() {
+        byte[] mensaje = CodecPedido.codificarIds(List.of());
+        mensaje[0] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> CodecPedido.decodificarIds(mensaje));
+    }
+}
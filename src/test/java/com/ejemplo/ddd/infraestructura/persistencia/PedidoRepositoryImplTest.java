@@ -0,0 +1,306 @@
+package com.ejemplo.ddd.infraestructura.persistencia;
+
+import com.ejemplo.ddd.aplicacion.proyeccion.ProyeccionResumenPedidos;
+import com.ejemplo.ddd.aplicacion.proyeccion.RegistroCambiosPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.ResumenPedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.dominio.repositorio.GuardadoParcialException;
+import com.ejemplo.ddd.dominio.repositorio.ObservadorCambiosPedido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoRepositoryImplTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    // Umbral 0: todos los recorridos se reparten por el pool
+    private final PedidoRepositoryImpl repositorio =
+        new PedidoRepositoryImpl(List.of(), new SimpleMeterRegistry(), 8, 2, 0);
+
+    @AfterEach
+    void cerrar() {
+        repositorio.cerrar();
+    }
+
+    @Test
+    @DisplayName("Should return every order from all shards in a parallel scan")
+    void shouldScanAllShardsInParallel() {
+        Set<IdentificadorPedido> guardados = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            Pedido pedido = nuevoPedido();
+            repositorio.guardar(pedido);
+            guardados.add(pedido.getId());
+        }
+
+        Set<IdentificadorPedido> recorridos = new HashSet<>();
+        repositorio.buscarTodos().forEach(p -> recorridos.add(p.getId()));
+
+        assertEquals(guardados, recorridos);
+        assertEquals(500, repositorio.buscarResumenes().size());
+    }
+
+    @Test
+    @DisplayName("Should keep the state index in sync when orders change state or are deleted")
+    void shouldKeepStateIndexInSync() {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Pedido pedido = nuevoPedido();
+            repositorio.guardar(pedido);
+            pedidos.add(pedido);
+        }
+        for (int i = 0; i < 10; i++) {
+            Pedido pedido = repositorio.buscarPorId(pedidos.get(i).getId()).orElseThrow();
+            pedido.confirmarPedido();
+            repositorio.guardar(pedido);
+        }
+        repositorio.eliminarPorId(pedidos.get(0).getId());
+        repositorio.eliminarPorId(pedidos.get(29).getId());
+
+        assertEquals(9, repositorio.buscarPorEstado(EstadoPedido.PROCESANDO).size());
+        assertEquals(19, repositorio.buscarPorEstado(EstadoPedido.PENDIENTE).size());
+        assertTrue(repositorio.buscarPorEstado(EstadoPedido.PROCESANDO).stream()
+            .allMatch(p -> p.getEstado() == EstadoPedido.PROCESANDO));
+    }
+
+    @Test
+    @DisplayName("Should keep orders and index intact after a shard compacts itself")
+    void shouldKeepContentsAfterCompaction() {
+        PedidoRepositoryImpl unFragmento = new PedidoRepositoryImpl(List.of(), new SimpleMeterRegistry(), 1, 1, 0);
+        try {
+            List<IdentificadorPedido> ids = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                Pedido pedido = nuevoPedido();
+                unFragmento.guardar(pedido);
+                ids.add(pedido.getId());
+            }
+            // Al bajar de la cuarta parte del pico el fragmento se compacta
+            for (int i = 100; i < 5000; i++) {
+                unFragmento.eliminarPorId(ids.get(i));
+            }
+
+            assertEquals(100, unFragmento.buscarTodos().size());
+            assertEquals(100, unFragmento.buscarPorEstado(EstadoPedido.PENDIENTE).size());
+            for (int i = 0; i < 100; i++) {
+                assertTrue(unFragmento.buscarPorId(ids.get(i)).isPresent());
+            }
+        } finally {
+            unFragmento.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should capture the store at a single point in time while another thread keeps writing")
+    void shouldCaptureConsistentPointInTime() throws InterruptedException {
+        // El escritor alterna crear c[i] y eliminar p[i]: toda captura coherente ve un prefijo de esa secuencia
+        int numero = 20_000;
+        List<Pedido> previos = new ArrayList<>();
+        for (int i = 0; i < numero; i++) {
+            Pedido pedido = nuevoPedido();
+            repositorio.guardar(pedido);
+            previos.add(pedido);
+        }
+        List<Pedido> creados = new ArrayList<>();
+        for (int i = 0; i < numero; i++) {
+            creados.add(nuevoPedido());
+        }
+        Thread escritor = new Thread(() -> {
+            for (int i = 0; i < numero; i++) {
+                repositorio.guardar(creados.get(i));
+                repositorio.eliminarPorId(previos.get(i).getId());
+            }
+        });
+        escritor.start();
+        try {
+            while (escritor.isAlive()) {
+                Map<IdentificadorPedido, Pedido> capturados = new HashMap<>();
+                for (List<Pedido> parte : repositorio.capturar()) {
+                    for (Pedido pedido : parte) {
+                        Pedido repetido = capturados.put(pedido.getId(), pedido);
+                        assertTrue(repetido == null || repetido == pedido);
+                    }
+                }
+                int creadosVistos = 0;
+                while (creadosVistos < numero && capturados.containsKey(creados.get(creadosVistos).getId())) {
+                    creadosVistos++;
+                }
+                int eliminadosVistos = 0;
+                while (eliminadosVistos < numero && !capturados.containsKey(previos.get(eliminadosVistos).getId())) {
+                    eliminadosVistos++;
+                }
+                assertTrue(creadosVistos == eliminadosVistos || creadosVistos == eliminadosVistos + 1,
+                    creadosVistos + " creados y " + eliminadosVistos + " eliminados");
+                // Ni un pedido fuera de los prefijos
+                assertEquals(numero + creadosVistos - eliminadosVistos, capturados.size());
+            }
+        } finally {
+            escritor.join();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return header-only summaries that match the stored orders and do not change with later saves")
+    void shouldReturnHeaderOnlySummaries() {
+        Pedido pequeno = nuevoPedido();
+        Pedido grande = nuevoPedido();
+        for (int i = 0; i < 4; i++) {
+            grande.agregarLineaPedido(IdentificadorProducto.nuevo(), 2, new Dinero(BigDecimal.ONE, EUR));
+        }
+        repositorio.guardar(pequeno);
+        repositorio.guardar(grande);
+
+        Map<IdentificadorPedido, ResumenPedido> resumenes = new HashMap<>();
+        repositorio.buscarResumenes().forEach(r -> resumenes.put(r.id(), r));
+        assertEquals(2, resumenes.size());
+        for (Pedido pedido : List.of(pequeno, grande)) {
+            assertEquals(ResumenPedido.de(repositorio.buscarPorId(pedido.getId()).orElseThrow()), resumenes.get(pedido.getId()));
+        }
+        assertEquals(5, resumenes.get(grande.getId()).numeroLineas());
+        assertEquals(new BigDecimal("18.50"), resumenes.get(grande.getId()).totalPedido().cantidad());
+
+        grande.confirmarPedido();
+        repositorio.guardar(grande);
+        assertEquals(EstadoPedido.PENDIENTE, resumenes.get(grande.getId()).estado());
+        assertTrue(repositorio.buscarResumenes().stream()
+            .anyMatch(r -> r.id().equals(grande.getId()) && r.estado() == EstadoPedido.PROCESANDO));
+    }
+
+    @Test
+    @DisplayName("Should load several orders in one call, in request order, skipping missing ids and repeats")
+    void shouldLoadSeveralOrdersById() {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Pedido pedido = nuevoPedido();
+            repositorio.guardar(pedido);
+            pedidos.add(pedido);
+        }
+        IdentificadorPedido inexistente = IdentificadorPedido.nuevo();
+
+        Map<IdentificadorPedido, Pedido> encontrados = repositorio.buscarPorIds(List.of(
+            pedidos.get(2).getId(), inexistente, pedidos.get(0).getId(), pedidos.get(2).getId()));
+
+        assertEquals(List.of(pedidos.get(2).getId(), pedidos.get(0).getId()), new ArrayList<>(encontrados.keySet()));
+        assertTrue(repositorio.buscarPorIds(List.of()).isEmpty());
+
+        // Son copias: modificarlas no cambia lo almacenado
+        Pedido copia = encontrados.get(pedidos.get(0).getId());
+        copia.confirmarPedido();
+        assertEquals(EstadoPedido.PENDIENTE, repositorio.buscarPorId(copia.getId()).orElseThrow().getEstado());
+    }
+
+    @Test
+    @DisplayName("Should report an order moved to another node as moved, not as deleted")
+    void shouldNotReportMovedOrderAsDeleted() {
+        List<String> notificaciones = new ArrayList<>();
+        ObservadorCambiosPedido observador = new ObservadorCambiosPedido() {
+            @Override
+            public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+                notificaciones.add("guardado");
+            }
+
+            @Override
+            public void pedidoEliminado(Pedido eliminado) {
+                notificaciones.add("eliminado");
+            }
+
+            @Override
+            public void pedidoTrasladado(Pedido trasladado) {
+                notificaciones.add("trasladado");
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RegistroCambiosPedido cambios = new RegistroCambiosPedido(registry, 16);
+        ProyeccionResumenPedidos proyeccion = new ProyeccionResumenPedidos(registry, 30);
+        PedidoRepositoryImpl conObservadores = new PedidoRepositoryImpl(List.of(observador, cambios, proyeccion), registry);
+        try {
+            Pedido pedido = nuevoPedido();
+            conObservadores.guardar(pedido);
+            long antes = cambios.ultimaSecuencia();
+
+            assertTrue(conObservadores.quitarTrasladado(pedido.getId()));
+            assertFalse(conObservadores.quitarTrasladado(pedido.getId()));
+
+            assertEquals(List.of("guardado", "trasladado"), notificaciones);
+            assertEquals(antes, cambios.ultimaSecuencia(), "el registro de cambios no publica un borrado");
+            assertEquals(0L, proyeccion.obtenerResumen().pedidosPorEstado().get(EstadoPedido.PENDIENTE));
+            assertTrue(conObservadores.buscarPorId(pedido.getId()).isEmpty());
+        } finally {
+            conObservadores.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should save the rest of a batch when one order fails and report that order")
+    void shouldReportBatchFailuresPerOrder() {
+        Pedido roto = nuevoPedido();
+        ObservadorCambiosPedido observador = new ObservadorCambiosPedido() {
+            @Override
+            public void pedidoGuardado(Pedido anterior, Pedido nuevo) {
+                if (nuevo.getId().equals(roto.getId())) {
+                    throw new IllegalStateException("Observador roto");
+                }
+            }
+
+            @Override
+            public void pedidoEliminado(Pedido eliminado) {
+            }
+        };
+        PedidoRepositoryImpl conObservador = new PedidoRepositoryImpl(List.of(observador), new SimpleMeterRegistry());
+        try {
+            Pedido valido = nuevoPedido();
+
+            GuardadoParcialException exception = assertThrows(GuardadoParcialException.class,
+                () -> conObservador.guardarTodos(List.of(valido, roto)));
+
+            assertEquals(Set.of(roto.getId()), exception.getFallos().keySet());
+            assertEquals("Observador roto", exception.getFallos().get(roto.getId()).getMessage());
+            assertTrue(conObservador.buscarPorId(valido.getId()).isPresent());
+        } finally {
+            conObservador.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should time conditional saves whether or not they are applied, tagging rejected ones apart")
+    void shouldTimeRejectedConditionalSaves() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PedidoRepositoryImpl medido = new PedidoRepositoryImpl(List.of(), registry);
+        try {
+            Pedido pedido = nuevoPedido();
+            medido.guardar(pedido);
+            pedido.confirmarPedido();
+
+            assertTrue(medido.guardarSiEstado(pedido, EstadoPedido.PENDIENTE));
+            assertFalse(medido.guardarSiEstado(pedido, EstadoPedido.PENDIENTE));
+
+            assertEquals(2, registry.get("pedidos.repositorio").tag("operacion", "guardar").timer().count());
+            assertEquals(1, registry.get("pedidos.repositorio").tag("operacion", "guardar_rechazado").timer().count());
+        } finally {
+            medido.cerrar();
+        }
+    }
+
+    private static Pedido nuevoPedido() {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1, new Dinero(new BigDecimal("10.50"), EUR));
+        return pedido;
+    }
+}
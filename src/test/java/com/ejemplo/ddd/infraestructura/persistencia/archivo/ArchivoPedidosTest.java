@@ -0,0 +1,167 @@
+package com.ejemplo.ddd.infraestructura.persistencia.archivo;
+
+import com.ejemplo.ddd.aplicacion.dto.ResumenPedidosDTO;
+import com.ejemplo.ddd.aplicacion.proyeccion.ProyeccionResumenPedidos;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.EstadoPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchivoPedidosTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Direccion DIRECCION = new Direccion("Calle Falsa 123", "Springfield", "12345", "España");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    @DisplayName("Should find every archived order by id, also after reopening the archive")
+    void shouldFindArchivedOrdersAfterReopening() {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            pedidos.add(pedidoEntregado());
+        }
+        ArchivoPedidos archivo = new ArchivoPedidos(new SimpleMeterRegistry(), directorio, 64);
+        archivo.archivar(pedidos.subList(0, 600));
+        archivo.archivar(pedidos.subList(600, 1000));
+        archivo.cerrar();
+
+        ArchivoPedidos reabierto = new ArchivoPedidos(new SimpleMeterRegistry(), directorio, 64);
+        try {
+            assertEquals(2, reabierto.numeroSegmentos());
+            assertEquals(1000, reabierto.numeroPedidos());
+            for (Pedido pedido : pedidos) {
+                Pedido archivado = reabierto.buscar(pedido.getId()).orElseThrow();
+                assertEquals(pedido.getTotalPedido(), archivado.getTotalPedido());
+                assertEquals(EstadoPedido.ENTREGADO, archivado.getEstado());
+            }
+            assertTrue(reabierto.buscar(IdentificadorPedido.nuevo()).isEmpty());
+        } finally {
+            reabierto.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should take old terminal orders out of scans but keep them reachable by id until deleted")
+    void shouldArchiveOldTerminalOrders() {
+        ArchivoPedidos archivo = new ArchivoPedidos(new SimpleMeterRegistry(), directorio, 64);
+        PedidoRepositoryImpl repositorio = new PedidoRepositoryImpl(List.of(), new SimpleMeterRegistry(), archivo, 4, 1, 4096);
+        Pedido entregado = pedidoEntregado();
+        try {
+            Pedido abierto = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+            repositorio.guardar(entregado);
+            repositorio.guardar(abierto);
+
+            assertEquals(0, repositorio.archivarTerminados(LocalDateTime.now().minusDays(1), 100));
+            assertEquals(1, repositorio.archivarTerminados(LocalDateTime.now().plusSeconds(1), 100));
+
+            assertEquals(List.of(abierto.getId()), repositorio.buscarTodos().stream().map(Pedido::getId).toList());
+            assertTrue(repositorio.buscarPorEstado(EstadoPedido.ENTREGADO).isEmpty());
+            assertTrue(repositorio.buscarPorId(entregado.getId()).isPresent());
+            assertTrue(repositorio.buscarPorIds(List.of(entregado.getId(), abierto.getId())).containsKey(entregado.getId()));
+            List<IdentificadorPedido> recorridos = new ArrayList<>();
+            repositorio.recorrerIncluidoArchivo(pedido -> recorridos.add(pedido.getId()));
+            assertEquals(List.of(abierto.getId(), entregado.getId()), recorridos);
+
+            repositorio.eliminarPorId(entregado.getId());
+            assertTrue(repositorio.buscarPorId(entregado.getId()).isEmpty());
+        } finally {
+            repositorio.cerrar();
+            archivo.cerrar();
+        }
+
+        ArchivoPedidos reabierto = new ArchivoPedidos(new SimpleMeterRegistry(), directorio, 64);
+        try {
+            assertEquals(1, reabierto.numeroPedidos());
+            assertTrue(reabierto.buscar(entregado.getId()).isEmpty(), "El borrado debe persistir");
+        } finally {
+            reabierto.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should give the same summary counts before and after a restart once orders are archived")
+    void shouldKeepSummaryConsistentAcrossArchiveAndRestart() {
+        ArchivoPedidos archivo = new ArchivoPedidos(new SimpleMeterRegistry(), directorio, 64);
+        ProyeccionResumenPedidos proyeccion = new ProyeccionResumenPedidos(new SimpleMeterRegistry(), 30);
+        PedidoRepositoryImpl repositorio =
+            new PedidoRepositoryImpl(List.of(proyeccion), new SimpleMeterRegistry(), archivo, 4, 1, 4096);
+        ResumenPedidosDTO antes;
+        List<Pedido> activos;
+        try {
+            repositorio.guardar(pedidoEntregado());
+            repositorio.guardar(pedidoEntregado());
+            repositorio.guardar(Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR));
+            assertEquals(2, repositorio.archivarTerminados(LocalDateTime.now().plusSeconds(1), 100));
+
+            antes = proyeccion.obtenerResumen();
+            assertEquals(0L, antes.pedidosPorEstado().get(EstadoPedido.ENTREGADO));
+            assertEquals(1L, antes.pedidosPorEstado().get(EstadoPedido.PENDIENTE));
+            // La captura solo lleva el almacén activo
+            activos = repositorio.buscarTodos();
+        } finally {
+            repositorio.cerrar();
+            archivo.cerrar();
+        }
+
+        ArchivoPedidos reabierto = new ArchivoPedidos(new SimpleMeterRegistry(), directorio, 64);
+        ProyeccionResumenPedidos reconstruida = new ProyeccionResumenPedidos(new SimpleMeterRegistry(), 30);
+        PedidoRepositoryImpl reiniciado =
+            new PedidoRepositoryImpl(List.of(reconstruida), new SimpleMeterRegistry(), reabierto, 4, 1, 4096);
+        try {
+            reiniciado.restaurar(activos);
+
+            assertEquals(antes, reconstruida.obtenerResumen());
+        } finally {
+            reiniciado.cerrar();
+            reabierto.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should not discount an archived order from the summary again when it is deleted")
+    void shouldNotDiscountDeletedArchivedOrderTwice() {
+        ArchivoPedidos archivo = new ArchivoPedidos(new SimpleMeterRegistry(), directorio, 64);
+        ProyeccionResumenPedidos proyeccion = new ProyeccionResumenPedidos(new SimpleMeterRegistry(), 30);
+        PedidoRepositoryImpl repositorio =
+            new PedidoRepositoryImpl(List.of(proyeccion), new SimpleMeterRegistry(), archivo, 4, 1, 4096);
+        try {
+            Pedido entregado = pedidoEntregado();
+            repositorio.guardar(entregado);
+            repositorio.archivarTerminados(LocalDateTime.now().plusSeconds(1), 100);
+
+            repositorio.eliminarPorId(entregado.getId());
+
+            assertEquals(0L, proyeccion.obtenerResumen().pedidosPorEstado().get(EstadoPedido.ENTREGADO));
+        } finally {
+            repositorio.cerrar();
+            archivo.cerrar();
+        }
+    }
+
+    private static Pedido pedidoEntregado() {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-1", DIRECCION, EUR);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 2, new Dinero(new BigDecimal("10.50"), EUR));
+        pedido.confirmarPedido();
+        pedido.marcarComoEnviado();
+        pedido.marcarComoEntregado();
+        return pedido;
+    }
+}
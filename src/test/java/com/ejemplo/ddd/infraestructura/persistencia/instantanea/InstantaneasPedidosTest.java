@@ -0,0 +1,118 @@
+package com.ejemplo.ddd.infraestructura.persistencia.instantanea;
+
+import com.ejemplo.ddd.aplicacion.proyeccion.IndiceDirecciones;
+import com.ejemplo.ddd.dominio.modelo.pedido.Dinero;
+import com.ejemplo.ddd.dominio.modelo.pedido.Direccion;
+import com.ejemplo.ddd.dominio.modelo.pedido.IdentificadorPedido;
+import com.ejemplo.ddd.dominio.modelo.pedido.Pedido;
+import com.ejemplo.ddd.dominio.modelo.producto.IdentificadorProducto;
+import com.ejemplo.ddd.infraestructura.persistencia.PedidoRepositoryImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstantaneasPedidosTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    @DisplayName("Should restore every captured order in parallel and rebuild the read models on startup")
+    void shouldRestoreCapturedOrders() throws IOException {
+        PedidoRepositoryImpl original = new PedidoRepositoryImpl(List.of(), new SimpleMeterRegistry());
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Pedido pedido = pedido(i);
+            if (i % 3 == 0) {
+                pedido.confirmarPedido();
+            }
+            original.guardar(pedido);
+            pedidos.add(pedido);
+        }
+        InstantaneasPedidos instantaneas = instantaneas(original, new SimpleMeterRegistry());
+        FicheroInstantanea.Resumen escrita = instantaneas.capturar();
+        instantaneas.detener();
+        original.cerrar();
+        assertEquals(1000, escrita.pedidos());
+        assertTrue(escrita.bloques() >= 1000 / 64);
+
+        IndiceDirecciones indice = new IndiceDirecciones();
+        PedidoRepositoryImpl reiniciado = new PedidoRepositoryImpl(List.of(indice), new SimpleMeterRegistry());
+        Pedido posterior = pedido(0);
+        reiniciado.guardar(posterior);
+        MeterRegistry registro = new SimpleMeterRegistry();
+        InstantaneasPedidos cargador = instantaneas(reiniciado, registro);
+        try {
+            cargador.run(null);
+
+            assertEquals(1000, registro.get("pedidos.instantanea.carga.pedidos").gauge().value());
+            assertEquals(1001, reiniciado.buscarTodos().size());
+            assertEquals(1001, indice.tamano());
+            Map<IdentificadorPedido, Pedido> restaurados = reiniciado.buscarPorIds(pedidos.stream().map(Pedido::getId).toList());
+            for (Pedido pedido : pedidos) {
+                Pedido restaurado = restaurados.get(pedido.getId());
+                assertEquals(pedido.getEstado(), restaurado.getEstado());
+                assertEquals(pedido.getTotalPedido(), restaurado.getTotalPedido());
+                assertEquals(pedido.getDireccionEnvio(), restaurado.getDireccionEnvio());
+                assertEquals(pedido.getFechaUltimaModificacion(), restaurado.getFechaUltimaModificacion());
+            }
+        } finally {
+            cargador.detener();
+            reiniciado.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a damaged capture and keep the application starting")
+    void shouldRejectDamagedCapture() throws IOException {
+        PedidoRepositoryImpl original = new PedidoRepositoryImpl(List.of(), new SimpleMeterRegistry());
+        for (int i = 0; i < 100; i++) {
+            original.guardar(pedido(i));
+        }
+        InstantaneasPedidos instantaneas = instantaneas(original, new SimpleMeterRegistry());
+        instantaneas.capturar();
+        original.cerrar();
+        try (FileChannel canal = FileChannel.open(directorio.resolve(InstantaneasPedidos.FICHERO), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[] {0x7f, 0x7f, 0x7f, 0x7f}), 200);
+        }
+
+        PedidoRepositoryImpl reiniciado = new PedidoRepositoryImpl(List.of(), new SimpleMeterRegistry());
+        MeterRegistry registro = new SimpleMeterRegistry();
+        InstantaneasPedidos cargador = instantaneas(reiniciado, registro);
+        try {
+            cargador.run(null);
+            assertEquals(1, registro.get("pedidos.instantanea.errores").counter().count());
+        } finally {
+            reiniciado.cerrar();
+        }
+    }
+
+    private InstantaneasPedidos instantaneas(PedidoRepositoryImpl repositorio, MeterRegistry registro) {
+        return new InstantaneasPedidos(repositorio, registro, directorio, Duration.ofHours(1), 64, 2);
+    }
+
+    private static Pedido pedido(int numero) {
+        Pedido pedido = Pedido.crearNuevoPedido("cliente-" + numero,
+            new Direccion("Calle " + numero, "Madrid", String.format("28%03d", numero % 1000), "ES"), EUR);
+        pedido.agregarLineaPedido(IdentificadorProducto.nuevo(), 1 + numero % 5, new Dinero(new BigDecimal("10.50"), EUR));
+        return pedido;
+    }
+}
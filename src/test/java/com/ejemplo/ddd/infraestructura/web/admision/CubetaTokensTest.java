@@ -0,0 +1,56 @@
+package com.ejemplo.ddd.infraestructura.web.admision;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CubetaTokensTest {
+
+    private static final long UN_SEGUNDO = 1_000_000_000L;
+
+    @Test
+    @DisplayName("Should admit a full burst and then reject until tokens are refilled")
+    void shouldAdmitBurstThenReject() {
+        CubetaTokens cubeta = new CubetaTokens(10, 5);
+        long ahora = 1_000 * UN_SEGUNDO;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, cubeta.intentarConsumir(ahora), "La petición " + i + " de la ráfaga debería admitirse");
+        }
+        long espera = cubeta.intentarConsumir(ahora);
+
+        assertTrue(espera > 0);
+        assertTrue(espera <= UN_SEGUNDO / 10);
+    }
+
+    @Test
+    @DisplayName("Should refill tokens at the configured rate")
+    void shouldRefillTokensAtConfiguredRate() {
+        CubetaTokens cubeta = new CubetaTokens(10, 1);
+        long ahora = 1_000 * UN_SEGUNDO;
+
+        assertEquals(0, cubeta.intentarConsumir(ahora));
+        assertTrue(cubeta.intentarConsumir(ahora + UN_SEGUNDO / 20) > 0);
+        assertEquals(0, cubeta.intentarConsumir(ahora + UN_SEGUNDO / 10));
+    }
+
+    @Test
+    @DisplayName("Should report full bucket after the client has been idle")
+    void shouldReportFullBucketAfterIdle() {
+        CubetaTokens cubeta = new CubetaTokens(10, 3);
+        long ahora = 1_000 * UN_SEGUNDO;
+
+        assertTrue(cubeta.estaLlena(ahora));
+        cubeta.intentarConsumir(ahora);
+        assertFalse(cubeta.estaLlena(ahora));
+        assertTrue(cubeta.estaLlena(ahora + UN_SEGUNDO));
+    }
+
+    @Test
+    @DisplayName("Should reject non positive rate or burst")
+    void shouldRejectInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new CubetaTokens(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CubetaTokens(1, 0));
+    }
+}
@@ -0,0 +1,123 @@
+package com.ejemplo.ddd.infraestructura.web.admision;
+
+import com.ejemplo.ddd.infraestructura.web.IdentidadCliente;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltroControlAdmisionTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private FiltroControlAdmision filtro(double tokensPorSegundo, int rafaga, int maximoClientes, int maximoConMetricas) {
+        return new FiltroControlAdmision(registry, true, tokensPorSegundo, rafaga, 2, maximoClientes, maximoConMetricas,
+            64, 8, 512, 1_000);
+    }
+
+    private static int peticion(FiltroControlAdmision filtro, String direccion, String cabeceraCliente) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/pedidos");
+        request.setRemoteAddr(direccion);
+        if (cabeceraCliente != null) {
+            request.addHeader(IdentidadCliente.CABECERA, cabeceraCliente);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static void peticionLenta(FiltroControlAdmision filtro, String metodo, String ruta) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, ruta);
+        filtro.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private Set<String> etiquetasCliente() {
+        return registry.find("pedidos.admision.latencia").timers().stream()
+            .map(timer -> timer.getId().getTag("cliente"))
+            .collect(Collectors.toSet());
+    }
+
+    @Test
+    @DisplayName("Should give each declared client its own quota, bounded by the quota of its caller")
+    void shouldKeyQuotaOnClientWithinCaller() throws Exception {
+        // Sin recarga apreciable durante el test; cada llamante suma dos cuotas de cliente
+        FiltroControlAdmision filtro = filtro(0.001, 2, 100, 100);
+
+        assertEquals(200, peticion(filtro, "10.0.0.1", "a"));
+        assertEquals(200, peticion(filtro, "10.0.0.1", "a"));
+        assertEquals(429, peticion(filtro, "10.0.0.1", "a"), "el cliente a agota su cuota");
+        assertEquals(200, peticion(filtro, "10.0.0.1", "b"), "el cliente b tras la misma dirección conserva la suya");
+        assertEquals(200, peticion(filtro, "10.0.0.1", "b"));
+        assertEquals(429, peticion(filtro, "10.0.0.1", "c"), "cambiar la cabecera no pasa de la cuota del llamante");
+        assertEquals(200, peticion(filtro, "10.0.0.2", "c"));
+        assertEquals(1.0, registry.get("pedidos.admision.rechazos").tag("cliente", "10.0.0.1/*").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not let slow list and scan requests lower the adaptive concurrency limit")
+    void shouldExcludeScansFromLatencySignal() throws Exception {
+        // Objetivo de 1 ms: cualquier petición de 5 ms cuenta como lenta
+        FiltroControlAdmision filtro = new FiltroControlAdmision(registry, true, 1e6, 1_000, 2, 100, 100, 64, 8, 512, 1);
+        Thread.sleep(2); // Deja pasar la primera ventana de reducción
+
+        peticionLenta(filtro, "GET", "/api/pedidos");
+        peticionLenta(filtro, "GET", "/api/pedidos/busqueda");
+        peticionLenta(filtro, "GET", "/api/pedidos/cambios");
+        peticionLenta(filtro, "POST", "/api/pedidos/_mget");
+        assertEquals(64.0, registry.get("pedidos.admision.limite.concurrencia").gauge().value());
+        assertEquals(0.0, registry.get("pedidos.admision.en.vuelo").gauge().value());
+
+        peticionLenta(filtro, "GET", "/api/pedidos/" + UUID.randomUUID());
+        assertTrue(registry.get("pedidos.admision.limite.concurrencia").gauge().value() < 64.0);
+    }
+
+    @Test
+    @DisplayName("Should not track more clients than the cap and share one bucket among those that do not fit")
+    void shouldEnforceClientCap() throws Exception {
+        FiltroControlAdmision filtro = filtro(0.001, 2, 3, 2);
+
+        // Los tres primeros tienen cubeta propia y, con una petición cada uno, no se pueden purgar
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(200, peticion(filtro, "10.0.0." + i, null));
+        }
+        assertEquals(200, peticion(filtro, "10.0.1.1", null));
+        assertEquals(200, peticion(filtro, "10.0.1.2", null));
+        assertEquals(429, peticion(filtro, "10.0.1.3", null), "los que no caben comparten la cubeta común");
+        assertEquals(200, peticion(filtro, "10.0.0.1", null), "los ya registrados conservan su cuota");
+
+        assertEquals(Set.of("10.0.0.1", "10.0.0.2", "otros"), etiquetasCliente());
+    }
+
+    @Test
+    @DisplayName("Should release the metric tags of purged clients so the tag set stays bounded")
+    void shouldReleaseMetricTagsOfPurgedClients() throws Exception {
+        // Las cubetas se llenan al instante: cada alta con la tabla llena puede purgar
+        FiltroControlAdmision filtro = filtro(1e12, 1, 2, 2);
+
+        for (int i = 1; i <= 50; i++) {
+            assertEquals(200, peticion(filtro, "10.0.0." + i, null));
+        }
+
+        Set<String> etiquetas = etiquetasCliente();
+        assertTrue(etiquetas.size() <= 3, "etiquetas: " + etiquetas);
+        assertTrue(etiquetas.contains("10.0.0.50"), "un cliente nuevo recupera una etiqueta liberada");
+        Timer latencia = registry.get("pedidos.admision.latencia").tag("cliente", "10.0.0.50").timer();
+        assertEquals(1, latencia.count());
+    }
+}
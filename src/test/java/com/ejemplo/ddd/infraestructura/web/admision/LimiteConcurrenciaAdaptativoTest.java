@@ -0,0 +1,74 @@
+package com.ejemplo.ddd.infraestructura.web.admision;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimiteConcurrenciaAdaptativoTest {
+
+    private static final long OBJETIVO = 50_000_000L;
+    private static final long RAPIDA = OBJETIVO / 10;
+    private static final long LENTA = OBJETIVO * 2;
+
+    @Test
+    @DisplayName("Should admit requests up to the limit and reject the next one until a slot is released")
+    void shouldRejectAboveLimit() {
+        LimiteConcurrenciaAdaptativo limite = new LimiteConcurrenciaAdaptativo(3, 1, 10, OBJETIVO);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limite.intentarAdquirir());
+        }
+        assertFalse(limite.intentarAdquirir());
+        assertEquals(3, limite.getEnVuelo());
+
+        limite.liberar(RAPIDA, System.nanoTime());
+        assertTrue(limite.intentarAdquirir());
+    }
+
+    @Test
+    @DisplayName("Should grow the limit by about one per limit-many fast completions, up to the maximum")
+    void shouldIncreaseAdditively() {
+        LimiteConcurrenciaAdaptativo limite = new LimiteConcurrenciaAdaptativo(10, 1, 12, OBJETIVO);
+
+        completar(limite, 10, RAPIDA, System.nanoTime());
+        assertEquals(10, limite.getLimite(), "diez rápidas suman casi una unidad, sin llegar");
+        completar(limite, 1, RAPIDA, System.nanoTime());
+        assertEquals(11, limite.getLimite());
+
+        completar(limite, 1_000, RAPIDA, System.nanoTime());
+        assertEquals(12, limite.getLimite());
+    }
+
+    @Test
+    @DisplayName("Should cut the limit multiplicatively at most once per window, never below the minimum")
+    void shouldDecreaseMultiplicativelyOncePerWindow() {
+        LimiteConcurrenciaAdaptativo limite = new LimiteConcurrenciaAdaptativo(100, 60, 200, OBJETIVO);
+        long ahora = System.nanoTime() + OBJETIVO;
+
+        completar(limite, 5, LENTA, ahora);
+        assertEquals(90, limite.getLimite(), "una ráfaga de lentas en la misma ventana reduce una sola vez");
+
+        completar(limite, 1, LENTA, ahora + OBJETIVO);
+        assertEquals(81, limite.getLimite());
+
+        for (int ventana = 2; ventana < 20; ventana++) {
+            completar(limite, 1, LENTA, ahora + ventana * OBJETIVO);
+        }
+        assertEquals(60, limite.getLimite());
+    }
+
+    @Test
+    @DisplayName("Should reject a minimum that is not positive or is above the maximum")
+    void shouldRejectInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new LimiteConcurrenciaAdaptativo(1, 0, 10, OBJETIVO));
+        assertThrows(IllegalArgumentException.class, () -> new LimiteConcurrenciaAdaptativo(1, 11, 10, OBJETIVO));
+    }
+
+    private static void completar(LimiteConcurrenciaAdaptativo limite, int peticiones, long latencia, long ahora) {
+        for (int i = 0; i < peticiones; i++) {
+            assertTrue(limite.intentarAdquirir());
+            limite.liberar(latencia, ahora);
+        }
+    }
+}
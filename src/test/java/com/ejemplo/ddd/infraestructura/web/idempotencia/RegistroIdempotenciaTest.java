@@ -0,0 +1,232 @@
+package com.ejemplo.ddd.infraestructura.web.idempotencia;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistroIdempotenciaTest {
+
+    private static final String CLIENTE = "10.0.0.1";
+
+    private RegistroIdempotencia registro;
+    private AtomicInteger ejecuciones;
+
+    @BeforeEach
+    void setUp() {
+        registro = new RegistroIdempotencia(new SimpleMeterRegistry(), new ObjectMapper(), Duration.ofMinutes(10),
+            Duration.ofSeconds(5), 1000);
+        ejecuciones = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should replay the original response for a repeated key")
+    void shouldReplayOriginalResponseForRepeatedKey() {
+        ResponseEntity<String> primera = registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-1"));
+        ResponseEntity<String> repetida = registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-2"));
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(primera.getBody(), repetida.getBody());
+        assertEquals("true", repetida.getHeaders().getFirst(RegistroIdempotencia.CABECERA_REPETIDA));
+    }
+
+    @Test
+    @DisplayName("Should scope keys by operation")
+    void shouldScopeKeysByOperation() {
+        registro.ejecutar("k1", CLIENTE, "confirmar:1", null, () -> contar("a"));
+        registro.ejecutar("k1", CLIENTE, "confirmar:2", null, () -> contar("b"));
+
+        assertEquals(2, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Should make concurrent duplicates wait for the first execution")
+    void shouldMakeConcurrentDuplicatesWait() throws Exception {
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> primera = CompletableFuture.supplyAsync(() ->
+            registro.ejecutar("k1", CLIENTE, "crear", null, () -> {
+                enCurso.countDown();
+                esperar(liberar);
+                return contar("pedido-1");
+            }));
+        assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<ResponseEntity<String>> duplicada = CompletableFuture.supplyAsync(() ->
+            registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-2")));
+        Thread.sleep(50);
+        assertFalse(duplicada.isDone());
+
+        liberar.countDown();
+        assertEquals("pedido-1", primera.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("pedido-1", duplicada.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Should release the key after a server error so the client can retry")
+    void shouldReleaseKeyAfterServerError() {
+        assertThrows(ResponseStatusException.class, () -> registro.ejecutar("k1", CLIENTE, "crear", null, () -> {
+            ejecuciones.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "fallo");
+        }));
+        ResponseEntity<String> reintento = registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-1"));
+
+        assertEquals(2, ejecuciones.get());
+        assertEquals("pedido-1", reintento.getBody());
+    }
+
+    @Test
+    @DisplayName("Should remember client errors for the same key")
+    void shouldRememberClientErrors() {
+        assertThrows(ResponseStatusException.class, () -> registro.ejecutar("k1", CLIENTE, "confirmar:1", null, () -> {
+            ejecuciones.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "estado inválido");
+        }));
+        ResponseStatusException repetida = assertThrows(ResponseStatusException.class,
+            () -> registro.ejecutar("k1", CLIENTE, "confirmar:1", null, () -> contar("ok")));
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(HttpStatus.BAD_REQUEST, repetida.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should keep the same key from different clients apart")
+    void shouldScopeKeysByClient() {
+        ResponseEntity<String> primera = registro.ejecutar("k1", "10.0.0.1", "crear", "pedido", () -> contar("pedido-1"));
+        ResponseEntity<String> otroCliente = registro.ejecutar("k1", "10.0.0.2", "crear", "pedido", () -> contar("pedido-2"));
+
+        assertEquals(2, ejecuciones.get());
+        assertEquals("pedido-1", primera.getBody());
+        assertEquals("pedido-2", otroCliente.getBody());
+        assertNull(otroCliente.getHeaders().getFirst(RegistroIdempotencia.CABECERA_REPETIDA));
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused with a different request body with 422")
+    void shouldRejectKeyReusedWithDifferentBody() {
+        registro.ejecutar("k1", CLIENTE, "crear", new Cuerpo("c1", 2), () -> contar("pedido-1"));
+        ResponseEntity<String> repetida = registro.ejecutar("k1", CLIENTE, "crear", new Cuerpo("c1", 2), () -> contar("x"));
+        ResponseStatusException distinta = assertThrows(ResponseStatusException.class,
+            () -> registro.ejecutar("k1", CLIENTE, "crear", new Cuerpo("c1", 3), () -> contar("pedido-2")));
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals("pedido-1", repetida.getBody());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, distinta.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should answer 409 to a duplicate when the first execution outlives the maximum wait")
+    void shouldBoundWaitForStuckFirstExecution() throws Exception {
+        registro = new RegistroIdempotencia(new SimpleMeterRegistry(), new ObjectMapper(), Duration.ofMinutes(10),
+            Duration.ofMillis(50), 1000);
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> primera = CompletableFuture.supplyAsync(() ->
+            registro.ejecutar("k1", CLIENTE, "crear", null, () -> {
+                enCurso.countDown();
+                esperar(liberar);
+                return contar("pedido-1");
+            }));
+        assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+
+        ResponseStatusException enConflicto = assertThrows(ResponseStatusException.class,
+            () -> registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-2")));
+        assertEquals(HttpStatus.CONFLICT, enConflicto.getStatusCode());
+
+        liberar.countDown();
+        assertEquals("pedido-1", primera.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("pedido-1", registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-3")).getBody());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Should release the key when the first execution throws an Error")
+    void shouldReleaseKeyAfterError() {
+        assertThrows(StackOverflowError.class, () -> registro.ejecutar("k1", CLIENTE, "crear", null, () -> {
+            ejecuciones.incrementAndGet();
+            throw new StackOverflowError();
+        }));
+        ResponseEntity<String> reintento = registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-1"));
+
+        assertEquals(2, ejecuciones.get());
+        assertEquals("pedido-1", reintento.getBody());
+    }
+
+    @Test
+    @DisplayName("Should evict expired keys oldest first and skip registration while the oldest is still live")
+    void shouldEvictExpiredKeysInOrder() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        registro = new RegistroIdempotencia(meterRegistry, new ObjectMapper(), Duration.ofMillis(200),
+            Duration.ofSeconds(5), 2);
+        registro.ejecutar("k1", CLIENTE, "crear", null, () -> contar("pedido-1"));
+        registro.ejecutar("k2", CLIENTE, "crear", null, () -> contar("pedido-2"));
+        // Lleno y sin claves caducadas: se ejecuta sin registrar
+        registro.ejecutar("k3", CLIENTE, "crear", null, () -> contar("pedido-3"));
+        registro.ejecutar("k3", CLIENTE, "crear", null, () -> contar("pedido-3"));
+        assertEquals(4, ejecuciones.get());
+
+        Thread.sleep(250);
+        registro.ejecutar("k4", CLIENTE, "crear", null, () -> contar("pedido-4"));
+        ResponseEntity<String> repetida = registro.ejecutar("k4", CLIENTE, "crear", null, () -> contar("otro"));
+
+        assertEquals(5, ejecuciones.get());
+        assertEquals("pedido-4", repetida.getBody());
+        assertEquals(1.0, meterRegistry.get("pedidos.idempotencia.claves").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should scope keys by the authenticated user, falling back to the remote address")
+    void shouldScopeKeysByPrincipalThenRemoteAddress() {
+        ResponseEntity<String> ana = registro.ejecutar("k1", peticion("ana", "10.0.0.1"), "crear", null, () -> contar("a"));
+        ResponseEntity<String> anaDesdeOtraDireccion =
+            registro.ejecutar("k1", peticion("ana", "10.0.0.2"), "crear", null, () -> contar("b"));
+        ResponseEntity<String> luisMismaDireccion =
+            registro.ejecutar("k1", peticion("luis", "10.0.0.1"), "crear", null, () -> contar("c"));
+        ResponseEntity<String> anonimo = registro.ejecutar("k1", peticion(null, "10.0.0.1"), "crear", null, () -> contar("d"));
+
+        assertEquals(3, ejecuciones.get());
+        assertEquals("a", ana.getBody());
+        assertEquals("a", anaDesdeOtraDireccion.getBody());
+        assertEquals("c", luisMismaDireccion.getBody());
+        assertEquals("d", anonimo.getBody());
+    }
+
+    private static HttpServletRequest peticion(String usuario, String direccion) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/pedidos");
+        request.setRemoteAddr(direccion);
+        if (usuario != null) {
+            request.setUserPrincipal(() -> usuario);
+        }
+        return request;
+    }
+
+    private record Cuerpo(String idCliente, int cantidad) {}
+
+    private ResponseEntity<String> contar(String cuerpo) {
+        ejecuciones.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(cuerpo);
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}